@@ -1,8 +1,8 @@
 package com.fckawe.engine.core;
 
-import java.util.Observable;
-import java.util.Observer;
-
+import com.fckawe.engine.game.Game;
+import com.fckawe.engine.grafix.Bitmaps;
+import com.fckawe.engine.physics.WorldBounds;
 import com.fckawe.engine.ui.UserInterface;
 
 /**
@@ -11,12 +11,14 @@ import com.fckawe.engine.ui.UserInterface;
  * 
  * @author fckawe
  */
-public class Application implements Observer, Heart.StopListener {
+public class Application implements Heart.StopListener {
 
 	private Heart heart;
 
 	private UserInterface ui;
 
+	private Game headlessGame;
+
 	/**
 	 * The default constructor to initialize the application.
 	 */
@@ -35,10 +37,13 @@ public class Application implements Observer, Heart.StopListener {
 	 * Initializes all required parts (e.g. the heart and the user interface).
 	 */
 	protected void init() {
-		Session.getSession().getHeart().start();
 		heart = Session.getSession().getHeart();
-		heart.addObserver(this);
-		initUserInterface();
+		if (Session.getSession().getConfiguration().getHeartCat().isHeadless()) {
+			initHeadlessGame();
+		} else {
+			initUserInterface();
+		}
+		heart.start();
 	}
 
 	/**
@@ -47,13 +52,34 @@ public class Application implements Observer, Heart.StopListener {
 	protected void initUserInterface() {
 		ui = Session.getSession().getFckaweFactory().newUserInterface();
 		ui.start();
-		heart.addObserver(ui);
+		heart.addHeartListener(ui);
+	}
+
+	/**
+	 * Initializes the game without any user interface. The world bounds are
+	 * given by the configured screen size.
+	 */
+	protected void initHeadlessGame() {
+		System.setProperty("java.awt.headless", "true");
+
+		Session session = Session.getSession();
+		Configuration cfg = session.getConfiguration();
+		WorldBounds worldBounds = new WorldBounds(cfg.getScreenCat()
+				.getWidth(), cfg.getScreenCat().getHeight());
+		Bitmaps bitmaps = new Bitmaps();
+		bitmaps.setDecodeThreads(cfg.getAssetsCat().getDecodeThreads());
+		bitmaps.getCache().setBudget(
+				cfg.getAssetsCat().getCacheBudget() * 1024L * 1024L);
+		bitmaps.addPack(cfg.getAssetsCat().getSpritePack());
+		headlessGame = session.getFckaweFactory().newGame(worldBounds,
+				bitmaps);
+		heart.addHeartListener(new HeadlessGameListener());
 	}
 
 	/**
 	 * Returns the user interface.
 	 * 
-	 * @return The user interface.
+	 * @return The user interface or null, if the game runs headless.
 	 */
 	public UserInterface getUserInterface() {
 		return ui;
@@ -61,24 +87,47 @@ public class Application implements Observer, Heart.StopListener {
 
 	@Override
 	public void heartStopping() {
-		ui.stop();
+		if (ui != null) {
+			ui.stop();
+		}
+		if (headlessGame != null) {
+			headlessGame.stop();
+			headlessGame.getBitmaps().shutdown();
+		}
 	}
 
-	@Override
-	public void update(final Observable observable, final Object data) {
-		// TODO: currently nothing to to...
-		// if (observable == Session.getSession().getHeart()) {
-		// Heart.Event event = null;
-		// if (data instanceof Heart.Event) {
-		// event = (Heart.Event) data;
-		// } else if (data instanceof Heart.EventData) {
-		// Heart.EventData o = (Heart.EventData) data;
-		// event = o.getEvent();
-		// } else {
-		// throw new IllegalStateException("Unexpected data type: "
-		// + data.getClass().getName());
-		// }
-		// }
+	/**
+	 * Heart listener that performs the ticks of a headless game.
+	 * 
+	 * @author fckawe
+	 */
+	private class HeadlessGameListener implements HeartListener {
+
+		@Override
+		public void onHeartStart() {
+			Session.getSession().getMainLogger().info("Headless game started.");
+		}
+
+		@Override
+		public void onTick(final long nanos) {
+			headlessGame.tick(null, nanos);
+		}
+
+		@Override
+		public void onRender(final double alpha) {
+			// nothing to render
+		}
+
+		@Override
+		public void onShow() {
+			// nothing to show
+		}
+
+		@Override
+		public void onFpsUpdated(final double fps) {
+			// the headless heart logs its statistics itself
+		}
+
 	}
 
 }
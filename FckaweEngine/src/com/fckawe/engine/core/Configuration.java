@@ -23,6 +23,10 @@ public class Configuration {
 
 	private ScreenCategory screenCat;
 
+	private HeartCategory heartCat;
+
+	private AssetsCategory assetsCat;
+
 	private SessionCategory sessionCat;
 
 	/**
@@ -88,6 +92,15 @@ public class Configuration {
 		return "/config.xml";
 	}
 
+	/**
+	 * Returns the path of the configuration file (as a resource path).
+	 * 
+	 * @return The path of the configuration file.
+	 */
+	public String getFilePath() {
+		return getConfigFilePath();
+	}
+
 	/**
 	 * Returns the configuration category "application".
 	 * 
@@ -106,6 +119,24 @@ public class Configuration {
 		return screenCat;
 	}
 
+	/**
+	 * Returns the configuration category "heart".
+	 * 
+	 * @return The configuration category "heart" with its values.
+	 */
+	public HeartCategory getHeartCat() {
+		return heartCat;
+	}
+
+	/**
+	 * Returns the configuration category "assets".
+	 * 
+	 * @return The configuration category "assets" with its values.
+	 */
+	public AssetsCategory getAssetsCat() {
+		return assetsCat;
+	}
+
 	/**
 	 * Returns the configuration category "session".
 	 * 
@@ -130,6 +161,12 @@ public class Configuration {
 		screenCat = createScreenCategory();
 		cats.add(screenCat);
 
+		heartCat = createHeartCategory();
+		cats.add(heartCat);
+
+		assetsCat = createAssetsCategory();
+		cats.add(assetsCat);
+
 		sessionCat = createSessionCategory();
 		cats.add(sessionCat);
 
@@ -158,6 +195,28 @@ public class Configuration {
 		return new ScreenCategory();
 	}
 
+	/**
+	 * Creates and returns a new and empty instance of the "heart" category.
+	 * You can override this method to extend this category (creating an object
+	 * from an own class which extends the default class).
+	 * 
+	 * @return A new and empty instance of the "heart" category.
+	 */
+	protected HeartCategory createHeartCategory() {
+		return new HeartCategory();
+	}
+
+	/**
+	 * Creates and returns a new and empty instance of the "assets" category.
+	 * You can override this method to extend this category (creating an object
+	 * from an own class which extends the default class).
+	 * 
+	 * @return A new and empty instance of the "assets" category.
+	 */
+	protected AssetsCategory createAssetsCategory() {
+		return new AssetsCategory();
+	}
+
 	/**
 	 * Creates and returns a new and empty instance of the "session" category.
 	 * You can override this method to extend this category (creating an object
@@ -355,6 +414,16 @@ public class Configuration {
 
 		private boolean showFps;
 
+		private boolean showPerfOverlay;
+
+		private boolean dirtyRects;
+
+		private int rasterThreads;
+
+		private String blender;
+
+		private boolean premultipliedAlpha;
+
 		@Override
 		protected String getElementPath() {
 			return "screen";
@@ -376,6 +445,15 @@ public class Configuration {
 					+ "fullscreen");
 			showFps = parseBoolean(values, path + Breadcrumb.PATH_SEPARATOR
 					+ "showFps");
+			showPerfOverlay = parseBoolean(values, path
+					+ Breadcrumb.PATH_SEPARATOR + "showPerfOverlay");
+			dirtyRects = parseBoolean(values, path + Breadcrumb.PATH_SEPARATOR
+					+ "dirtyRects");
+			rasterThreads = parseInt(values, path + Breadcrumb.PATH_SEPARATOR
+					+ "rasterThreads");
+			blender = values.get(path + Breadcrumb.PATH_SEPARATOR + "blender");
+			premultipliedAlpha = parseBoolean(values, path
+					+ Breadcrumb.PATH_SEPARATOR + "premultipliedAlpha");
 			if (logger != null && logger.isInfoEnabled()) {
 				logger.info("Screen.width = " + width);
 				logger.info("Screen.height = " + height);
@@ -384,6 +462,11 @@ public class Configuration {
 				logger.info("Screen.refreshRate = " + refreshRate);
 				logger.info("Screen.fullScreen = " + fullScreen);
 				logger.info("Screen.showFps = " + showFps);
+				logger.info("Screen.showPerfOverlay = " + showPerfOverlay);
+				logger.info("Screen.dirtyRects = " + dirtyRects);
+				logger.info("Screen.rasterThreads = " + rasterThreads);
+				logger.info("Screen.blender = " + blender);
+				logger.info("Screen.premultipliedAlpha = " + premultipliedAlpha);
 			}
 		}
 
@@ -452,6 +535,348 @@ public class Configuration {
 			return showFps;
 		}
 
+		/**
+		 * Returns true, if the performance overlay should be displayed on the
+		 * screen right from the start (it can always be toggled with F3).
+		 * 
+		 * @return True, if the performance overlay should be displayed.
+		 */
+		public boolean isShowPerfOverlay() {
+			return showPerfOverlay;
+		}
+
+		/**
+		 * Returns true, if only the changed regions of the screen should be
+		 * redrawn and copied to the display (dirty rectangles), instead of the
+		 * whole screen with every frame.
+		 * 
+		 * @return True, if dirty rectangles should be used.
+		 */
+		public boolean isDirtyRects() {
+			return dirtyRects;
+		}
+
+		/**
+		 * Returns the number of threads that rasterize the screen in parallel
+		 * (each within its own horizontal bands).
+		 * 
+		 * @return The number of raster threads: 1 to draw immediately within
+		 *         the heart's thread, 0 to use one thread per available
+		 *         processor.
+		 */
+		public int getRasterThreads() {
+			return rasterThreads;
+		}
+
+		/**
+		 * Returns the name of the implementation which performs the alpha
+		 * blending ("swar" or "scalar").
+		 * 
+		 * @return The name of the blender.
+		 */
+		public String getBlender() {
+			return blender;
+		}
+
+		/**
+		 * Returns true, if loaded bitmaps should be converted to premultiplied
+		 * alpha, which saves some multiplications per blended pixel. Only
+		 * useful if the bitmaps are blitted with blending.
+		 * 
+		 * @return True, if bitmaps get premultiplied while loading.
+		 */
+		public boolean isPremultipliedAlpha() {
+			return premultipliedAlpha;
+		}
+
+	}
+
+	/**
+	 * The configuration category which contains configuration values related
+	 * with the heart (the game loop).
+	 * 
+	 * @author fckawe
+	 */
+	public class HeartCategory extends AbstractCategory {
+
+		private int targetFps;
+
+		private String framePacer;
+
+		private boolean fixedTimestep;
+
+		private int tickRate;
+
+		private boolean renderThread;
+
+		private boolean headless;
+
+		private double speedFactor;
+
+		private double timeScale;
+
+		private int frameBudget;
+
+		private boolean watchdog;
+
+		private boolean profiling;
+
+		private int profilerWindow;
+
+		@Override
+		protected String getElementPath() {
+			return "heart";
+		}
+
+		@Override
+		protected void parseInternal(final Breadcrumb path,
+				final Map<String, String> values) {
+			targetFps = parseInt(values, path + Breadcrumb.PATH_SEPARATOR
+					+ "targetFps");
+			framePacer = values.get(path + Breadcrumb.PATH_SEPARATOR
+					+ "framepacer");
+			fixedTimestep = parseBoolean(values, path
+					+ Breadcrumb.PATH_SEPARATOR + "fixedTimestep");
+			tickRate = parseInt(values, path + Breadcrumb.PATH_SEPARATOR
+					+ "tickRate");
+			renderThread = parseBoolean(values, path
+					+ Breadcrumb.PATH_SEPARATOR + "renderThread");
+			headless = parseBoolean(values, path + Breadcrumb.PATH_SEPARATOR
+					+ "headless");
+			speedFactor = parseDouble(values, path + Breadcrumb.PATH_SEPARATOR
+					+ "speedFactor");
+			timeScale = parseDouble(values, path + Breadcrumb.PATH_SEPARATOR
+					+ "timeScale");
+			frameBudget = parseInt(values, path + Breadcrumb.PATH_SEPARATOR
+					+ "frameBudget");
+			watchdog = parseBoolean(values, path + Breadcrumb.PATH_SEPARATOR
+					+ "watchdog");
+			profiling = parseBoolean(values, path + Breadcrumb.PATH_SEPARATOR
+					+ "profiling");
+			profilerWindow = parseInt(values, path
+					+ Breadcrumb.PATH_SEPARATOR + "profilerWindow");
+			if (logger != null && logger.isInfoEnabled()) {
+				logger.info("Heart.targetFps = " + targetFps);
+				logger.info("Heart.framePacer = " + framePacer);
+				logger.info("Heart.fixedTimestep = " + fixedTimestep);
+				logger.info("Heart.tickRate = " + tickRate);
+				logger.info("Heart.renderThread = " + renderThread);
+				logger.info("Heart.headless = " + headless);
+				logger.info("Heart.speedFactor = " + speedFactor);
+				logger.info("Heart.timeScale = " + timeScale);
+				logger.info("Heart.frameBudget = " + frameBudget);
+				logger.info("Heart.watchdog = " + watchdog);
+				logger.info("Heart.profiling = " + profiling);
+				logger.info("Heart.profilerWindow = " + profilerWindow);
+			}
+		}
+
+		/**
+		 * Returns the desired number of frames per second.
+		 * 
+		 * @return The desired number of frames per second.
+		 */
+		public int getTargetFps() {
+			return targetFps;
+		}
+
+		/**
+		 * Returns the name of the strategy with which the heart waits for the
+		 * end of a frame ("sleep" or "hybrid").
+		 * 
+		 * @return The name of the frame pacer.
+		 */
+		public String getFramePacer() {
+			return framePacer;
+		}
+
+		/**
+		 * Returns true, if the game logic should be updated with ticks of a
+		 * fixed duration (independent of the frame rate).
+		 * 
+		 * @return True, if the game logic uses a fixed timestep.
+		 */
+		public boolean isFixedTimestep() {
+			return fixedTimestep;
+		}
+
+		/**
+		 * Returns the number of fixed ticks per second (only used if the game
+		 * logic uses a fixed timestep).
+		 * 
+		 * @return The number of ticks per second.
+		 */
+		public int getTickRate() {
+			return tickRate;
+		}
+
+		/**
+		 * Returns true, if the rendering should run within its own thread,
+		 * decoupled from the ticks (which then always use the tick rate).
+		 * 
+		 * @return True, if the rendering should run within its own thread.
+		 */
+		public boolean isRenderThread() {
+			return renderThread;
+		}
+
+		/**
+		 * Returns true, if the game should run without any user interface
+		 * (e.g. for simulation runs on servers).
+		 * 
+		 * @return True, if the game should run headless.
+		 */
+		public boolean isHeadless() {
+			return headless;
+		}
+
+		/**
+		 * Returns the multiple of real time with which a headless game should
+		 * run. A value of 0 (or less) means as fast as possible.
+		 * 
+		 * @return The speed factor of headless runs.
+		 */
+		public double getSpeedFactor() {
+			return speedFactor;
+		}
+
+		/**
+		 * Returns the factor with which the game time passes relative to the
+		 * real time when the heart starts (e.g. 8.0 for fast regression runs).
+		 * 
+		 * @return The initial time scale.
+		 */
+		public double getTimeScale() {
+			return timeScale;
+		}
+
+		/**
+		 * Returns the time a frame may take (value in ms). If the budget is
+		 * exceeded, jobs of lower priority get deferred. 0 means the frame
+		 * period given by the target FPS.
+		 * 
+		 * @return The frame budget in milliseconds.
+		 */
+		public int getFrameBudget() {
+			return frameBudget;
+		}
+
+		/**
+		 * Returns true, if a watchdog should report frames that exceed the
+		 * frame budget.
+		 * 
+		 * @return True, if the watchdog is enabled.
+		 */
+		public boolean isWatchdog() {
+			return watchdog;
+		}
+
+		/**
+		 * Returns true, if the durations of the phases of a frame should be
+		 * measured by the frame profiler.
+		 * 
+		 * @return True, if profiling is enabled.
+		 */
+		public boolean isProfiling() {
+			return profiling;
+		}
+
+		/**
+		 * Returns the number of seconds the sliding window of the frame
+		 * profiler covers.
+		 * 
+		 * @return The size of the profiler window in seconds.
+		 */
+		public int getProfilerWindow() {
+			return profilerWindow;
+		}
+
+	}
+
+	/**
+	 * The configuration category which contains configuration values related
+	 * with the loading of assets (like bitmaps).
+	 * 
+	 * @author fckawe
+	 */
+	public class AssetsCategory extends AbstractCategory {
+
+		private int decodeThreads;
+
+		private int cacheBudget;
+
+		private String spritePack;
+
+		private boolean hotReload;
+
+		@Override
+		protected String getElementPath() {
+			return "assets";
+		}
+
+		@Override
+		protected void parseInternal(final Breadcrumb path,
+				final Map<String, String> values) {
+			decodeThreads = parseInt(values, path + Breadcrumb.PATH_SEPARATOR
+					+ "decodeThreads");
+			cacheBudget = parseInt(values, path + Breadcrumb.PATH_SEPARATOR
+					+ "cacheBudget");
+			spritePack = values.get(path + Breadcrumb.PATH_SEPARATOR
+					+ "spritepack");
+			hotReload = parseBoolean(values, path + Breadcrumb.PATH_SEPARATOR
+					+ "hotReload");
+			if (logger != null && logger.isInfoEnabled()) {
+				logger.info("Assets.decodeThreads = " + decodeThreads);
+				logger.info("Assets.cacheBudget = " + cacheBudget);
+				logger.info("Assets.spritePack = " + spritePack);
+				logger.info("Assets.hotReload = " + hotReload);
+			}
+		}
+
+		/**
+		 * Returns the number of threads that decode bitmaps which are loaded
+		 * asynchronously (e.g. while a loading module is shown). 0 means one
+		 * thread per processor.
+		 * 
+		 * @return The number of decode threads.
+		 */
+		public int getDecodeThreads() {
+			return decodeThreads;
+		}
+
+		/**
+		 * Returns the memory budget of the bitmap cache (value in MB). If the
+		 * bitmaps exceed the budget, the bitmaps no module references
+		 * anymore get evicted. 0 means unlimited.
+		 * 
+		 * @return The memory budget of the bitmap cache in MB.
+		 */
+		public int getCacheBudget() {
+			return cacheBudget;
+		}
+
+		/**
+		 * Returns the path of the sprite pack file with the pre-baked bitmaps
+		 * and sprites (see {@link com.fckawe.engine.grafix.SpritePackWriter}).
+		 * If the file doesn't exist, the images are decoded at runtime.
+		 * 
+		 * @return The path of the sprite pack file.
+		 */
+		public String getSpritePack() {
+			return spritePack;
+		}
+
+		/**
+		 * Returns true, if the resource directory is watched and changed
+		 * images, fonts and configuration values are reloaded while the game
+		 * is running (a development mode).
+		 * 
+		 * @return True, if hot reloading is enabled.
+		 */
+		public boolean isHotReload() {
+			return hotReload;
+		}
+
 	}
 
 	/**
@@ -0,0 +1,29 @@
+package com.fckawe.engine.core;
+
+/**
+ * A frame pacer is the strategy with which the heart waits for the end of a
+ * frame (or a tick) in order to reach the desired rate as exactly as possible.
+ * A pacer instance must only be used by a single thread.
+ * 
+ * @author fckawe
+ */
+public interface FramePacer {
+
+	/**
+	 * Initializes the pacer. The first frame starts now.
+	 * 
+	 * @param framePeriod
+	 *            The desired duration of a frame (value in ns).
+	 */
+	public void init(long framePeriod);
+
+	/**
+	 * Waits until the current frame is over.
+	 * 
+	 * @param frameStart
+	 *            The time (value of System.nanoTime()) when the current frame
+	 *            began.
+	 */
+	public void awaitFrameEnd(long frameStart);
+
+}
@@ -0,0 +1,218 @@
+package com.fckawe.engine.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+
+import com.fckawe.engine.utils.LatencyHistogram;
+
+/**
+ * The frame profiler measures the durations of the phases of a frame (see
+ * {@link Phase}). The durations are recorded into histograms with a fixed
+ * memory footprint, without locks and without allocations, so the profiler can
+ * stay enabled in production builds.
+ * <p>
+ * The histograms of a phase form a sliding window: each histogram covers one
+ * interval (the heart calls {@link #rotate()} once per second), the window
+ * covers the latest <code>windowSize</code> intervals. On every rotation the
+ * p50/p95/p99/max values of the whole window are calculated and cached, so
+ * reading them (e.g. every frame for an overlay) is cheap.
+ * <p>
+ * Usage:
+ * 
+ * <pre>
+ * long start = profiler.start();
+ * // ... do the work of the phase ...
+ * profiler.stop(FrameProfiler.Phase.RENDER, start);
+ * </pre>
+ * 
+ * @author fckawe
+ */
+public class FrameProfiler {
+
+	/**
+	 * The phases of a frame that get profiled. ENTITY_TICK is recorded once
+	 * per entity and is part of MODULE_TICK. MODULE_LOAD is recorded when the
+	 * game switches to another module. RASTER is only recorded if the screen
+	 * is rasterized in parallel (RENDER and FONTS then only record the draw
+	 * commands).
+	 * 
+	 * @author fckawe
+	 */
+	public enum Phase {
+		INPUT_TICK, MODULE_TICK, ENTITY_TICK, MODULE_LOAD, RENDER, FONTS,
+		RASTER, BLIT, SHOW
+	};
+
+	/**
+	 * The percentiles that are reported for each phase (100 is the maximum).
+	 */
+	public static final int[] PERCENTILES = { 50, 95, 99, 100 };
+
+	private static final Phase[] PHASES = Phase.values();
+
+	private final boolean enabled;
+
+	private final int windowSize;
+
+	// the histograms of all phases: [phase][interval of the window]
+	private final LatencyHistogram[][] histograms;
+
+	// the histogram to merge the intervals of a window into
+	private final LatencyHistogram merged = new LatencyHistogram();
+
+	// the index of the interval values are currently recorded into
+	private volatile int current;
+
+	// the cached percentiles: [phase * PERCENTILES.length + percentile]
+	private final AtomicLongArray results;
+
+	// the cached numbers of recorded values of the whole window per phase
+	private final AtomicLongArray counts;
+
+	/**
+	 * Constructor to create a new frame profiler.
+	 * 
+	 * @param enabled
+	 *            False, if nothing should be measured at all.
+	 * @param windowSize
+	 *            The number of intervals the sliding window covers.
+	 */
+	public FrameProfiler(final boolean enabled, final int windowSize) {
+		this.enabled = enabled;
+		this.windowSize = windowSize < 1 ? 1 : windowSize;
+		histograms = new LatencyHistogram[PHASES.length][];
+		if (enabled) {
+			for (int i = 0; i < PHASES.length; i++) {
+				histograms[i] = new LatencyHistogram[this.windowSize];
+				for (int j = 0; j < this.windowSize; j++) {
+					histograms[i][j] = new LatencyHistogram();
+				}
+			}
+		}
+		results = new AtomicLongArray(PHASES.length * PERCENTILES.length);
+		counts = new AtomicLongArray(PHASES.length);
+	}
+
+	/**
+	 * Returns true, if the profiler measures anything.
+	 * 
+	 * @return True, if the profiler is enabled.
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Returns the start time of a phase to be passed to
+	 * {@link #stop(Phase, long)} afterwards.
+	 * 
+	 * @return The current time (value in ns) or 0, if the profiler is
+	 *         disabled.
+	 */
+	public long start() {
+		return enabled ? System.nanoTime() : 0l;
+	}
+
+	/**
+	 * Records the duration of a phase which started at the given time.
+	 * 
+	 * @param phase
+	 *            The phase that has finished.
+	 * @param startTime
+	 *            The start time of the phase as returned by {@link #start()}.
+	 */
+	public void stop(final Phase phase, final long startTime) {
+		if (enabled) {
+			record(phase, System.nanoTime() - startTime);
+		}
+	}
+
+	/**
+	 * Records the given duration of a phase.
+	 * 
+	 * @param phase
+	 *            The phase.
+	 * @param duration
+	 *            The duration of the phase (value in ns).
+	 */
+	public void record(final Phase phase, final long duration) {
+		if (enabled) {
+			histograms[phase.ordinal()][current].record(duration);
+		}
+	}
+
+	/**
+	 * Finishes the current interval: the cached percentiles get calculated
+	 * over the whole window and the oldest interval gets dropped. Must always
+	 * be called from within the same thread.
+	 */
+	public void rotate() {
+		if (!enabled) {
+			return;
+		}
+		for (int i = 0; i < PHASES.length; i++) {
+			merged.reset();
+			for (int j = 0; j < windowSize; j++) {
+				merged.add(histograms[i][j]);
+			}
+			for (int p = 0; p < PERCENTILES.length; p++) {
+				results.set(i * PERCENTILES.length + p,
+						merged.getPercentile(PERCENTILES[p]));
+			}
+			counts.set(i, merged.getCount());
+		}
+
+		int next = (current + 1) % windowSize;
+		for (int i = 0; i < PHASES.length; i++) {
+			histograms[i][next].reset();
+		}
+		current = next;
+
+		Logger logger = Session.getSession() == null ? null : Session
+				.getSession().getHeartLogger();
+		if (logger != null && logger.isDebugEnabled()) {
+			for (Phase phase : PHASES) {
+				logger.debug(String.format("%s: p50=%dus p95=%dus p99=%dus "
+						+ "max=%dus", phase, getPercentile(phase, 50) / 1000,
+						getPercentile(phase, 95) / 1000,
+						getPercentile(phase, 99) / 1000,
+						getPercentile(phase, 100) / 1000));
+			}
+		}
+	}
+
+	/**
+	 * Returns the given percentile of the durations of the given phase within
+	 * the sliding window, as calculated by the latest {@link #rotate()} call.
+	 * 
+	 * @param phase
+	 *            The phase.
+	 * @param percentile
+	 *            One of the reported percentiles: 50, 95, 99 or 100 (max).
+	 * @return The duration percentile in nanoseconds.
+	 */
+	public long getPercentile(final Phase phase, final int percentile) {
+		for (int p = 0; p < PERCENTILES.length; p++) {
+			if (PERCENTILES[p] == percentile) {
+				return results.get(phase.ordinal() * PERCENTILES.length + p);
+			}
+		}
+		throw new IllegalArgumentException("Unsupported percentile: "
+				+ percentile);
+	}
+
+	/**
+	 * Returns the number of durations of the given phase that were recorded
+	 * within the sliding window, as calculated by the latest {@link #rotate()}
+	 * call.
+	 * 
+	 * @param phase
+	 *            The phase.
+	 * @return The number of recorded durations.
+	 */
+	public long getCount(final Phase phase) {
+		return counts.get(phase.ordinal());
+	}
+
+}
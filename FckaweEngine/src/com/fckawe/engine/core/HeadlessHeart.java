@@ -0,0 +1,159 @@
+package com.fckawe.engine.core;
+
+import org.slf4j.Logger;
+
+import com.fckawe.engine.utils.LatencyHistogram;
+
+/**
+ * A heart for headless runs of the game logic (soak tests, simulations on
+ * servers and so on). It only fires ticks with the fixed tick period, never
+ * renders and never sleeps: It ticks as fast as possible or, if a speed factor
+ * is configured, with the given multiple of real time (multiplied by the time
+ * scale of the heart). Pausing and single-step ticks are supported as well. Every second the number
+ * of ticks per second and the percentiles of the tick latencies get logged.
+ * The ticks per second are also signaled as FPS value to the listeners.
+ * 
+ * @author fckawe
+ */
+public class HeadlessHeart extends Heart {
+
+	// interval for performing statistics (value in ns)
+	private final static long STAT_INTERVAL = 1000000000l;
+
+	// the durations of the ticks within the current statistics interval
+	private final LatencyHistogram tickLatencies = new LatencyHistogram();
+
+	private volatile double ticksPerSecond;
+
+	private volatile long latencyP50, latencyP95, latencyP99, latencyMax;
+
+	private volatile long totalTicks;
+
+	/**
+	 * Constructor to create a new headless heart, giving a StopListener that
+	 * gets informed if the heart will be stopped.
+	 * 
+	 * @param stopListener
+	 *            The StopListener that gets informed if the heart will be
+	 *            stopped.
+	 */
+	public HeadlessHeart(final StopListener stopListener) {
+		super(stopListener);
+	}
+
+	@Override
+	protected void runLoop() {
+		double speedFactor = Session.getSession().getConfiguration()
+				.getHeartCat().getSpeedFactor();
+		long tickPeriod = getTickPeriod();
+		long dueTime = System.nanoTime();
+		long statStartTime = dueTime;
+		long statTicks = 0;
+		long ticks = 0;
+
+		while (!isExitRequested()) {
+			if (isPaused() && !consumeStep()) {
+				Thread.yield();
+				// do not catch up the paused time afterwards
+				dueTime = System.nanoTime();
+				continue;
+			}
+			if (speedFactor > 0) {
+				// busy wait (no sleeping) until the tick is due
+				while (System.nanoTime() - dueTime < 0 && !isExitRequested()) {
+					Thread.yield();
+				}
+				dueTime += (long) (tickPeriod / (speedFactor * getTimeScale()));
+			}
+
+			long beginTime = System.nanoTime();
+			getWatchdog().beginFrame();
+			fireTick(tickPeriod);
+			getWatchdog().endFrame();
+			long endTime = System.nanoTime();
+
+			tickLatencies.record(endTime - beginTime);
+			ticks++;
+			statTicks++;
+
+			if (endTime - statStartTime >= STAT_INTERVAL) {
+				updateStats(endTime - statStartTime, statTicks);
+				statStartTime = endTime;
+				statTicks = 0;
+			}
+			totalTicks = ticks;
+		}
+	}
+
+	/**
+	 * Calculates, logs and signals the statistics of the past interval.
+	 * 
+	 * @param interval
+	 *            The duration of the interval (value in ns).
+	 * @param ticks
+	 *            The number of ticks within the interval.
+	 */
+	private void updateStats(final long interval, final long ticks) {
+		ticksPerSecond = ticks * (double) STAT_INTERVAL / interval;
+		latencyP50 = tickLatencies.getPercentile(50.0);
+		latencyP95 = tickLatencies.getPercentile(95.0);
+		latencyP99 = tickLatencies.getPercentile(99.0);
+		latencyMax = tickLatencies.getMax();
+		tickLatencies.reset();
+		getProfiler().rotate();
+
+		Logger logger = Session.getSession().getHeartLogger();
+		if (logger.isInfoEnabled()) {
+			logger.info(String.format("%.1f ticks/s, tick latency "
+					+ "p50=%dus p95=%dus p99=%dus max=%dus",
+					ticksPerSecond, latencyP50 / 1000, latencyP95 / 1000,
+					latencyP99 / 1000, latencyMax / 1000));
+		}
+
+		fireFpsUpdated(ticksPerSecond);
+	}
+
+	/**
+	 * Returns the number of ticks per second of the latest statistics
+	 * interval.
+	 * 
+	 * @return The number of ticks per second.
+	 */
+	public double getTicksPerSecond() {
+		return ticksPerSecond;
+	}
+
+	/**
+	 * Returns the given percentile of the tick latencies of the latest
+	 * statistics interval (value in ns).
+	 * 
+	 * @param percentile
+	 *            One of the reported percentiles: 50, 95, 99 or 100 (max).
+	 * @return The tick latency percentile in nanoseconds.
+	 */
+	public long getTickLatency(final int percentile) {
+		switch (percentile) {
+		case 50:
+			return latencyP50;
+		case 95:
+			return latencyP95;
+		case 99:
+			return latencyP99;
+		case 100:
+			return latencyMax;
+		default:
+			throw new IllegalArgumentException("Unsupported percentile: "
+					+ percentile);
+		}
+	}
+
+	/**
+	 * Returns the total number of ticks performed since the heart started.
+	 * 
+	 * @return The total number of ticks.
+	 */
+	public long getTotalTicks() {
+		return totalTicks;
+	}
+
+}
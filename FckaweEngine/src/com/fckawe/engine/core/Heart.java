@@ -2,12 +2,17 @@ package com.fckawe.engine.core;
 
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The heart is the impulse generator of the game. It sends signals to the other
  * parts when ticks/updates or rendering has to be performed. It is also
  * responsible to process an constant value (as constant as possible) of frames
  * per second.
+ * <p>
+ * The signals are sent to the registered {@link HeartListener}s. Observers
+ * can still be added for compatibility; they get wrapped into an adapter which
+ * translates the signals to the {@link Event}/{@link EventData} values.
  * 
  * @author fckawe
  */
@@ -15,7 +20,7 @@ public class Heart extends Observable implements Runnable {
 
 	/**
 	 * The event enum defines all events, that the heart can fire to all its
-	 * observers.
+	 * (legacy) observers.
 	 * 
 	 * @author fckawe
 	 */
@@ -23,15 +28,15 @@ public class Heart extends Observable implements Runnable {
 		HEART_START, TICK, RENDER, SHOW, FPS_UPDATED
 	};
 
-	// desired fps
-	private final static int TARGET_FPS = 50;
+	// number of nanoseconds per second
+	private final static long NANOS_PER_SECOND = 1000000000l;
+
+	// desired fps, if the configured value is invalid
+	private final static int DEFAULT_TARGET_FPS = 50;
 
 	// maximum number of frames to be skipped (in order to catch up)
 	private final static int MAX_FRAME_SKIPS = 5;
 
-	// the frame period
-	private final static int FRAME_PERIOD = 1000000000 / TARGET_FPS;
-
 	// interval for performing FPS-statistics (value in ms)
 	private final static int STAT_INTERVAL = 1000;
 
@@ -62,11 +67,44 @@ public class Heart extends Observable implements Runnable {
 	// the average FPS since the game started
 	private double averageFps = 0.0;
 
+	// desired fps
+	private int targetFps;
+
+	// the frame period (value in ns)
+	private long framePeriod;
+
+	// true, if the game logic gets updated with ticks of a fixed duration
+	private boolean fixedTimestep;
+
+	// the duration of a single fixed tick (value in ns)
+	private long tickPeriod;
+
+	// true, if rendering is decoupled from the ticks (own render thread)
+	private boolean renderThread;
+
+	// the time when the latest tick was finished (in decoupled mode)
+	private volatile long lastTickTime;
+
 	private final StopListener stopListener;
 
-	private boolean exitRequested;
+	private volatile boolean exitRequested;
+
+	// copy-on-write array of all listeners (never modified, only replaced)
+	private volatile HeartListener[] listeners = new HeartListener[0];
+
+	private volatile boolean hasNewListener;
+
+	private final FrameProfiler profiler;
+
+	private final Watchdog watchdog;
+
+	// the factor with which the game time passes relative to the real time
+	private volatile double timeScale = 1.0;
 
-	private boolean hasNewObserver;
+	private volatile boolean paused;
+
+	// number of single ticks requested while paused
+	private final AtomicInteger pendingSteps = new AtomicInteger();
 
 	/**
 	 * Constructor to create a new Heart, giving a StopListener that gets
@@ -79,6 +117,8 @@ public class Heart extends Observable implements Runnable {
 	public Heart(final StopListener stopListener) {
 		this.stopListener = stopListener;
 		exitRequested = false;
+		profiler = Session.getSession().getFckaweFactory().newFrameProfiler();
+		watchdog = Session.getSession().getFckaweFactory().newWatchdog();
 	}
 
 	/**
@@ -92,70 +132,268 @@ public class Heart extends Observable implements Runnable {
 
 	@Override
 	public void run() {
-		signalEvent(Event.HEART_START);
+		fireHeartStart();
 		Session.getSession().getHeartLogger().info("Heart started.");
 
 		initTimingElements();
-		long currentTime = System.currentTimeMillis();
+		watchdog.start(Thread.currentThread());
+		runLoop();
+		watchdog.stop();
+
+		if (stopListener != null) {
+			stopListener.heartStopping();
+		}
+
+		Session.getSession().getHeartLogger().info("Heart stopped.");
+	}
+
+	/**
+	 * Runs the game loop until the heart is requested to stop. Depending on
+	 * the configuration the loop works with variable or fixed timesteps, or
+	 * with a separate render thread.
+	 */
+	protected void runLoop() {
+		if (renderThread) {
+			runDecoupled();
+		} else if (fixedTimestep) {
+			runFixedTimestep();
+		} else {
+			runVariableTimestep();
+		}
+	}
+
+	/**
+	 * The game loop for variable timesteps: Each cycle performs one tick with
+	 * the time elapsed since the previous tick, renders and shows the result.
+	 * If a cycle took longer than the frame period, additional ticks get
+	 * performed without rendering in order to catch up.
+	 */
+	private void runVariableTimestep() {
+		FramePacer pacer = newFramePacer(framePeriod);
+		long currentTime = System.nanoTime();
 		long beginTime; // the time when the cycle began
 		long timeDiff; // the time it took for the cycle to execute
-		int sleepTime = 0; // ms to sleep (< 0 if we have to catch up)
+		long sleepTime; // ns to sleep (< 0 if we have to catch up)
 		int framesSkipped; // number of frames being skipped
 
 		while (!exitRequested) {
 			beginTime = System.nanoTime();
 			framesSkipped = 0;
 
-			long elapsedTime = System.currentTimeMillis() - currentTime;
-			currentTime += elapsedTime;
+			long elapsedTime = beginTime - currentTime;
+			currentTime = beginTime;
 
-			signalEvent(Event.TICK, elapsedTime);
-			signalEvent(Event.RENDER);
-			signalEvent(Event.SHOW);
+			watchdog.beginFrame();
+			if (!paused) {
+				fireTick(scaleTime(elapsedTime));
+			} else if (consumeStep()) {
+				fireTick(framePeriod);
+			}
+			fireRender(1.0);
+			fireShow();
+			watchdog.endFrame();
 
 			timeDiff = System.nanoTime() - beginTime;
-			sleepTime = (int) ((FRAME_PERIOD - timeDiff) / 1000000);
-
-			if (sleepTime > 0) {
-				try {
-					Thread.sleep(sleepTime);
-				} catch (InterruptedException e) {
-					Session.getSession().getHeartLogger()
-							.warn("Sleep interrupted.", e);
-				}
-			}
+			sleepTime = framePeriod - timeDiff;
 
-			while (sleepTime < 0 && framesSkipped < MAX_FRAME_SKIPS) {
-				elapsedTime = System.currentTimeMillis() - currentTime;
-				currentTime += elapsedTime;
+			pacer.awaitFrameEnd(beginTime);
+
+			while (sleepTime < 0 && framesSkipped < MAX_FRAME_SKIPS && !paused) {
+				long now = System.nanoTime();
+				elapsedTime = now - currentTime;
+				currentTime = now;
 				// we need to catch up: update without rendering
-				signalEvent(Event.TICK, elapsedTime);
+				watchdog.beginFrame();
+				fireTick(scaleTime(elapsedTime));
+				watchdog.endFrame();
 				// add frame period to check if in next frame
-				sleepTime += FRAME_PERIOD;
+				sleepTime += framePeriod;
 				framesSkipped++;
 			}
 
-			framesSkippedPerStatCycle += framesSkipped;
+			endCycle(framesSkipped);
+		}
+	}
+
+	/**
+	 * The game loop for fixed timesteps: The real time that passed since the
+	 * previous cycle is collected in an accumulator, which then gets consumed
+	 * by as many ticks of the fixed tick period as fit into it. The rest of the
+	 * accumulator is passed to the RENDER event as interpolation alpha (0.0 to
+	 * 1.0) so that the rendering can blend between the previous and the
+	 * current state of the game logic.
+	 */
+	private void runFixedTimestep() {
+		FramePacer pacer = newFramePacer(framePeriod);
+		// never try to catch up more than MAX_FRAME_SKIPS ticks per cycle
+		long maxFrameTime = tickPeriod * (MAX_FRAME_SKIPS + 1);
+		long previousTime = System.nanoTime();
+		long accumulator = 0l;
+		long beginTime; // the time when the cycle began
+		long frameTime; // the real time since the previous cycle
+		int ticks; // number of ticks performed within this cycle
+
+		while (!exitRequested) {
+			beginTime = System.nanoTime();
+			frameTime = beginTime - previousTime;
+			previousTime = beginTime;
+
+			accumulator += scaleTime(Math.min(frameTime, maxFrameTime));
 
-			if (framesSkipped > 0) {
-				Session.getSession()
-						.getHeartLogger()
-						.debug("Skipped {} frames (total {}).", framesSkipped,
-								totalFramesSkipped + framesSkippedPerStatCycle);
+			watchdog.beginFrame();
+			ticks = 0;
+			while (accumulator >= tickPeriod) {
+				fireTick(tickPeriod);
+				accumulator -= tickPeriod;
+				ticks++;
 			}
+			if (paused && consumeStep()) {
+				fireTick(tickPeriod);
+			}
+
+			double alpha = accumulator / (double) tickPeriod;
+			fireRender(alpha);
+			fireShow();
+			watchdog.endFrame();
 
-			// calling the routine to store the gathered statistics
-			updateStats();
+			pacer.awaitFrameEnd(beginTime);
 
-			hasNewObserver = false;
-			Thread.yield();
+			// more ticks than the time scale demands are skipped frames
+			int scaledTicks = (int) Math.ceil(timeScale);
+			endCycle(ticks > scaledTicks ? ticks - scaledTicks : 0);
 		}
+	}
 
-		if (stopListener != null) {
-			stopListener.heartStopping();
+	/**
+	 * The game loop for decoupled ticks and rendering: This thread performs
+	 * only the ticks (with the fixed tick period), while a separate render
+	 * thread renders and shows the results with the frame rate. That way a
+	 * slow rendering or showing of the image does not stall the game logic.
+	 * The listeners have to exchange the state to render in a thread-safe way
+	 * (e.g. via a triple buffer of render snapshots).
+	 */
+	private void runDecoupled() {
+		Thread renderer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runRendering();
+			}
+		}, Session.getSession().getEngineName() + ":Render");
+
+		FramePacer pacer = newFramePacer(tickPeriod);
+		// never try to catch up more than MAX_FRAME_SKIPS ticks per cycle
+		long maxFrameTime = tickPeriod * (MAX_FRAME_SKIPS + 1);
+		long accumulator = 0l; // the scaled time not yet consumed by ticks
+		long beginTime; // the time when the cycle began
+		long frameTime; // the real time since the previous cycle
+		long previousTime = System.nanoTime();
+		lastTickTime = previousTime;
+		renderer.start();
+
+		while (!exitRequested) {
+			beginTime = System.nanoTime();
+			frameTime = beginTime - previousTime;
+			previousTime = beginTime;
+
+			// the real time, so overrun cycles are caught up
+			accumulator += scaleTime(Math.min(frameTime, maxFrameTime));
+			boolean ticked = false;
+			watchdog.beginFrame();
+			while (accumulator >= tickPeriod) {
+				fireTick(tickPeriod);
+				accumulator -= tickPeriod;
+				ticked = true;
+			}
+			if (paused && consumeStep()) {
+				fireTick(tickPeriod);
+				ticked = true;
+			}
+			watchdog.endFrame();
+			if (ticked) {
+				lastTickTime = System.nanoTime();
+			}
+
+			pacer.awaitFrameEnd(beginTime);
 		}
 
-		Session.getSession().getHeartLogger().info("Heart stopped.");
+		try {
+			renderer.join();
+		} catch (InterruptedException e) {
+			Session.getSession().getHeartLogger()
+					.warn("Waiting for render thread interrupted.", e);
+		}
+	}
+
+	/**
+	 * The render loop of the decoupled mode (runs within the render thread).
+	 * The interpolation alpha is the time since the latest tick relative to
+	 * the tick period.
+	 */
+	private void runRendering() {
+		FramePacer pacer = newFramePacer(framePeriod);
+		long beginTime; // the time when the cycle began
+
+		while (!exitRequested) {
+			beginTime = System.nanoTime();
+
+			double alpha = (beginTime - lastTickTime) / (double) tickPeriod;
+			fireRender(Math.min(Math.max(alpha, 0.0), 1.0));
+			fireShow();
+
+			pacer.awaitFrameEnd(beginTime);
+
+			endCycle(0);
+		}
+	}
+
+	/**
+	 * Creates and initializes a new frame pacer (one per thread).
+	 * 
+	 * @param period
+	 *            The desired duration of a frame (value in ns).
+	 * @return The newly created frame pacer.
+	 */
+	private FramePacer newFramePacer(final long period) {
+		FramePacer pacer = Session.getSession().getFckaweFactory()
+				.newFramePacer();
+		pacer.init(period);
+		return pacer;
+	}
+
+	/**
+	 * Finishes a cycle of the game loop: logs and counts the skipped frames
+	 * and updates the statistics.
+	 * 
+	 * @param framesSkipped
+	 *            The number of frames (ticks without rendering) that were
+	 *            skipped within this cycle.
+	 */
+	private void endCycle(final int framesSkipped) {
+		framesSkippedPerStatCycle += framesSkipped;
+
+		if (framesSkipped > 0) {
+			Session.getSession()
+					.getHeartLogger()
+					.debug("Skipped {} frames (total {}).", framesSkipped,
+							totalFramesSkipped + framesSkippedPerStatCycle);
+		}
+
+		// calling the routine to store the gathered statistics
+		updateStats();
+
+		hasNewListener = false;
+		Thread.yield();
+	}
+
+	/**
+	 * Returns true, if the rendering is decoupled from the ticks, which means
+	 * that the RENDER, SHOW and FPS_UPDATED events are fired from within a
+	 * separate render thread. Valid after the heart has been started.
+	 * 
+	 * @return True, if the rendering runs within its own thread.
+	 */
+	public boolean isRenderThread() {
+		return renderThread;
 	}
 
 	/**
@@ -165,11 +403,171 @@ public class Heart extends Observable implements Runnable {
 		exitRequested = true;
 	}
 
+	/**
+	 * Returns true, if the heart was requested to stop.
+	 * 
+	 * @return True, if the heart was requested to stop.
+	 */
+	protected boolean isExitRequested() {
+		return exitRequested;
+	}
+
+	/**
+	 * Returns the frame profiler which measures the durations of the phases of
+	 * a frame.
+	 * 
+	 * @return The frame profiler.
+	 */
+	public FrameProfiler getProfiler() {
+		return profiler;
+	}
+
+	/**
+	 * Sets the factor with which the game time passes relative to the real
+	 * time (e.g. 0.5 for slow motion or 8.0 for fast regression runs). With a
+	 * fixed timestep the number of ticks changes, otherwise the elapsed time
+	 * passed with the ticks.
+	 * 
+	 * @param timeScale
+	 *            The time scale (greater than 0).
+	 */
+	public void setTimeScale(final double timeScale) {
+		if (!(timeScale > 0) || Double.isInfinite(timeScale)) {
+			throw new RuntimeException("Invalid time scale " + timeScale
+					+ ", use pause() to stop the game time!");
+		}
+		this.timeScale = timeScale;
+		Session.getSession().getHeartLogger()
+				.info("Time scale set to {}.", String.valueOf(timeScale));
+	}
+
+	/**
+	 * Returns the factor with which the game time passes relative to the
+	 * real time.
+	 * 
+	 * @return The time scale.
+	 */
+	public double getTimeScale() {
+		return timeScale;
+	}
+
+	/**
+	 * Pauses the game time: no more ticks are performed, but the rendering
+	 * continues.
+	 */
+	public void pause() {
+		paused = true;
+		Session.getSession().getHeartLogger().info("Heart paused.");
+	}
+
+	/**
+	 * Resumes the game time after a pause.
+	 */
+	public void resume() {
+		pendingSteps.set(0);
+		paused = false;
+		Session.getSession().getHeartLogger().info("Heart resumed.");
+	}
+
+	/**
+	 * Returns true, if the game time is paused.
+	 * 
+	 * @return True, if the heart is paused.
+	 */
+	public boolean isPaused() {
+		return paused;
+	}
+
+	/**
+	 * Requests a single tick while the heart is paused. Ignored if the heart
+	 * is not paused.
+	 */
+	public void step() {
+		if (paused) {
+			pendingSteps.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Scales the given real time by the time scale.
+	 * 
+	 * @param nanos
+	 *            The real time (value in ns).
+	 * @return The game time (value in ns), 0 while paused.
+	 */
+	private long scaleTime(final long nanos) {
+		return paused ? 0 : (long) (nanos * timeScale);
+	}
+
+	/**
+	 * Consumes a requested single tick.
+	 * 
+	 * @return True, if a single tick was requested.
+	 */
+	protected boolean consumeStep() {
+		int steps = pendingSteps.get();
+		while (steps > 0) {
+			if (pendingSteps.compareAndSet(steps, steps - 1)) {
+				return true;
+			}
+			steps = pendingSteps.get();
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the watchdog which observes the heart's thread and reports
+	 * frames that exceed the frame budget.
+	 * 
+	 * @return The watchdog.
+	 */
+	public Watchdog getWatchdog() {
+		return watchdog;
+	}
+
+	/**
+	 * Returns the duration of a single fixed tick (value in ns). Valid after
+	 * the heart has been started.
+	 * 
+	 * @return The duration of a single fixed tick in nanoseconds.
+	 */
+	protected long getTickPeriod() {
+		return tickPeriod;
+	}
+
 	private void initTimingElements() {
+		Configuration.HeartCategory cfg = Session.getSession()
+				.getConfiguration().getHeartCat();
+		fixedTimestep = cfg.isFixedTimestep();
+		renderThread = cfg.isRenderThread();
+		targetFps = cfg.getTargetFps();
+		if (targetFps <= 0) {
+			Session.getSession().getHeartLogger()
+					.warn("Invalid target FPS {}, using {}.", targetFps,
+							DEFAULT_TARGET_FPS);
+			targetFps = DEFAULT_TARGET_FPS;
+		}
+		framePeriod = NANOS_PER_SECOND / targetFps;
+		int tickRate = cfg.getTickRate();
+		if (tickRate <= 0) {
+			Session.getSession().getHeartLogger()
+					.warn("Invalid tick rate {}, using {}.", tickRate, targetFps);
+			tickRate = targetFps;
+		}
+		tickPeriod = NANOS_PER_SECOND / tickRate;
+		double initialTimeScale = cfg.getTimeScale();
+		if (initialTimeScale > 0) {
+			timeScale = initialTimeScale;
+		} else {
+			Session.getSession().getHeartLogger()
+					.warn("Invalid time scale {}, using 1.", initialTimeScale);
+		}
+
 		fpsStore = new double[FPS_HISTORY_NR];
 		for (int i = 0; i < FPS_HISTORY_NR; i++) {
 			fpsStore[i] = 0.0;
 		}
+		lastStatusStore = System.currentTimeMillis();
 		Session.getSession().getHeartLogger()
 				.debug("Timing elements for stats initialised.");
 	}
@@ -186,11 +584,14 @@ public class Heart extends Observable implements Runnable {
 		statusIntervalTimer += (System.currentTimeMillis() - statusIntervalTimer);
 
 		if (statsCount + 1 < FPS_HISTORY_NR) {
-			averageFps = TARGET_FPS;
+			averageFps = targetFps;
 		}
 
 		if (statusIntervalTimer >= lastStatusStore + STAT_INTERVAL) {
-			double actualFps = (frameCountPerStatCycle / (STAT_INTERVAL / 1000));
+			// use the real length of the interval, it is never exactly
+			// STAT_INTERVAL
+			double actualFps = frameCountPerStatCycle * 1000.0
+					/ (statusIntervalTimer - lastStatusStore);
 
 			fpsStore[(int) statsCount % FPS_HISTORY_NR] = actualFps;
 
@@ -212,10 +613,12 @@ public class Heart extends Observable implements Runnable {
 
 			statusIntervalTimer = System.currentTimeMillis();
 			lastStatusStore = statusIntervalTimer;
+
+			profiler.rotate();
 		}
 
-		if (averageFps != averageFpsBefore || hasNewObserver) {
-			signalEvent(Event.FPS_UPDATED, averageFps);
+		if (averageFps != averageFpsBefore || hasNewListener) {
+			fireFpsUpdated(averageFps);
 		}
 	}
 
@@ -229,36 +632,194 @@ public class Heart extends Observable implements Runnable {
 		public void heartStopping();
 	}
 
+	/**
+	 * Adds a listener that gets informed about all the heart's impulses.
+	 * 
+	 * @param listener
+	 *            The listener to add.
+	 */
+	public synchronized void addHeartListener(final HeartListener listener) {
+		HeartListener[] current = listeners;
+		HeartListener[] newListeners = new HeartListener[current.length + 1];
+		System.arraycopy(current, 0, newListeners, 0, current.length);
+		newListeners[current.length] = listener;
+		listeners = newListeners;
+		hasNewListener = true;
+	}
+
+	/**
+	 * Removes a previously added listener.
+	 * 
+	 * @param listener
+	 *            The listener to remove.
+	 */
+	public synchronized void removeHeartListener(final HeartListener listener) {
+		HeartListener[] current = listeners;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i] == listener) {
+				HeartListener[] newListeners = new HeartListener[current.length - 1];
+				System.arraycopy(current, 0, newListeners, 0, i);
+				System.arraycopy(current, i + 1, newListeners, i,
+						current.length - i - 1);
+				listeners = newListeners;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Adds an observer. The observer gets wrapped into an adapter that
+	 * translates the listener calls into observer updates.
+	 */
 	@Override
-	public void addObserver(final Observer observer) {
-		super.addObserver(observer);
-		hasNewObserver = true;
+	public synchronized void addObserver(final Observer observer) {
+		if (observer == null) {
+			throw new NullPointerException();
+		}
+		if (findObserverAdapter(observer) == null) {
+			addHeartListener(new ObserverAdapter(observer));
+		}
+	}
+
+	@Override
+	public synchronized void deleteObserver(final Observer observer) {
+		ObserverAdapter adapter = findObserverAdapter(observer);
+		if (adapter != null) {
+			removeHeartListener(adapter);
+		}
+	}
+
+	@Override
+	public synchronized void deleteObservers() {
+		for (HeartListener listener : listeners) {
+			if (listener instanceof ObserverAdapter) {
+				removeHeartListener(listener);
+			}
+		}
+	}
+
+	@Override
+	public synchronized int countObservers() {
+		int count = 0;
+		for (HeartListener listener : listeners) {
+			if (listener instanceof ObserverAdapter) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private ObserverAdapter findObserverAdapter(final Observer observer) {
+		for (HeartListener listener : listeners) {
+			if (listener instanceof ObserverAdapter
+					&& ((ObserverAdapter) listener).observer == observer) {
+				return (ObserverAdapter) listener;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Signals the start of the heart to all listeners.
+	 */
+	protected void fireHeartStart() {
+		HeartListener[] current = listeners;
+		for (int i = 0; i < current.length; i++) {
+			current[i].onHeartStart();
+		}
+	}
+
+	/**
+	 * Signals a tick to all listeners.
+	 * 
+	 * @param nanos
+	 *            The time (in ns) that passed with this tick.
+	 */
+	protected void fireTick(final long nanos) {
+		HeartListener[] current = listeners;
+		for (int i = 0; i < current.length; i++) {
+			current[i].onTick(nanos);
+		}
 	}
 
 	/**
-	 * Sends an event to all the registered observers.
+	 * Signals to all listeners that the game has to be rendered.
 	 * 
-	 * @param event
-	 *            The event to fire.
+	 * @param alpha
+	 *            The interpolation factor (0.0 to 1.0) between the previous
+	 *            and the current state of the game logic.
+	 */
+	protected void fireRender(final double alpha) {
+		HeartListener[] current = listeners;
+		for (int i = 0; i < current.length; i++) {
+			current[i].onRender(alpha);
+		}
+	}
+
+	/**
+	 * Signals to all listeners that the rendered image has to be shown.
 	 */
-	protected void signalEvent(final Event event) {
-		Heart.this.setChanged();
-		Heart.this.notifyObservers(event);
+	protected void fireShow() {
+		HeartListener[] current = listeners;
+		for (int i = 0; i < current.length; i++) {
+			current[i].onShow();
+		}
 	}
 
 	/**
-	 * Sends an event together with an object value to all the registered
-	 * observers.
+	 * Signals the current average FPS value to all listeners.
 	 * 
-	 * @param event
-	 *            The event to fire.
-	 * @param value
-	 *            The value to be sent together with the event.
-	 */
-	protected void signalEvent(final Event event, final Object value) {
-		Heart.this.setChanged();
-		EventData data = new EventData(event, value);
-		Heart.this.notifyObservers(data);
+	 * @param fps
+	 *            The average FPS (frames per second) value.
+	 */
+	protected void fireFpsUpdated(final double fps) {
+		HeartListener[] current = listeners;
+		for (int i = 0; i < current.length; i++) {
+			current[i].onFpsUpdated(fps);
+		}
+	}
+
+	/**
+	 * Adapter that passes the heart's signals to an observer, which means the
+	 * events get sent as {@link Event} or {@link EventData} values. Since these
+	 * values are created per event, observers should be replaced by heart
+	 * listeners wherever possible.
+	 * 
+	 * @author fckawe
+	 */
+	private class ObserverAdapter implements HeartListener {
+
+		private final Observer observer;
+
+		private ObserverAdapter(final Observer observer) {
+			this.observer = observer;
+		}
+
+		@Override
+		public void onHeartStart() {
+			observer.update(Heart.this, Event.HEART_START);
+		}
+
+		@Override
+		public void onTick(final long nanos) {
+			observer.update(Heart.this, new EventData(Event.TICK, nanos));
+		}
+
+		@Override
+		public void onRender(final double alpha) {
+			observer.update(Heart.this, new EventData(Event.RENDER, alpha));
+		}
+
+		@Override
+		public void onShow() {
+			observer.update(Heart.this, Event.SHOW);
+		}
+
+		@Override
+		public void onFpsUpdated(final double fps) {
+			observer.update(Heart.this, new EventData(Event.FPS_UPDATED, fps));
+		}
+
 	}
 
 	/**
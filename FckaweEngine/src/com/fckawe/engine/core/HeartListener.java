@@ -0,0 +1,50 @@
+package com.fckawe.engine.core;
+
+/**
+ * A heart listener gets informed about all the impulses of the heart. The
+ * methods are called from within the heart's thread once per event, without
+ * any allocations or synchronization on the way, so implementations should
+ * return quickly. If the heart runs with a separate render thread, onRender,
+ * onShow and onFpsUpdated are called from within the render thread.
+ * 
+ * @author fckawe
+ */
+public interface HeartListener {
+
+	/**
+	 * Called once when the heart started beating.
+	 */
+	public void onHeartStart();
+
+	/**
+	 * Called when the game logic has to be updated by one step.
+	 * 
+	 * @param nanos
+	 *            The time (in ns) that passed with this tick.
+	 */
+	public void onTick(long nanos);
+
+	/**
+	 * Called when the current state of the game has to be rendered.
+	 * 
+	 * @param alpha
+	 *            The interpolation factor (0.0 to 1.0) between the previous
+	 *            and the current state of the game logic.
+	 */
+	public void onRender(double alpha);
+
+	/**
+	 * Called when the rendered image has to be shown.
+	 */
+	public void onShow();
+
+	/**
+	 * Called when the average FPS value has changed (or a listener was newly
+	 * added).
+	 * 
+	 * @param fps
+	 *            The average FPS (frames per second) value.
+	 */
+	public void onFpsUpdated(double fps);
+
+}
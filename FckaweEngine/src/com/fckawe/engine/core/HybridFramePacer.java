@@ -0,0 +1,110 @@
+package com.fckawe.engine.core;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * A frame pacer that sleeps most of the remaining time of a frame and spins
+ * the rest up to the nanosecond deadline of the frame. The deadlines are
+ * calculated from each other (not from the start of the frame), so if a frame
+ * ends too late the next one gets shorter and the drift is corrected. If the
+ * pacer falls behind by more than a whole frame, it does not try to catch up
+ * but continues with the current time.
+ * 
+ * @author fckawe
+ */
+public class HybridFramePacer implements FramePacer {
+
+	// number of nanoseconds per millisecond
+	private final static long NANOS_PER_MILLI = 1000000l;
+
+	// the time to spin instead of sleeping by default (value in ns)
+	public final static long DEFAULT_SPIN_THRESHOLD = 2 * NANOS_PER_MILLI;
+
+	// Thread.onSpinWait() if the JVM provides it (Java 9+), otherwise null
+	private final static MethodHandle ON_SPIN_WAIT = findOnSpinWait();
+
+	private final long spinThreshold;
+
+	private long framePeriod;
+
+	private long deadline;
+
+	/**
+	 * Constructor to create a new hybrid frame pacer with the default spin
+	 * threshold.
+	 */
+	public HybridFramePacer() {
+		this(DEFAULT_SPIN_THRESHOLD);
+	}
+
+	/**
+	 * Constructor to create a new hybrid frame pacer.
+	 * 
+	 * @param spinThreshold
+	 *            The remaining time of a frame (value in ns) which is spent
+	 *            spinning instead of sleeping.
+	 */
+	public HybridFramePacer(final long spinThreshold) {
+		this.spinThreshold = spinThreshold;
+	}
+
+	@Override
+	public void init(final long framePeriod) {
+		this.framePeriod = framePeriod;
+		deadline = System.nanoTime();
+	}
+
+	@Override
+	public void awaitFrameEnd(final long frameStart) {
+		deadline += framePeriod;
+
+		long now = System.nanoTime();
+		if (now - deadline > framePeriod) {
+			// too far behind: continue with the current time
+			deadline = now;
+			return;
+		}
+
+		long sleepMillis = (deadline - now - spinThreshold) / NANOS_PER_MILLI;
+		if (sleepMillis > 0) {
+			try {
+				Thread.sleep(sleepMillis);
+			} catch (InterruptedException e) {
+				Session.getSession().getHeartLogger()
+						.warn("Sleep interrupted.", e);
+			}
+		}
+
+		while (System.nanoTime() - deadline < 0) {
+			spinWait();
+		}
+	}
+
+	/**
+	 * Signals the processor that the current thread is busy waiting.
+	 */
+	private static void spinWait() {
+		if (ON_SPIN_WAIT != null) {
+			try {
+				ON_SPIN_WAIT.invokeExact();
+			} catch (Throwable e) {
+				throw new IllegalStateException(
+						"Cannot call Thread.onSpinWait()!", e);
+			}
+		}
+	}
+
+	private static MethodHandle findOnSpinWait() {
+		try {
+			return MethodHandles.lookup().findStatic(Thread.class,
+					"onSpinWait", MethodType.methodType(void.class));
+		} catch (NoSuchMethodException e) {
+			return null;
+		} catch (IllegalAccessException e) {
+			return null;
+		}
+	}
+
+}
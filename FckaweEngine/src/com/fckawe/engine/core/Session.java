@@ -22,7 +22,8 @@ public class Session {
 
 	private LoggerFactory loggerFactory;
 
-	private Configuration configuration;
+	// replaced if the configuration file gets reloaded
+	private volatile Configuration configuration;
 
 	private NLS nls;
 
@@ -147,6 +148,17 @@ public class Session {
 		return configuration;
 	}
 
+	/**
+	 * Replaces the configuration (e.g. by a configuration that was read again
+	 * after the configuration file changed).
+	 * 
+	 * @param configuration
+	 *            The new configuration.
+	 */
+	public void setConfiguration(final Configuration configuration) {
+		this.configuration = configuration;
+	}
+
 	/**
 	 * Returns the NLS utility object which can be used to get language or
 	 * country specific strings and values.
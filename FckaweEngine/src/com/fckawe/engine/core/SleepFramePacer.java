@@ -0,0 +1,36 @@
+package com.fckawe.engine.core;
+
+/**
+ * The simple frame pacer: It sleeps the remaining time of the frame in whole
+ * milliseconds. Since Thread.sleep() tends to oversleep, the frame rate will
+ * usually be a bit lower than desired.
+ * 
+ * @author fckawe
+ */
+public class SleepFramePacer implements FramePacer {
+
+	// number of nanoseconds per millisecond
+	private final static long NANOS_PER_MILLI = 1000000l;
+
+	private long framePeriod;
+
+	@Override
+	public void init(final long framePeriod) {
+		this.framePeriod = framePeriod;
+	}
+
+	@Override
+	public void awaitFrameEnd(final long frameStart) {
+		long sleepTime = framePeriod - (System.nanoTime() - frameStart);
+		long sleepMillis = sleepTime / NANOS_PER_MILLI;
+		if (sleepMillis > 0) {
+			try {
+				Thread.sleep(sleepMillis);
+			} catch (InterruptedException e) {
+				Session.getSession().getHeartLogger()
+						.warn("Sleep interrupted.", e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,223 @@
+package com.fckawe.engine.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+
+/**
+ * The watchdog observes the heart's thread from within its own thread. If a
+ * frame exceeds the frame budget, the watchdog samples the stack of the
+ * heart's thread and logs it through the HEART logger, together with the phase
+ * and the offender (module or entity) the heart was busy with. The number of
+ * stalls is counted per offender, so stutters can be attributed without being
+ * able to reproduce them.
+ * <p>
+ * The heart's thread only performs a few volatile writes per frame and phase
+ * (see {@link #beginFrame()} and {@link #enter(FrameProfiler.Phase, Object)}),
+ * everything else is done within the watchdog's thread.
+ * 
+ * @author fckawe
+ */
+public class Watchdog implements Runnable {
+
+	// number of nanoseconds per millisecond
+	private static final long NANOS_PER_MILLI = 1000000l;
+
+	// the maximum number of stack frames that get logged
+	private static final int MAX_STACK_DEPTH = 12;
+
+	private final boolean enabled;
+
+	// the frame budget (value in ns)
+	private final long budget;
+
+	private volatile Thread watchedThread;
+
+	private Thread watchdogThread;
+
+	private volatile boolean stopRequested;
+
+	// the start of the running frame (value in ns) or 0 if no frame runs
+	private volatile long frameStart;
+
+	// the number of the running (or latest) frame
+	private volatile long frameNumber;
+
+	// the number and the duration of the latest frame that exceeded the budget
+	private volatile long stalledFrame, stalledDuration;
+
+	private volatile FrameProfiler.Phase phase;
+
+	private volatile Object offender;
+
+	// number of stalls per offender
+	private final Map<String, Long> stallCounts = new HashMap<String, Long>();
+
+	/**
+	 * Constructor to create a new watchdog.
+	 * 
+	 * @param enabled
+	 *            False, if nothing should be observed at all.
+	 * @param budget
+	 *            The frame budget (value in ns).
+	 */
+	public Watchdog(final boolean enabled, final long budget) {
+		this.enabled = enabled;
+		this.budget = budget;
+	}
+
+	/**
+	 * Starts the watchdog's thread, which observes the given thread.
+	 * 
+	 * @param thread
+	 *            The thread to observe (usually the heart's thread).
+	 */
+	public void start(final Thread thread) {
+		if (!enabled) {
+			return;
+		}
+		watchedThread = thread;
+		stopRequested = false;
+		watchdogThread = new Thread(this, thread.getName() + ":Watchdog");
+		watchdogThread.setDaemon(true);
+		watchdogThread.start();
+	}
+
+	/**
+	 * Stops the watchdog's thread.
+	 */
+	public void stop() {
+		stopRequested = true;
+		if (watchdogThread != null) {
+			watchdogThread.interrupt();
+		}
+	}
+
+	/**
+	 * Marks the begin of a frame. Must be called from within the observed
+	 * thread.
+	 */
+	public void beginFrame() {
+		if (enabled) {
+			phase = null;
+			offender = null;
+			frameNumber++;
+			frameStart = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Marks the end of a frame. Must be called from within the observed
+	 * thread.
+	 */
+	public void endFrame() {
+		if (enabled) {
+			long duration = System.nanoTime() - frameStart;
+			frameStart = 0;
+			if (duration > budget) {
+				stalledDuration = duration;
+				stalledFrame = frameNumber;
+			}
+		}
+	}
+
+	/**
+	 * Marks that the observed thread entered the given phase of the frame,
+	 * working on the given offender. Calls from within other threads (e.g. the
+	 * render thread) are ignored.
+	 * 
+	 * @param phase
+	 *            The phase of the frame.
+	 * @param offender
+	 *            The module or entity the heart works on (may be null).
+	 */
+	public void enter(final FrameProfiler.Phase phase, final Object offender) {
+		if (enabled && Thread.currentThread() == watchedThread) {
+			this.phase = phase;
+			this.offender = offender;
+		}
+	}
+
+	@Override
+	public void run() {
+		Logger logger = Session.getSession().getHeartLogger();
+		long checkInterval = Math.max(1, budget / NANOS_PER_MILLI / 2);
+		long reportedFrame = -1;
+
+		while (!stopRequested) {
+			try {
+				Thread.sleep(checkInterval);
+			} catch (InterruptedException e) {
+				continue;
+			}
+
+			long start = frameStart;
+			long number = frameNumber;
+			if (reportedFrame >= 0 && (start == 0 || number != reportedFrame)) {
+				// the reported frame has finished meanwhile
+				long duration = stalledDuration;
+				if (stalledFrame == reportedFrame && logger.isWarnEnabled()) {
+					logger.warn("Frame {} finished after {} ms.", reportedFrame,
+							duration / NANOS_PER_MILLI);
+				}
+				reportedFrame = -1;
+			}
+			if (start == 0 || reportedFrame == number
+					|| System.nanoTime() - start <= budget) {
+				continue;
+			}
+
+			FrameProfiler.Phase currentPhase = phase;
+			Object currentOffender = offender;
+			StackTraceElement[] stack = watchedThread.getStackTrace();
+			String offenderName = currentOffender == null ? "unknown"
+					: currentOffender.toString();
+			long count = countStall(offenderName);
+			reportedFrame = number;
+
+			if (logger.isWarnEnabled()) {
+				StringBuilder msg = new StringBuilder();
+				msg.append("Frame ").append(number).append(" exceeds budget of ")
+						.append(budget / NANOS_PER_MILLI).append(" ms (")
+						.append((System.nanoTime() - start)
+								/ NANOS_PER_MILLI).append(" ms so far) in ")
+						.append(currentPhase == null ? "unknown phase"
+								: currentPhase).append(" of ")
+						.append(offenderName).append(" (stall #")
+						.append(count).append(" of this offender):");
+				for (int i = 0; i < stack.length && i < MAX_STACK_DEPTH; i++) {
+					msg.append("\n\tat ").append(stack[i]);
+				}
+				logger.warn(msg.toString());
+			}
+		}
+	}
+
+	private synchronized long countStall(final String offenderName) {
+		Long count = stallCounts.get(offenderName);
+		long newCount = count == null ? 1 : count + 1;
+		stallCounts.put(offenderName, newCount);
+		return newCount;
+	}
+
+	/**
+	 * Returns the number of stalls (frames that exceeded the budget) per
+	 * offender.
+	 * 
+	 * @return A copy of the stall counters, keyed by the offender's name.
+	 */
+	public synchronized Map<String, Long> getStallCounts() {
+		return new HashMap<String, Long>(stallCounts);
+	}
+
+	/**
+	 * Returns true, if the watchdog observes anything.
+	 * 
+	 * @return True, if the watchdog is enabled.
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.fckawe.engine.game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fckawe.engine.grafix.Bitmaps;
+import com.fckawe.engine.grafix.LoadProgress;
+
+/**
+ * The list of assets a module needs beside the bitmaps of its entities (e.g.
+ * the tile sets of a level). A module declares its manifest with
+ * {@link Module#declareAssets(AssetManifest)}, so the assets can be loaded
+ * together with the entities' bitmaps, or prefetched while the previous
+ * module is still running (see {@link Module#getSuccessors()}).
+ * 
+ * @author fckawe
+ */
+public class AssetManifest {
+
+	private final List<Entry> entries = new ArrayList<Entry>();
+
+	/**
+	 * Adds a bitmap to the manifest.
+	 * 
+	 * @param id
+	 *            The ID to store the bitmap with.
+	 * @param path
+	 *            The path of the bitmap's image.
+	 */
+	public void addBitmap(final String id, final String path) {
+		entries.add(new Entry(id, path, 0, 0));
+	}
+
+	/**
+	 * Adds a sprite to the manifest.
+	 * 
+	 * @param id
+	 *            The ID to store the sprite with.
+	 * @param path
+	 *            The path of the sprite's image.
+	 * @param cutSizeX
+	 *            The width of a cell within the image.
+	 * @param cutSizeY
+	 *            The height of a cell within the image.
+	 */
+	public void addSprite(final String id, final String path,
+			final int cutSizeX, final int cutSizeY) {
+		if (cutSizeX <= 0 || cutSizeY <= 0) {
+			throw new RuntimeException("Invalid cell size " + cutSizeX + "x"
+					+ cutSizeY + " of sprite '" + id + "'!");
+		}
+		entries.add(new Entry(id, path, cutSizeX, cutSizeY));
+	}
+
+	/**
+	 * Returns the IDs of all assets of the manifest.
+	 * 
+	 * @return The IDs of the assets.
+	 */
+	public List<String> getIds() {
+		List<String> ids = new ArrayList<String>(entries.size());
+		for (Entry entry : entries) {
+			ids.add(entry.id);
+		}
+		return ids;
+	}
+
+	/**
+	 * Starts to load all assets of the manifest that are not loaded (or being
+	 * loaded) yet on the decode threads. The loads of all assets are added to
+	 * the progress, even if they were started before.
+	 * 
+	 * @param bitmaps
+	 *            The bitmaps interface.
+	 * @param progress
+	 *            The progress to add the loads to or null.
+	 */
+	public void load(final Bitmaps bitmaps, final LoadProgress progress) {
+		for (Entry entry : entries) {
+			if (entry.cutSizeX > 0) {
+				bitmaps.loadSpriteAsync(entry.id, entry.path, entry.cutSizeX,
+						entry.cutSizeY, progress);
+			} else {
+				bitmaps.loadBitmapAsync(entry.id, entry.path, progress);
+			}
+		}
+	}
+
+	/**
+	 * An asset of the manifest (a bitmap, if the cell size is 0).
+	 * 
+	 * @author fckawe
+	 */
+	private static class Entry {
+
+		private final String id;
+
+		private final String path;
+
+		private final int cutSizeX, cutSizeY;
+
+		private Entry(final String id, final String path, final int cutSizeX,
+				final int cutSizeY) {
+			this.id = id;
+			this.path = path;
+			this.cutSizeX = cutSizeX;
+			this.cutSizeY = cutSizeY;
+		}
+
+	}
+
+}
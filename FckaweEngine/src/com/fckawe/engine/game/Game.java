@@ -1,8 +1,16 @@
 package com.fckawe.engine.game;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fckawe.engine.core.FrameProfiler;
 import com.fckawe.engine.core.Session;
+import com.fckawe.engine.core.Watchdog;
 import com.fckawe.engine.game.demo.BouncingBallDemo;
+import com.fckawe.engine.grafix.Bitmaps;
+import com.fckawe.engine.grafix.DirtyRegions;
 import com.fckawe.engine.input.InputHandler;
+import com.fckawe.engine.physics.WorldBounds;
 import com.fckawe.engine.ui.Screen;
 import com.fckawe.engine.ui.UserInterface;
 
@@ -13,18 +21,67 @@ import com.fckawe.engine.ui.UserInterface;
  */
 public class Game {
 
-	private UserInterface ui;
+	private final UserInterface ui;
+
+	private final WorldBounds worldBounds;
+
+	private final Bitmaps bitmaps;
+
+	private final FrameProfiler profiler;
+
+	private final Scheduler scheduler;
+
+	private final Watchdog watchdog;
 
 	private Module module;
 
+	// the module whose dirty regions were collected latest
+	private Module dirtyModule;
+
+	// the module whose bitmaps are loading while a loading module runs
+	private volatile Module pendingModule;
+
+	// the successors of the running module whose bitmaps are prefetched
+	private final List<Module> prefetchedModules = new ArrayList<Module>();
+
 	/**
-	 * Constructor to create a new game.
+	 * Constructor to create a new game. The world bounds are given by the
+	 * size of the user interface's screen.
 	 * 
 	 * @param ui
 	 *            The user interface.
 	 */
 	public Game(final UserInterface ui) {
+		this(ui, new WorldBounds(ui.getScreen().getWidth(), ui.getScreen()
+				.getHeight()), ui.getBitmaps());
+	}
+
+	/**
+	 * Constructor to create a new game without any user interface (headless
+	 * game).
+	 * 
+	 * @param worldBounds
+	 *            The bounds of the game's world.
+	 * @param bitmaps
+	 *            The bitmaps interface (required by the entities, e.g. for
+	 *            pixel perfect collision detection).
+	 */
+	public Game(final WorldBounds worldBounds, final Bitmaps bitmaps) {
+		this(null, worldBounds, bitmaps);
+	}
+
+	private Game(final UserInterface ui, final WorldBounds worldBounds,
+			final Bitmaps bitmaps) {
 		this.ui = ui;
+		this.worldBounds = worldBounds;
+		this.bitmaps = bitmaps;
+		Session session = Session.getSession();
+		profiler = session == null ? new FrameProfiler(false, 1) : session
+				.getHeart().getProfiler();
+		scheduler = session == null ? new Scheduler(Long.MAX_VALUE) : session
+				.getFckaweFactory().newScheduler();
+		watchdog = session == null ? new Watchdog(false, 0) : session
+				.getHeart().getWatchdog();
 		Module module = getStartingModule();
 		setModule(module);
 	}
@@ -38,6 +95,35 @@ public class Game {
 		return new BouncingBallDemo(this);
 	}
 
+	/**
+	 * Returns the frame profiler which measures the durations of the phases of
+	 * a frame.
+	 * 
+	 * @return The frame profiler.
+	 */
+	public FrameProfiler getProfiler() {
+		return profiler;
+	}
+
+	/**
+	 * Returns the watchdog which reports frames that exceed the frame budget.
+	 * 
+	 * @return The watchdog.
+	 */
+	public Watchdog getWatchdog() {
+		return watchdog;
+	}
+
+	/**
+	 * Returns the scheduler which runs the jobs of the modules and entities at
+	 * their own rates.
+	 * 
+	 * @return The scheduler.
+	 */
+	public Scheduler getScheduler() {
+		return scheduler;
+	}
+
 	/**
 	 * Returns the currently running module.
 	 * 
@@ -48,18 +134,28 @@ public class Game {
 	}
 
 	/**
-	 * Performs a tick on the currently running module.
+	 * Performs a tick on the currently running module and advances the jobs
+	 * of the scheduler.
 	 * 
 	 * @param inputHandler
 	 *            The input handler.
 	 * @param elapsedTime
-	 *            The time with which the statistical FPS can be calculated.
+	 *            The time (in ns) with which the statistical FPS can be
+	 *            calculated.
 	 */
 	public void tick(final InputHandler inputHandler, final long elapsedTime) {
 		if (module != null) {
+			long tickStart = System.nanoTime();
+			watchdog.enter(FrameProfiler.Phase.MODULE_TICK, module);
 			module.tick(inputHandler, elapsedTime);
+			scheduler.tick(elapsedTime, tickStart);
+			profiler.record(FrameProfiler.Phase.MODULE_TICK, System.nanoTime()
+					- tickStart);
 			if (module.isEnded()) {
 				setModule(module.getContinueWithModule());
+			} else if (pendingModule != null
+					&& pendingModule.getLoadProgress().isDone()) {
+				switchToPendingModule();
 			}
 		}
 		if (module == null) {
@@ -72,10 +168,104 @@ public class Game {
 	 * 
 	 * @param screen
 	 *            The application's screen.
+	 * @param alpha
+	 *            The interpolation factor (0.0 to 1.0) between the previous
+	 *            and the current state of the game logic.
 	 */
-	public void render(final Screen screen) {
+	public void render(final Screen screen, final double alpha) {
+		scheduler.frame();
 		if (module != null) {
-			module.render(screen);
+			module.render(screen, alpha);
+		}
+	}
+
+	/**
+	 * Clears the given regions of the screen and renders the currently running
+	 * module within these regions only.
+	 * 
+	 * @param screen
+	 *            The application's screen.
+	 * @param alpha
+	 *            The interpolation factor (0.0 to 1.0) between the previous
+	 *            and the current state of the game logic.
+	 * @param regions
+	 *            The regions to redraw (see
+	 *            {@link #collectDirtyRegions(Screen, DirtyRegions, double)}).
+	 */
+	public void render(final Screen screen, final double alpha,
+			final DirtyRegions regions) {
+		scheduler.frame();
+		for (int i = 0; i < regions.getCount(); i++) {
+			int x = regions.getX(i);
+			int y = regions.getY(i);
+			int width = regions.getWidth(i);
+			int height = regions.getHeight(i);
+			screen.setClip(x, y, width, height);
+			screen.fill(x, y, width, height, 0);
+			if (module != null) {
+				module.render(screen, alpha);
+			}
+		}
+		screen.resetClip();
+	}
+
+	/**
+	 * Adds the regions of the screen that change with the next rendering of
+	 * the currently running module.
+	 * 
+	 * @param screen
+	 *            The application's screen.
+	 * @param regions
+	 *            The dirty regions to add to.
+	 * @param alpha
+	 *            The interpolation factor (0.0 to 1.0) the next rendering
+	 *            will be done with.
+	 * @return False, if the whole screen has to be redrawn (e.g. because the
+	 *         module changed since the previous call).
+	 */
+	public boolean collectDirtyRegions(final Screen screen,
+			final DirtyRegions regions, final double alpha) {
+		Module current = module;
+		boolean complete = current == null
+				|| current.collectDirtyRegions(screen, regions, alpha);
+		if (current != dirtyModule) {
+			dirtyModule = current;
+			complete = false;
+		}
+		return complete;
+	}
+
+	/**
+	 * Renders the given snapshot of the currently running module on the given
+	 * screen (used if the rendering runs within its own thread).
+	 * 
+	 * @param screen
+	 *            The application's screen.
+	 * @param snapshot
+	 *            The snapshot of the state to render.
+	 * @param alpha
+	 *            The interpolation factor (0.0 to 1.0) between the previous
+	 *            and the current state of the game logic.
+	 */
+	public void render(final Screen screen, final RenderSnapshot snapshot,
+			final double alpha) {
+		scheduler.frame();
+		Module current = module;
+		if (current != null) {
+			current.render(screen, snapshot, alpha);
+		}
+	}
+
+	/**
+	 * Fills the given snapshot with the current state of the currently
+	 * running module.
+	 * 
+	 * @param snapshot
+	 *            The (cleared) snapshot to fill.
+	 */
+	public void snapshot(final RenderSnapshot snapshot) {
+		if (module != null) {
+			module.snapshot(snapshot);
 		}
 	}
 
@@ -95,24 +285,164 @@ public class Game {
 	 *            The module to switch to.
 	 */
 	public void setModule(final Module module) {
+		discardPendingModule();
+		switchModule(module);
+	}
+
+	private void switchModule(final Module module) {
 		if (this.module != null) {
+			// the bitmaps shared with prefetched modules stay referenced
 			this.module.end();
 		}
 		if (module == null) {
 			this.module = null;
+			prefetchSuccessors(null);
 		} else if (this.module != module) {
+			prefetchedModules.remove(module);
+			long start = profiler.start();
+			watchdog.enter(FrameProfiler.Phase.MODULE_LOAD, module);
 			module.load();
+			profiler.stop(FrameProfiler.Phase.MODULE_LOAD, start);
 			this.module = module;
+			prefetchSuccessors(module);
+		}
+	}
+
+	private void discardPendingModule() {
+		Module pending = pendingModule;
+		if (pending != null) {
+			// the loading module ended before the pending module was loaded
+			pendingModule = null;
+			pending.unload();
+		}
+	}
+
+	/**
+	 * Starts to load the bitmaps of the successors of the given module (see
+	 * {@link Module#getSuccessors()}) and unloads the modules that were
+	 * prefetched before but are no successors anymore.
+	 * 
+	 * @param current
+	 *            The running module or null.
+	 */
+	private void prefetchSuccessors(final Module current) {
+		List<Module> successors = current == null ? new ArrayList<Module>()
+				: current.getSuccessors();
+		List<Module> stale = new ArrayList<Module>();
+		for (Module prefetched : prefetchedModules) {
+			if (!successors.contains(prefetched)) {
+				stale.add(prefetched);
+			}
+		}
+		prefetchedModules.clear();
+		for (Module successor : successors) {
+			if (successor != current && successor != pendingModule
+					&& !prefetchedModules.contains(successor)) {
+				prefetchedModules.add(successor);
+			}
+		}
+		for (Module prefetched : stale) {
+			prefetched.unload();
+		}
+		for (Module successor : prefetchedModules) {
+			if (!successor.isPrepared()) {
+				prepareLoad(successor);
+			}
+		}
+	}
+
+	private void prepareLoad(final Module module) {
+		long start = profiler.start();
+		watchdog.enter(FrameProfiler.Phase.MODULE_LOAD, module);
+		module.prepareLoad();
+		profiler.stop(FrameProfiler.Phase.MODULE_LOAD, start);
+	}
+
+	/**
+	 * Returns the successors of the running module whose bitmaps are being
+	 * prefetched.
+	 * 
+	 * @return The prefetched modules.
+	 */
+	public List<Module> getPrefetchedModules() {
+		return new ArrayList<Module>(prefetchedModules);
+	}
+
+	/**
+	 * Switches to another module, showing the given loading module while the
+	 * bitmaps of the other module are decoded by the decode threads. The game
+	 * switches to the other module with the first tick after all of its
+	 * bitmaps are loaded. If the other module was prefetched already, its
+	 * running loads are taken over.
+	 * 
+	 * @param module
+	 *            The module to switch to.
+	 * @param loadingModule
+	 *            The module to show while loading or null, to load the other
+	 *            module without a loading module.
+	 */
+	public void setModule(final Module module, final Module loadingModule) {
+		if (module == null || loadingModule == null) {
+			setModule(module);
+			return;
+		}
+		discardPendingModule();
+		// a prefetched module becomes the pending one, keeping its loads
+		prefetchedModules.remove(module);
+		pendingModule = module;
+		switchModule(loadingModule);
+		if (!module.isPrepared()) {
+			prepareLoad(module);
 		}
 	}
 
+	/**
+	 * Returns the module that is loading while a loading module runs (see
+	 * {@link #setModule(Module, Module)}).
+	 * 
+	 * @return The module being loaded or null, if no module is loading.
+	 */
+	public Module getPendingModule() {
+		return pendingModule;
+	}
+
+	private void switchToPendingModule() {
+		Module next = pendingModule;
+		module.end();
+		pendingModule = null;
+		long start = profiler.start();
+		watchdog.enter(FrameProfiler.Phase.MODULE_LOAD, next);
+		next.finishLoad();
+		profiler.stop(FrameProfiler.Phase.MODULE_LOAD, start);
+		module = next;
+		prefetchSuccessors(next);
+	}
+
 	/**
 	 * Returns the user interface.
 	 * 
-	 * @return The user interface.
+	 * @return The user interface or null, if the game runs headless.
 	 */
 	public UserInterface getUserInterface() {
 		return ui;
 	}
 
+	/**
+	 * Returns the bounds of the game's world.
+	 * 
+	 * @return The bounds of the game's world.
+	 */
+	public WorldBounds getWorldBounds() {
+		return worldBounds;
+	}
+
+	/**
+	 * Returns the bitmaps interface.
+	 * 
+	 * @return The bitmaps interface.
+	 */
+	public Bitmaps getBitmaps() {
+		return bitmaps;
+	}
+
 }
@@ -0,0 +1,92 @@
+package com.fckawe.engine.game;
+
+import com.fckawe.engine.grafix.DirtyRegions;
+import com.fckawe.engine.grafix.LoadProgress;
+import com.fckawe.engine.ui.Screen;
+
+/**
+ * A module that is shown while the bitmaps of another module are loading
+ * (see {@link Game#setModule(Module, Module)}). It has no entities and draws
+ * a progress bar of the pending module's loads.
+ * 
+ * @author fckawe
+ */
+public class LoadingModule extends Module {
+
+	private static final int BAR_HEIGHT = 8;
+
+	private static final int BAR_COLOR = 0xffffffff;
+
+	private static final int FRAME_COLOR = 0xff404040;
+
+	// the width of the filled part of the bar as rendered latest
+	private int renderedWidth = -1;
+
+	/**
+	 * Constructor to create a new loading module.
+	 * 
+	 * @param game
+	 *            The game of which this module is a part.
+	 */
+	public LoadingModule(final Game game) {
+		super(game);
+	}
+
+	@Override
+	protected String getModuleName() {
+		return "Loading";
+	}
+
+	@Override
+	protected void loadEntities() {
+		// no entities
+	}
+
+	@Override
+	protected void collectOverlayRegions(final Screen screen,
+			final DirtyRegions regions) {
+		int width = getFilledWidth(screen);
+		if (width != renderedWidth) {
+			renderedWidth = width;
+			regions.add(getBarX(screen), getBarY(screen), getBarWidth(screen),
+					BAR_HEIGHT);
+		}
+	}
+
+	@Override
+	protected void renderOverlay(final Screen screen) {
+		int x = getBarX(screen);
+		int y = getBarY(screen);
+		screen.fill(x, y, getBarWidth(screen), BAR_HEIGHT, FRAME_COLOR);
+		screen.fill(x, y, getFilledWidth(screen), BAR_HEIGHT, BAR_COLOR);
+	}
+
+	/**
+	 * Returns the finished part of the pending module's loads.
+	 * 
+	 * @return The finished part (0.0 to 1.0).
+	 */
+	protected double getFraction() {
+		Module pending = game.getPendingModule();
+		LoadProgress progress = pending == null ? null : pending
+				.getLoadProgress();
+		return progress == null ? 0.0 : progress.getFraction();
+	}
+
+	private int getFilledWidth(final Screen screen) {
+		return (int) (getBarWidth(screen) * getFraction());
+	}
+
+	private int getBarX(final Screen screen) {
+		return screen.getWidth() / 4;
+	}
+
+	private int getBarY(final Screen screen) {
+		return (screen.getHeight() - BAR_HEIGHT) / 2;
+	}
+
+	private int getBarWidth(final Screen screen) {
+		return screen.getWidth() / 2;
+	}
+
+}
@@ -1,15 +1,25 @@
 package com.fckawe.engine.game;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 
+import com.fckawe.engine.core.FrameProfiler;
 import com.fckawe.engine.core.Session;
+import com.fckawe.engine.core.Watchdog;
 import com.fckawe.engine.game.entity.Entity;
 import com.fckawe.engine.grafix.Bitmaps;
+import com.fckawe.engine.grafix.Camera;
+import com.fckawe.engine.grafix.DirtyRegions;
+import com.fckawe.engine.grafix.LoadProgress;
+import com.fckawe.engine.grafix.RenderQueue;
 import com.fckawe.engine.input.InputHandler;
+import com.fckawe.engine.physics.WorldBounds;
 import com.fckawe.engine.ui.Screen;
 
 /**
@@ -31,8 +41,38 @@ public abstract class Module {
 
 	protected Bitmaps bitmaps;
 
+	// the entities in the order they were added (which is also the order
+	// they are drawn in, unless their layers or z values differ)
 	protected final Map<String, Entity> entities;
 
+	private final RenderQueue renderQueue;
+
+	// the world of this module and the camera looking at it (null: the world
+	// bounds of the game and no camera)
+	private WorldBounds worldBounds;
+	private Camera camera;
+
+	// the camera changes at the latest collection of dirty regions
+	private int dirtyCameraChanges;
+
+	// number of collision pairs checked within the running tick
+	private int collisionPairs;
+
+	// statistics of the latest tick (may be read from the render thread)
+	private volatile int entityCount, collisionPairCount;
+
+	// true, if the whole screen has to be redrawn with the next frame
+	private boolean invalid;
+
+	// the progress of the bitmap loads started by prepareLoad
+	private volatile LoadProgress loadProgress;
+
+	// true between prepareLoad and finishLoad
+	private boolean prepared;
+
+	// the IDs of the bitmaps of the entities and the asset manifest
+	private final Set<String> requiredBitmapIds;
+
 	/**
 	 * Constructor to create a new Module.
 	 * 
@@ -44,8 +84,10 @@ public abstract class Module {
 		name = getModuleName();
 		Session session = Session.getSession();
 		logger = session == null ? null : session.getMainLogger();
-		bitmaps = game.getUserInterface().getBitmaps();
-		entities = new HashMap<String, Entity>();
+		bitmaps = game.getBitmaps();
+		entities = new LinkedHashMap<String, Entity>();
+		renderQueue = new RenderQueue();
+		requiredBitmapIds = new HashSet<String>();
 	}
 
 	/**
@@ -56,9 +98,25 @@ public abstract class Module {
 	protected abstract String getModuleName();
 
 	/**
-	 * Loads this module and all its required resources.
+	 * Loads this module and all its required resources. The bitmaps are
+	 * decoded in parallel, but this method returns not before all of them are
+	 * loaded. If the loading was prepared already (e.g. by a prefetch, see
+	 * {@link #getSuccessors()}), only the remaining bitmaps are waited for.
 	 */
 	public void load() {
+		if (!prepared) {
+			prepareLoad();
+		}
+		finishLoad();
+	}
+
+	/**
+	 * First part of the loading: loads the entities and starts to load their
+	 * bitmaps and the assets of the manifest (see
+	 * {@link #declareAssets(AssetManifest)}) asynchronously. The progress of
+	 * the bitmap loads is given by {@link #getLoadProgress()}.
+	 */
+	public void prepareLoad() {
 		if (logger != null && logger.isInfoEnabled()) {
 			logger.info("Load resources for module '{}'.", name);
 		}
@@ -66,19 +124,117 @@ public abstract class Module {
 		entities.clear();
 		loadEntities();
 
-		for (String entityId : entities.keySet()) {
-			Entity entity = entities.get(entityId);
-			List<String> bmpIds = entity.getRequiredBitmapIds();
-			for (String bmpId : bmpIds) {
-				String globalId = entity.getGlobalBitmapId(bmpId);
-				if (!bitmaps.isLoaded(globalId)) {
-					entity.loadRequiredBitmap(bmpId, globalId);
+		// the references of a previous preparation that was not unloaded are
+		// released after the new ones are acquired (the shared bitmaps would
+		// be evicted and loaded again otherwise)
+		Set<String> previousIds = new HashSet<String>(requiredBitmapIds);
+		requiredBitmapIds.clear();
+		AssetManifest manifest = new AssetManifest();
+		declareAssets(manifest);
+		for (String id : manifest.getIds()) {
+			if (requiredBitmapIds.add(id)) {
+				bitmaps.acquire(id);
+			}
+		}
+
+		LoadProgress progress = new LoadProgress();
+		manifest.load(bitmaps, progress);
+		bitmaps.beginBatch(progress);
+		try {
+			for (String entityId : entities.keySet()) {
+				Entity entity = entities.get(entityId);
+				List<String> bmpIds = entity.getRequiredBitmapIds();
+				for (String bmpId : bmpIds) {
+					String globalId = entity.getGlobalBitmapId(bmpId);
+					// the bitmaps shared with other modules are found within
+					// the cache
+					if (requiredBitmapIds.add(globalId)
+							&& !bitmaps.acquire(globalId)) {
+						entity.loadRequiredBitmap(bmpId, globalId);
+					}
 				}
 			}
+		} finally {
+			bitmaps.endBatch();
+		}
+		for (String id : previousIds) {
+			bitmaps.release(id);
+		}
+		loadProgress = progress;
+		prepared = true;
+	}
+
+	/**
+	 * Second part of the loading: waits for the bitmaps started by
+	 * {@link #prepareLoad()} (if they are not loaded yet) and initializes the
+	 * entities.
+	 */
+	public void finishLoad() {
+		prepared = false;
+		loadProgress.await();
+		for (Entity entity : entities.values()) {
 			entity.init();
 		}
 	}
 
+	/**
+	 * Returns true, if the loading of this module is prepared but not
+	 * finished yet (see {@link #prepareLoad()}).
+	 * 
+	 * @return True, if the loading is prepared.
+	 */
+	public boolean isPrepared() {
+		return prepared;
+	}
+
+	/**
+	 * Declares the assets this module needs beside the bitmaps of its
+	 * entities. They are loaded together with the entities' bitmaps and
+	 * removed when the module is unloaded.
+	 * 
+	 * @param manifest
+	 *            The manifest to add the assets to.
+	 */
+	protected void declareAssets(final AssetManifest manifest) {
+		// no additional assets by default
+	}
+
+	/**
+	 * Returns the modules that may follow this module. While this module
+	 * runs, the game prefetches their bitmaps (see {@link #prepareLoad()}),
+	 * so the switch to one of them doesn't wait for the decoding. The same
+	 * instances have to be returned with every call and passed to
+	 * {@link #setEnd(Module)} later.
+	 * 
+	 * @return The possible successors of this module.
+	 */
+	public List<Module> getSuccessors() {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Returns true, if the bitmap with the given ID belongs to the entities
+	 * or to the asset manifest of this module (as of the latest preparation
+	 * of the loading), i.e. if this module holds a reference to it (see
+	 * {@link Bitmaps#acquire(String)}).
+	 * 
+	 * @param id
+	 *            The global ID of the bitmap.
+	 * @return True, if this module requires the bitmap.
+	 */
+	public boolean requiresBitmap(final String id) {
+		return requiredBitmapIds.contains(id);
+	}
+
+	/**
+	 * Returns the progress of the bitmap loads of this module.
+	 * 
+	 * @return The progress or null, if the loading is not started yet.
+	 */
+	public LoadProgress getLoadProgress() {
+		return loadProgress;
+	}
+
 	/**
 	 * Loads all required entities.
 	 */
@@ -92,16 +248,26 @@ public abstract class Module {
 			logger.info("Unload resources for module '{}'.", name);
 		}
 
-		for (String entityId : entities.keySet()) {
-			Entity entity = entities.get(entityId);
-			List<String> bmpIds = entity.getRequiredBitmapIds();
-			for (String bmpId : bmpIds) {
-				String globalId = entity.getGlobalBitmapId(bmpId);
-				if (bitmaps.isLoaded(globalId)) {
-					bitmaps.remove(globalId);
-				}
-			}
+		Scheduler scheduler = game.getScheduler();
+		scheduler.cancelAll(this);
+		for (Entity entity : entities.values()) {
+			scheduler.cancelAll(entity);
+		}
+
+		releaseBitmaps();
+		prepared = false;
+		if (logger != null && logger.isDebugEnabled()) {
+			logger.debug("Unloaded module '{}', {}", name, bitmaps.getCache());
+		}
+	}
+
+	// the released bitmaps stay within the cache, so the next module may
+	// use them, too
+	private void releaseBitmaps() {
+		for (String id : requiredBitmapIds) {
+			bitmaps.release(id);
 		}
+		requiredBitmapIds.clear();
 	}
 
 	/**
@@ -110,12 +276,72 @@ public abstract class Module {
 	 * @param inputHandler
 	 *            The input handler.
 	 * @param elapsedTime
-	 *            The time with which the statistical FPS can be calculated.
+	 *            The time (in ns) with which the statistical FPS can be
+	 *            calculated.
 	 */
 	public void tick(final InputHandler inputHandler, final long elapsedTime) {
+		FrameProfiler profiler = game.getProfiler();
+		Watchdog watchdog = game.getWatchdog();
+		collisionPairs = 0;
 		for (Entity entity : entities.values()) {
+			long start = profiler.start();
+			watchdog.enter(FrameProfiler.Phase.ENTITY_TICK, entity);
 			entity.tick(inputHandler, elapsedTime);
+			profiler.stop(FrameProfiler.Phase.ENTITY_TICK, start);
 		}
+		watchdog.enter(FrameProfiler.Phase.MODULE_TICK, this);
+		entityCount = entities.size();
+		collisionPairCount = collisionPairs;
+	}
+
+	/**
+	 * Schedules a job of this module which runs at its own rate. The job gets
+	 * cancelled when the module is unloaded.
+	 * 
+	 * @param name
+	 *            The name of the job (for logging).
+	 * @param rate
+	 *            The number of runs per second or 0, if the job should run
+	 *            once per rendered frame.
+	 * @param priority
+	 *            The priority of the job.
+	 * @param task
+	 *            The work of the job.
+	 * @return The scheduled job.
+	 */
+	protected Scheduler.Job schedule(final String name, final double rate,
+			final Scheduler.Priority priority, final Scheduler.Task task) {
+		return game.getScheduler().schedule(this, name, rate, priority, task);
+	}
+
+	/**
+	 * Counts the given number of entity pairs that were checked for
+	 * collisions within the running tick.
+	 * 
+	 * @param pairs
+	 *            The number of checked pairs.
+	 */
+	public void countCollisionPairs(final int pairs) {
+		collisionPairs += pairs;
+	}
+
+	/**
+	 * Returns the number of entities of this module after the latest tick.
+	 * 
+	 * @return The number of entities.
+	 */
+	public int getEntityCount() {
+		return entityCount;
+	}
+
+	/**
+	 * Returns the number of entity pairs that were checked for collisions
+	 * within the latest tick.
+	 * 
+	 * @return The number of checked collision pairs.
+	 */
+	public int getCollisionPairCount() {
+		return collisionPairCount;
 	}
 
 	/**
@@ -123,11 +349,151 @@ public abstract class Module {
 	 * 
 	 * @param screen
 	 *            The application's screen.
+	 * @param alpha
+	 *            The interpolation factor (0.0 to 1.0) between the previous
+	 *            and the current state of the game logic.
 	 */
-	public void render(final Screen screen) {
+	public void render(final Screen screen, final double alpha) {
+		renderQueue.clear();
+		renderWorld(renderQueue);
 		for (Entity entity : entities.values()) {
-			entity.render(screen);
+			entity.render(renderQueue, alpha);
 		}
+		renderQueue.render(screen, camera);
+		renderOverlay(screen);
+	}
+
+	/**
+	 * Renders the given snapshot of this module's state on the given screen.
+	 * This method is called instead of {@link #render(Screen, double)} if the
+	 * rendering runs within its own thread.
+	 * 
+	 * @param screen
+	 *            The application's screen.
+	 * @param snapshot
+	 *            The snapshot of the state to render.
+	 * @param alpha
+	 *            The interpolation factor (0.0 to 1.0) between the previous
+	 *            and the current state of the game logic.
+	 */
+	public void render(final Screen screen, final RenderSnapshot snapshot,
+			final double alpha) {
+		renderQueue.clear();
+		renderWorld(renderQueue);
+		snapshot.render(renderQueue, alpha);
+		renderQueue.render(screen, camera);
+		renderOverlay(screen);
+	}
+
+	/**
+	 * Adds the regions of the screen that change with the next rendering of
+	 * this module: the regions of all entities and of the overlay.
+	 * 
+	 * @param screen
+	 *            The application's screen.
+	 * @param regions
+	 *            The dirty regions to add to.
+	 * @param alpha
+	 *            The interpolation factor (0.0 to 1.0) the next rendering
+	 *            will be done with.
+	 * @return False, if the whole screen has to be redrawn (see
+	 *         {@link #invalidate()}).
+	 */
+	public boolean collectDirtyRegions(final Screen screen,
+			final DirtyRegions regions, final double alpha) {
+		boolean complete = !invalid;
+		invalid = false;
+		if (camera != null && camera.getChanges() != dirtyCameraChanges) {
+			// everything moved on the screen
+			dirtyCameraChanges = camera.getChanges();
+			complete = false;
+		}
+		for (Entity entity : entities.values()) {
+			entity.collectDirtyRegions(regions, camera, alpha);
+		}
+		collectWorldRegions(regions);
+		collectOverlayRegions(screen, regions);
+		return complete;
+	}
+
+	/**
+	 * Adds the regions of the overlay (see {@link #renderOverlay(Screen)})
+	 * that change with the next rendering. Modules that render a changing
+	 * overlay must override this method, otherwise the overlay is only
+	 * redrawn where entities move.
+	 * 
+	 * @param screen
+	 *            The application's screen.
+	 * @param regions
+	 *            The dirty regions to add to.
+	 */
+	protected void collectOverlayRegions(final Screen screen,
+			final DirtyRegions regions) {
+		// no changing overlay by default
+	}
+
+	/**
+	 * Adds the regions of the world content (see
+	 * {@link #renderWorld(RenderQueue)}) that change with the next rendering,
+	 * e.g. the edited chunks of a tile map.
+	 * 
+	 * @param regions
+	 *            The dirty regions to add to.
+	 */
+	protected void collectWorldRegions(final DirtyRegions regions) {
+		// no world content by default
+	}
+
+	/**
+	 * Forces the whole screen to be redrawn with the next frame, e.g. after
+	 * entities were removed (whose last bounds are not reported anymore).
+	 */
+	protected void invalidate() {
+		invalid = true;
+	}
+
+	/**
+	 * Submits the content of the world that is not made of entities (like
+	 * tile maps, see {@link com.fckawe.engine.tilemap.TileMap}) to the given
+	 * render queue. The positions are world positions, transformed by the
+	 * module's camera. Like {@link #renderOverlay(Screen)}, this method may be
+	 * called from within the render thread.
+	 * 
+	 * @param queue
+	 *            The render queue to submit to.
+	 */
+	protected void renderWorld(final RenderQueue queue) {
+		// no world content by default
+	}
+
+	/**
+	 * Renders additional content (like texts) on top of the entities. Since
+	 * this method may be called from within the render thread, it should only
+	 * read simple values of the module's state.
+	 * 
+	 * @param screen
+	 *            The application's screen.
+	 */
+	protected void renderOverlay(final Screen screen) {
+		// nothing to render by default
+	}
+
+	/**
+	 * Fills the given snapshot with the current state of this module, which
+	 * can then be rendered within the render thread.
+	 * 
+	 * @param snapshot
+	 *            The (cleared) snapshot to fill.
+	 */
+	public void snapshot(final RenderSnapshot snapshot) {
+		for (Entity entity : entities.values()) {
+			entity.snapshot(snapshot);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "module '" + name + "'";
 	}
 
 	/**
@@ -166,6 +532,50 @@ public abstract class Module {
 		return continueWithModule;
 	}
 
+	/**
+	 * Returns the bounds of this module's world, within which its entities
+	 * can move.
+	 * 
+	 * @return The bounds of this module's world or the bounds of the game, if
+	 *         the module has no own world bounds.
+	 */
+	public WorldBounds getWorldBounds() {
+		return worldBounds == null ? game.getWorldBounds() : worldBounds;
+	}
+
+	/**
+	 * Defines the bounds of this module's world, which may be bigger than the
+	 * screen (see {@link #setCamera(Camera)}).
+	 * 
+	 * @param worldBounds
+	 *            The bounds of the world or null, to use the bounds of the
+	 *            game.
+	 */
+	protected void setWorldBounds(final WorldBounds worldBounds) {
+		this.worldBounds = worldBounds;
+	}
+
+	/**
+	 * Returns the camera that defines the visible part of this module's
+	 * world.
+	 * 
+	 * @return The camera or null, if world and screen positions are equal.
+	 */
+	public Camera getCamera() {
+		return camera;
+	}
+
+	/**
+	 * Sets the camera that defines the visible part of this module's world.
+	 * 
+	 * @param camera
+	 *            The camera or null, if world and screen positions are equal.
+	 */
+	protected void setCamera(final Camera camera) {
+		this.camera = camera;
+		invalidate();
+	}
+
 	/**
 	 * Returns the map with all the entities used by this module.
 	 * 
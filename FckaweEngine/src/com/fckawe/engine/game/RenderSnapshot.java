@@ -0,0 +1,129 @@
+package com.fckawe.engine.game;
+
+import com.fckawe.engine.grafix.Bitmap;
+import com.fckawe.engine.grafix.RenderQueue;
+import com.fckawe.engine.physics.Position;
+
+/**
+ * A render snapshot keeps everything that is needed to render the state of
+ * the game after a tick: the bitmaps to draw together with their previous and
+ * current positions. The snapshot gets filled within the tick thread and is
+ * rendered within the render thread, so the render thread never has to touch
+ * the entities. Snapshot objects are reused, the arrays only grow if more
+ * entries are needed than ever before.
+ * 
+ * @author fckawe
+ */
+public class RenderSnapshot {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private int count;
+
+	private Bitmap[] bitmaps;
+
+	private int[] prevX, prevY;
+
+	private int[] x, y;
+
+	private int[] layers, z;
+
+	/**
+	 * Constructor to create a new and empty render snapshot.
+	 */
+	public RenderSnapshot() {
+		bitmaps = new Bitmap[INITIAL_CAPACITY];
+		prevX = new int[INITIAL_CAPACITY];
+		prevY = new int[INITIAL_CAPACITY];
+		x = new int[INITIAL_CAPACITY];
+		y = new int[INITIAL_CAPACITY];
+		layers = new int[INITIAL_CAPACITY];
+		z = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Removes all entries from this snapshot.
+	 */
+	public void clear() {
+		for (int i = 0; i < count; i++) {
+			bitmaps[i] = null;
+		}
+		count = 0;
+	}
+
+	/**
+	 * Adds a bitmap to draw to this snapshot.
+	 * 
+	 * @param bitmap
+	 *            The bitmap to draw.
+	 * @param prevPos
+	 *            The position of the bitmap before the latest tick.
+	 * @param pos
+	 *            The position of the bitmap after the latest tick.
+	 * @param layer
+	 *            The layer to draw the bitmap in (see {@link RenderQueue}).
+	 * @param z
+	 *            The z value within the layer.
+	 */
+	public void add(final Bitmap bitmap, final Position prevPos,
+			final Position pos, final int layer, final int z) {
+		if (count == bitmaps.length) {
+			grow();
+		}
+		bitmaps[count] = bitmap;
+		prevX[count] = prevPos.getX();
+		prevY[count] = prevPos.getY();
+		x[count] = pos.getX();
+		y[count] = pos.getY();
+		layers[count] = layer;
+		this.z[count] = z;
+		count++;
+	}
+
+	/**
+	 * Returns the number of entries of this snapshot.
+	 * 
+	 * @return The number of entries.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Submits all entries of this snapshot to the given render queue.
+	 * 
+	 * @param queue
+	 *            The render queue to submit to.
+	 * @param alpha
+	 *            The interpolation factor (0.0 to 1.0) between the previous
+	 *            and the current positions.
+	 */
+	public void render(final RenderQueue queue, final double alpha) {
+		for (int i = 0; i < count; i++) {
+			queue.submit(bitmaps[i],
+					prevX[i] + (int) Math.round((x[i] - prevX[i]) * alpha),
+					prevY[i] + (int) Math.round((y[i] - prevY[i]) * alpha),
+					layers[i], z[i]);
+		}
+	}
+
+	private void grow() {
+		int capacity = bitmaps.length * 2;
+		Bitmap[] newBitmaps = new Bitmap[capacity];
+		System.arraycopy(bitmaps, 0, newBitmaps, 0, count);
+		bitmaps = newBitmaps;
+		prevX = grow(prevX, capacity);
+		prevY = grow(prevY, capacity);
+		x = grow(x, capacity);
+		y = grow(y, capacity);
+		layers = grow(layers, capacity);
+		z = grow(z, capacity);
+	}
+
+	private int[] grow(final int[] array, final int capacity) {
+		int[] newArray = new int[capacity];
+		System.arraycopy(array, 0, newArray, 0, count);
+		return newArray;
+	}
+
+}
@@ -0,0 +1,346 @@
+package com.fckawe.engine.game;
+
+import org.slf4j.Logger;
+
+import com.fckawe.engine.core.Session;
+
+/**
+ * The scheduler runs jobs of modules and entities at independent rates (e.g.
+ * physics at 120 Hz, AI at 10 Hz and UI animations with every rendered frame).
+ * Each job has its own accumulator: the elapsed time of the ticks gets added
+ * and the job runs once per full period that was accumulated, always with the
+ * fixed duration of its period.
+ * <p>
+ * If a tick exceeds the frame budget, jobs of lower priority are spread over
+ * the following ticks: NORMAL jobs run at most one step per tick, LOW jobs are
+ * deferred completely. Their accumulators keep the time, so they catch up as
+ * soon as there's time left (up to {@link #MAX_CATCH_UP_STEPS} periods).
+ * <p>
+ * Jobs with a rate of 0 run once per rendered frame (from within the thread
+ * that renders) and are never deferred.
+ * 
+ * @author fckawe
+ */
+public class Scheduler {
+
+	/**
+	 * The work of a job.
+	 * 
+	 * @author fckawe
+	 */
+	public interface Task {
+
+		/**
+		 * Performs one step of the job.
+		 * 
+		 * @param elapsedTime
+		 *            The time (in ns) that passed with this step: the period
+		 *            of the job or, for jobs that run at render rate, the time
+		 *            since the previous frame.
+		 */
+		public void run(long elapsedTime);
+
+	}
+
+	/**
+	 * The priority of a job, which decides whether the job may be deferred if
+	 * the frame budget is exceeded.
+	 * 
+	 * @author fckawe
+	 */
+	public enum Priority {
+		HIGH, NORMAL, LOW
+	};
+
+	/**
+	 * The maximum number of periods a job catches up with within one tick.
+	 * Time beyond is dropped.
+	 */
+	public static final int MAX_CATCH_UP_STEPS = 5;
+
+	// number of nanoseconds per second
+	private static final long NANOS_PER_SECOND = 1000000000l;
+
+	private static final Job[] NO_JOBS = new Job[0];
+
+	// the frame budget (value in ns)
+	private final long budget;
+
+	private final Logger logger;
+
+	// copy-on-write arrays (never modified, only replaced), sorted by priority
+	private volatile Job[] tickJobs = NO_JOBS;
+
+	private volatile Job[] frameJobs = NO_JOBS;
+
+	/**
+	 * Constructor to create a new scheduler.
+	 * 
+	 * @param budget
+	 *            The frame budget (value in ns). If a tick takes longer,
+	 *            lower priority jobs get deferred.
+	 */
+	public Scheduler(final long budget) {
+		this.budget = budget;
+		Session session = Session.getSession();
+		logger = session == null ? null : session.getMainLogger();
+	}
+
+	/**
+	 * Schedules a new job.
+	 * 
+	 * @param owner
+	 *            The owner of the job (usually a module or an entity), used to
+	 *            cancel all jobs of the owner at once.
+	 * @param name
+	 *            The name of the job (for logging).
+	 * @param rate
+	 *            The number of runs per second or 0, if the job should run
+	 *            once per rendered frame.
+	 * @param priority
+	 *            The priority of the job.
+	 * @param task
+	 *            The work of the job.
+	 * @return The scheduled job.
+	 */
+	public Job schedule(final Object owner, final String name,
+			final double rate, final Priority priority, final Task task) {
+		if (rate < 0) {
+			throw new RuntimeException("Invalid rate " + rate + " of job '"
+					+ name + "'!");
+		}
+		Job job = new Job(owner, name, rate, priority, task);
+		synchronized (this) {
+			if (job.isFrameJob()) {
+				frameJobs = insert(frameJobs, job);
+			} else {
+				tickJobs = insert(tickJobs, job);
+			}
+		}
+		if (logger != null && logger.isDebugEnabled()) {
+			logger.debug("Scheduled job '{}' ({} Hz, {}).", name,
+					String.valueOf(rate), priority);
+		}
+		return job;
+	}
+
+	/**
+	 * Cancels the given job.
+	 * 
+	 * @param job
+	 *            The job to cancel.
+	 */
+	public synchronized void cancel(final Job job) {
+		job.cancelled = true;
+		tickJobs = remove(tickJobs, job, null);
+		frameJobs = remove(frameJobs, job, null);
+	}
+
+	/**
+	 * Cancels all jobs of the given owner.
+	 * 
+	 * @param owner
+	 *            The owner whose jobs to cancel.
+	 */
+	public synchronized void cancelAll(final Object owner) {
+		tickJobs = remove(tickJobs, null, owner);
+		frameJobs = remove(frameJobs, null, owner);
+	}
+
+	/**
+	 * Advances all jobs that do not run at render rate by the given time. Must
+	 * be called once per tick.
+	 * 
+	 * @param elapsedTime
+	 *            The time (in ns) that passed with the tick.
+	 * @param tickStart
+	 *            The time (System.nanoTime) when the tick started, to find
+	 *            out if the frame budget is exceeded.
+	 */
+	public void tick(final long elapsedTime, final long tickStart) {
+		Job[] jobs = tickJobs;
+		for (int i = 0; i < jobs.length; i++) {
+			Job job = jobs[i];
+			job.accumulator += elapsedTime;
+			long maxAccumulated = job.period * MAX_CATCH_UP_STEPS;
+			if (job.accumulator > maxAccumulated) {
+				job.accumulator = maxAccumulated;
+			}
+			if (job.accumulator < job.period) {
+				continue;
+			}
+
+			int maxSteps = MAX_CATCH_UP_STEPS;
+			if (job.priority != Priority.HIGH
+					&& System.nanoTime() - tickStart > budget) {
+				job.deferrals++;
+				if (job.priority == Priority.LOW) {
+					continue;
+				}
+				maxSteps = 1;
+			}
+			for (int step = 0; step < maxSteps
+					&& job.accumulator >= job.period && !job.cancelled; step++) {
+				job.task.run(job.period);
+				job.accumulator -= job.period;
+			}
+		}
+	}
+
+	/**
+	 * Runs all jobs at render rate. Must be called once per rendered frame.
+	 */
+	public void frame() {
+		Job[] jobs = frameJobs;
+		if (jobs.length == 0) {
+			return;
+		}
+		long now = System.nanoTime();
+		for (int i = 0; i < jobs.length; i++) {
+			Job job = jobs[i];
+			long elapsedTime = job.lastRunTime == 0 ? 0 : now
+					- job.lastRunTime;
+			job.lastRunTime = now;
+			if (!job.cancelled) {
+				job.task.run(elapsedTime);
+			}
+		}
+	}
+
+	private static Job[] insert(final Job[] jobs, final Job job) {
+		// behind all jobs of the same or a higher priority
+		int index = 0;
+		while (index < jobs.length
+				&& jobs[index].priority.compareTo(job.priority) <= 0) {
+			index++;
+		}
+		Job[] newJobs = new Job[jobs.length + 1];
+		System.arraycopy(jobs, 0, newJobs, 0, index);
+		newJobs[index] = job;
+		System.arraycopy(jobs, index, newJobs, index + 1, jobs.length - index);
+		return newJobs;
+	}
+
+	private static Job[] remove(final Job[] jobs, final Job job,
+			final Object owner) {
+		int count = 0;
+		for (int i = 0; i < jobs.length; i++) {
+			if (jobs[i] != job && (owner == null || jobs[i].owner != owner)) {
+				count++;
+			}
+		}
+		if (count == jobs.length) {
+			return jobs;
+		}
+		Job[] newJobs = new Job[count];
+		int index = 0;
+		for (int i = 0; i < jobs.length; i++) {
+			if (jobs[i] != job && (owner == null || jobs[i].owner != owner)) {
+				newJobs[index++] = jobs[i];
+			} else {
+				jobs[i].cancelled = true;
+			}
+		}
+		return newJobs;
+	}
+
+	/**
+	 * A job scheduled by the scheduler.
+	 * 
+	 * @author fckawe
+	 */
+	public static class Job {
+
+		private final Object owner;
+
+		private final String name;
+
+		private final double rate;
+
+		private final Priority priority;
+
+		private final Task task;
+
+		// the period of the job (value in ns), 0 for jobs at render rate
+		private final long period;
+
+		// the time that was accumulated but not yet run (value in ns)
+		private long accumulator;
+
+		// the time of the latest run (for jobs at render rate)
+		private long lastRunTime;
+
+		private long deferrals;
+
+		private volatile boolean cancelled;
+
+		private Job(final Object owner, final String name, final double rate,
+				final Priority priority, final Task task) {
+			this.owner = owner;
+			this.name = name;
+			this.rate = rate;
+			this.priority = priority;
+			this.task = task;
+			period = rate == 0 ? 0 : Math.max(1,
+					(long) (NANOS_PER_SECOND / rate));
+		}
+
+		/**
+		 * Returns the name of the job.
+		 * 
+		 * @return The name of the job.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the number of runs per second.
+		 * 
+		 * @return The number of runs per second or 0, if the job runs once
+		 *         per rendered frame.
+		 */
+		public double getRate() {
+			return rate;
+		}
+
+		/**
+		 * Returns the priority of the job.
+		 * 
+		 * @return The priority of the job.
+		 */
+		public Priority getPriority() {
+			return priority;
+		}
+
+		/**
+		 * Returns true, if the job runs once per rendered frame.
+		 * 
+		 * @return True, if the job runs at render rate.
+		 */
+		public boolean isFrameJob() {
+			return period == 0;
+		}
+
+		/**
+		 * Returns the number of ticks within which the job was deferred (or
+		 * limited to one step) because the frame budget was exceeded.
+		 * 
+		 * @return The number of deferrals.
+		 */
+		public long getDeferrals() {
+			return deferrals;
+		}
+
+		/**
+		 * Returns true, if the job was cancelled.
+		 * 
+		 * @return True, if the job was cancelled.
+		 */
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+	}
+
+}
@@ -28,7 +28,7 @@ public class BouncingBallDemo extends DemoModule {
 	public void tick(final InputHandler inputHandler, final long elapsedTime) {
 		super.tick(inputHandler, elapsedTime);
 
-		if (inputHandler.isPressed(KeyEvent.VK_ESCAPE)) {
+		if (inputHandler != null && inputHandler.isPressed(KeyEvent.VK_ESCAPE)) {
 			inputHandler.consume(KeyEvent.VK_ESCAPE);
 			setEnd(null);
 		}
@@ -2,6 +2,7 @@ package com.fckawe.engine.game.demo;
 
 import com.fckawe.engine.game.Game;
 import com.fckawe.engine.game.Module;
+import com.fckawe.engine.grafix.DirtyRegions;
 import com.fckawe.engine.grafix.Fonts;
 import com.fckawe.engine.input.InputHandler;
 import com.fckawe.engine.physics.Position;
@@ -11,13 +12,18 @@ public abstract class DemoModule extends Module {
 
 	protected int showDurationInSecs = 15;
 
-	private long startTime;
+	// number of nanoseconds per second
+	private static final long NANOS_PER_SECOND = 1000000000l;
 
-	private long currentTime;
+	// the game time (value in ns) that passed since the module started
+	private long elapsedGameTime;
+
+	// the seconds left as shown by the latest rendered overlay
+	private int renderedSecondsLeft = -1;
 
 	public DemoModule(final Game game) {
 		super(game);
-		startTime = 0;
+		elapsedGameTime = 0;
 	}
 
 	protected int getSecondsLeft() {
@@ -25,13 +31,23 @@ public abstract class DemoModule extends Module {
 	}
 
 	protected int getSecondsPassed() {
-		return (int) ((currentTime - startTime) / 1000);
+		return (int) (elapsedGameTime / NANOS_PER_SECOND);
 	}
 
 	@Override
-	public void render(final Screen screen) {
-		super.render(screen);
+	protected void collectOverlayRegions(final Screen screen,
+			final DirtyRegions regions) {
+		int secondsLeft = getSecondsLeft();
+		if (secondsLeft != renderedSecondsLeft) {
+			renderedSecondsLeft = secondsLeft;
+			int height = game.getUserInterface().getFont(null).getHeight();
+			regions.add(5, screen.getHeight() - 20, screen.getWidth() - 5,
+					height);
+		}
+	}
 
+	@Override
+	protected void renderOverlay(final Screen screen) {
 		String str = getModuleName() + " (" + getSecondsLeft() + ")";
 
 		Fonts fonts = game.getUserInterface().getFonts();
@@ -42,10 +58,9 @@ public abstract class DemoModule extends Module {
 	public void tick(final InputHandler inputHandler, final long elapsedTime) {
 		super.tick(inputHandler, elapsedTime);
 		
-		currentTime = System.currentTimeMillis();
-		if (startTime == 0) {
-			startTime = currentTime;
-		} else if(getSecondsLeft() <= 0) {
+		// count the game time, so time scaling and pausing apply
+		elapsedGameTime += elapsedTime;
+		if (getSecondsLeft() <= 0) {
 			setEnd(null);
 		}
 	}
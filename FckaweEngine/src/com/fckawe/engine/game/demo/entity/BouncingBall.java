@@ -9,10 +9,11 @@ import com.fckawe.engine.game.Game;
 import com.fckawe.engine.game.entity.Entity;
 import com.fckawe.engine.grafix.Bitmap;
 import com.fckawe.engine.grafix.Bitmaps;
+import com.fckawe.engine.grafix.RenderQueue;
 import com.fckawe.engine.input.InputHandler;
 import com.fckawe.engine.physics.RectangularBounds;
 import com.fckawe.engine.physics.Vector;
-import com.fckawe.engine.ui.Screen;
+import com.fckawe.engine.physics.WorldBounds;
 
 public class BouncingBall extends Entity {
 
@@ -31,9 +32,9 @@ public class BouncingBall extends Entity {
 		friction = new Vector(0, 0);
 		weight = new Vector(0, 0);
 
-		Screen screen = game.getUserInterface().getScreen();
-		pos.setX(screen.getWidth() / 2);
-		pos.setY(screen.getHeight() / 2);
+		WorldBounds worldBounds = game.getWorldBounds();
+		pos.setX(worldBounds.getWidth() / 2);
+		pos.setY(worldBounds.getHeight() / 2);
 		Random rnd;
 		int tmp;
 		int max;
@@ -107,8 +108,8 @@ public class BouncingBall extends Entity {
 	}
 
 	@Override
-	public void render(final Screen screen) {
-		super.render(screen);
+	public void render(final RenderQueue queue, final double alpha) {
+		super.render(queue, alpha);
 	}
 
 	@Override
@@ -5,22 +5,49 @@ import java.util.List;
 import java.util.Map;
 
 import com.fckawe.engine.game.Game;
+import com.fckawe.engine.game.Module;
+import com.fckawe.engine.game.RenderSnapshot;
+import com.fckawe.engine.game.Scheduler;
 import com.fckawe.engine.grafix.Bitmap;
 import com.fckawe.engine.grafix.Bitmaps;
+import com.fckawe.engine.grafix.Camera;
+import com.fckawe.engine.grafix.DirtyRegions;
+import com.fckawe.engine.grafix.RenderQueue;
 import com.fckawe.engine.input.InputHandler;
 import com.fckawe.engine.physics.RectangularBounds;
 import com.fckawe.engine.physics.Position;
 import com.fckawe.engine.physics.Vector;
-import com.fckawe.engine.ui.Screen;
+import com.fckawe.engine.physics.WorldBounds;
+import com.fckawe.engine.ui.UserInterface;
 
 public abstract class Entity {
 
+	private static final long NANOS_PER_SECOND = 1000000000l;
+
 	protected Game game;
 
 	protected Bitmap currentBitmap;
 
 	protected Position pos;
 
+	// the layer and the z value within the layer the entity is drawn with
+	// (see RenderQueue)
+	protected int layer, z;
+
+	// the position before the latest tick (used for interpolation)
+	protected Position prevPos;
+
+	// reused position object for the interpolated render position
+	private final Position renderPos = new Position();
+
+	// the bitmap and its bounds as reported by the latest collection of
+	// dirty regions
+	private Bitmap renderedBitmap;
+	private int renderedX, renderedY, renderedWidth, renderedHeight;
+
+	// true, if the entity has to be redrawn even if nothing moved
+	private boolean invalid;
+
 	protected List<RectangularBounds> boundaries;
 
 	protected Vector velocity, acceleration;
@@ -54,10 +81,33 @@ public abstract class Entity {
 
 		initMore();
 		initBoundaries(boundaries);
+
+		prevPos = new Position(pos.getX(), pos.getY());
 	}
 
 	protected abstract void initMore();
 
+	/**
+	 * Schedules a job of this entity which runs at its own rate (instead of
+	 * counting ticks within {@link #tick(InputHandler, long)}). The job gets
+	 * cancelled when the module of the entity is unloaded.
+	 * 
+	 * @param name
+	 *            The name of the job (for logging).
+	 * @param rate
+	 *            The number of runs per second or 0, if the job should run
+	 *            once per rendered frame.
+	 * @param priority
+	 *            The priority of the job.
+	 * @param task
+	 *            The work of the job.
+	 * @return The scheduled job.
+	 */
+	protected Scheduler.Job schedule(final String name, final double rate,
+			final Scheduler.Priority priority, final Scheduler.Task task) {
+		return game.getScheduler().schedule(this, name, rate, priority, task);
+	}
+
 	protected abstract void initBoundaries(List<RectangularBounds> boundaries);
 
 	protected String getBitmapsIdPrefix() {
@@ -68,12 +118,20 @@ public abstract class Entity {
 		return getBitmapsIdPrefix() + "." + id;
 	}
 
+	@Override
+	public String toString() {
+		return "entity " + getClass().getSimpleName();
+	}
+
 	public abstract List<String> getRequiredBitmapIds();
 
 	public abstract void loadRequiredBitmap(String id, String globalId);
 
 	public void tick(final InputHandler inputHandler, final long elapsedTime) {
-		long statisticalFps = 1000 / Math.max(elapsedTime, 1);
+		prevPos.setX(pos.getX());
+		prevPos.setY(pos.getY());
+
+		long statisticalFps = NANOS_PER_SECOND / Math.max(elapsedTime, 1);
 		velocity.applyDivisor(statisticalFps);
 		acceleration.applyDivisor(statisticalFps);
 
@@ -119,18 +177,111 @@ public abstract class Entity {
 		velocity.applyMaxY(velocityMax.getY());
 	}
 
-	public void render(final Screen screen) {
+	/**
+	 * Submits the current bitmap of this entity to the given render queue.
+	 * 
+	 * @param queue
+	 *            The render queue of the module.
+	 * @param alpha
+	 *            The interpolation factor (0.0 to 1.0) between the previous
+	 *            and the current state of the game logic.
+	 */
+	public void render(final RenderQueue queue, final double alpha) {
+		if (currentBitmap != null) {
+			Position renderPosition = getRenderPosition(alpha);
+			queue.submit(currentBitmap, renderPosition.getX(),
+					renderPosition.getY(), layer, z);
+		}
+	}
+
+	/**
+	 * Adds the regions of the screen that change with the next rendering of
+	 * this entity: the previously rendered and the new bounds, if the bitmap
+	 * or its position changed (or the entity was invalidated).
+	 * 
+	 * @param regions
+	 *            The dirty regions to add to.
+	 * @param camera
+	 *            The camera of the module or null, if world and screen
+	 *            positions are equal.
+	 * @param alpha
+	 *            The interpolation factor (0.0 to 1.0) the next rendering
+	 *            will be done with.
+	 */
+	public void collectDirtyRegions(final DirtyRegions regions,
+			final Camera camera, final double alpha) {
+		int x = 0, y = 0, width = 0, height = 0;
 		if (currentBitmap != null) {
-			screen.transparencyBlit(currentBitmap, pos);
+			Position renderPosition = getRenderPosition(alpha);
+			x = renderPosition.getX();
+			y = renderPosition.getY();
+			width = currentBitmap.getWidth();
+			height = currentBitmap.getHeight();
+			if (camera != null) {
+				// the regions are screen regions
+				int right = camera.toScreenX(x + width);
+				int bottom = camera.toScreenY(y + height);
+				x = camera.toScreenX(x);
+				y = camera.toScreenY(y);
+				width = right - x;
+				height = bottom - y;
+			}
+		}
+		if (!invalid && currentBitmap == renderedBitmap && x == renderedX
+				&& y == renderedY && width == renderedWidth
+				&& height == renderedHeight) {
+			return;
+		}
+		if (renderedBitmap != null) {
+			regions.add(renderedX, renderedY, renderedWidth, renderedHeight);
+		}
+		if (currentBitmap != null) {
+			regions.add(x, y, width, height);
+		}
+		renderedBitmap = currentBitmap;
+		renderedX = x;
+		renderedY = y;
+		renderedWidth = width;
+		renderedHeight = height;
+		invalid = false;
+	}
+
+	/**
+	 * Forces this entity to be redrawn with the next frame, even if neither
+	 * its bitmap nor its position changed (e.g. if the pixels of the current
+	 * bitmap were modified).
+	 */
+	protected void invalidate() {
+		invalid = true;
+	}
+
+	public void snapshot(final RenderSnapshot snapshot) {
+		if (currentBitmap != null) {
+			snapshot.add(currentBitmap, prevPos, pos, layer, z);
+		}
+	}
+
+	protected Position getRenderPosition(final double alpha) {
+		if (alpha >= 1.0) {
+			return pos;
 		}
+		renderPos.setX(interpolate(prevPos.getX(), pos.getX(), alpha));
+		renderPos.setY(interpolate(prevPos.getY(), pos.getY(), alpha));
+		return renderPos;
+	}
+
+	private int interpolate(final int prev, final int current,
+			final double alpha) {
+		return prev + (int) Math.round((current - prev) * alpha);
 	}
 
 	protected Bitmaps getBitmaps() {
-		return game.getUserInterface().getBitmaps();
+		return game.getBitmaps();
 	}
 
 	protected InputHandler getInputHandler() {
-		return game.getUserInterface().getInputHandler();
+		UserInterface ui = game.getUserInterface();
+		return ui == null ? null : ui.getInputHandler();
 	}
 
 	protected void accelerateX(final int dir) {
@@ -158,12 +309,16 @@ public abstract class Entity {
 	}
 
 	protected void checkEntityCollision() {
-		Map<String, Entity> entities = game.getCurrentModule().getEntities();
+		Module module = game.getCurrentModule();
+		Map<String, Entity> entities = module.getEntities();
+		int pairs = 0;
 		for (Entity entity : entities.values()) {
 			if (entity != this) {
 				checkCollisionWith(entity);
+				pairs++;
 			}
 		}
+		module.countCollisionPairs(pairs);
 	}
 
 	protected void checkCollisionWith(final Entity other) {
@@ -190,8 +345,13 @@ public abstract class Entity {
 	}
 
 	protected boolean collidesPixelPerfectWith(final Entity other) {
+		// bitmaps may be views of sprite sheets, so use offsets and strides
 		int[] pxls = currentBitmap.getPixels();
 		int[] opxls = other.getCurrentBitmap().getPixels();
+		int offset = currentBitmap.getOffset();
+		int stride = currentBitmap.getStride();
+		int ooffset = other.getCurrentBitmap().getOffset();
+		int ostride = other.getCurrentBitmap().getStride();
 
 		// find top left and bottom right coords of this
 		int tlx = pos.getX(), tly = pos.getY();
@@ -218,8 +378,8 @@ public abstract class Entity {
 				int px = ix - tlx;
 				int opx = ix - otlx;
 
-				int pidx = py * w + px;
-				int opidx = opy * ow + opx;
+				int pidx = offset + py * stride + px;
+				int opidx = ooffset + opy * ostride + opx;
 
 				if ((pxls[pidx] & 0xFF000000) != 0x00
 						&& (opxls[opidx] & 0xFF000000) != 0x00) {
@@ -271,8 +431,8 @@ public abstract class Entity {
 	}
 
 	protected int getMostRightPosition() {
-		Screen screen = game.getUserInterface().getScreen();
-		return screen.getWidth() - currentBitmap.getWidth();
+		WorldBounds worldBounds = getWorldBounds();
+		return worldBounds.getWidth() - currentBitmap.getWidth();
 	}
 
 	protected int getMostTopPosition() {
@@ -280,8 +440,20 @@ public abstract class Entity {
 	}
 
 	protected int getMostBottomPosition() {
-		Screen screen = game.getUserInterface().getScreen();
-		return screen.getHeight() - currentBitmap.getHeight();
+		WorldBounds worldBounds = getWorldBounds();
+		return worldBounds.getHeight() - currentBitmap.getHeight();
+	}
+
+	/**
+	 * Returns the bounds of the world the entity moves in: the bounds of the
+	 * current module (which may be bigger than the screen).
+	 * 
+	 * @return The world bounds.
+	 */
+	protected WorldBounds getWorldBounds() {
+		Module module = game.getCurrentModule();
+		return module == null ? game.getWorldBounds() : module
+				.getWorldBounds();
 	}
 
 	protected void collisionWithLeftBorder(final int mostLeft) {
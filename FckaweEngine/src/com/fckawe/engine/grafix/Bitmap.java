@@ -5,15 +5,53 @@ import java.util.Arrays;
 import com.fckawe.engine.physics.Position;
 
 /**
- * A bitmap graphic represented by its pixel values.
+ * A bitmap graphic represented by its pixel values. All blit and fill
+ * operations are limited to the bitmap's clip rectangle (by default the
+ * whole bitmap, see {@link #setClip(int, int, int, int)}).
+ * <p>
+ * A bitmap may be a view of a rectangular part of another bitmap (e.g. a
+ * single frame of a sprite sheet), sharing its pixels. The pixel at (x, y)
+ * is therefore stored at index offset + y * stride + x of the pixel array.
  * @author fckawe
  */
 public class Bitmap {
 
+	// types of the spans (stored within the lowest two bits of a span)
+	private static final int SPAN_TRANSPARENT = 0;
+	private static final int SPAN_OPAQUE = 1;
+	private static final int SPAN_PARTIAL = 2;
+	private static final int SPAN_TYPE_BITS = 2;
+	private static final int SPAN_TYPE_MASK = 3;
+
+	// the blender used by all bitmaps
+	private static volatile Blender blender = new SwarBlender();
+
+	// the scratch buffer of the scaled blits (the source column of each
+	// target column, followed by a row of sampled pixels), one per thread as
+	// the bands of a frame may be rasterized in parallel
+	private static final ThreadLocal<int[]> SCALE_BUFFER =
+			new ThreadLocal<int[]>();
+
 	private final int width;
 	private final int height;
 	protected int[] pixels;
 
+	// index of the top left pixel and number of array entries per row
+	private final int offset;
+	private final int stride;
+
+	// the clip rectangle (right and bottom are exclusive)
+	protected int clipX0, clipY0, clipX1, clipY1;
+
+	// runs of transparent, opaque and partially transparent pixels per row
+	// (length and type of each run) or null, if not computed
+	private int[] spans;
+	// index of the first span of each row (and the number of spans at the end)
+	private int[] spanRowStarts;
+
+	// true, if the color channels are premultiplied with the alpha value
+	private boolean premultiplied;
+
 	/**
 	 * Create a new bitmap with the given size.
 	 * @param width The width of the bitmap.
@@ -23,6 +61,51 @@ public class Bitmap {
 		this.width = width;
 		this.height = height;
 		pixels = new int[width * height];
+		offset = 0;
+		stride = width;
+		resetClip();
+	}
+
+	/**
+	 * Create a new bitmap as a view of the given part of another bitmap. The
+	 * pixels are not copied, so changes of the pixels affect both bitmaps.
+	 * @param bitmap The bitmap to create a view of.
+	 * @param x The left position of the part within the bitmap.
+	 * @param y The top position of the part within the bitmap.
+	 * @param width The width of the part.
+	 * @param height The height of the part.
+	 */
+	public Bitmap(final Bitmap bitmap, final int x, final int y,
+			final int width, final int height) {
+		if (x < 0 || y < 0 || width < 0 || height < 0
+				|| x + width > bitmap.width || y + height > bitmap.height) {
+			throw new RuntimeException("Part " + x + "," + y + " " + width
+					+ "x" + height + " exceeds the bitmap's bounds "
+					+ bitmap.width + "x" + bitmap.height + "!");
+		}
+		this.width = width;
+		this.height = height;
+		pixels = bitmap.pixels;
+		offset = bitmap.offset + y * bitmap.stride + x;
+		stride = bitmap.stride;
+		premultiplied = bitmap.premultiplied;
+		resetClip();
+	}
+
+	/**
+	 * Sets the blender which performs the alpha blending of all bitmaps.
+	 * @param blender The blender to use.
+	 */
+	public static void setBlender(final Blender blender) {
+		Bitmap.blender = blender;
+	}
+
+	/**
+	 * Returns the blender which performs the alpha blending of all bitmaps.
+	 * @return The blender in use.
+	 */
+	public static Blender getBlender() {
+		return blender;
 	}
 
 	/**
@@ -42,7 +125,9 @@ public class Bitmap {
 	}
 	
 	/**
-	 * Returns an array of all the bitmap's pixels.
+	 * Returns an array of all the bitmap's pixels. If the bitmap is a view of
+	 * another bitmap, the array contains the pixels of the other bitmap too
+	 * (see {@link #getOffset()} and {@link #getStride()}).
 	 * @return The pixels as an integer array.
 	 */
 	public int[] getPixels() {
@@ -50,132 +135,631 @@ public class Bitmap {
 	}
 
 	/**
-	 * Sets the bitmap's pixels as an array.
+	 * Returns the index of the bitmap's top left pixel within the array.
+	 * @return The index of the top left pixel.
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Returns the number of array entries per row of the bitmap.
+	 * @return The number of array entries per row.
+	 */
+	public int getStride() {
+		return stride;
+	}
+
+	/**
+	 * Returns true, if the bitmap is a view of a part of another bitmap.
+	 * @return True, if the pixels are shared with another bitmap.
+	 */
+	public boolean isView() {
+		return offset != 0 || stride != width
+				|| pixels.length != width * height;
+	}
+
+	/**
+	 * Sets the bitmap's pixels as an array (with the offset and the stride of
+	 * this bitmap).
 	 * @param pixels The pixels as an integer array.
 	 */
 	public void setPixels(final int[] pixels) {
 		this.pixels = pixels;
+		spans = null;
+		spanRowStarts = null;
+	}
+
+	/**
+	 * Computes the runs of fully transparent, fully opaque and partially
+	 * transparent pixels of each row. Blits of this bitmap then skip the
+	 * transparent runs, copy the opaque runs and only test and blend the
+	 * pixels of the partially transparent runs. Must be called again if the
+	 * pixels get modified afterwards (setting new pixels discards the runs).
+	 */
+	public void computeSpans() {
+		int[] rowStarts = new int[height + 1];
+		int[] runs = new int[Math.max(16, height * 4)];
+		int count = 0;
+		for (int y = 0; y < height; y++) {
+			rowStarts[y] = count;
+			int rowOffset = offset + y * stride;
+			int x = 0;
+			while (x < width) {
+				int type = getSpanType(pixels[rowOffset + x]);
+				int end = x + 1;
+				while (end < width
+						&& getSpanType(pixels[rowOffset + end]) == type) {
+					end++;
+				}
+				if (count == runs.length) {
+					runs = Arrays.copyOf(runs, count * 2);
+				}
+				runs[count++] = ((end - x) << SPAN_TYPE_BITS) | type;
+				x = end;
+			}
+		}
+		rowStarts[height] = count;
+		spanRowStarts = rowStarts;
+		spans = Arrays.copyOf(runs, count);
+	}
+
+	/**
+	 * Converts the pixels of this bitmap to premultiplied alpha: the color
+	 * channels get multiplied with the alpha value, so blending them needs
+	 * less multiplications per pixel. Views of this bitmap created afterwards
+	 * are premultiplied too. Blits without a blend mode blend premultiplied
+	 * bitmaps like {@link BlendMode#ALPHA} (copying their partially
+	 * transparent pixels would darken the edges). Bitmaps that are read by
+	 * the game should not be premultiplied.
+	 */
+	public void premultiply() {
+		if (premultiplied) {
+			return;
+		}
+		for (int y = 0; y < height; y++) {
+			int rowOffset = offset + y * stride;
+			for (int x = 0; x < width; x++) {
+				int col = pixels[rowOffset + x];
+				int a = col >>> 24;
+				if (a < 0xff) {
+					int r = BlendMode.multiply((col >> 16) & 0xff, a);
+					int g = BlendMode.multiply((col >> 8) & 0xff, a);
+					int b = BlendMode.multiply(col & 0xff, a);
+					pixels[rowOffset + x] = (a << 24) | (r << 16) | (g << 8) | b;
+				}
+			}
+		}
+		premultiplied = true;
+	}
+
+	/**
+	 * Returns true, if the color channels of this bitmap are premultiplied
+	 * with the alpha value (see {@link #premultiply()}).
+	 * @return True, if the bitmap is premultiplied.
+	 */
+	public boolean isPremultiplied() {
+		return premultiplied;
+	}
+
+	/**
+	 * Returns true, if the spans of this bitmap are computed.
+	 * @return True, if blits of this bitmap use the spans.
+	 */
+	public boolean hasSpans() {
+		return spans != null;
+	}
+
+	/**
+	 * Returns the computed spans (see {@link #computeSpans()}), e.g. to store
+	 * them within a sprite pack.
+	 * @return The spans or null, if not computed.
+	 */
+	int[] getSpans() {
+		return spans;
+	}
+
+	/**
+	 * Returns the index of the first span of each row (see
+	 * {@link #getSpans()}).
+	 * @return The row indices or null, if the spans are not computed.
+	 */
+	int[] getSpanRowStarts() {
+		return spanRowStarts;
+	}
+
+	/**
+	 * Sets spans that were computed before (e.g. read from a sprite pack)
+	 * instead of computing them.
+	 * @param spans The spans.
+	 * @param rowStarts The index of the first span of each row.
+	 */
+	void setSpans(final int[] spans, final int[] rowStarts) {
+		this.spans = spans;
+		spanRowStarts = rowStarts;
+	}
+
+	/**
+	 * Marks the pixels as premultiplied without converting them (e.g. if
+	 * they were premultiplied before they were stored).
+	 * @param premultiplied True, if the pixels are premultiplied.
+	 */
+	void setPremultiplied(final boolean premultiplied) {
+		this.premultiplied = premultiplied;
+	}
+
+	/**
+	 * Returns true, if the given bitmap has the same size and the same
+	 * position within its pixels as this bitmap (see {@link #replace(Bitmap)}).
+	 * @param bitmap The bitmap to compare with.
+	 * @return True, if the bitmap has the same layout.
+	 */
+	boolean hasLayoutOf(final Bitmap bitmap) {
+		return width == bitmap.width && height == bitmap.height
+				&& offset == bitmap.offset && stride == bitmap.stride
+				&& pixels.length == bitmap.pixels.length;
+	}
+
+	/**
+	 * Takes the pixels and the spans of the given bitmap (e.g. a reloaded
+	 * version of this bitmap), so everybody who holds this bitmap draws the
+	 * new pixels. The bitmap must have the same layout as this bitmap.
+	 * <p>
+	 * The fields are not swapped atomically: this method must be called by
+	 * the thread that draws this bitmap while it is not drawn (e.g. between
+	 * two frames, after the parallel rasterization of the previous frame).
+	 * Other threads that read the pixels (like the game logic checking
+	 * pixel perfect collisions) may still see the old pixels for a while,
+	 * which is harmless as both have the same layout. Bitmaps that are
+	 * shared beyond their owner (like the cells of a {@link SpritePack})
+	 * must not be replaced.
+	 * @param bitmap The bitmap to take the pixels from.
+	 */
+	void replace(final Bitmap bitmap) {
+		pixels = bitmap.pixels;
+		spans = bitmap.spans;
+		spanRowStarts = bitmap.spanRowStarts;
+		premultiplied = bitmap.premultiplied;
+	}
+
+	private static int getSpanType(final int col) {
+		int a = (col >> 24) & 0xff;
+		if (a == 0) {
+			return SPAN_TRANSPARENT;
+		}
+		return a == 0xff ? SPAN_OPAQUE : SPAN_PARTIAL;
+	}
+
+	/**
+	 * Limits all following blit and fill operations to the given rectangle
+	 * (intersected with the bitmap's bounds).
+	 * @param x The left position of the clip rectangle.
+	 * @param y The top position of the clip rectangle.
+	 * @param w The width of the clip rectangle.
+	 * @param h The height of the clip rectangle.
+	 */
+	public void setClip(final int x, final int y, final int w, final int h) {
+		clipX0 = Math.max(x, 0);
+		clipY0 = Math.max(y, 0);
+		clipX1 = Math.max(clipX0, Math.min(x + w, width));
+		clipY1 = Math.max(clipY0, Math.min(y + h, height));
+	}
+
+	/**
+	 * Resets the clip rectangle to the whole bitmap.
+	 */
+	public void resetClip() {
+		clipX0 = 0;
+		clipY0 = 0;
+		clipX1 = width;
+		clipY1 = height;
 	}
 
 	/**
 	 * Clears the bitmap (assigns the given background color to all pixels).
+	 * The clip rectangle is ignored.
 	 * @param color The (background) color to assign to all pixels.
 	 */
 	public void clear(final int color) {
-		Arrays.fill(pixels, color);
+		if (!isView()) {
+			Arrays.fill(pixels, color);
+			return;
+		}
+		for (int y = 0; y < height; y++) {
+			int rowOffset = offset + y * stride;
+			Arrays.fill(pixels, rowOffset, rowOffset + width, color);
+		}
+	}
+
+	/**
+	 * Copies all pixels of the given bitmap (including their alpha values)
+	 * to the given position, e.g. to compose a bitmap of tiles. The clip
+	 * rectangle is ignored. This bitmap takes over whether the pixels are
+	 * premultiplied, its spans are discarded.
+	 * @param bitmap The bitmap to copy.
+	 * @param x The left position to copy the bitmap to.
+	 * @param y The top position to copy the bitmap to.
+	 */
+	public void copy(final Bitmap bitmap, final int x, final int y) {
+		int x0 = Math.max(x, 0);
+		int y0 = Math.max(y, 0);
+		int x1 = Math.min(x + bitmap.width, width);
+		int y1 = Math.min(y + bitmap.height, height);
+		for (int yy = y0; yy < y1 && x0 < x1; yy++) {
+			System.arraycopy(bitmap.pixels, bitmap.offset + (yy - y)
+					* bitmap.stride + (x0 - x), pixels, offset + yy * stride
+					+ x0, x1 - x0);
+		}
+		premultiplied = bitmap.premultiplied;
+		spans = null;
+		spanRowStarts = null;
 	}
 
 	public void blit(final Bitmap bitmap, final Position pos) {
-		blitInternal(bitmap, pos, bitmap.getWidth(), bitmap.getHeight(),
-				false);
+		blitInternal(bitmap, 0, 0, pos.getX(), pos.getY(), bitmap.getWidth(),
+				bitmap.getHeight(), null);
 	}
 
+	/**
+	 * Blits the top left part of the given bitmap.
+	 * @param bitmap The bitmap to blit.
+	 * @param pos The position to blit the bitmap to.
+	 * @param insWidth The width of the part to blit.
+	 * @param insHeight The height of the part to blit.
+	 */
 	public void blit(final Bitmap bitmap, final Position pos,
 			final int insWidth, final int insHeight) {
-		blitInternal(bitmap, pos, bitmap.getWidth(), bitmap.getHeight(),
-				false);
+		blitRegion(bitmap, 0, 0, insWidth, insHeight, pos, null);
+	}
+
+	/**
+	 * Blits the given part of the given bitmap (e.g. a single frame of a
+	 * sprite sheet) without copying it first.
+	 * @param bitmap The bitmap to blit a part of.
+	 * @param srcX The left position of the part within the bitmap.
+	 * @param srcY The top position of the part within the bitmap.
+	 * @param srcWidth The width of the part.
+	 * @param srcHeight The height of the part.
+	 * @param pos The position to blit the part to.
+	 */
+	public void blit(final Bitmap bitmap, final int srcX, final int srcY,
+			final int srcWidth, final int srcHeight, final Position pos) {
+		blitRegion(bitmap, srcX, srcY, srcWidth, srcHeight, pos, null);
 	}
 
 	public void transparencyBlit(final Bitmap bitmap, final Position pos) {
-		blitInternal(bitmap, pos, bitmap.getWidth(), bitmap.getHeight(),
-				true);
+		blitInternal(bitmap, 0, 0, pos.getX(), pos.getY(), bitmap.getWidth(),
+				bitmap.getHeight(), BlendMode.ALPHA);
 	}
 
+	/**
+	 * Blits the top left part of the given bitmap, blending its alpha values.
+	 * @param bitmap The bitmap to blit.
+	 * @param pos The position to blit the bitmap to.
+	 * @param insWidth The width of the part to blit.
+	 * @param insHeight The height of the part to blit.
+	 */
 	public void transparencyBlit(final Bitmap bitmap, final Position pos,
 			final int insWidth, final int insHeight) {
-		blitInternal(bitmap, pos, bitmap.getWidth(), bitmap.getHeight(),
-				true);
+		blitRegion(bitmap, 0, 0, insWidth, insHeight, pos, BlendMode.ALPHA);
+	}
+
+	/**
+	 * Blits the given part of the given bitmap (e.g. a single frame of a
+	 * sprite sheet) without copying it first, blending its alpha values.
+	 * @param bitmap The bitmap to blit a part of.
+	 * @param srcX The left position of the part within the bitmap.
+	 * @param srcY The top position of the part within the bitmap.
+	 * @param srcWidth The width of the part.
+	 * @param srcHeight The height of the part.
+	 * @param pos The position to blit the part to.
+	 */
+	public void transparencyBlit(final Bitmap bitmap, final int srcX,
+			final int srcY, final int srcWidth, final int srcHeight,
+			final Position pos) {
+		blitRegion(bitmap, srcX, srcY, srcWidth, srcHeight, pos,
+				BlendMode.ALPHA);
+	}
+
+	/**
+	 * Blits the given bitmap with the given blend mode.
+	 * @param bitmap The bitmap to blit.
+	 * @param pos The position to blit the bitmap to.
+	 * @param mode The mode to blend the bitmap with.
+	 */
+	public void blendBlit(final Bitmap bitmap, final Position pos,
+			final BlendMode mode) {
+		blitInternal(bitmap, 0, 0, pos.getX(), pos.getY(), bitmap.getWidth(),
+				bitmap.getHeight(), mode);
+	}
+
+	/**
+	 * Blits the given part of the given bitmap with the given blend mode.
+	 * @param bitmap The bitmap to blit a part of.
+	 * @param srcX The left position of the part within the bitmap.
+	 * @param srcY The top position of the part within the bitmap.
+	 * @param srcWidth The width of the part.
+	 * @param srcHeight The height of the part.
+	 * @param pos The position to blit the part to.
+	 * @param mode The mode to blend the part with.
+	 */
+	public void blendBlit(final Bitmap bitmap, final int srcX, final int srcY,
+			final int srcWidth, final int srcHeight, final Position pos,
+			final BlendMode mode) {
+		blitRegion(bitmap, srcX, srcY, srcWidth, srcHeight, pos, mode);
+	}
+
+	/**
+	 * Blits the given bitmap scaled to the given size (nearest neighbour).
+	 * @param bitmap The bitmap to blit.
+	 * @param x The left position to blit the bitmap to.
+	 * @param y The top position to blit the bitmap to.
+	 * @param dstWidth The width to scale the bitmap to.
+	 * @param dstHeight The height to scale the bitmap to.
+	 * @param mode The mode to blend the bitmap with or null, to copy all
+	 *            pixels with an alpha value of at least 128.
+	 */
+	public void scaledBlit(final Bitmap bitmap, final int x, final int y,
+			final int dstWidth, final int dstHeight, final BlendMode mode) {
+		scaledBlitInternal(bitmap, x, y, dstWidth, dstHeight, mode);
 	}
 
-	private void blitInternal(final Bitmap bitmap, final Position pos,
-			final int insWidth, final int insHeight,
-			boolean withTransparency) {
+	private void blitRegion(final Bitmap bitmap, final int srcX,
+			final int srcY, final int srcWidth, final int srcHeight,
+			final Position pos, final BlendMode mode) {
+		// limit the part to the bitmap's bounds
+		int x0 = Math.max(srcX, 0);
+		int y0 = Math.max(srcY, 0);
+		int x1 = Math.min(srcX + srcWidth, bitmap.getWidth());
+		int y1 = Math.min(srcY + srcHeight, bitmap.getHeight());
+		if (x0 < x1 && y0 < y1) {
+			blitInternal(bitmap, x0, y0, pos.getX() + x0 - srcX, pos.getY()
+					+ y0 - srcY, x1 - x0, y1 - y0, mode);
+		}
+	}
 
-		int posXTopLeft = pos.getX() < 0 ? 0 : pos.getX();
-		int posXBottomRight = pos.getX() + insWidth;
-		if (posXBottomRight > width) {
-			posXBottomRight = width;
+	/**
+	 * Blits a part of the given bitmap, limited to the clip rectangle.
+	 * Subclasses may override this method to defer the blit (see
+	 * {@link DrawCommandList}).
+	 * @param bitmap The bitmap to blit.
+	 * @param srcX The left position of the part within the bitmap.
+	 * @param srcY The top position of the part within the bitmap.
+	 * @param posX The left position to blit the part to.
+	 * @param posY The top position to blit the part to.
+	 * @param insWidth The width of the part (within the bitmap's bounds).
+	 * @param insHeight The height of the part (within the bitmap's bounds).
+	 * @param mode The mode to blend the part with or null, to copy all pixels
+	 *            with an alpha value of at least 128.
+	 */
+	protected void blitInternal(final Bitmap bitmap, final int srcX,
+			final int srcY, final int posX, final int posY,
+			final int insWidth, final int insHeight, final BlendMode mode) {
+		blitClipped(bitmap, srcX, srcY, posX, posY, insWidth, insHeight,
+				mode, clipX0, clipY0, clipX1, clipY1);
+	}
+
+	void blitClipped(final Bitmap bitmap, final int srcX, final int srcY,
+			final int posX, final int posY, final int insWidth,
+			final int insHeight, final BlendMode mode,
+			final int clipLeft, final int clipTop, final int clipRight,
+			final int clipBottom) {
+		BlendMode useMode = getMode(bitmap, mode);
+
+		int posXTopLeft = posX < clipLeft ? clipLeft : posX;
+		int posXBottomRight = posX + insWidth;
+		if (posXBottomRight > clipRight) {
+			posXBottomRight = clipRight;
 		}
 
-		int posYTopLeft = pos.getY() < 0 ? 0 : pos.getY();
-		int posYBottomRight = pos.getY() + insHeight;
-		if (posYBottomRight > height) {
-			posYBottomRight = height;
+		int posYTopLeft = posY < clipTop ? clipTop : posY;
+		int posYBottomRight = posY + insHeight;
+		if (posYBottomRight > clipBottom) {
+			posYBottomRight = clipBottom;
 		}
 
 		int insertWidth = posXBottomRight - posXTopLeft;
 
+		if (bitmap.spans != null) {
+			blitSpans(bitmap, srcX - posX, srcY - posY, posX, posXTopLeft,
+					posYTopLeft, posXBottomRight, posYBottomRight, useMode);
+			return;
+		}
+
 		for (int y = posYTopLeft; y < posYBottomRight; y++) {
-			int lineStartOffset = (y * width) + posXTopLeft;
-			int bitmapOffset = (y - pos.getY()) * bitmap.getWidth()
-					+ (posXTopLeft - pos.getX());
+			int lineStartOffset = offset + (y * stride) + posXTopLeft;
+			int bitmapOffset = bitmap.offset + (y - posY + srcY)
+					* bitmap.stride + (posXTopLeft - posX + srcX);
+			if (useMode != null) {
+				useMode.blend(bitmap.pixels, bitmapOffset, pixels,
+						lineStartOffset, insertWidth, bitmap.premultiplied);
+				continue;
+			}
 			for (int x = 0; x < insertWidth; x++) {
 				int col = bitmap.pixels[bitmapOffset + x];
-				if (col < 0 || withTransparency) {
-					int a = (col >> 24) & 0xff;
-					if (a == 0) {
-						continue;
-					}
-					if (withTransparency && a < 0xff) {
-						int bgColor = pixels[lineStartOffset + x];
-						int bgr = bgColor & 0xff0000;
-						int bgg = bgColor & 0xff00;
-						int bgb = bgColor & 0xff;
-						int r = col & 0xff0000;
-						int g = col & 0xff00;
-						int b = col & 0xff;
-						int aa = 256 - a;
-						r = ((r * a + bgr * aa) >> 8) & 0xff0000;
-						g = ((g * a + bgg * aa) >> 8) & 0xff00;
-						b = ((b * a + bgb * aa) >> 8) & 0xff;
-						col = 0xff000000 | r | g | b;
-					}
+				if (col < 0) {
 					pixels[lineStartOffset + x] = col;
 				}
 			}
 		}
 	}
 
-	// TODO: verstehen, ordnen
+	private void blitSpans(final Bitmap bitmap, final int shiftX,
+			final int shiftY, final int posX, final int posXTopLeft,
+			final int posYTopLeft, final int posXBottomRight,
+			final int posYBottomRight, final BlendMode mode) {
+		// the visible columns of the source bitmap
+		int srcX0 = posXTopLeft + shiftX;
+		int srcX1 = posXBottomRight + shiftX;
+		if (srcX0 >= srcX1) {
+			return;
+		}
+		int[] srcPixels = bitmap.pixels;
+		int[] srcSpans = bitmap.spans;
+		int[] srcRowStarts = bitmap.spanRowStarts;
+		boolean premultiplied = bitmap.premultiplied;
+		// opaque pixels are only copied if they replace the destination
+		boolean copyOpaque = mode == null || mode == BlendMode.ALPHA;
+
+		for (int y = posYTopLeft; y < posYBottomRight; y++) {
+			int srcY = y + shiftY;
+			int srcOffset = bitmap.offset + srcY * bitmap.stride;
+			// may be out of range, but only visible columns are added
+			int lineOffset = offset + y * stride - shiftX;
+			int srcX = 0;
+			int spanEnd = srcRowStarts[srcY + 1];
+			for (int i = srcRowStarts[srcY]; i < spanEnd && srcX < srcX1;
+					i++) {
+				int span = srcSpans[i];
+				int end = srcX + (span >>> SPAN_TYPE_BITS);
+				int type = span & SPAN_TYPE_MASK;
+				if (end > srcX0 && type != SPAN_TRANSPARENT) {
+					int from = Math.max(srcX, srcX0);
+					int to = Math.min(end, srcX1);
+					if (type == SPAN_OPAQUE && copyOpaque) {
+						System.arraycopy(srcPixels, srcOffset + from, pixels,
+								lineOffset + from, to - from);
+					} else if (mode != null) {
+						mode.blend(srcPixels, srcOffset + from, pixels,
+								lineOffset + from, to - from, premultiplied);
+					} else {
+						for (int x = from; x < to; x++) {
+							int col = srcPixels[srcOffset + x];
+							if (col < 0) {
+								pixels[lineOffset + x] = col;
+							}
+						}
+					}
+				}
+				srcX = end;
+			}
+		}
+	}
+
+	/**
+	 * Blits the given bitmap scaled to the given size, limited to the clip
+	 * rectangle. Subclasses may override this method to defer the blit (see
+	 * {@link DrawCommandList}).
+	 * @param bitmap The bitmap to blit.
+	 * @param x The left position to blit the bitmap to.
+	 * @param y The top position to blit the bitmap to.
+	 * @param dstWidth The width to scale the bitmap to.
+	 * @param dstHeight The height to scale the bitmap to.
+	 * @param mode The mode to blend the bitmap with or null, to copy it.
+	 */
+	protected void scaledBlitInternal(final Bitmap bitmap, final int x,
+			final int y, final int dstWidth, final int dstHeight,
+			final BlendMode mode) {
+		scaledBlitClipped(bitmap, x, y, dstWidth, dstHeight, mode, clipX0,
+				clipY0, clipX1, clipY1);
+	}
+
+	void scaledBlitClipped(final Bitmap bitmap, final int x, final int y,
+			final int dstWidth, final int dstHeight, final BlendMode mode,
+			final int clipLeft, final int clipTop, final int clipRight,
+			final int clipBottom) {
+		if (dstWidth <= 0 || dstHeight <= 0) {
+			return;
+		}
+		int x0 = Math.max(x, clipLeft);
+		int x1 = Math.min(x + dstWidth, clipRight);
+		int y0 = Math.max(y, clipTop);
+		int y1 = Math.min(y + dstHeight, clipBottom);
+		int ww = x1 - x0;
+		if (ww <= 0 || y0 >= y1) {
+			return;
+		}
+		BlendMode useMode = getMode(bitmap, mode);
+
+		// 16.16 fixed point steps, sampling the centers of the target pixels
+		int stepX = (bitmap.getWidth() << 16) / dstWidth;
+		int stepY = (bitmap.getHeight() << 16) / dstHeight;
+		// grows up to twice the width of the widest target
+		int[] buffer = SCALE_BUFFER.get();
+		if (buffer == null || buffer.length < ww * 2) {
+			buffer = new int[ww * 2];
+			SCALE_BUFFER.set(buffer);
+		}
+		// the source column of each target column (the same for all rows)
+		int fx = (x0 - x) * stepX + (stepX >> 1);
+		for (int i = 0; i < ww; i++) {
+			buffer[i] = fx >> 16;
+			fx += stepX;
+		}
+
+		int[] srcPixels = bitmap.pixels;
+		int fy = (y0 - y) * stepY + (stepY >> 1);
+		for (int yy = y0; yy < y1; yy++) {
+			int sp = bitmap.offset + (fy >> 16) * bitmap.stride;
+			int tp = offset + yy * stride + x0;
+			fy += stepY;
+			if (useMode != null) {
+				for (int i = 0; i < ww; i++) {
+					buffer[ww + i] = srcPixels[sp + buffer[i]];
+				}
+				useMode.blend(buffer, ww, pixels, tp, ww, bitmap.premultiplied);
+				continue;
+			}
+			for (int i = 0; i < ww; i++) {
+				int col = srcPixels[sp + buffer[i]];
+				if (col < 0) {
+					pixels[tp + i] = col;
+				}
+			}
+		}
+	}
+
+	// premultiplied pixels are blended (their color channels are only valid
+	// together with their alpha value), other pixels may get copied
+	private static BlendMode getMode(final Bitmap bitmap, final BlendMode mode) {
+		return mode == null && bitmap.premultiplied ? BlendMode.ALPHA : mode;
+	}
+
 	public void colorBlit(final Bitmap bitmap, final int x, final int y,
 			final int color) {
+		colorBlitInternal(bitmap, x, y, color);
+	}
+
+	/**
+	 * Blits the given bitmap tinted with the given color, limited to the clip
+	 * rectangle. Subclasses may override this method to defer the blit (see
+	 * {@link DrawCommandList}).
+	 * @param bitmap The bitmap to blit.
+	 * @param x The left position to blit the bitmap to.
+	 * @param y The top position to blit the bitmap to.
+	 * @param color The color (with alpha) to tint the bitmap with.
+	 */
+	protected void colorBlitInternal(final Bitmap bitmap, final int x,
+			final int y, final int color) {
+		colorBlitClipped(bitmap, x, y, color, clipX0, clipY0, clipX1, clipY1);
+	}
+
+	// TODO: verstehen, ordnen
+	void colorBlitClipped(final Bitmap bitmap, final int x, final int y,
+			final int color, final int clipLeft, final int clipTop,
+			final int clipRight, final int clipBottom) {
 		int x0 = x;
 		int x1 = x + bitmap.getWidth();
 		int y0 = y;
 		int y1 = y + bitmap.getHeight();
-		if (x0 < 0)
-			x0 = 0;
-		if (y0 < 0)
-			y0 = 0;
-		if (x1 > width)
-			x1 = width;
-		if (y1 > height)
-			y1 = height;
+		if (x0 < clipLeft)
+			x0 = clipLeft;
+		if (y0 < clipTop)
+			y0 = clipTop;
+		if (x1 > clipRight)
+			x1 = clipRight;
+		if (y1 > clipBottom)
+			y1 = clipBottom;
 		int ww = x1 - x0;
+		if (ww <= 0) {
+			return;
+		}
 
-		int a2 = (color >> 24) & 0xff;
-		int a1 = 256 - a2;
-
-		int rr = color & 0xff0000;
-		int gg = color & 0xff00;
-		int bb = color & 0xff;
-
+		Blender useBlender = blender;
 		for (int yy = y0; yy < y1; yy++) {
-			int tp = yy * width + x0;
-			int sp = (yy - y) * bitmap.getWidth() + (x0 - x);
-			for (int xx = 0; xx < ww; xx++) {
-				int col = bitmap.pixels[sp + xx];
-				if (col < 0) {
-					int r = (col & 0xff0000);
-					int g = (col & 0xff00);
-					int b = (col & 0xff);
-
-					r = ((r * a1 + rr * a2) >> 8) & 0xff0000;
-					g = ((g * a1 + gg * a2) >> 8) & 0xff00;
-					b = ((b * a1 + bb * a2) >> 8) & 0xff;
-					pixels[tp + xx] = 0xff000000 | r | g | b;
-				}
-			}
+			int tp = offset + yy * stride + x0;
+			int sp = bitmap.offset + (yy - y) * bitmap.stride + (x0 - x);
+			useBlender.tint(bitmap.pixels, sp, pixels, tp, ww, color);
 		}
 	}
 
@@ -189,9 +773,27 @@ public class Bitmap {
 		fillInternal(x, y, bw, bh, color, true);
 	}
 
-	// TODO: verstehen, ordnen
-	private void fillInternal(final int x, final int y, final int bw,
+	/**
+	 * Fills the given rectangle, limited to the clip rectangle. Subclasses may
+	 * override this method to defer the fill (see {@link DrawCommandList}).
+	 * @param x The left position of the rectangle.
+	 * @param y The top position of the rectangle.
+	 * @param bw The width of the rectangle.
+	 * @param bh The height of the rectangle.
+	 * @param color The color to fill the rectangle with.
+	 * @param withTransparency True, if the alpha value should be blended.
+	 */
+	protected void fillInternal(final int x, final int y, final int bw,
 			final int bh, final int color, final boolean withTransparency) {
+		fillClipped(x, y, bw, bh, color, withTransparency, clipX0, clipY0,
+				clipX1, clipY1);
+	}
+
+	// TODO: verstehen, ordnen
+	void fillClipped(final int x, final int y, final int bw, final int bh,
+			final int color, final boolean withTransparency,
+			final int clipLeft, final int clipTop, final int clipRight,
+			final int clipBottom) {
 		int a = (color >> 24) & 0xff;
 		if (withTransparency && a == 0) {
 			return;
@@ -201,35 +803,26 @@ public class Bitmap {
 		int x1 = x + bw;
 		int y0 = y;
 		int y1 = y + bh;
-		if (x0 < 0)
-			x0 = 0;
-		if (y0 < 0)
-			y0 = 0;
-		if (x1 > width)
-			x1 = width;
-		if (y1 > height)
-			y1 = height;
+		if (x0 < clipLeft)
+			x0 = clipLeft;
+		if (y0 < clipTop)
+			y0 = clipTop;
+		if (x1 > clipRight)
+			x1 = clipRight;
+		if (y1 > clipBottom)
+			y1 = clipBottom;
 		int ww = x1 - x0;
+		if (ww <= 0) {
+			return;
+		}
 
+		Blender useBlender = blender;
 		for (int yy = y0; yy < y1; yy++) {
-			int tp = yy * width + x0;
-			for (int xx = 0; xx < ww; xx++) {
-				int col = color;
-				if (withTransparency && a < 0xff) {
-					int bgColor = pixels[tp + xx];
-					int bgr = bgColor & 0xff0000;
-					int bgg = bgColor & 0xff00;
-					int bgb = bgColor & 0xff;
-					int r = col & 0xff0000;
-					int g = col & 0xff00;
-					int b = col & 0xff;
-					int aa = 256 - a;
-					r = ((r * a + bgr * aa) >> 8) & 0xff0000;
-					g = ((g * a + bgg * aa) >> 8) & 0xff00;
-					b = ((b * a + bgb * aa) >> 8) & 0xff;
-					col = 0xff000000 | r | g | b;
-				}
-				pixels[tp + xx] = col;
+			int tp = offset + yy * stride + x0;
+			if (withTransparency && a < 0xff) {
+				useBlender.fill(color, pixels, tp, ww);
+			} else {
+				Arrays.fill(pixels, tp, tp + ww, color);
 			}
 		}
 	}
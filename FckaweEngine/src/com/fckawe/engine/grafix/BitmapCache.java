@@ -0,0 +1,301 @@
+package com.fckawe.engine.grafix;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The cache of the loaded bitmaps of {@link Bitmaps}. The entries are
+ * reference counted: a module acquires the bitmaps it needs when it's loaded
+ * and releases them when it's unloaded. Released bitmaps stay within the
+ * cache, so the next module finds them if it needs the same ones, until the
+ * memory of all entries exceeds the budget. Then the unreferenced entries are
+ * evicted, the least recently released ones first.
+ * <p>
+ * The lookups are not synchronized (they happen with every frame), all other
+ * operations are.
+ * 
+ * @author fckawe
+ */
+public class BitmapCache {
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+	// the number of references per ID (IDs without references are missing)
+	private final Map<String, Integer> references = new HashMap<String, Integer>();
+
+	// the cached entries without references in the order they were released
+	private final LinkedHashMap<String, Entry> unreferenced = new LinkedHashMap<String, Entry>();
+
+	// memory limit in bytes (0: unlimited)
+	private long budget;
+
+	private long bytes;
+
+	private long hits, misses, evictions;
+
+	/**
+	 * Returns the cells stored with the given ID.
+	 * 
+	 * @param id
+	 *            The ID of the cells.
+	 * @return The cells or null, if there are none.
+	 */
+	Bitmap[][] get(final String id) {
+		Entry entry = entries.get(id);
+		return entry == null ? null : entry.cells;
+	}
+
+	/**
+	 * Returns true, if cells are stored with the given ID.
+	 * 
+	 * @param id
+	 *            The ID of the cells.
+	 * @return True, if the ID is cached.
+	 */
+	boolean contains(final String id) {
+		return entries.containsKey(id);
+	}
+
+	/**
+	 * Stores the given cells, replacing the cells stored with the same ID.
+	 * If the budget gets exceeded, unreferenced entries are evicted (but not
+	 * the new one).
+	 * 
+	 * @param id
+	 *            The ID of the cells.
+	 * @param cells
+	 *            The cells to store.
+	 */
+	synchronized void put(final String id, final Bitmap[][] cells) {
+		remove(id);
+		Entry entry = new Entry(cells);
+		entries.put(id, entry);
+		bytes += entry.bytes;
+		if (!references.containsKey(id)) {
+			unreferenced.put(id, entry);
+		}
+		evict(id);
+	}
+
+	/**
+	 * Removes the cells stored with the given ID (regardless of its
+	 * references).
+	 * 
+	 * @param id
+	 *            The ID of the cells.
+	 */
+	synchronized void remove(final String id) {
+		Entry entry = entries.remove(id);
+		if (entry != null) {
+			bytes -= entry.bytes;
+			unreferenced.remove(id);
+		}
+	}
+
+	/**
+	 * Adds a reference to the given ID, so its cells don't get evicted (even
+	 * if they are stored later).
+	 * 
+	 * @param id
+	 *            The ID to reference.
+	 * @param hit
+	 *            True, if the cells are loaded or being loaded already (for
+	 *            the statistics).
+	 */
+	synchronized void acquire(final String id, final boolean hit) {
+		Integer count = references.get(id);
+		references.put(id, count == null ? 1 : count + 1);
+		unreferenced.remove(id);
+		if (hit) {
+			hits++;
+		} else {
+			misses++;
+		}
+	}
+
+	/**
+	 * Removes a reference from the given ID. Without references, the cells
+	 * may get evicted.
+	 * 
+	 * @param id
+	 *            The ID to release.
+	 */
+	synchronized void release(final String id) {
+		Integer count = references.get(id);
+		if (count == null) {
+			return;
+		}
+		if (count > 1) {
+			references.put(id, count - 1);
+			return;
+		}
+		references.remove(id);
+		Entry entry = entries.get(id);
+		if (entry != null) {
+			unreferenced.put(id, entry);
+		}
+		evict(null);
+	}
+
+	/**
+	 * Removes all entries and references.
+	 */
+	synchronized void clear() {
+		entries.clear();
+		references.clear();
+		unreferenced.clear();
+		bytes = 0;
+	}
+
+	private void evict(final String keepId) {
+		if (budget <= 0) {
+			return;
+		}
+		Iterator<Map.Entry<String, Entry>> it = unreferenced.entrySet()
+				.iterator();
+		while (bytes > budget && it.hasNext()) {
+			Map.Entry<String, Entry> next = it.next();
+			String id = next.getKey();
+			if (id.equals(keepId)) {
+				continue;
+			}
+			it.remove();
+			entries.remove(id);
+			bytes -= next.getValue().bytes;
+			evictions++;
+		}
+	}
+
+	/**
+	 * Sets the memory budget of the cache and evicts unreferenced entries if
+	 * it's exceeded.
+	 * 
+	 * @param budget
+	 *            The budget in bytes or 0, if the cache is unlimited.
+	 */
+	public synchronized void setBudget(final long budget) {
+		if (budget < 0) {
+			throw new RuntimeException("Invalid bitmap cache budget " + budget
+					+ "!");
+		}
+		this.budget = budget;
+		evict(null);
+	}
+
+	/**
+	 * Returns the memory budget of the cache.
+	 * 
+	 * @return The budget in bytes or 0, if the cache is unlimited.
+	 */
+	public synchronized long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Returns the memory used by the pixels of all cached entries.
+	 * 
+	 * @return The used memory in bytes.
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Returns the number of cached entries.
+	 * 
+	 * @return The number of entries.
+	 */
+	public int getCount() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the number of cached entries without references.
+	 * 
+	 * @return The number of unreferenced entries.
+	 */
+	public synchronized int getUnreferencedCount() {
+		return unreferenced.size();
+	}
+
+	/**
+	 * Returns the number of references to the given ID.
+	 * 
+	 * @param id
+	 *            The ID.
+	 * @return The number of references.
+	 */
+	public synchronized int getReferences(final String id) {
+		Integer count = references.get(id);
+		return count == null ? 0 : count;
+	}
+
+	/**
+	 * Returns the number of acquisitions that found the bitmaps loaded or
+	 * being loaded.
+	 * 
+	 * @return The number of cache hits.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of acquisitions that required the bitmaps to be
+	 * loaded.
+	 * 
+	 * @return The number of cache misses.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of entries that were evicted to keep the budget.
+	 * 
+	 * @return The number of evictions.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "bitmap cache (" + entries.size() + " entries, " + bytes
+				+ " of " + budget + " bytes, " + hits + " hits, " + misses
+				+ " misses, " + evictions + " evictions)";
+	}
+
+	/**
+	 * A cached entry: the cells and the memory of their pixels.
+	 * 
+	 * @author fckawe
+	 */
+	private static class Entry {
+
+		private final Bitmap[][] cells;
+
+		private final long bytes;
+
+		private Entry(final Bitmap[][] cells) {
+			this.cells = cells;
+			// the cells of a sprite share the pixels of one atlas
+			Map<int[], Boolean> counted = new IdentityHashMap<int[], Boolean>();
+			long sum = 0;
+			for (Bitmap[] column : cells) {
+				for (Bitmap cell : column) {
+					if (cell != null && counted.put(cell.pixels, true) == null) {
+						sum += cell.pixels.length * 4L;
+					}
+				}
+			}
+			bytes = sum;
+		}
+
+	}
+
+}
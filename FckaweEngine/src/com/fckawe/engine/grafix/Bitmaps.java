@@ -3,10 +3,25 @@ package com.fckawe.engine.grafix;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.imageio.ImageIO;
 
@@ -18,30 +33,466 @@ public class Bitmaps {
 		X, Y
 	}
 
-	private final Map<String, Bitmap[][]> bitmaps;
+	// the loaded bitmaps (written by the decode threads, too)
+	private final BitmapCache cache;
+
+	// the asynchronous loads that are not finished yet (also the lock for
+	// moving a finished load into the map of loaded bitmaps)
+	private final Map<String, Future<Bitmap[][]>> pending;
+
+	// the progress of the calling thread's batch (see beginBatch)
+	private final ThreadLocal<LoadProgress> batch;
+
+	// true, if loaded bitmaps get converted to premultiplied alpha
+	private boolean premultiplied;
+
+	// number of decode threads (0: number of processors)
+	private int decodeThreads;
+
+	private ExecutorService decodePool;
+
+	// the sprite packs with baked bitmaps and sprites
+	private final List<SpritePack> packs;
+
+	// the image paths and decoders of the bitmaps loaded by ID (to reload
+	// them if their images change)
+	private final Map<String, Source> sources;
+
+	// the images that changed since the sprite packs were baked
+	private final Set<String> stalePaths;
+
+	// the first cells of the entries taken from the sprite packs (shared by
+	// all users of a pack within this process, so they are never changed)
+	private final Set<Bitmap> bakedCells;
+
+	// the reloaded cells that are not swapped in yet (see applyReloads)
+	private final Map<String, Bitmap[][]> reloads;
 
 	public Bitmaps() {
-		bitmaps = new HashMap<String, Bitmap[][]>();
+		cache = new BitmapCache();
+		pending = new ConcurrentHashMap<String, Future<Bitmap[][]>>();
+		batch = new ThreadLocal<LoadProgress>();
+		packs = new CopyOnWriteArrayList<SpritePack>();
+		sources = new ConcurrentHashMap<String, Source>();
+		stalePaths = Collections
+				.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		bakedCells = Collections.newSetFromMap(Collections
+				.synchronizedMap(new WeakHashMap<Bitmap, Boolean>()));
+		reloads = new ConcurrentHashMap<String, Bitmap[][]>();
+	}
+
+	public void setPremultiplied(final boolean premultiplied) {
+		this.premultiplied = premultiplied;
+	}
+
+	public boolean isPremultiplied() {
+		return premultiplied;
+	}
+
+	/**
+	 * Sets the number of threads that decode the bitmaps of asynchronous
+	 * loads. Has to be called before the first asynchronous load.
+	 * 
+	 * @param decodeThreads
+	 *            The number of threads or 0, to use one thread per
+	 *            processor.
+	 */
+	public void setDecodeThreads(final int decodeThreads) {
+		if (decodeThreads < 0) {
+			throw new RuntimeException("Invalid number of decode threads "
+					+ decodeThreads + "!");
+		}
+		this.decodeThreads = decodeThreads;
 	}
 
 	public void discardBitmaps() {
-		bitmaps.clear();
+		synchronized (pending) {
+			for (Future<Bitmap[][]> load : pending.values()) {
+				load.cancel(false);
+			}
+			pending.clear();
+			cache.clear();
+			sources.clear();
+			reloads.clear();
+		}
 	}
-	
+
+	/**
+	 * Stops the decode threads. Loads that are not started yet get
+	 * cancelled.
+	 */
+	public synchronized void shutdown() {
+		if (decodePool != null) {
+			decodePool.shutdownNow();
+			decodePool = null;
+		}
+	}
+
+	/**
+	 * Returns true, if the bitmap with the given ID is loaded or being loaded
+	 * asynchronously (so it must not be loaded again).
+	 * 
+	 * @param id
+	 *            The ID of the bitmap.
+	 * @return True, if the bitmap is loaded or pending.
+	 */
 	public boolean isLoaded(final String id) {
-		return bitmaps.containsKey(id);
+		return cache.contains(id) || pending.containsKey(id);
 	}
 
 	public Bitmap getBitmap(final String id) {
-		return bitmaps.get(id)[0][0];
+		return getSpriteBitmap(id)[0][0];
 	}
 
+	/**
+	 * Returns the sprite with the given ID. If the sprite is still being
+	 * loaded asynchronously, the calling thread waits until it's decoded.
+	 * 
+	 * @param id
+	 *            The ID of the sprite.
+	 * @return The cells of the sprite or null, if it's not loaded.
+	 */
 	public Bitmap[][] getSpriteBitmap(final String id) {
-		return bitmaps.get(id);
+		Bitmap[][] sprite = cache.get(id);
+		if (sprite != null) {
+			return sprite;
+		}
+		Future<Bitmap[][]> load = pending.get(id);
+		return load == null ? cache.get(id) : waitFor(load);
+	}
+
+	/**
+	 * Adds a reference to the bitmap with the given ID, so it stays within
+	 * the cache until it's released (see {@link BitmapCache}). The bitmap
+	 * may be loaded after it's acquired.
+	 * 
+	 * @param id
+	 *            The ID of the bitmap.
+	 * @return True, if the bitmap is loaded or being loaded already (a cache
+	 *         hit), false, if it has to be loaded.
+	 */
+	public boolean acquire(final String id) {
+		synchronized (pending) {
+			boolean loaded = isLoaded(id);
+			cache.acquire(id, loaded);
+			return loaded;
+		}
+	}
+
+	/**
+	 * Removes a reference from the bitmap with the given ID (see
+	 * {@link #acquire(String)}). Without references, the bitmap stays within
+	 * the cache until it gets evicted to keep the cache's memory budget.
+	 * 
+	 * @param id
+	 *            The ID of the bitmap.
+	 */
+	public void release(final String id) {
+		cache.release(id);
+	}
+
+	/**
+	 * Returns the cache of the loaded bitmaps (e.g. to define its memory
+	 * budget or to read its statistics).
+	 * 
+	 * @return The bitmap cache.
+	 */
+	public BitmapCache getCache() {
+		return cache;
 	}
-	
+
 	public void remove(final String id) {
-		bitmaps.remove(id);
+		synchronized (pending) {
+			Future<Bitmap[][]> load = pending.remove(id);
+			if (load != null) {
+				load.cancel(false);
+			}
+			cache.remove(id);
+			sources.remove(id);
+			reloads.remove(id);
+		}
+	}
+
+	/**
+	 * Starts a batch of asynchronous loads for the calling thread: until
+	 * {@link #endBatch()} is called, all loads of this thread that store
+	 * the bitmaps by an ID (like {@link #loadBitmap(String, String)}) run
+	 * asynchronously and are added to the given progress. This way existing
+	 * loading code (e.g. of the entities) runs on the decode threads without
+	 * any changes.
+	 * 
+	 * @param progress
+	 *            The progress to add the loads to.
+	 */
+	public void beginBatch(final LoadProgress progress) {
+		batch.set(progress);
+	}
+
+	/**
+	 * Ends the batch of asynchronous loads of the calling thread (see
+	 * {@link #beginBatch(LoadProgress)}). The loads keep running.
+	 */
+	public void endBatch() {
+		batch.remove();
+	}
+
+	/**
+	 * Loads a bitmap asynchronously on the decode threads.
+	 * 
+	 * @param id
+	 *            The ID to store the bitmap with.
+	 * @param path
+	 *            The path of the bitmap's image.
+	 * @param progress
+	 *            The progress to add the load to or null.
+	 * @return The future of the load, which also gives the loaded bitmap
+	 *         (as the single cell of a sprite).
+	 */
+	public Future<Bitmap[][]> loadBitmapAsync(final String id,
+			final String path, final LoadProgress progress) {
+		Callable<Bitmap[][]> decoder = new Callable<Bitmap[][]>() {
+			@Override
+			public Bitmap[][] call() {
+				return new Bitmap[][] { { loadBitmap(path, 1.0, null, -1) } };
+			}
+		};
+		sources.put(id, new Source(path, decoder));
+		return loadAsync(id, decoder, progress);
+	}
+
+	/**
+	 * Loads a sprite asynchronously on the decode threads.
+	 * 
+	 * @param id
+	 *            The ID to store the sprite with.
+	 * @param path
+	 *            The path of the sprite's image.
+	 * @param cutSizeX
+	 *            The width of a cell within the image.
+	 * @param cutSizeY
+	 *            The height of a cell within the image.
+	 * @param progress
+	 *            The progress to add the load to or null.
+	 * @return The future of the load, which also gives the loaded cells.
+	 */
+	public Future<Bitmap[][]> loadSpriteAsync(final String id,
+			final String path, final int cutSizeX, final int cutSizeY,
+			final LoadProgress progress) {
+		Callable<Bitmap[][]> decoder = new Callable<Bitmap[][]>() {
+			@Override
+			public Bitmap[][] call() {
+				return loadSprite(path, cutSizeX, cutSizeY, 0, 0, 1.0, null,
+						-1);
+			}
+		};
+		sources.put(id, new Source(path, decoder));
+		return loadAsync(id, decoder, progress);
+	}
+
+	/**
+	 * Runs the given decoder on the decode threads and stores its result
+	 * with the given ID. If the ID is loaded or being loaded already, the
+	 * decoder is not run again.
+	 * 
+	 * @param id
+	 *            The ID to store the decoded cells with.
+	 * @param decoder
+	 *            The decoder which loads the cells.
+	 * @param progress
+	 *            The progress to add the load to or null.
+	 * @return The future of the load.
+	 */
+	public Future<Bitmap[][]> loadAsync(final String id,
+			final Callable<Bitmap[][]> decoder, final LoadProgress progress) {
+		Future<Bitmap[][]> load;
+		boolean start = false;
+		synchronized (pending) {
+			load = pending.get(id);
+			if (load == null) {
+				final Bitmap[][] loaded = cache.get(id);
+				if (loaded != null) {
+					FutureTask<Bitmap[][]> done = new FutureTask<Bitmap[][]>(
+							new Callable<Bitmap[][]>() {
+								@Override
+								public Bitmap[][] call() {
+									return loaded;
+								}
+							});
+					done.run();
+					load = done;
+				} else {
+					load = new Load(id, decoder);
+					pending.put(id, load);
+					start = true;
+				}
+			}
+		}
+		if (progress != null) {
+			progress.add(load);
+		}
+		if (start) {
+			getDecodePool().execute((Load) load);
+		}
+		return load;
+	}
+
+	private void load(final String id, final String path,
+			final Callable<Bitmap[][]> decoder) {
+		sources.put(id, new Source(path, decoder));
+		load(id, decoder);
+	}
+
+	private void load(final String id, final Callable<Bitmap[][]> decoder) {
+		LoadProgress progress = batch.get();
+		if (progress != null) {
+			loadAsync(id, decoder, progress);
+			return;
+		}
+		Bitmap[][] sprite;
+		try {
+			sprite = decoder.call();
+		} catch (Exception e) {
+			throw new RuntimeException("Error while loading bitmap '" + id
+					+ "'!", e);
+		}
+		if (sprite != null) {
+			cache.put(id, sprite);
+		}
+	}
+
+	private Bitmap[][] waitFor(final Future<Bitmap[][]> load) {
+		try {
+			return load.get();
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Asynchronous load failed!",
+					e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for load!",
+					e);
+		}
+	}
+
+	private synchronized ExecutorService getDecodePool() {
+		if (decodePool == null) {
+			int threads = decodeThreads == 0 ? Runtime.getRuntime()
+					.availableProcessors() : decodeThreads;
+			decodePool = Executors.newFixedThreadPool(threads,
+					new ThreadFactory() {
+						private final AtomicInteger count = new AtomicInteger();
+
+						@Override
+						public Thread newThread(final Runnable r) {
+							Thread thread = new Thread(r, "Bitmap decoder "
+									+ count.incrementAndGet());
+							// must not keep the application alive
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+		return decodePool;
+	}
+
+	/**
+	 * Returns the IDs of the bitmaps that are being loaded asynchronously.
+	 * 
+	 * @return The IDs of the pending loads.
+	 */
+	public List<String> getPendingIds() {
+		return new ArrayList<String>(pending.keySet());
+	}
+
+	/**
+	 * Decodes the loaded bitmaps and sprites of the given image again (e.g.
+	 * because the image file changed). From now on, the image is always
+	 * decoded instead of taking it from a sprite pack. The new cells are not
+	 * visible before {@link #applyReloads()} is called, so they can be
+	 * decoded while the game is running.
+	 * 
+	 * @param path
+	 *            The path of the image.
+	 * @return The number of bitmaps (IDs) that got decoded again.
+	 */
+	public int prepareReload(final String path) {
+		stalePaths.add(path);
+		int count = 0;
+		for (Map.Entry<String, Source> entry : sources.entrySet()) {
+			String id = entry.getKey();
+			Source source = entry.getValue();
+			if (!source.path.equals(path) || !cache.contains(id)) {
+				continue;
+			}
+			Bitmap[][] cells;
+			try {
+				cells = source.decoder.call();
+			} catch (Exception e) {
+				// e.g. the image is still being written, keep the old one
+				logError("Error while reloading bitmap '" + id + "'!", e);
+				continue;
+			}
+			if (cells != null && cells.length > 0 && cells[0].length > 0
+					&& cells[0][0] != null) {
+				reloads.put(id, cells);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Swaps the cells decoded by {@link #prepareReload(String)} in. Has to be
+	 * called between two frames by the thread that draws them, so no frame
+	 * shows a mix of old and new pixels. If the size of a bitmap didn't
+	 * change, the new pixels are put into the loaded bitmaps (see
+	 * {@link Bitmap#replace(Bitmap)}), so everybody who holds them (e.g. an
+	 * entity) draws the new ones. Otherwise, or if the bitmaps were taken
+	 * from a sprite pack, the new cells replace the cached ones and are
+	 * returned by the next lookup.
+	 * 
+	 * @return The IDs of the swapped bitmaps.
+	 */
+	public List<String> applyReloads() {
+		List<String> ids = new ArrayList<String>(reloads.keySet());
+		for (String id : ids) {
+			Bitmap[][] cells = reloads.remove(id);
+			synchronized (pending) {
+				Bitmap[][] loaded = cache.get(id);
+				if (loaded == null) {
+					// removed in the meantime
+					continue;
+				}
+				if (!bakedCells.contains(loaded[0][0])
+						&& hasLayoutOf(loaded, cells)) {
+					for (int x = 0; x < loaded.length; x++) {
+						for (int y = 0; y < loaded[x].length; y++) {
+							loaded[x][y].replace(cells[x][y]);
+						}
+					}
+				} else {
+					cache.put(id, cells);
+				}
+			}
+		}
+		return ids;
+	}
+
+	private static boolean hasLayoutOf(final Bitmap[][] loaded,
+			final Bitmap[][] cells) {
+		if (loaded.length != cells.length) {
+			return false;
+		}
+		for (int x = 0; x < loaded.length; x++) {
+			if (loaded[x].length != cells[x].length) {
+				return false;
+			}
+			for (int y = 0; y < loaded[x].length; y++) {
+				if (!loaded[x][y].hasLayoutOf(cells[x][y])) {
+					return false;
+				}
+			}
+		}
+		return true;
 	}
 
 	public void loadBitmap(final String id, final String path) {
@@ -50,28 +501,127 @@ public class Bitmaps {
 
 	public void loadBitmap(final String id, final String path,
 			final DestSizeType destSizeType, final int destSize) {
-		Bitmap bmp = loadBitmap(path, -1, destSizeType, destSize);
-		bitmaps.put(id, new Bitmap[][] { { bmp } });
+		load(id, path, new Callable<Bitmap[][]>() {
+			@Override
+			public Bitmap[][] call() {
+				Bitmap bmp = loadBitmap(path, -1, destSizeType, destSize);
+				return new Bitmap[][] { { bmp } };
+			}
+		});
 	}
 
 	public void loadBitmap(final String id, final String path,
 			final double scale) {
-		Bitmap bmp = loadBitmap(path, scale, null, -1);
-		bitmaps.put(id, new Bitmap[][] { { bmp } });
+		load(id, path, new Callable<Bitmap[][]>() {
+			@Override
+			public Bitmap[][] call() {
+				Bitmap bmp = loadBitmap(path, scale, null, -1);
+				return new Bitmap[][] { { bmp } };
+			}
+		});
+	}
+
+	/**
+	 * Adds a sprite pack. The bitmaps and sprites baked into the pack are
+	 * taken from it instead of decoding their images (if the pack's
+	 * premultiplied alpha setting matches the one of this interface).
+	 * 
+	 * @param pack
+	 *            The sprite pack.
+	 */
+	public void addPack(final SpritePack pack) {
+		packs.add(pack);
+	}
+
+	/**
+	 * Opens the sprite pack file with the given path and adds it, if the file
+	 * exists (see {@link #addPack(SpritePack)}).
+	 * 
+	 * @param filePath
+	 *            The path of the pack file or null.
+	 * @return True, if the pack was added.
+	 */
+	public boolean addPack(final String filePath) {
+		if (filePath == null || filePath.isEmpty()) {
+			return false;
+		}
+		File file = new File(filePath);
+		if (!file.isFile()) {
+			return false;
+		}
+		addPack(SpritePack.open(file));
+		return true;
+	}
+
+	/**
+	 * Returns the key of a bitmap within sprite packs.
+	 * 
+	 * @param path
+	 *            The path of the bitmap's image.
+	 * @return The key of the bitmap.
+	 */
+	static String getBitmapKey(final String path) {
+		return "bitmap:" + path;
+	}
+
+	/**
+	 * Returns the key of a sprite within sprite packs.
+	 * 
+	 * @param path
+	 *            The path of the sprite's image.
+	 * @param cutSizeX
+	 *            The width of a cell within the image.
+	 * @param cutSizeY
+	 *            The height of a cell within the image.
+	 * @param marginX
+	 *            The left margin of the cells.
+	 * @param marginY
+	 *            The top margin of the cells.
+	 * @param scale
+	 *            The factor the image is scaled with (0 or less: none).
+	 * @return The key of the sprite.
+	 */
+	static String getSpriteKey(final String path, final int cutSizeX,
+			final int cutSizeY, final int marginX, final int marginY,
+			final double scale) {
+		return "sprite:" + path + ":" + cutSizeX + "x" + cutSizeY + "+"
+				+ marginX + "," + marginY + "@" + (scale > 0 ? scale : 1.0);
+	}
+
+	private Bitmap[][] getBaked(final String path, final String key) {
+		if (stalePaths.contains(path)) {
+			return null;
+		}
+		for (SpritePack pack : packs) {
+			if (pack.contains(key)
+					&& pack.isPremultiplied(key) == premultiplied) {
+				Bitmap[][] cells = pack.get(key);
+				bakedCells.add(cells[0][0]);
+				return cells;
+			}
+		}
+		return null;
 	}
 
 	public Bitmap loadBitmap(final String path, final double scale,
 			final DestSizeType destSizeType, final int destSize) {
+		Bitmap[][] baked = getBaked(path, getBitmapKey(path));
+		if (baked != null) {
+			return baked[0][0];
+		}
 		try {
 			BufferedImage bi = ImageIO.read(Bitmaps.class.getResource(path));
 			int width = bi.getWidth();
 			int height = bi.getHeight();
 			Bitmap bmp = new Bitmap(width, height);
 			bi.getRGB(0, 0, width, height, bmp.pixels, 0, width);
+			if (premultiplied) {
+				bmp.premultiply();
+			}
+			bmp.computeSpans();
 			return bmp;
 		} catch (IOException e) {
-			Session.getSession().getGrafixLogger()
-					.error("Error while loading bitmap!", e);
+			logError("Error while loading bitmap!", e);
 		}
 		return null;
 	}
@@ -83,32 +633,51 @@ public class Bitmaps {
 
 	public void loadSprite(final String id, final String path,
 			final int cutSizeX, final int cutSizeY, final double scale) {
-		Bitmap[][] sprite = loadSprite(path, cutSizeX, cutSizeY, 0, 0,
-				scale, null, -1);
-		bitmaps.put(id, sprite);
+		load(id, path, new Callable<Bitmap[][]>() {
+			@Override
+			public Bitmap[][] call() {
+				return loadSprite(path, cutSizeX, cutSizeY, 0, 0, scale, null,
+						-1);
+			}
+		});
 	}
 
 	public void loadSprite(final String id, final String path,
 			final int cutSizeX, final int cutSizeY, final int marginX,
 			final int marginY, final DestSizeType destSizeType,
 			final int destSize) {
-		Bitmap[][] sprite = loadSprite(path, cutSizeX, cutSizeY, marginX,
-				marginY, -1, destSizeType, destSize);
-		bitmaps.put(id, sprite);
+		load(id, path, new Callable<Bitmap[][]>() {
+			@Override
+			public Bitmap[][] call() {
+				return loadSprite(path, cutSizeX, cutSizeY, marginX, marginY,
+						-1, destSizeType, destSize);
+			}
+		});
 	}
 
 	public void loadSprite(final String id, final String path,
 			final int cutSizeX, final int cutSizeY, final int marginX,
 			final int marginY, final double scale) {
-		Bitmap[][] sprite = loadSprite(path, cutSizeX, cutSizeY, marginX,
-				marginY, scale, null, -1);
-		bitmaps.put(id, sprite);
+		load(id, path, new Callable<Bitmap[][]>() {
+			@Override
+			public Bitmap[][] call() {
+				return loadSprite(path, cutSizeX, cutSizeY, marginX, marginY,
+						scale, null, -1);
+			}
+		});
 	}
 
 	public Bitmap[][] loadSprite(final String path, final int cutSizeX,
 			final int cutSizeY, final int marginX, final int marginY,
 			final double scale, final DestSizeType destSizeType,
 			final int destSize) {
+		double useScale = getScale(scale, cutSizeX, cutSizeY, destSizeType,
+				destSize);
+		Bitmap[][] baked = getBaked(path, getSpriteKey(path, cutSizeX,
+				cutSizeY, marginX, marginY, useScale));
+		if (baked != null) {
+			return baked;
+		}
 		try {
 			URL url = Bitmaps.class.getResource(path);
 			BufferedImage bi = ImageIO.read(url);
@@ -116,8 +685,6 @@ public class Bitmaps {
 			int useCutSizeY = cutSizeY;
 			int useMarginX = marginX;
 			int useMarginY = marginY;
-			double useScale = getScale(scale, cutSizeX, cutSizeY, destSizeType,
-					destSize);
 			if (useScale > 0 && useScale != 1.0) {
 				bi = scaleImage(bi, useScale);
 				useCutSizeX = (int) (useCutSizeX * useScale);
@@ -131,23 +698,30 @@ public class Bitmaps {
 
 			Bitmap[][] sprite = new Bitmap[xTiles][yTiles];
 
+			// all tiles are views of one atlas (no copies of the pixels)
+			int width = bi.getWidth();
+			int height = bi.getHeight();
+			Bitmap atlas = new Bitmap(width, height);
+			bi.getRGB(0, 0, width, height, atlas.pixels, 0, width);
+			if (premultiplied) {
+				// before cutting, so the views are premultiplied too
+				atlas.premultiply();
+			}
+
 			for (int x = 0; x < xTiles; x++) {
 				for (int y = 0; y < yTiles; y++) {
-					Bitmap bitmap = new Bitmap(useCutSizeX, useCutSizeY);
 					int startX = useMarginX + x * useCutSizeX;
 					int startY = useMarginY + y * useCutSizeY;
-					int[] pixels = bitmap.getPixels();
-					bi.getRGB(startX, startY, useCutSizeX, useCutSizeY, pixels,
-							0, useCutSizeX);
-					bitmap.setPixels(pixels);
+					Bitmap bitmap = new Bitmap(atlas, startX, startY,
+							useCutSizeX, useCutSizeY);
+					bitmap.computeSpans();
 					sprite[x][y] = bitmap;
 				}
 			}
 
 			return sprite;
 		} catch (IOException e) {
-			Session.getSession().getGrafixLogger()
-					.error("Error while cutting bitmap!", e);
+			logError("Error while cutting bitmap!", e);
 		}
 
 		return null;
@@ -180,4 +754,75 @@ public class Bitmaps {
 		return scaledBi;
 	}
 
+	// without a session (e.g. within the sprite pack writer) the errors are
+	// left to the caller
+	private static void logError(final String message, final Throwable t) {
+		Session session = Session.getSession();
+		if (session != null) {
+			session.getGrafixLogger().error(message, t);
+		}
+	}
+
+	/**
+	 * The image and the decoder of a bitmap loaded by ID.
+	 * 
+	 * @author fckawe
+	 */
+	private static class Source {
+
+		private final String path;
+
+		private final Callable<Bitmap[][]> decoder;
+
+		private Source(final String path, final Callable<Bitmap[][]> decoder) {
+			this.path = path;
+			this.decoder = decoder;
+		}
+
+	}
+
+	/**
+	 * An asynchronous load, which stores the decoded cells when it's done
+	 * (unless it got removed in the meantime).
+	 * 
+	 * @author fckawe
+	 */
+	private class Load extends FutureTask<Bitmap[][]> {
+
+		private final String id;
+
+		private Load(final String id, final Callable<Bitmap[][]> decoder) {
+			super(decoder);
+			this.id = id;
+		}
+
+		// called before waiting threads are woken up, so the bitmap is
+		// stored when the future is done
+		@Override
+		protected void set(final Bitmap[][] sprite) {
+			synchronized (pending) {
+				if (pending.get(id) == this) {
+					if (sprite != null) {
+						cache.put(id, sprite);
+					}
+					// not before the put, see getSpriteBitmap
+					pending.remove(id);
+				}
+			}
+			super.set(sprite);
+		}
+
+		@Override
+		protected void setException(final Throwable t) {
+			synchronized (pending) {
+				if (pending.get(id) == this) {
+					pending.remove(id);
+				}
+			}
+			logError("Error while loading bitmap '" + id + "'!", t);
+			super.setException(t);
+		}
+
+	}
+
 }
@@ -0,0 +1,133 @@
+package com.fckawe.engine.grafix;
+
+/**
+ * The modes a bitmap can be blended with onto another bitmap. All modes
+ * respect the alpha values of the source pixels (fully transparent pixels
+ * are skipped) and work with both straight and premultiplied bitmaps (see
+ * {@link Bitmap#premultiply()}). The modes except ALPHA use a precomputed
+ * table for the multiplication of two color channels.
+ * 
+ * @author fckawe
+ */
+public enum BlendMode {
+
+	/**
+	 * Blends the source over the destination by its alpha value (like a
+	 * transparency blit).
+	 */
+	ALPHA {
+		@Override
+		void blend(final int[] src, final int srcPos, final int[] dst,
+				final int dstPos, final int length, final boolean premultiplied) {
+			if (premultiplied) {
+				Bitmap.getBlender().blendPremultiplied(src, srcPos, dst, dstPos,
+						length);
+			} else {
+				Bitmap.getBlender().blend(src, srcPos, dst, dstPos, length);
+			}
+		}
+	},
+
+	/**
+	 * Adds the source to the destination (saturating), e.g. for glows and
+	 * particles.
+	 */
+	ADDITIVE {
+		@Override
+		int blendChannel(final int p, final int d, final int a) {
+			int sum = p + d;
+			return sum > 0xff ? 0xff : sum;
+		}
+	},
+
+	/**
+	 * Multiplies the destination with the source, e.g. for shadows.
+	 */
+	MULTIPLY {
+		@Override
+		int blendChannel(final int p, final int d, final int a) {
+			return multiply(d, p + 0xff - a);
+		}
+	},
+
+	/**
+	 * Multiplies the inverse of the destination with the inverse of the
+	 * source, which brightens the destination (without saturating).
+	 */
+	SCREEN {
+		@Override
+		int blendChannel(final int p, final int d, final int a) {
+			return p + d - multiply(p, d);
+		}
+	};
+
+	// (x * y) / 255 (rounded) for all channel values x and y
+	private static final byte[] MULTIPLY_TABLE = new byte[256 * 256];
+
+	static {
+		for (int x = 0; x < 256; x++) {
+			for (int y = 0; y < 256; y++) {
+				MULTIPLY_TABLE[(x << 8) | y] = (byte) ((x * y + 127) / 255);
+			}
+		}
+	}
+
+	/**
+	 * Returns the product of two channel values (0 to 255), scaled to 0 to
+	 * 255.
+	 * @param x The first channel value.
+	 * @param y The second channel value.
+	 * @return The scaled product.
+	 */
+	static int multiply(final int x, final int y) {
+		return MULTIPLY_TABLE[(x << 8) | y] & 0xff;
+	}
+
+	/**
+	 * Blends a run of source pixels onto the destination pixels.
+	 * @param src The source pixels.
+	 * @param srcPos The index of the first source pixel.
+	 * @param dst The destination pixels.
+	 * @param dstPos The index of the first destination pixel.
+	 * @param length The number of pixels to blend.
+	 * @param premultiplied True, if the source pixels are premultiplied.
+	 */
+	void blend(final int[] src, final int srcPos, final int[] dst,
+			final int dstPos, final int length, final boolean premultiplied) {
+		for (int i = 0; i < length; i++) {
+			int col = src[srcPos + i];
+			int a = col >>> 24;
+			if (a == 0) {
+				continue;
+			}
+			int r = (col >> 16) & 0xff;
+			int g = (col >> 8) & 0xff;
+			int b = col & 0xff;
+			if (!premultiplied) {
+				r = multiply(r, a);
+				g = multiply(g, a);
+				b = multiply(b, a);
+			}
+			int bgColor = dst[dstPos + i];
+			r = blendChannel(r, (bgColor >> 16) & 0xff, a);
+			g = blendChannel(g, (bgColor >> 8) & 0xff, a);
+			b = blendChannel(b, bgColor & 0xff, a);
+			dst[dstPos + i] = 0xff000000 | (r << 16) | (g << 8) | b;
+		}
+	}
+
+	/**
+	 * Blends a single (premultiplied) channel value onto a destination
+	 * channel value. Has to be overridden by all modes that don't override
+	 * {@link #blend(int[], int, int[], int, int, boolean)}.
+	 * @param p The premultiplied source channel value.
+	 * @param d The destination channel value.
+	 * @param a The alpha value of the source.
+	 * @return The resulting channel value.
+	 */
+	int blendChannel(final int p, final int d, final int a) {
+		throw new RuntimeException("Blend mode " + name()
+				+ " doesn't blend single channels!");
+	}
+
+}
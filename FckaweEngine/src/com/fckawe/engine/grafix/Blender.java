@@ -0,0 +1,59 @@
+package com.fckawe.engine.grafix;
+
+/**
+ * A blender performs the per-pixel alpha blending of bitmaps, always on runs
+ * of consecutive pixels, so an implementation may process several pixels at
+ * once. All implementations must produce exactly the same results.
+ * 
+ * @author fckawe
+ */
+public interface Blender {
+
+	/**
+	 * Blends the source pixels onto the destination pixels by their alpha
+	 * values. Fully transparent source pixels are skipped, fully opaque ones
+	 * are copied.
+	 * @param src The source pixels.
+	 * @param srcPos The index of the first source pixel.
+	 * @param dst The destination pixels.
+	 * @param dstPos The index of the first destination pixel.
+	 * @param length The number of pixels to blend.
+	 */
+	public void blend(int[] src, int srcPos, int[] dst, int dstPos, int length);
+
+	/**
+	 * Blends the premultiplied source pixels (see {@link Bitmap#premultiply()})
+	 * onto the destination pixels by their alpha values. Fully transparent
+	 * source pixels are skipped, fully opaque ones are copied.
+	 * @param src The source pixels.
+	 * @param srcPos The index of the first source pixel.
+	 * @param dst The destination pixels.
+	 * @param dstPos The index of the first destination pixel.
+	 * @param length The number of pixels to blend.
+	 */
+	public void blendPremultiplied(int[] src, int srcPos, int[] dst,
+			int dstPos, int length);
+
+	/**
+	 * Blends the given color onto the destination pixels by its alpha value.
+	 * @param color The color (with an alpha value above 0 and below 255).
+	 * @param dst The destination pixels.
+	 * @param dstPos The index of the first destination pixel.
+	 * @param length The number of pixels to blend.
+	 */
+	public void fill(int color, int[] dst, int dstPos, int length);
+
+	/**
+	 * Copies the source pixels (with an alpha value of at least 128) tinted
+	 * with the given color (by its alpha value) to the destination pixels.
+	 * @param src The source pixels.
+	 * @param srcPos The index of the first source pixel.
+	 * @param dst The destination pixels.
+	 * @param dstPos The index of the first destination pixel.
+	 * @param length The number of pixels to tint.
+	 * @param color The color (with alpha) to tint the pixels with.
+	 */
+	public void tint(int[] src, int srcPos, int[] dst, int dstPos, int length,
+			int color);
+
+}
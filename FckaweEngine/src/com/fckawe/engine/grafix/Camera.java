@@ -0,0 +1,247 @@
+package com.fckawe.engine.grafix;
+
+import com.fckawe.engine.physics.WorldBounds;
+
+/**
+ * The camera defines which part of the world is visible on the screen: the
+ * world position of the view's top left corner and the zoom factor. It
+ * transforms world coordinates to screen coordinates (and back) and tells
+ * which world rectangles are visible at all, so a world can be much bigger
+ * than the screen.
+ * <p>
+ * The camera is not thread safe. If the rendering runs within its own thread,
+ * the camera should be moved by a job that runs once per rendered frame (see
+ * {@link com.fckawe.engine.game.Scheduler}).
+ * 
+ * @author fckawe
+ */
+public class Camera {
+
+	private final int viewWidth;
+
+	private final int viewHeight;
+
+	// the world position of the view's top left corner
+	private double x, y;
+
+	private double zoom = 1.0;
+
+	// the bounds the view is kept within (null: no limits)
+	private WorldBounds bounds;
+
+	// incremented with each change of the position or the zoom
+	private int changes;
+
+	/**
+	 * Constructor to create a new camera showing the top left corner of the
+	 * world without zoom.
+	 * 
+	 * @param viewWidth
+	 *            The width of the view on the screen.
+	 * @param viewHeight
+	 *            The height of the view on the screen.
+	 */
+	public Camera(final int viewWidth, final int viewHeight) {
+		this.viewWidth = viewWidth;
+		this.viewHeight = viewHeight;
+	}
+
+	/**
+	 * Defines the bounds of the world the view is kept within. If the world
+	 * is smaller than the view, its top left corner is shown.
+	 * 
+	 * @param bounds
+	 *            The bounds of the world or null, to not limit the view.
+	 */
+	public void setBounds(final WorldBounds bounds) {
+		this.bounds = bounds;
+		setPosition(x, y);
+	}
+
+	/**
+	 * Moves the view's top left corner to the given world position.
+	 * 
+	 * @param x
+	 *            The horizontal world position.
+	 * @param y
+	 *            The vertical world position.
+	 */
+	public void setPosition(final double x, final double y) {
+		double newX = x;
+		double newY = y;
+		if (bounds != null) {
+			newX = Math.max(0, Math.min(newX, bounds.getWidth()
+					- getViewWorldWidth()));
+			newY = Math.max(0, Math.min(newY, bounds.getHeight()
+					- getViewWorldHeight()));
+		}
+		if (newX != this.x || newY != this.y) {
+			this.x = newX;
+			this.y = newY;
+			changes++;
+		}
+	}
+
+	/**
+	 * Moves the view so its center is at the given world position.
+	 * 
+	 * @param centerX
+	 *            The horizontal world position.
+	 * @param centerY
+	 *            The vertical world position.
+	 */
+	public void centerOn(final double centerX, final double centerY) {
+		setPosition(centerX - getViewWorldWidth() / 2, centerY
+				- getViewWorldHeight() / 2);
+	}
+
+	/**
+	 * Sets the zoom factor, keeping the center of the view.
+	 * 
+	 * @param zoom
+	 *            The zoom factor (greater than 0, 1.0 means no zoom).
+	 */
+	public void setZoom(final double zoom) {
+		if (zoom <= 0) {
+			throw new RuntimeException("Invalid zoom factor " + zoom + "!");
+		}
+		if (zoom == this.zoom) {
+			return;
+		}
+		double centerX = x + getViewWorldWidth() / 2;
+		double centerY = y + getViewWorldHeight() / 2;
+		this.zoom = zoom;
+		changes++;
+		centerOn(centerX, centerY);
+	}
+
+	/**
+	 * Returns the horizontal world position of the view's top left corner.
+	 * 
+	 * @return The horizontal world position.
+	 */
+	public double getX() {
+		return x;
+	}
+
+	/**
+	 * Returns the vertical world position of the view's top left corner.
+	 * 
+	 * @return The vertical world position.
+	 */
+	public double getY() {
+		return y;
+	}
+
+	/**
+	 * Returns the zoom factor.
+	 * 
+	 * @return The zoom factor.
+	 */
+	public double getZoom() {
+		return zoom;
+	}
+
+	/**
+	 * Returns the width of the view on the screen.
+	 * 
+	 * @return The width of the view.
+	 */
+	public int getViewWidth() {
+		return viewWidth;
+	}
+
+	/**
+	 * Returns the height of the view on the screen.
+	 * 
+	 * @return The height of the view.
+	 */
+	public int getViewHeight() {
+		return viewHeight;
+	}
+
+	/**
+	 * Returns the number of changes of the position or the zoom so far, e.g.
+	 * to find out whether the whole screen has to be redrawn.
+	 * 
+	 * @return The number of changes.
+	 */
+	public int getChanges() {
+		return changes;
+	}
+
+	private double getViewWorldWidth() {
+		return viewWidth / zoom;
+	}
+
+	private double getViewWorldHeight() {
+		return viewHeight / zoom;
+	}
+
+	/**
+	 * Transforms a horizontal world position to a screen position. Sizes
+	 * should be transformed as the difference of the transformed edges, so
+	 * adjacent rectangles (like tiles) never get gaps.
+	 * 
+	 * @param worldX
+	 *            The horizontal world position.
+	 * @return The horizontal screen position.
+	 */
+	public int toScreenX(final int worldX) {
+		return (int) Math.floor((worldX - x) * zoom);
+	}
+
+	/**
+	 * Transforms a vertical world position to a screen position.
+	 * 
+	 * @param worldY
+	 *            The vertical world position.
+	 * @return The vertical screen position.
+	 */
+	public int toScreenY(final int worldY) {
+		return (int) Math.floor((worldY - y) * zoom);
+	}
+
+	/**
+	 * Transforms a horizontal screen position to a world position.
+	 * 
+	 * @param screenX
+	 *            The horizontal screen position.
+	 * @return The horizontal world position.
+	 */
+	public int toWorldX(final int screenX) {
+		return (int) Math.floor(screenX / zoom + x);
+	}
+
+	/**
+	 * Transforms a vertical screen position to a world position.
+	 * 
+	 * @param screenY
+	 *            The vertical screen position.
+	 * @return The vertical world position.
+	 */
+	public int toWorldY(final int screenY) {
+		return (int) Math.floor(screenY / zoom + y);
+	}
+
+	/**
+	 * Returns true, if the given world rectangle is (partly) visible.
+	 * 
+	 * @param worldX
+	 *            The left world position of the rectangle.
+	 * @param worldY
+	 *            The top world position of the rectangle.
+	 * @param width
+	 *            The width of the rectangle.
+	 * @param height
+	 *            The height of the rectangle.
+	 * @return True, if the rectangle is visible.
+	 */
+	public boolean isVisible(final int worldX, final int worldY,
+			final int width, final int height) {
+		return worldX + width > x && worldY + height > y
+				&& worldX < x + getViewWorldWidth()
+				&& worldY < y + getViewWorldHeight();
+	}
+
+}
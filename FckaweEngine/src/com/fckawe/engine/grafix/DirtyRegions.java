@@ -0,0 +1,183 @@
+package com.fckawe.engine.grafix;
+
+/**
+ * A set of rectangular regions of a bitmap that have to be redrawn. Added
+ * rectangles are clipped to the bitmap's bounds and merged with overlapping
+ * or touching rectangles, so the regions never overlap. If more rectangles
+ * than the capacity would be needed, all of them get merged into their
+ * bounding box. The regions are kept in arrays, adding does not create any
+ * objects.
+ * 
+ * @author fckawe
+ */
+public class DirtyRegions {
+
+	private final int width;
+	private final int height;
+
+	private final int[] x0, y0, x1, y1;
+	private int count;
+
+	/**
+	 * Creates a new and empty set of dirty regions.
+	 * @param width The width of the bitmap the regions belong to.
+	 * @param height The height of the bitmap the regions belong to.
+	 * @param capacity The maximum number of separate rectangles.
+	 */
+	public DirtyRegions(final int width, final int height, final int capacity) {
+		this.width = width;
+		this.height = height;
+		x0 = new int[capacity];
+		y0 = new int[capacity];
+		x1 = new int[capacity];
+		y1 = new int[capacity];
+	}
+
+	/**
+	 * Removes all regions.
+	 */
+	public void clear() {
+		count = 0;
+	}
+
+	/**
+	 * Marks the whole bitmap as dirty.
+	 */
+	public void addAll() {
+		count = 0;
+		add(0, 0, width, height);
+	}
+
+	/**
+	 * Adds all regions of the given set.
+	 * @param other The regions to add.
+	 */
+	public void addAll(final DirtyRegions other) {
+		for (int i = 0; i < other.count; i++) {
+			add(other.x0[i], other.y0[i], other.x1[i] - other.x0[i],
+					other.y1[i] - other.y0[i]);
+		}
+	}
+
+	/**
+	 * Adds a dirty rectangle.
+	 * @param x The left position of the rectangle.
+	 * @param y The top position of the rectangle.
+	 * @param w The width of the rectangle.
+	 * @param h The height of the rectangle.
+	 */
+	public void add(final int x, final int y, final int w, final int h) {
+		int ax0 = Math.max(x, 0);
+		int ay0 = Math.max(y, 0);
+		int ax1 = Math.min(x + w, width);
+		int ay1 = Math.min(y + h, height);
+		if (ax0 >= ax1 || ay0 >= ay1) {
+			return;
+		}
+
+		// merge with all rectangles that overlap or touch
+		int i = 0;
+		while (i < count) {
+			if (ax0 <= x1[i] && x0[i] <= ax1 && ay0 <= y1[i] && y0[i] <= ay1) {
+				ax0 = Math.min(ax0, x0[i]);
+				ay0 = Math.min(ay0, y0[i]);
+				ax1 = Math.max(ax1, x1[i]);
+				ay1 = Math.max(ay1, y1[i]);
+				removeAt(i);
+				// the grown rectangle may touch rectangles checked before
+				i = 0;
+			} else {
+				i++;
+			}
+		}
+
+		if (count == x0.length) {
+			// too many rectangles: merge all into the bounding box
+			for (int j = 0; j < count; j++) {
+				ax0 = Math.min(ax0, x0[j]);
+				ay0 = Math.min(ay0, y0[j]);
+				ax1 = Math.max(ax1, x1[j]);
+				ay1 = Math.max(ay1, y1[j]);
+			}
+			count = 0;
+		}
+		x0[count] = ax0;
+		y0[count] = ay0;
+		x1[count] = ax1;
+		y1[count] = ay1;
+		count++;
+	}
+
+	private void removeAt(final int index) {
+		count--;
+		x0[index] = x0[count];
+		y0[index] = y0[count];
+		x1[index] = x1[count];
+		y1[index] = y1[count];
+	}
+
+	/**
+	 * Returns true, if there are no dirty regions.
+	 * @return True, if nothing is dirty.
+	 */
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * Returns the number of (non overlapping) dirty rectangles.
+	 * @return The number of rectangles.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the left position of the rectangle with the given index.
+	 * @param index The index of the rectangle.
+	 * @return The left position.
+	 */
+	public int getX(final int index) {
+		return x0[index];
+	}
+
+	/**
+	 * Returns the top position of the rectangle with the given index.
+	 * @param index The index of the rectangle.
+	 * @return The top position.
+	 */
+	public int getY(final int index) {
+		return y0[index];
+	}
+
+	/**
+	 * Returns the width of the rectangle with the given index.
+	 * @param index The index of the rectangle.
+	 * @return The width.
+	 */
+	public int getWidth(final int index) {
+		return x1[index] - x0[index];
+	}
+
+	/**
+	 * Returns the height of the rectangle with the given index.
+	 * @param index The index of the rectangle.
+	 * @return The height.
+	 */
+	public int getHeight(final int index) {
+		return y1[index] - y0[index];
+	}
+
+	/**
+	 * Returns the number of dirty pixels.
+	 * @return The total area of all rectangles.
+	 */
+	public int getArea() {
+		int area = 0;
+		for (int i = 0; i < count; i++) {
+			area += (x1[i] - x0[i]) * (y1[i] - y0[i]);
+		}
+		return area;
+	}
+
+}
@@ -0,0 +1,226 @@
+package com.fckawe.engine.grafix;
+
+/**
+ * A list of recorded draw commands (blits and fills), which can be replayed
+ * onto a bitmap later on. Each command keeps the clip rectangle that was set
+ * when it was recorded. Replaying the list with an additional clip rectangle
+ * only touches the pixels within that rectangle, so several threads can
+ * replay the same list onto disjoint parts of one bitmap at once (see
+ * {@link ParallelRasterizer}).
+ * <p>
+ * Command objects are not created, the values are kept in arrays which only
+ * grow if more commands are recorded than ever before.
+ * 
+ * @author fckawe
+ */
+public class DrawCommandList {
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	private static final byte BLIT = 0;
+	private static final byte SCALED_BLIT = 1;
+	private static final byte COLOR_BLIT = 2;
+	private static final byte FILL = 3;
+	private static final byte TRANSPARENCY_FILL = 4;
+
+	private static final BlendMode[] BLEND_MODES = BlendMode.values();
+
+	// x, y, width, height, color, the clip rectangle and the source position
+	private static final int INTS_PER_COMMAND = 11;
+
+	private int count;
+
+	private byte[] types;
+
+	private Bitmap[] bitmaps;
+
+	private int[] values;
+
+	/**
+	 * Constructor to create a new and empty command list.
+	 */
+	public DrawCommandList() {
+		types = new byte[INITIAL_CAPACITY];
+		bitmaps = new Bitmap[INITIAL_CAPACITY];
+		values = new int[INITIAL_CAPACITY * INTS_PER_COMMAND];
+	}
+
+	/**
+	 * Removes all commands from this list.
+	 */
+	public void clear() {
+		for (int i = 0; i < count; i++) {
+			bitmaps[i] = null;
+		}
+		count = 0;
+	}
+
+	/**
+	 * Returns the number of recorded commands.
+	 * @return The number of commands.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Records a blit of a part of the given bitmap.
+	 * @param bitmap The bitmap to blit.
+	 * @param srcX The left position of the part within the bitmap.
+	 * @param srcY The top position of the part within the bitmap.
+	 * @param x The left position to blit the part to.
+	 * @param y The top position to blit the part to.
+	 * @param width The width of the part.
+	 * @param height The height of the part.
+	 * @param mode The mode to blend the part with or null, to copy it.
+	 * @param clip The bitmap whose current clip rectangle applies.
+	 */
+	public void addBlit(final Bitmap bitmap, final int srcX, final int srcY,
+			final int x, final int y, final int width, final int height,
+			final BlendMode mode, final Bitmap clip) {
+		// the blend mode is kept instead of a color (0 for none)
+		add(BLIT, bitmap, x, y, width, height, mode == null ? 0
+				: mode.ordinal() + 1, clip);
+		int offset = (count - 1) * INTS_PER_COMMAND;
+		values[offset + 9] = srcX;
+		values[offset + 10] = srcY;
+	}
+
+	/**
+	 * Records a blit of the given bitmap scaled to the given size.
+	 * @param bitmap The bitmap to blit.
+	 * @param x The left position to blit the bitmap to.
+	 * @param y The top position to blit the bitmap to.
+	 * @param width The width to scale the bitmap to.
+	 * @param height The height to scale the bitmap to.
+	 * @param mode The mode to blend the bitmap with or null, to copy it.
+	 * @param clip The bitmap whose current clip rectangle applies.
+	 */
+	public void addScaledBlit(final Bitmap bitmap, final int x, final int y,
+			final int width, final int height, final BlendMode mode,
+			final Bitmap clip) {
+		add(SCALED_BLIT, bitmap, x, y, width, height, mode == null ? 0
+				: mode.ordinal() + 1, clip);
+	}
+
+	/**
+	 * Records a blit of the given bitmap tinted with the given color.
+	 * @param bitmap The bitmap to blit.
+	 * @param x The left position to blit the bitmap to.
+	 * @param y The top position to blit the bitmap to.
+	 * @param color The color (with alpha) to tint the bitmap with.
+	 * @param clip The bitmap whose current clip rectangle applies.
+	 */
+	public void addColorBlit(final Bitmap bitmap, final int x, final int y,
+			final int color, final Bitmap clip) {
+		add(COLOR_BLIT, bitmap, x, y, 0, 0, color, clip);
+	}
+
+	/**
+	 * Records a fill of the given rectangle.
+	 * @param x The left position of the rectangle.
+	 * @param y The top position of the rectangle.
+	 * @param width The width of the rectangle.
+	 * @param height The height of the rectangle.
+	 * @param color The color to fill the rectangle with.
+	 * @param withTransparency True, if the alpha value should be blended.
+	 * @param clip The bitmap whose current clip rectangle applies or null,
+	 *            if the fill should not be clipped (e.g. to clear a bitmap).
+	 */
+	public void addFill(final int x, final int y, final int width,
+			final int height, final int color, final boolean withTransparency,
+			final Bitmap clip) {
+		add(withTransparency ? TRANSPARENCY_FILL : FILL, null, x, y, width,
+				height, color, clip);
+	}
+
+	private void add(final byte type, final Bitmap bitmap, final int x,
+			final int y, final int width, final int height, final int color,
+			final Bitmap clip) {
+		if (count == types.length) {
+			grow();
+		}
+		types[count] = type;
+		bitmaps[count] = bitmap;
+		int offset = count * INTS_PER_COMMAND;
+		values[offset] = x;
+		values[offset + 1] = y;
+		values[offset + 2] = width;
+		values[offset + 3] = height;
+		values[offset + 4] = color;
+		if (clip == null) {
+			values[offset + 5] = Integer.MIN_VALUE;
+			values[offset + 6] = Integer.MIN_VALUE;
+			values[offset + 7] = Integer.MAX_VALUE;
+			values[offset + 8] = Integer.MAX_VALUE;
+		} else {
+			values[offset + 5] = clip.clipX0;
+			values[offset + 6] = clip.clipY0;
+			values[offset + 7] = clip.clipX1;
+			values[offset + 8] = clip.clipY1;
+		}
+		count++;
+	}
+
+	private void grow() {
+		int capacity = types.length * 2;
+		byte[] newTypes = new byte[capacity];
+		System.arraycopy(types, 0, newTypes, 0, count);
+		types = newTypes;
+		Bitmap[] newBitmaps = new Bitmap[capacity];
+		System.arraycopy(bitmaps, 0, newBitmaps, 0, count);
+		bitmaps = newBitmaps;
+		int[] newValues = new int[capacity * INTS_PER_COMMAND];
+		System.arraycopy(values, 0, newValues, 0, count * INTS_PER_COMMAND);
+		values = newValues;
+	}
+
+	/**
+	 * Replays all commands onto the given bitmap, limited to the given rows.
+	 * @param target The bitmap to draw on.
+	 * @param top The first row to draw.
+	 * @param bottom The row below the last row to draw.
+	 */
+	public void replay(final Bitmap target, final int top, final int bottom) {
+		int targetWidth = target.getWidth();
+		for (int i = 0; i < count; i++) {
+			int offset = i * INTS_PER_COMMAND;
+			int x = values[offset];
+			int y = values[offset + 1];
+			int width = values[offset + 2];
+			int height = values[offset + 3];
+			int color = values[offset + 4];
+			int clipLeft = Math.max(values[offset + 5], 0);
+			int clipTop = Math.max(values[offset + 6], top);
+			int clipRight = Math.min(values[offset + 7], targetWidth);
+			int clipBottom = Math.min(values[offset + 8], bottom);
+			if (clipTop >= clipBottom) {
+				continue;
+			}
+
+			switch (types[i]) {
+			case BLIT:
+				target.blitClipped(bitmaps[i], values[offset + 9],
+						values[offset + 10], x, y, width, height,
+						color == 0 ? null : BLEND_MODES[color - 1], clipLeft,
+						clipTop, clipRight, clipBottom);
+				break;
+			case SCALED_BLIT:
+				target.scaledBlitClipped(bitmaps[i], x, y, width, height,
+						color == 0 ? null : BLEND_MODES[color - 1], clipLeft,
+						clipTop, clipRight, clipBottom);
+				break;
+			case COLOR_BLIT:
+				target.colorBlitClipped(bitmaps[i], x, y, color, clipLeft,
+						clipTop, clipRight, clipBottom);
+				break;
+			default:
+				target.fillClipped(x, y, width, height, color,
+						types[i] == TRANSPARENCY_FILL, clipLeft, clipTop,
+						clipRight, clipBottom);
+				break;
+			}
+		}
+	}
+
+}
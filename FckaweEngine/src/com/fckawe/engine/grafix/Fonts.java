@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 
@@ -28,12 +29,22 @@ public class Fonts {
 
 	public static final String DEFAULT_FONT = "DEFAULT";
 
-	private final Map<String, Font> fonts;
+	// replaced as a whole when fonts get reloaded
+	private volatile Map<String, Font> fonts;
+
+	// the parameters of the loaded fonts by font name (to reload them)
+	private volatile Map<String, Map<String, String>> fontParams;
+
+	// the reloaded fonts that are not swapped in yet (see applyReload)
+	private volatile Map<String, Font> reloadedFonts;
 
 	private final UserInterface ui;
 
 	private final Logger logger;
 
+	// reused position object for the characters to draw
+	private final Position charPos = new Position();
+
 	/**
 	 * Creates a new instance of this class.
 	 * 
@@ -41,7 +52,8 @@ public class Fonts {
 	 *            A reference to the user interface.
 	 */
 	public Fonts(final UserInterface ui) {
-		fonts = new HashMap<String, Font>();
+		fonts = new ConcurrentHashMap<String, Font>();
+		fontParams = new HashMap<String, Map<String, String>>();
 
 		this.ui = ui;
 
@@ -53,11 +65,71 @@ public class Fonts {
 	 * Load all fonts to memory.
 	 */
 	public void loadFonts() {
-		fonts.clear();
+		fonts = loadAll();
+	}
 
+	private Map<String, Font> loadAll() {
+		Map<String, Font> loaded = new ConcurrentHashMap<String, Font>();
+		Map<String, Map<String, String>> params = new HashMap<String, Map<String, String>>();
 		String fontsFilePath = FONTS_DIR + FONTS_FILE;
 		Loader loader = new Loader();
-		loader.load(fontsFilePath);
+		loader.load(fontsFilePath, loaded, params);
+		fontParams = params;
+		return loaded;
+	}
+
+	/**
+	 * Loads the fonts again that are affected by the given changed resource:
+	 * all fonts if the fonts file changed, the fonts that use the image
+	 * otherwise. The reloaded fonts are not used before
+	 * {@link #applyReload()} is called, so they can be loaded while the game
+	 * is running.
+	 * 
+	 * @param path
+	 *            The path of the changed resource.
+	 * @return True, if fonts were reloaded.
+	 */
+	public boolean prepareReload(final String path) {
+		if (path.equals(FONTS_DIR + FONTS_FILE)) {
+			reloadedFonts = loadAll();
+			return true;
+		}
+		Map<String, Font> current = reloadedFonts == null ? fonts
+				: reloadedFonts;
+		Map<String, Font> reloaded = new ConcurrentHashMap<String, Font>();
+		boolean changed = false;
+		Loader loader = new Loader();
+		for (Map.Entry<String, Map<String, String>> entry : fontParams
+				.entrySet()) {
+			String name = entry.getKey();
+			Map<String, String> params = entry.getValue();
+			Font font = current.get(name);
+			if (font == null || path.equals(loader.getBitmapPath(params))) {
+				font = loader.createFont(params);
+				changed = true;
+			}
+			reloaded.put(name, font);
+		}
+		if (changed) {
+			reloadedFonts = reloaded;
+		}
+		return changed;
+	}
+
+	/**
+	 * Swaps the fonts loaded by {@link #prepareReload(String)} in. Has to be
+	 * called between two frames by the thread that draws them.
+	 * 
+	 * @return True, if reloaded fonts were swapped in.
+	 */
+	public boolean applyReload() {
+		Map<String, Font> reloaded = reloadedFonts;
+		if (reloaded == null) {
+			return false;
+		}
+		reloadedFonts = null;
+		fonts = reloaded;
+		return true;
 	}
 
 	/**
@@ -97,7 +169,7 @@ public class Fonts {
 	 * @param start
 	 *            The starting position.
 	 */
-	public void draw(final Screen screen, final String message,
+	public void draw(final Screen screen, final CharSequence message,
 			final Position start) {
 		drawMulti(screen, null, message, start, -1);
 	}
@@ -115,14 +187,15 @@ public class Fonts {
 	 *            The starting position.
 	 */
 	public void draw(final Screen screen, final String fontName,
-			final String message, final Position start) {
+			final CharSequence message, final Position start) {
 		drawMulti(screen, fontName, message, start, -1);
 	}
 
 	/**
 	 * Draws a message with the given font on the given position on the screen.
 	 * The width of the text can be limited setting maxWidth to the maximum
-	 * width. If maxWidth is -1 the screen's the limit.
+	 * width. If maxWidth is -1 the screen's the limit. Drawing does not
+	 * create any objects, so a reused StringBuilder may be passed as message.
 	 * 
 	 * @param screen
 	 *            The screen.
@@ -136,7 +209,7 @@ public class Fonts {
 	 *            The maximum with for the text or -1 if "unlimited".
 	 */
 	public void drawMulti(final Screen screen, final String fontName,
-			final String message, final Position start,
+			final CharSequence message, final Position start,
 			final int maxWidth) {
 		int width = maxWidth < 0 ? screen.getWidth() : maxWidth;
 		Font font = ui.getFont(fontName);
@@ -144,24 +217,27 @@ public class Fonts {
 		short fontHeight = font.getHeight();
 		short letterSpacing = font.getLetterSpacing();
 		short lineSpacing = font.getLineSpacing();
-		String msg = font.hasLowercaseLetters() ? message : message
-				.toUpperCase();
-		int length = msg.length();
+		boolean toUpperCase = !font.hasLowercaseLetters();
+		int length = message.length();
 		int posX = start.getX();
 		int posY = start.getY();
 		for (int i = 0; i < length; i++) {
-			char c = msg.charAt(i);
+			char c = message.charAt(i);
 			if (c == '\n') {
 				posX = start.getX();
 				posY += fontHeight + lineSpacing;
 				continue;
 			}
+			if (toUpperCase) {
+				c = Character.toUpperCase(c);
+			}
 			Bitmap charBitmap = font.getCharBitmap(c);
 			if (charBitmap == null) {
 				continue;
 			}
-			Position pos = new Position(posX, posY);
-			screen.blit(charBitmap, pos);
+			charPos.setX(posX);
+			charPos.setY(posY);
+			screen.blit(charBitmap, charPos);
 			posX += fontWidth + letterSpacing;
 			if (posX > width) {
 				posX = start.getX();
@@ -253,8 +329,14 @@ public class Fonts {
 		 * 
 		 * @param fontsFilePath
 		 *            Path to the fonts file (XML file which defines all fonts).
+		 * @param loaded
+		 *            The map to put the loaded fonts to.
+		 * @param params
+		 *            The map to put the parameters of the fonts to.
 		 */
-		private void load(final String fontsFilePath) {
+		private void load(final String fontsFilePath,
+				final Map<String, Font> loaded,
+				final Map<String, Map<String, String>> params) {
 			if (logger != null && logger.isInfoEnabled()) {
 				logger.info("Loading fonts from file '{}'...", fontsFilePath);
 			}
@@ -267,7 +349,8 @@ public class Fonts {
 				Map<String, String> fontParams = paramsPerFontId.get(fontId);
 				Font font = createFont(fontParams);
 				String name = fontParams.get("name");
-				fonts.put(name.toUpperCase(), font);
+				loaded.put(name.toUpperCase(), font);
+				params.put(name.toUpperCase(), fontParams);
 
 				if (logger != null && logger.isInfoEnabled()) {
 					logger.info(
@@ -339,8 +422,6 @@ public class Fonts {
 			} catch (NumberFormatException e) {
 				lineSpacing = Font.DEFAULT_LINE_SPACING;
 			}
-			String bitmapFile = fontParams.get("bitmap"
-					+ Breadcrumb.PATH_SEPARATOR + "file");
 
 			List<String> lines = new ArrayList<String>();
 			for (int i = 0; i < 100; i++) {
@@ -359,7 +440,8 @@ public class Fonts {
 			}
 
 			Bitmap[][] bitmapData = ui.getBitmaps().loadSprite(
-					FONTS_DIR + bitmapFile, width, height, 0, 0, 1.0, null, -1);
+					getBitmapPath(fontParams), width, height, 0, 0, 1.0, null,
+					-1);
 
 			Font font = new Font(bitmapData, chars, width, height,
 					letterSpacing, lineSpacing);
@@ -367,6 +449,19 @@ public class Fonts {
 			return font;
 		}
 
+		/**
+		 * Returns the resource path of the image of a font.
+		 * 
+		 * @param fontParams
+		 *            The parameters of the font.
+		 * @return The path of the font's image.
+		 */
+		private String getBitmapPath(final Map<String, String> fontParams) {
+			return FONTS_DIR
+					+ fontParams.get("bitmap" + Breadcrumb.PATH_SEPARATOR
+							+ "file");
+		}
+
 	}
 
 }
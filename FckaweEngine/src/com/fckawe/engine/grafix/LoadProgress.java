@@ -0,0 +1,100 @@
+package com.fckawe.engine.grafix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * The progress of a group of asynchronous loads (e.g. all bitmaps of a
+ * module, see {@link Bitmaps#beginBatch(LoadProgress)}). The loads run on
+ * other threads, so the progress may be polled from the game loop (e.g. to
+ * draw a progress bar) while the assets are decoded.
+ * 
+ * @author fckawe
+ */
+public class LoadProgress {
+
+	private final List<Future<?>> loads = new ArrayList<Future<?>>();
+
+	/**
+	 * Adds a load to this progress.
+	 * 
+	 * @param load
+	 *            The future of the load.
+	 */
+	public synchronized void add(final Future<?> load) {
+		loads.add(load);
+	}
+
+	/**
+	 * Returns the number of loads added to this progress.
+	 * 
+	 * @return The number of loads.
+	 */
+	public synchronized int getTotal() {
+		return loads.size();
+	}
+
+	/**
+	 * Returns the number of loads that are finished (successfully or not).
+	 * 
+	 * @return The number of finished loads.
+	 */
+	public synchronized int getCompleted() {
+		int completed = 0;
+		for (Future<?> load : loads) {
+			if (load.isDone()) {
+				completed++;
+			}
+		}
+		return completed;
+	}
+
+	/**
+	 * Returns the finished part of the loads.
+	 * 
+	 * @return The finished part (0.0 to 1.0; 1.0 if there are no loads).
+	 */
+	public synchronized double getFraction() {
+		int total = loads.size();
+		return total == 0 ? 1.0 : getCompleted() / (double) total;
+	}
+
+	/**
+	 * Returns true, if all loads are finished.
+	 * 
+	 * @return True, if all loads are finished.
+	 */
+	public synchronized boolean isDone() {
+		return getCompleted() == loads.size();
+	}
+
+	/**
+	 * Waits until all loads are finished. Cancelled loads are skipped.
+	 * Causes a RuntimeException if a load failed or the waiting thread got
+	 * interrupted.
+	 */
+	public void await() {
+		List<Future<?>> copy;
+		synchronized (this) {
+			copy = new ArrayList<Future<?>>(loads);
+		}
+		for (Future<?> load : copy) {
+			try {
+				load.get();
+			} catch (CancellationException e) {
+				// removed before it was loaded
+			} catch (ExecutionException e) {
+				throw new RuntimeException("Asynchronous load failed!",
+						e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(
+						"Interrupted while waiting for loads!", e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.fckawe.engine.grafix;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The parallel rasterizer replays a {@link DrawCommandList} onto a bitmap
+ * using several threads. The bitmap is split into horizontal bands and each
+ * band is replayed by one task of a fork/join pool, clipped to the band's
+ * rows. The bands don't overlap, so the tasks never write the same pixels.
+ * <p>
+ * The bitmap is split into more bands than there are threads, so threads
+ * that finish early can steal the bands of others (e.g. if most sprites are
+ * in the upper half of the screen).
+ * 
+ * @author fckawe
+ */
+public class ParallelRasterizer {
+
+	// number of bands per thread
+	private static final int BANDS_PER_THREAD = 4;
+
+	// bands are never split below this number of rows
+	private static final int MIN_BAND_HEIGHT = 16;
+
+	private final ForkJoinPool pool;
+
+	private final int threads;
+
+	/**
+	 * Constructor to create a new parallel rasterizer.
+	 * @param threads The number of threads to rasterize with.
+	 */
+	public ParallelRasterizer(final int threads) {
+		if (threads < 1) {
+			throw new RuntimeException("Invalid number of raster threads "
+					+ threads + "!");
+		}
+		this.threads = threads;
+		pool = new ForkJoinPool(threads);
+	}
+
+	/**
+	 * Replays the given commands onto the given bitmap and waits until all
+	 * bands are done.
+	 * @param commands The commands to replay.
+	 * @param target The bitmap to draw on.
+	 */
+	public void rasterize(final DrawCommandList commands, final Bitmap target) {
+		if (commands.getCount() == 0) {
+			return;
+		}
+		int height = target.getHeight();
+		int bandHeight = Math.max(MIN_BAND_HEIGHT, (height
+				+ threads * BANDS_PER_THREAD - 1)
+				/ (threads * BANDS_PER_THREAD));
+		pool.invoke(new Band(commands, target, 0, height, bandHeight));
+	}
+
+	/**
+	 * Returns the number of threads the rasterizer works with.
+	 * @return The number of threads.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Stops the threads of the rasterizer.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * A task that replays the commands within a range of rows, splitting the
+	 * range in halves until it's not higher than the band height.
+	 * 
+	 * @author fckawe
+	 */
+	private static class Band extends RecursiveAction {
+
+		private static final long serialVersionUID = 3087475928167465981L;
+
+		private final DrawCommandList commands;
+
+		private final Bitmap target;
+
+		private final int top, bottom, bandHeight;
+
+		private Band(final DrawCommandList commands, final Bitmap target,
+				final int top, final int bottom, final int bandHeight) {
+			this.commands = commands;
+			this.target = target;
+			this.top = top;
+			this.bottom = bottom;
+			this.bandHeight = bandHeight;
+		}
+
+		@Override
+		protected void compute() {
+			if (bottom - top <= bandHeight) {
+				commands.replay(target, top, bottom);
+				return;
+			}
+			int middle = top + (bottom - top) / 2;
+			invokeAll(new Band(commands, target, top, middle, bandHeight),
+					new Band(commands, target, middle, bottom, bandHeight));
+		}
+
+	}
+
+}
@@ -0,0 +1,274 @@
+package com.fckawe.engine.grafix;
+
+/**
+ * The render queue collects the bitmaps to draw within one frame, each with a
+ * layer and a z value, and draws them sorted by layer first and z second.
+ * Bitmaps with equal layer and z are drawn in the order they were submitted,
+ * so the draw order never depends on the order of a hash map.
+ * <p>
+ * Before sorting, all entries outside of the target's clip rectangle (the
+ * viewport) are culled, after transforming them with the {@link Camera} if
+ * there is one. The remaining entries are sorted with a radix sort
+ * over their packed (primitive) keys. Like with the {@link DrawCommandList},
+ * no objects are created per entry, the arrays only grow if more entries are
+ * submitted than ever before.
+ * 
+ * @author fckawe
+ */
+public class RenderQueue {
+
+	/** The lowest layer (drawn first). */
+	public static final int MIN_LAYER = -128;
+
+	/** The highest layer (drawn last). */
+	public static final int MAX_LAYER = 127;
+
+	/** The lowest z value within a layer (drawn first). */
+	public static final int MIN_Z = -32768;
+
+	/** The highest z value within a layer (drawn last). */
+	public static final int MAX_Z = 32767;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	// the keys have 8 bits for the layer and 16 bits for z, sorted 8 at a time
+	private static final int RADIX_BITS = 8;
+	private static final int RADIX_PASSES = 3;
+	private static final int RADIX_MASK = (1 << RADIX_BITS) - 1;
+
+	private int count;
+
+	private Bitmap[] bitmaps;
+
+	private BlendMode[] modes;
+
+	private int[] x, y, keys;
+
+	// the screen bounds of the entries (transformed by the camera)
+	private int[] screenX, screenY, screenWidth, screenHeight;
+
+	// indices of the visible entries (sorted) and a buffer for the sort
+	private int[] order, buffer;
+
+	private final int[] radixCounts = new int[1 << RADIX_BITS];
+
+	// number of entries culled by the latest rendering
+	private int culled;
+
+	/**
+	 * Constructor to create a new and empty render queue.
+	 */
+	public RenderQueue() {
+		bitmaps = new Bitmap[INITIAL_CAPACITY];
+		modes = new BlendMode[INITIAL_CAPACITY];
+		x = new int[INITIAL_CAPACITY];
+		y = new int[INITIAL_CAPACITY];
+		keys = new int[INITIAL_CAPACITY];
+		screenX = new int[INITIAL_CAPACITY];
+		screenY = new int[INITIAL_CAPACITY];
+		screenWidth = new int[INITIAL_CAPACITY];
+		screenHeight = new int[INITIAL_CAPACITY];
+		order = new int[INITIAL_CAPACITY];
+		buffer = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Removes all entries from this queue.
+	 */
+	public void clear() {
+		for (int i = 0; i < count; i++) {
+			bitmaps[i] = null;
+		}
+		count = 0;
+	}
+
+	/**
+	 * Submits a bitmap which gets blitted with alpha blending.
+	 * @param bitmap The bitmap to draw.
+	 * @param posX The left position to draw the bitmap to.
+	 * @param posY The top position to draw the bitmap to.
+	 * @param layer The layer ({@link #MIN_LAYER} to {@link #MAX_LAYER}).
+	 * @param z The z value within the layer ({@link #MIN_Z} to
+	 *            {@link #MAX_Z}).
+	 */
+	public void submit(final Bitmap bitmap, final int posX, final int posY,
+			final int layer, final int z) {
+		submit(bitmap, posX, posY, layer, z, BlendMode.ALPHA);
+	}
+
+	/**
+	 * Submits a bitmap which gets blitted with the given blend mode. Layers
+	 * and z values outside of their ranges are clamped.
+	 * @param bitmap The bitmap to draw.
+	 * @param posX The left position to draw the bitmap to.
+	 * @param posY The top position to draw the bitmap to.
+	 * @param layer The layer ({@link #MIN_LAYER} to {@link #MAX_LAYER}).
+	 * @param z The z value within the layer ({@link #MIN_Z} to
+	 *            {@link #MAX_Z}).
+	 * @param mode The mode to blend the bitmap with or null, to copy it.
+	 */
+	public void submit(final Bitmap bitmap, final int posX, final int posY,
+			final int layer, final int z, final BlendMode mode) {
+		if (count == bitmaps.length) {
+			grow();
+		}
+		bitmaps[count] = bitmap;
+		modes[count] = mode;
+		x[count] = posX;
+		y[count] = posY;
+		keys[count] = key(layer, z);
+		count++;
+	}
+
+	private static int key(final int layer, final int z) {
+		int l = Math.max(MIN_LAYER, Math.min(MAX_LAYER, layer)) - MIN_LAYER;
+		int k = Math.max(MIN_Z, Math.min(MAX_Z, z)) - MIN_Z;
+		return (l << 16) | k;
+	}
+
+	/**
+	 * Returns the number of submitted entries.
+	 * @return The number of entries.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the number of entries that were outside of the viewport during
+	 * the latest rendering.
+	 * @return The number of culled entries.
+	 */
+	public int getCulledCount() {
+		return culled;
+	}
+
+	/**
+	 * Draws all entries within the clip rectangle of the given bitmap, sorted
+	 * by layer and z. The entries are kept, so the queue can be rendered again
+	 * (e.g. with another clip rectangle).
+	 * @param target The bitmap to draw on.
+	 */
+	public void render(final Bitmap target) {
+		render(target, null);
+	}
+
+	/**
+	 * Draws all entries that are visible through the given camera, sorted by
+	 * layer and z. The positions of the entries are world positions, which
+	 * get transformed by the camera (bitmaps are scaled if it zooms).
+	 * @param target The bitmap to draw on.
+	 * @param camera The camera or null, if world and screen positions are
+	 *            equal.
+	 */
+	public void render(final Bitmap target, final Camera camera) {
+		int visible = cull(camera, target.clipX0, target.clipY0,
+				target.clipX1, target.clipY1);
+		culled = count - visible;
+		sort(visible);
+		for (int i = 0; i < visible; i++) {
+			int index = order[i];
+			Bitmap bitmap = bitmaps[index];
+			int w = screenWidth[index];
+			int h = screenHeight[index];
+			if (w == bitmap.getWidth() && h == bitmap.getHeight()) {
+				target.blitInternal(bitmap, 0, 0, screenX[index],
+						screenY[index], w, h, modes[index]);
+			} else {
+				target.scaledBlitInternal(bitmap, screenX[index],
+						screenY[index], w, h, modes[index]);
+			}
+		}
+	}
+
+	private int cull(final Camera camera, final int left, final int top,
+			final int right, final int bottom) {
+		int visible = 0;
+		for (int i = 0; i < count; i++) {
+			Bitmap bitmap = bitmaps[i];
+			int x0 = x[i];
+			int y0 = y[i];
+			int x1 = x0 + bitmap.getWidth();
+			int y1 = y0 + bitmap.getHeight();
+			if (camera != null) {
+				x0 = camera.toScreenX(x0);
+				y0 = camera.toScreenY(y0);
+				x1 = camera.toScreenX(x1);
+				y1 = camera.toScreenY(y1);
+			}
+			if (x0 < right && y0 < bottom && x1 > left && y1 > top) {
+				screenX[i] = x0;
+				screenY[i] = y0;
+				screenWidth[i] = x1 - x0;
+				screenHeight[i] = y1 - y0;
+				order[visible++] = i;
+			}
+		}
+		return visible;
+	}
+
+	// stable LSD radix sort of the visible indices by their keys
+	private void sort(final int length) {
+		int[] from = order;
+		int[] to = buffer;
+		for (int pass = 0; pass < RADIX_PASSES; pass++) {
+			int shift = pass * RADIX_BITS;
+			int[] counts = radixCounts;
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = 0;
+			}
+			for (int i = 0; i < length; i++) {
+				counts[(keys[from[i]] >>> shift) & RADIX_MASK]++;
+			}
+			// all keys have the same digit (e.g. all in one layer): skip
+			if (length == 0
+					|| counts[(keys[from[0]] >>> shift) & RADIX_MASK] == length) {
+				continue;
+			}
+			int sum = 0;
+			for (int i = 0; i < counts.length; i++) {
+				int c = counts[i];
+				counts[i] = sum;
+				sum += c;
+			}
+			for (int i = 0; i < length; i++) {
+				int index = from[i];
+				to[counts[(keys[index] >>> shift) & RADIX_MASK]++] = index;
+			}
+			int[] swap = from;
+			from = to;
+			to = swap;
+		}
+		if (from != order) {
+			// the sorted indices ended up in the buffer: swap the arrays
+			buffer = order;
+			order = from;
+		}
+	}
+
+	private void grow() {
+		int capacity = bitmaps.length * 2;
+		Bitmap[] newBitmaps = new Bitmap[capacity];
+		System.arraycopy(bitmaps, 0, newBitmaps, 0, count);
+		bitmaps = newBitmaps;
+		BlendMode[] newModes = new BlendMode[capacity];
+		System.arraycopy(modes, 0, newModes, 0, count);
+		modes = newModes;
+		x = grow(x, capacity);
+		y = grow(y, capacity);
+		keys = grow(keys, capacity);
+		screenX = new int[capacity];
+		screenY = new int[capacity];
+		screenWidth = new int[capacity];
+		screenHeight = new int[capacity];
+		order = new int[capacity];
+		buffer = new int[capacity];
+	}
+
+	private int[] grow(final int[] array, final int capacity) {
+		int[] newArray = new int[capacity];
+		System.arraycopy(array, 0, newArray, 0, count);
+		return newArray;
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.fckawe.engine.grafix;
+
+/**
+ * The scalar blender blends each color channel of each pixel on its own.
+ * 
+ * @author fckawe
+ */
+public class ScalarBlender implements Blender {
+
+	@Override
+	public void blend(final int[] src, final int srcPos, final int[] dst,
+			final int dstPos, final int length) {
+		for (int i = 0; i < length; i++) {
+			int col = src[srcPos + i];
+			int a = (col >> 24) & 0xff;
+			if (a == 0) {
+				continue;
+			}
+			if (a < 0xff) {
+				int bgColor = dst[dstPos + i];
+				int bgr = bgColor & 0xff0000;
+				int bgg = bgColor & 0xff00;
+				int bgb = bgColor & 0xff;
+				int r = col & 0xff0000;
+				int g = col & 0xff00;
+				int b = col & 0xff;
+				int aa = 256 - a;
+				r = ((r * a + bgr * aa) >> 8) & 0xff0000;
+				g = ((g * a + bgg * aa) >> 8) & 0xff00;
+				b = ((b * a + bgb * aa) >> 8) & 0xff;
+				col = 0xff000000 | r | g | b;
+			}
+			dst[dstPos + i] = col;
+		}
+	}
+
+	@Override
+	public void blendPremultiplied(final int[] src, final int srcPos,
+			final int[] dst, final int dstPos, final int length) {
+		for (int i = 0; i < length; i++) {
+			int col = src[srcPos + i];
+			int a = (col >> 24) & 0xff;
+			if (a == 0) {
+				continue;
+			}
+			if (a < 0xff) {
+				int bgColor = dst[dstPos + i];
+				int aa = 256 - a;
+				int r = (((bgColor & 0xff0000) * aa) >> 8) & 0xff0000;
+				int g = (((bgColor & 0xff00) * aa) >> 8) & 0xff00;
+				int b = (((bgColor & 0xff) * aa) >> 8) & 0xff;
+				col = 0xff000000 | ((col & 0xff0000) + r)
+						| ((col & 0xff00) + g) | ((col & 0xff) + b);
+			}
+			dst[dstPos + i] = col;
+		}
+	}
+
+	@Override
+	public void fill(final int color, final int[] dst, final int dstPos,
+			final int length) {
+		int a = (color >> 24) & 0xff;
+		int aa = 256 - a;
+		int r = color & 0xff0000;
+		int g = color & 0xff00;
+		int b = color & 0xff;
+		for (int i = 0; i < length; i++) {
+			int bgColor = dst[dstPos + i];
+			int bgr = bgColor & 0xff0000;
+			int bgg = bgColor & 0xff00;
+			int bgb = bgColor & 0xff;
+			dst[dstPos + i] = 0xff000000
+					| (((r * a + bgr * aa) >> 8) & 0xff0000)
+					| (((g * a + bgg * aa) >> 8) & 0xff00)
+					| (((b * a + bgb * aa) >> 8) & 0xff);
+		}
+	}
+
+	@Override
+	public void tint(final int[] src, final int srcPos, final int[] dst,
+			final int dstPos, final int length, final int color) {
+		int a2 = (color >> 24) & 0xff;
+		int a1 = 256 - a2;
+		int rr = color & 0xff0000;
+		int gg = color & 0xff00;
+		int bb = color & 0xff;
+		for (int i = 0; i < length; i++) {
+			int col = src[srcPos + i];
+			if (col < 0) {
+				int r = (col & 0xff0000);
+				int g = (col & 0xff00);
+				int b = (col & 0xff);
+				r = ((r * a1 + rr * a2) >> 8) & 0xff0000;
+				g = ((g * a1 + gg * a2) >> 8) & 0xff00;
+				b = ((b * a1 + bb * a2) >> 8) & 0xff;
+				dst[dstPos + i] = 0xff000000 | r | g | b;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,258 @@
+package com.fckawe.engine.grafix;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A sprite pack contains bitmaps and sprites that were decoded, cut and
+ * scaled before (see {@link SpritePackWriter}), together with the spans of
+ * their cells. The pack file is memory mapped and only its table of contents
+ * is read when it's opened. The pixels of an entry are copied right out of
+ * the mapped file when the entry is requested for the first time, so no
+ * image has to be decoded at runtime.
+ * <p>
+ * The entries are stored by the keys of their sources (see
+ * {@link Bitmaps#getBitmapKey(String)} and
+ * {@link Bitmaps#getSpriteKey(String, int, int, int, int, double)}), so
+ * {@link Bitmaps} takes them instead of decoding the images, if the pack is
+ * added to it.
+ * <p>
+ * The file format (big endian): the magic number, the version and the
+ * number of entries, then the table of contents (per entry: the length and
+ * the UTF-8 bytes of the key, the offset and the length of the entry's
+ * data).
+ * The data of an entry: the flags, the size of the atlas, the number of
+ * columns and rows, per cell (column by column) its bounds and its spans and
+ * finally the pixels of the atlas.
+ * 
+ * @author fckawe
+ */
+public class SpritePack {
+
+	/** The first four bytes of a pack file ("FSPK"). */
+	public static final int MAGIC = 0x4653504B;
+
+	/** The version of the file format. */
+	public static final int VERSION = 1;
+
+	// flags of an entry
+	static final int FLAG_PREMULTIPLIED = 1;
+
+	// the packs opened within this process (by canonical path)
+	private static final Map<String, SpritePack> OPENED = new ConcurrentHashMap<String, SpritePack>();
+
+	private final String filePath;
+
+	private final ByteBuffer buffer;
+
+	// position and length of the data of each entry
+	private final Map<String, long[]> contents;
+
+	// the decoded entries (may be collected if memory gets low)
+	private final Map<String, SoftReference<Bitmap[][]>> decoded;
+
+	private SpritePack(final String filePath, final ByteBuffer buffer) {
+		this.filePath = filePath;
+		this.buffer = buffer;
+		contents = new HashMap<String, long[]>();
+		decoded = new HashMap<String, SoftReference<Bitmap[][]>>();
+		readContents();
+	}
+
+	/**
+	 * Opens the given pack file. A pack that was opened before within this
+	 * process is returned again (with its decoded entries).
+	 * 
+	 * @param file
+	 *            The pack file.
+	 * @return The sprite pack.
+	 */
+	public static SpritePack open(final File file) {
+		String path;
+		try {
+			path = file.getCanonicalPath();
+		} catch (IOException e) {
+			throw new RuntimeException("Cannot resolve sprite pack '" + file
+					+ "'!", e);
+		}
+		synchronized (OPENED) {
+			SpritePack pack = OPENED.get(path);
+			if (pack == null) {
+				pack = new SpritePack(path, map(file));
+				OPENED.put(path, pack);
+			}
+			return pack;
+		}
+	}
+
+	private static MappedByteBuffer map(final File file) {
+		try {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				FileChannel channel = raf.getChannel();
+				// the mapping stays valid after the channel is closed
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0,
+						channel.size());
+			} finally {
+				raf.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Cannot map sprite pack '" + file
+					+ "'!", e);
+		}
+	}
+
+	private void readContents() {
+		ByteBuffer buf = buffer.duplicate();
+		if (buf.remaining() < 12 || buf.getInt() != MAGIC) {
+			throw new RuntimeException("'" + filePath
+					+ "' is no sprite pack!");
+		}
+		int version = buf.getInt();
+		if (version != VERSION) {
+			throw new RuntimeException("Unsupported version " + version
+					+ " of sprite pack '" + filePath + "'!");
+		}
+		int count = buf.getInt();
+		Charset utf8 = Charset.forName("UTF-8");
+		for (int i = 0; i < count; i++) {
+			byte[] keyBytes = new byte[buf.getShort() & 0xffff];
+			buf.get(keyBytes);
+			long position = buf.getLong();
+			long length = buf.getInt();
+			if (position + length > buf.capacity()) {
+				throw new RuntimeException("Sprite pack '" + filePath
+						+ "' is truncated!");
+			}
+			contents.put(new String(keyBytes, utf8), new long[] { position,
+					length });
+		}
+	}
+
+	/**
+	 * Returns true, if the pack contains an entry with the given key.
+	 * 
+	 * @param key
+	 *            The key of the entry.
+	 * @return True, if the entry exists.
+	 */
+	public boolean contains(final String key) {
+		return contents.containsKey(key);
+	}
+
+	/**
+	 * Returns the keys of all entries.
+	 * 
+	 * @return The keys of the entries.
+	 */
+	public List<String> getKeys() {
+		return new ArrayList<String>(contents.keySet());
+	}
+
+	/**
+	 * Returns true, if the pixels of the entry with the given key are
+	 * premultiplied (see {@link Bitmap#premultiply()}).
+	 * 
+	 * @param key
+	 *            The key of the entry.
+	 * @return True, if the entry is premultiplied.
+	 */
+	public boolean isPremultiplied(final String key) {
+		long[] content = getContent(key);
+		return (buffer.getInt((int) content[0]) & FLAG_PREMULTIPLIED) != 0;
+	}
+
+	/**
+	 * Returns the cells of the entry with the given key. The entry is read
+	 * from the mapped file when it's requested for the first time; later
+	 * calls return the same cells (unless they were collected in the
+	 * meantime).
+	 * 
+	 * @param key
+	 *            The key of the entry.
+	 * @return The cells (all views of one atlas) or null, if there is no
+	 *         such entry.
+	 */
+	public synchronized Bitmap[][] get(final String key) {
+		if (!contents.containsKey(key)) {
+			return null;
+		}
+		SoftReference<Bitmap[][]> ref = decoded.get(key);
+		Bitmap[][] cells = ref == null ? null : ref.get();
+		if (cells == null) {
+			cells = read(getContent(key));
+			decoded.put(key, new SoftReference<Bitmap[][]>(cells));
+		}
+		return cells;
+	}
+
+	private long[] getContent(final String key) {
+		long[] content = contents.get(key);
+		if (content == null) {
+			throw new RuntimeException("No entry '" + key
+					+ "' within sprite pack '" + filePath + "'!");
+		}
+		return content;
+	}
+
+	private Bitmap[][] read(final long[] content) {
+		ByteBuffer buf = buffer.duplicate();
+		buf.position((int) content[0]);
+		buf.limit((int) (content[0] + content[1]));
+		IntBuffer ints = buf.slice().asIntBuffer();
+
+		int flags = ints.get();
+		int atlasWidth = ints.get();
+		int atlasHeight = ints.get();
+		int columns = ints.get();
+		int rows = ints.get();
+
+		Bitmap atlas = new Bitmap(atlasWidth, atlasHeight);
+		atlas.setPremultiplied((flags & FLAG_PREMULTIPLIED) != 0);
+		Bitmap[][] cells = new Bitmap[columns][rows];
+		for (int x = 0; x < columns; x++) {
+			for (int y = 0; y < rows; y++) {
+				int cellX = ints.get();
+				int cellY = ints.get();
+				int cellWidth = ints.get();
+				int cellHeight = ints.get();
+				Bitmap cell = new Bitmap(atlas, cellX, cellY, cellWidth,
+						cellHeight);
+				int spanCount = ints.get();
+				if (spanCount >= 0) {
+					int[] spans = new int[spanCount];
+					ints.get(spans);
+					int[] rowStarts = new int[cell.getHeight() + 1];
+					ints.get(rowStarts);
+					cell.setSpans(spans, rowStarts);
+				}
+				cells[x][y] = cell;
+			}
+		}
+		// bulk copy of the pixels out of the mapped file
+		ints.get(atlas.pixels);
+		return cells;
+	}
+
+	/**
+	 * Returns the path of the pack file.
+	 * 
+	 * @return The canonical path of the pack file.
+	 */
+	public String getFilePath() {
+		return filePath;
+	}
+
+}
@@ -0,0 +1,259 @@
+package com.fckawe.engine.grafix;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bakes bitmaps and sprites into a sprite pack file (see {@link SpritePack}).
+ * The images are decoded, cut and scaled like {@link Bitmaps} does it at
+ * runtime, and the entries get the same keys, so the loads of the game find
+ * them within the pack.
+ * <p>
+ * The writer can be run as a build step:
+ * 
+ * <pre>
+ * SpritePackWriter [-premultiplied] &lt;pack file&gt; &lt;source&gt;...
+ * </pre>
+ * 
+ * where each source is the resource path of a bitmap (e.g.
+ * <code>/images/icon.png</code>) or of a sprite with its cell size and an
+ * optional scale (e.g. <code>/images/tiles.png:16:16:2.0</code>).
+ * 
+ * @author fckawe
+ */
+public class SpritePackWriter {
+
+	private final Bitmaps bitmaps;
+
+	private final Map<String, Bitmap[][]> entries = new LinkedHashMap<String, Bitmap[][]>();
+
+	/**
+	 * Constructor to create a new writer.
+	 * 
+	 * @param bitmaps
+	 *            The bitmaps interface which decodes the images (with its
+	 *            premultiplied alpha setting).
+	 */
+	public SpritePackWriter(final Bitmaps bitmaps) {
+		this.bitmaps = bitmaps;
+	}
+
+	/**
+	 * Decodes a bitmap and adds it to the pack.
+	 * 
+	 * @param path
+	 *            The resource path of the bitmap's image.
+	 */
+	public void addBitmap(final String path) {
+		Bitmap bitmap = bitmaps.loadBitmap(path, 1.0, null, -1);
+		if (bitmap == null) {
+			throw new RuntimeException("Cannot bake bitmap '" + path + "'!");
+		}
+		add(Bitmaps.getBitmapKey(path), new Bitmap[][] { { bitmap } });
+	}
+
+	/**
+	 * Decodes, cuts and scales a sprite and adds it to the pack.
+	 * 
+	 * @param path
+	 *            The resource path of the sprite's image.
+	 * @param cutSizeX
+	 *            The width of a cell within the image.
+	 * @param cutSizeY
+	 *            The height of a cell within the image.
+	 * @param marginX
+	 *            The left margin of the cells within the image.
+	 * @param marginY
+	 *            The top margin of the cells within the image.
+	 * @param scale
+	 *            The factor to scale the image with.
+	 */
+	public void addSprite(final String path, final int cutSizeX,
+			final int cutSizeY, final int marginX, final int marginY,
+			final double scale) {
+		Bitmap[][] sprite = bitmaps.loadSprite(path, cutSizeX, cutSizeY,
+				marginX, marginY, scale, null, -1);
+		if (sprite == null) {
+			throw new RuntimeException("Cannot bake sprite '" + path + "'!");
+		}
+		add(Bitmaps.getSpriteKey(path, cutSizeX, cutSizeY, marginX, marginY,
+				scale), sprite);
+	}
+
+	/**
+	 * Adds the given cells to the pack.
+	 * 
+	 * @param key
+	 *            The key of the entry.
+	 * @param cells
+	 *            The cells (all of them views of the same atlas).
+	 */
+	public void add(final String key, final Bitmap[][] cells) {
+		int[] pixels = cells[0][0].pixels;
+		int stride = cells[0][0].getStride();
+		for (Bitmap[] column : cells) {
+			for (Bitmap cell : column) {
+				if (cell.pixels != pixels || cell.getStride() != stride) {
+					throw new RuntimeException("The cells of '" + key
+							+ "' are no views of the same atlas!");
+				}
+			}
+		}
+		entries.put(key, cells);
+	}
+
+	/**
+	 * Returns the number of entries added to the pack.
+	 * 
+	 * @return The number of entries.
+	 */
+	public int getCount() {
+		return entries.size();
+	}
+
+	/**
+	 * Writes the pack file.
+	 * 
+	 * @param file
+	 *            The file to write.
+	 */
+	public void write(final File file) {
+		Charset utf8 = Charset.forName("UTF-8");
+		int contentsSize = 12;
+		for (String key : entries.keySet()) {
+			contentsSize += 2 + key.getBytes(utf8).length + 8 + 4;
+		}
+		ByteBuffer contents = ByteBuffer.allocate(contentsSize);
+		contents.putInt(SpritePack.MAGIC);
+		contents.putInt(SpritePack.VERSION);
+		contents.putInt(entries.size());
+		try {
+			FileOutputStream out = new FileOutputStream(file);
+			try {
+				FileChannel channel = out.getChannel();
+				long position = contentsSize;
+				channel.position(position);
+				for (Map.Entry<String, Bitmap[][]> entry : entries.entrySet()) {
+					ByteBuffer data = encode(entry.getValue());
+					byte[] keyBytes = entry.getKey().getBytes(utf8);
+					contents.putShort((short) keyBytes.length);
+					contents.put(keyBytes);
+					contents.putLong(position);
+					contents.putInt(data.remaining());
+					position += data.remaining();
+					while (data.hasRemaining()) {
+						channel.write(data);
+					}
+				}
+				contents.flip();
+				channel.position(0);
+				while (contents.hasRemaining()) {
+					channel.write(contents);
+				}
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Cannot write sprite pack '" + file
+					+ "'!", e);
+		}
+	}
+
+	private ByteBuffer encode(final Bitmap[][] cells) {
+		Bitmap first = cells[0][0];
+		int stride = first.getStride();
+		int atlasHeight = first.pixels.length / stride;
+		int size = 5 + first.pixels.length;
+		for (Bitmap[] column : cells) {
+			for (Bitmap cell : column) {
+				size += 5;
+				if (cell.hasSpans()) {
+					size += cell.getSpans().length
+							+ cell.getSpanRowStarts().length;
+				}
+			}
+		}
+		ByteBuffer data = ByteBuffer.allocate(size * 4);
+		data.putInt(first.isPremultiplied() ? SpritePack.FLAG_PREMULTIPLIED
+				: 0);
+		data.putInt(stride);
+		data.putInt(atlasHeight);
+		data.putInt(cells.length);
+		data.putInt(cells[0].length);
+		for (Bitmap[] column : cells) {
+			for (Bitmap cell : column) {
+				data.putInt(cell.getOffset() % stride);
+				data.putInt(cell.getOffset() / stride);
+				data.putInt(cell.getWidth());
+				data.putInt(cell.getHeight());
+				if (cell.hasSpans()) {
+					int[] spans = cell.getSpans();
+					data.putInt(spans.length);
+					for (int span : spans) {
+						data.putInt(span);
+					}
+					for (int rowStart : cell.getSpanRowStarts()) {
+						data.putInt(rowStart);
+					}
+				} else {
+					data.putInt(-1);
+				}
+			}
+		}
+		for (int pixel : first.pixels) {
+			data.putInt(pixel);
+		}
+		data.flip();
+		return data;
+	}
+
+	/**
+	 * Bakes the given sources into a pack file (see the class description).
+	 * 
+	 * @param args
+	 *            The optional "-premultiplied" flag, the pack file and the
+	 *            sources.
+	 */
+	public static void main(final String[] args) {
+		int index = 0;
+		Bitmaps bitmaps = new Bitmaps();
+		if (args.length > 0 && args[0].equals("-premultiplied")) {
+			bitmaps.setPremultiplied(true);
+			index++;
+		}
+		if (args.length < index + 2) {
+			System.err.println("Usage: SpritePackWriter [-premultiplied] "
+					+ "<pack file> <path>[:<cutSizeX>:<cutSizeY>[:<scale>]]...");
+			System.exit(1);
+		}
+		File file = new File(args[index++]);
+		SpritePackWriter writer = new SpritePackWriter(bitmaps);
+		for (int i = index; i < args.length; i++) {
+			String[] parts = args[i].split(":");
+			try {
+				if (parts.length == 1) {
+					writer.addBitmap(parts[0]);
+				} else {
+					double scale = parts.length > 3 ? Double
+							.parseDouble(parts[3]) : 1.0;
+					writer.addSprite(parts[0], Integer.parseInt(parts[1]),
+							Integer.parseInt(parts[2]), 0, 0, scale);
+				}
+			} catch (RuntimeException e) {
+				// e.g. a missing or unreadable image
+				System.err.println("Cannot bake '" + args[i] + "': " + e);
+				System.exit(1);
+			}
+		}
+		writer.write(file);
+		System.out.println("Baked " + writer.getCount() + " entries into '"
+				+ file + "'.");
+	}
+
+}
@@ -34,6 +34,7 @@ public class InputHandler implements KeyListener {
 		keyMap.put(KeyEvent.VK_RIGHT, newKeyState());
 		keyMap.put(KeyEvent.VK_ENTER, newKeyState());
 		keyMap.put(KeyEvent.VK_ESCAPE, newKeyState());
+		keyMap.put(KeyEvent.VK_F3, newKeyState());
 	}
 
 	/**
@@ -0,0 +1,53 @@
+package com.fckawe.engine.physics;
+
+/**
+ * The world bounds define the size of the area in which the entities of the
+ * game can move. They are independent of the screen, so the game logic can
+ * also run without any user interface.
+ * 
+ * @author fckawe
+ */
+public class WorldBounds {
+
+	private final int width;
+
+	private final int height;
+
+	/**
+	 * Constructor to create new world bounds with the given size. The top
+	 * left corner of the world is (0, 0).
+	 * 
+	 * @param width
+	 *            The width of the world.
+	 * @param height
+	 *            The height of the world.
+	 */
+	public WorldBounds(final int width, final int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Returns the width of the world.
+	 * 
+	 * @return The width of the world.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of the world.
+	 * 
+	 * @return The height of the world.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public String toString() {
+		return "WorldBounds(" + width + "," + height + ")";
+	}
+
+}
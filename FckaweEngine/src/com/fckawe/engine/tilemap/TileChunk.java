@@ -0,0 +1,155 @@
+package com.fckawe.engine.tilemap;
+
+import com.fckawe.engine.grafix.Bitmap;
+
+/**
+ * A chunk is a square part of a tile map ({@link #SIZE} x {@link #SIZE}
+ * tiles). The tile IDs are kept in a short array. The chunk's tiles are
+ * pre-rendered into one cached bitmap, which gets discarded whenever a tile
+ * is changed, so a whole chunk is drawn with a single blit.
+ * <p>
+ * The tiles are changed by the game logic, while the bitmap may be rendered
+ * within the render thread (if the rendering is decoupled from the game
+ * logic). The bitmap is rendered from a copy of the tiles and only kept, if
+ * no tile was changed meanwhile, so a change is never lost. Tile changes of
+ * the running tick may be drawn together with the entities of the previous
+ * tick, though.
+ * 
+ * @author fckawe
+ */
+public class TileChunk {
+
+	/** The number of tiles per row and column of a chunk. */
+	public static final int SIZE = 32;
+
+	// written within the game logic's thread, the other fields are guarded by
+	// this chunk
+	private final short[] tiles = new short[SIZE * SIZE];
+
+	// the number of non empty tiles
+	private int tileCount;
+
+	// incremented with each change of a tile
+	private int version;
+
+	// the pre-rendered tiles (null: has to be rendered)
+	private Bitmap cache;
+
+	// true, if a tile was changed since the latest collection of dirty regions
+	private boolean edited;
+
+	/**
+	 * Returns the ID of the tile at the given position within this chunk.
+	 * 
+	 * @param x
+	 *            The column within the chunk (0 to {@link #SIZE} - 1).
+	 * @param y
+	 *            The row within the chunk (0 to {@link #SIZE} - 1).
+	 * @return The ID of the tile.
+	 */
+	public short get(final int x, final int y) {
+		return tiles[y * SIZE + x];
+	}
+
+	/**
+	 * Sets the ID of the tile at the given position within this chunk and
+	 * discards the pre-rendered bitmap, if the ID changes.
+	 * 
+	 * @param x
+	 *            The column within the chunk (0 to {@link #SIZE} - 1).
+	 * @param y
+	 *            The row within the chunk (0 to {@link #SIZE} - 1).
+	 * @param id
+	 *            The ID of the tile.
+	 */
+	public synchronized void set(final int x, final int y, final short id) {
+		int index = y * SIZE + x;
+		short old = tiles[index];
+		if (old == id) {
+			return;
+		}
+		if (old == TileSet.EMPTY) {
+			tileCount++;
+		} else if (id == TileSet.EMPTY) {
+			tileCount--;
+		}
+		tiles[index] = id;
+		version++;
+		cache = null;
+		edited = true;
+	}
+
+	/**
+	 * Returns true, if all tiles of this chunk are empty.
+	 * 
+	 * @return True, if there is nothing to draw.
+	 */
+	public synchronized boolean isEmpty() {
+		return tileCount == 0;
+	}
+
+	/**
+	 * Returns the pre-rendered tiles of this chunk, rendering them first if
+	 * needed. The tiles are copied with their alpha values, so the chunks of
+	 * several layers can be drawn on top of each other. If a tile gets
+	 * changed while rendering, the bitmap is returned but not kept (the
+	 * chunk is reported as edited, so it is rendered again with the next
+	 * frame).
+	 * 
+	 * @param tileSet
+	 *            The tile set to render the tiles with.
+	 * @return The bitmap with all tiles of this chunk.
+	 */
+	public Bitmap getBitmap(final TileSet tileSet) {
+		short[] ids;
+		int renderedVersion;
+		synchronized (this) {
+			if (cache != null) {
+				return cache;
+			}
+			ids = tiles.clone();
+			renderedVersion = version;
+		}
+		// rendered without the lock, so changing tiles doesn't have to wait
+		int tileWidth = tileSet.getTileWidth();
+		int tileHeight = tileSet.getTileHeight();
+		Bitmap bitmap = new Bitmap(SIZE * tileWidth, SIZE * tileHeight);
+		for (int y = 0; y < SIZE; y++) {
+			for (int x = 0; x < SIZE; x++) {
+				Bitmap tile = tileSet.getTile(ids[y * SIZE + x]);
+				if (tile != null) {
+					bitmap.copy(tile, x * tileWidth, y * tileHeight);
+				}
+			}
+		}
+		// blits skip the transparent parts (e.g. of foreground layers)
+		bitmap.computeSpans();
+		synchronized (this) {
+			if (version == renderedVersion) {
+				cache = bitmap;
+			}
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Discards the pre-rendered tiles (e.g. to free memory of chunks that are
+	 * far away).
+	 */
+	public synchronized void discardBitmap() {
+		cache = null;
+	}
+
+	/**
+	 * Returns true, if a tile was changed since the latest call of this
+	 * method.
+	 * 
+	 * @return True, if the chunk was edited.
+	 */
+	synchronized boolean resetEdited() {
+		boolean wasEdited = edited;
+		edited = false;
+		return wasEdited;
+	}
+
+}
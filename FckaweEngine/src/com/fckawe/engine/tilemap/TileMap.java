@@ -0,0 +1,264 @@
+package com.fckawe.engine.tilemap;
+
+import com.fckawe.engine.grafix.Camera;
+import com.fckawe.engine.grafix.DirtyRegions;
+import com.fckawe.engine.grafix.RenderQueue;
+import com.fckawe.engine.physics.WorldBounds;
+
+/**
+ * A tile map is a grid of tiles of one {@link TileSet}, e.g. the background
+ * of a level. The map is split into chunks ({@link TileChunk}), which are
+ * created when their first tile is set, so empty areas cost no memory. Each
+ * chunk is drawn as one pre-rendered bitmap, and only the chunks visible
+ * through the camera are submitted to the render queue.
+ * 
+ * @author fckawe
+ */
+public class TileMap {
+
+	private final TileSet tileSet;
+
+	// size in tiles
+	private final int width;
+	private final int height;
+
+	// size in chunks
+	private final int columns;
+	private final int rows;
+
+	// created within the game logic's thread, a decoupled render thread sees
+	// them after the next render snapshot was published
+	private final TileChunk[] chunks;
+
+	/**
+	 * Constructor to create a new and empty tile map.
+	 * 
+	 * @param tileSet
+	 *            The tile set to draw the tiles with.
+	 * @param width
+	 *            The number of tiles per row.
+	 * @param height
+	 *            The number of tiles per column.
+	 */
+	public TileMap(final TileSet tileSet, final int width, final int height) {
+		this.tileSet = tileSet;
+		this.width = width;
+		this.height = height;
+		columns = (width + TileChunk.SIZE - 1) / TileChunk.SIZE;
+		rows = (height + TileChunk.SIZE - 1) / TileChunk.SIZE;
+		chunks = new TileChunk[columns * rows];
+	}
+
+	/**
+	 * Returns the ID of the tile at the given position.
+	 * 
+	 * @param x
+	 *            The column of the tile.
+	 * @param y
+	 *            The row of the tile.
+	 * @return The ID of the tile or {@link TileSet#EMPTY}, if there is none
+	 *         (or the position is outside of the map).
+	 */
+	public short get(final int x, final int y) {
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			return TileSet.EMPTY;
+		}
+		TileChunk chunk = chunks[(y / TileChunk.SIZE) * columns + x
+				/ TileChunk.SIZE];
+		return chunk == null ? TileSet.EMPTY : chunk.get(x % TileChunk.SIZE, y
+				% TileChunk.SIZE);
+	}
+
+	/**
+	 * Sets the ID of the tile at the given position.
+	 * 
+	 * @param x
+	 *            The column of the tile.
+	 * @param y
+	 *            The row of the tile.
+	 * @param id
+	 *            The ID of the tile ({@link TileSet#EMPTY} to remove it).
+	 */
+	public void set(final int x, final int y, final short id) {
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			throw new RuntimeException("Tile position (" + x + "," + y
+					+ ") is outside of the tile map!");
+		}
+		int index = (y / TileChunk.SIZE) * columns + x / TileChunk.SIZE;
+		TileChunk chunk = chunks[index];
+		if (chunk == null) {
+			if (id == TileSet.EMPTY) {
+				return;
+			}
+			chunk = new TileChunk();
+			chunks[index] = chunk;
+		}
+		chunk.set(x % TileChunk.SIZE, y % TileChunk.SIZE, id);
+	}
+
+	/**
+	 * Sets the chunk at the given chunk position (e.g. while loading a map).
+	 * 
+	 * @param column
+	 *            The column of the chunk.
+	 * @param row
+	 *            The row of the chunk.
+	 * @param chunk
+	 *            The chunk or null, if it's empty.
+	 */
+	public void setChunk(final int column, final int row,
+			final TileChunk chunk) {
+		chunks[row * columns + column] = chunk;
+	}
+
+	/**
+	 * Returns the chunk at the given chunk position.
+	 * 
+	 * @param column
+	 *            The column of the chunk.
+	 * @param row
+	 *            The row of the chunk.
+	 * @return The chunk or null, if it's empty.
+	 */
+	public TileChunk getChunk(final int column, final int row) {
+		return chunks[row * columns + column];
+	}
+
+	/**
+	 * Submits the pre-rendered chunks that are visible through the given
+	 * camera to the given render queue. The chunks get the lowest z value, so
+	 * they are drawn below everything else within the same layer.
+	 * 
+	 * @param queue
+	 *            The render queue.
+	 * @param camera
+	 *            The camera or null, if world and screen positions are equal.
+	 * @param layer
+	 *            The layer to draw the tile map in.
+	 */
+	public void render(final RenderQueue queue, final Camera camera,
+			final int layer) {
+		int chunkWidth = TileChunk.SIZE * tileSet.getTileWidth();
+		int chunkHeight = TileChunk.SIZE * tileSet.getTileHeight();
+		int column0 = 0, row0 = 0, column1 = columns - 1, row1 = rows - 1;
+		if (camera != null) {
+			// only the chunks within the view
+			column0 = Math.max(column0, camera.toWorldX(0) / chunkWidth);
+			row0 = Math.max(row0, camera.toWorldY(0) / chunkHeight);
+			column1 = Math.min(column1, camera.toWorldX(camera.getViewWidth())
+					/ chunkWidth);
+			row1 = Math.min(row1, camera.toWorldY(camera.getViewHeight())
+					/ chunkHeight);
+		}
+		for (int row = row0; row <= row1; row++) {
+			for (int column = column0; column <= column1; column++) {
+				TileChunk chunk = chunks[row * columns + column];
+				if (chunk != null && !chunk.isEmpty()) {
+					queue.submit(chunk.getBitmap(tileSet), column * chunkWidth,
+							row * chunkHeight, layer, RenderQueue.MIN_Z);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the screen regions of all chunks that were edited since the
+	 * previous call.
+	 * 
+	 * @param regions
+	 *            The dirty regions to add to.
+	 * @param camera
+	 *            The camera or null, if world and screen positions are equal.
+	 */
+	public void collectDirtyRegions(final DirtyRegions regions,
+			final Camera camera) {
+		int chunkWidth = TileChunk.SIZE * tileSet.getTileWidth();
+		int chunkHeight = TileChunk.SIZE * tileSet.getTileHeight();
+		for (int i = 0; i < chunks.length; i++) {
+			TileChunk chunk = chunks[i];
+			if (chunk == null || !chunk.resetEdited()) {
+				continue;
+			}
+			int x0 = (i % columns) * chunkWidth;
+			int y0 = (i / columns) * chunkHeight;
+			int x1 = x0 + chunkWidth;
+			int y1 = y0 + chunkHeight;
+			if (camera != null) {
+				x0 = camera.toScreenX(x0);
+				y0 = camera.toScreenY(y0);
+				x1 = camera.toScreenX(x1);
+				y1 = camera.toScreenY(y1);
+			}
+			regions.add(x0, y0, x1 - x0, y1 - y0);
+		}
+	}
+
+	/**
+	 * Discards the pre-rendered bitmaps of all chunks (e.g. when the map is
+	 * not shown for a while).
+	 */
+	public void discardBitmaps() {
+		for (TileChunk chunk : chunks) {
+			if (chunk != null) {
+				chunk.discardBitmap();
+			}
+		}
+	}
+
+	/**
+	 * Returns the bounds of the world covered by this map, e.g. for
+	 * {@link Camera#setBounds(WorldBounds)}.
+	 * 
+	 * @return The world bounds.
+	 */
+	public WorldBounds getWorldBounds() {
+		return new WorldBounds(width * tileSet.getTileWidth(), height
+				* tileSet.getTileHeight());
+	}
+
+	/**
+	 * Returns the tile set of this map.
+	 * 
+	 * @return The tile set.
+	 */
+	public TileSet getTileSet() {
+		return tileSet;
+	}
+
+	/**
+	 * Returns the number of tiles per row.
+	 * 
+	 * @return The width in tiles.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the number of tiles per column.
+	 * 
+	 * @return The height in tiles.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the number of chunks per row.
+	 * 
+	 * @return The number of chunk columns.
+	 */
+	public int getChunkColumns() {
+		return columns;
+	}
+
+	/**
+	 * Returns the number of chunks per column.
+	 * 
+	 * @return The number of chunk rows.
+	 */
+	public int getChunkRows() {
+		return rows;
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.fckawe.engine.tilemap;
+
+import com.fckawe.engine.grafix.Bitmap;
+import com.fckawe.engine.grafix.Bitmaps;
+
+/**
+ * A tile set provides the bitmaps of the tiles of a tile map. The tiles are
+ * the cells of a sprite loaded by {@link Bitmaps#loadSprite}, numbered row by
+ * row starting with 1 at the top left cell. The tile ID 0 means "no tile".
+ * 
+ * @author fckawe
+ */
+public class TileSet {
+
+	/** The ID of an empty tile. */
+	public static final short EMPTY = 0;
+
+	private final Bitmap[] tiles;
+
+	private final int tileWidth;
+
+	private final int tileHeight;
+
+	/**
+	 * Constructor to create a new tile set of the given sprite cells.
+	 * 
+	 * @param sprite
+	 *            The cells of the sprite (as returned by
+	 *            {@link Bitmaps#getSpriteBitmap(String)}).
+	 */
+	public TileSet(final Bitmap[][] sprite) {
+		if (sprite == null || sprite.length == 0 || sprite[0].length == 0) {
+			throw new RuntimeException("Tile set without tiles!");
+		}
+		int columns = sprite.length;
+		int rows = sprite[0].length;
+		if (columns * rows > Short.MAX_VALUE) {
+			throw new RuntimeException("Too many tiles within tile set: "
+					+ columns * rows + "!");
+		}
+		tiles = new Bitmap[columns * rows + 1];
+		for (int y = 0; y < rows; y++) {
+			for (int x = 0; x < columns; x++) {
+				tiles[y * columns + x + 1] = sprite[x][y];
+			}
+		}
+		tileWidth = sprite[0][0].getWidth();
+		tileHeight = sprite[0][0].getHeight();
+	}
+
+	/**
+	 * Returns the tile set of the sprite with the given ID, which gets loaded
+	 * if it's not loaded yet.
+	 * 
+	 * @param bitmaps
+	 *            The bitmaps interface.
+	 * @param id
+	 *            The ID of the sprite.
+	 * @param path
+	 *            The path of the sprite's image.
+	 * @param tileWidth
+	 *            The width of a tile within the image.
+	 * @param tileHeight
+	 *            The height of a tile within the image.
+	 * @return The tile set.
+	 */
+	public static TileSet load(final Bitmaps bitmaps, final String id,
+			final String path, final int tileWidth, final int tileHeight) {
+		if (!bitmaps.isLoaded(id)) {
+			bitmaps.loadSprite(id, path, tileWidth, tileHeight);
+		}
+		return new TileSet(bitmaps.getSpriteBitmap(id));
+	}
+
+	/**
+	 * Returns the bitmap of the tile with the given ID.
+	 * 
+	 * @param id
+	 *            The ID of the tile.
+	 * @return The bitmap or null, if the ID is {@link #EMPTY} or unknown.
+	 */
+	public Bitmap getTile(final int id) {
+		return id > 0 && id < tiles.length ? tiles[id] : null;
+	}
+
+	/**
+	 * Returns the number of tiles of this set (the highest tile ID).
+	 * 
+	 * @return The number of tiles.
+	 */
+	public int getTileCount() {
+		return tiles.length - 1;
+	}
+
+	/**
+	 * Returns the width of a tile.
+	 * 
+	 * @return The width of a tile.
+	 */
+	public int getTileWidth() {
+		return tileWidth;
+	}
+
+	/**
+	 * Returns the height of a tile.
+	 * 
+	 * @return The height of a tile.
+	 */
+	public int getTileHeight() {
+		return tileHeight;
+	}
+
+}
@@ -0,0 +1,397 @@
+package com.fckawe.engine.tilemap;
+
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.fckawe.engine.core.Session;
+import com.fckawe.engine.utils.XmlLoader;
+
+/**
+ * Loads the tile layers of a Tiled map file (TMX) into tile maps. The file is
+ * streamed through a SAX handler: the tile IDs of CSV and base64 (optionally
+ * zlib compressed) layers are decoded character by character right into the
+ * chunks of the tile maps, without building any strings of the layer data.
+ * Each chunk is reported to the listener as soon as all its rows are loaded.
+ * <p>
+ * All layers are drawn with the given tile set, which must match the first
+ * tile set of the map. Flip flags of the tiles are ignored, tiles outside of
+ * the map (e.g. chunks of infinite maps) are skipped.
+ * 
+ * @author fckawe
+ */
+public class TmxLoader {
+
+	// flags of the global tile IDs (flipping and rotation)
+	private static final int GID_MASK = 0x0FFFFFFF;
+
+	// size of the buffers for compressed and inflated layer data
+	private static final int BUFFER_SIZE = 4096;
+
+	private static final byte[] BASE64_VALUES = new byte[128];
+	static {
+		String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+		for (int i = 0; i < BASE64_VALUES.length; i++) {
+			BASE64_VALUES[i] = -1;
+		}
+		for (int i = 0; i < chars.length(); i++) {
+			BASE64_VALUES[chars.charAt(i)] = (byte) i;
+		}
+	}
+
+	/**
+	 * A listener which gets informed about the progress of the loading.
+	 * 
+	 * @author fckawe
+	 */
+	public interface Listener {
+
+		/**
+		 * A new layer was found.
+		 * 
+		 * @param name
+		 *            The name of the layer.
+		 * @param map
+		 *            The (still empty) tile map of the layer.
+		 */
+		void layerStarted(String name, TileMap map);
+
+		/**
+		 * All tiles of a chunk are loaded. With infinite maps, whose data is
+		 * split into chunks of its own, a chunk may be reported more than once
+		 * (whenever one of the file's chunks within it is loaded).
+		 * 
+		 * @param map
+		 *            The tile map of the layer.
+		 * @param column
+		 *            The column of the chunk.
+		 * @param row
+		 *            The row of the chunk.
+		 */
+		void chunkLoaded(TileMap map, int column, int row);
+
+	}
+
+	private final String filePath;
+
+	private final InputStream inStream;
+
+	private final TileSet tileSet;
+
+	private final Map<String, TileMap> layers = new LinkedHashMap<String, TileMap>();
+
+	private Listener listener;
+
+	/**
+	 * Creates a new instance, specifying the TMX file to load.
+	 * 
+	 * @param filePath
+	 *            The TMX file to load.
+	 * @param tileSet
+	 *            The tile set to draw the layers with.
+	 */
+	public TmxLoader(final String filePath, final TileSet tileSet) {
+		this(filePath, Session.class.getResourceAsStream(filePath), tileSet);
+	}
+
+	/**
+	 * Creates a new instance, specifying the stream to load the map from.
+	 * 
+	 * @param filePath
+	 *            The path of the TMX file (for error messages).
+	 * @param inStream
+	 *            The stream to read the TMX file from.
+	 * @param tileSet
+	 *            The tile set to draw the layers with.
+	 */
+	public TmxLoader(final String filePath, final InputStream inStream,
+			final TileSet tileSet) {
+		this.filePath = filePath;
+		this.inStream = inStream;
+		this.tileSet = tileSet;
+	}
+
+	/**
+	 * Sets the listener which gets informed about loaded chunks.
+	 * 
+	 * @param listener
+	 *            The listener or null.
+	 */
+	public void setListener(final Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Loads the tile layers of the map.
+	 * 
+	 * @return The tile maps of all layers (by name, in the order of the
+	 *         file).
+	 */
+	public Map<String, TileMap> load() {
+		layers.clear();
+		Handler handler = new Handler();
+		try {
+			XmlLoader.parse(filePath, inStream, handler);
+		} finally {
+			handler.end();
+		}
+		return layers;
+	}
+
+	/**
+	 * Handler that decodes the layers while the SAX parser reads the file.
+	 * 
+	 * @author fckawe
+	 */
+	private class Handler extends DefaultHandler {
+
+		private int firstGid = 1;
+
+		private int mapWidth, mapHeight;
+
+		private TileMap map;
+
+		// the area of the data or chunk element and the next tile within it
+		private int areaX, areaY, areaWidth, areaHeight, tile;
+
+		private boolean inData, csv, base64, zlib;
+
+		// the number being read (CSV)
+		private int value;
+		private boolean inNumber;
+
+		// the bits of the base64 characters and the bytes of a tile ID
+		private int bits, bitCount, gid, gidBytes;
+
+		private Inflater inflater;
+		private final byte[] compressed = new byte[BUFFER_SIZE];
+		private final byte[] inflated = new byte[BUFFER_SIZE];
+		private int compressedLength;
+
+		@Override
+		public void startElement(final String uri, final String localName,
+				final String qName, final Attributes attrs) throws SAXException {
+			if (qName.equals("map")) {
+				mapWidth = parseInt(attrs, "width");
+				mapHeight = parseInt(attrs, "height");
+			} else if (qName.equals("tileset")) {
+				if (layers.isEmpty() && map == null) {
+					firstGid = parseInt(attrs, "firstgid");
+				}
+			} else if (qName.equals("layer")) {
+				String name = attrs.getValue("name");
+				int width = attrs.getValue("width") == null ? mapWidth
+						: parseInt(attrs, "width");
+				int height = attrs.getValue("height") == null ? mapHeight
+						: parseInt(attrs, "height");
+				map = new TileMap(tileSet, width, height);
+				layers.put(name, map);
+				if (listener != null) {
+					listener.layerStarted(name, map);
+				}
+			} else if (qName.equals("data") && map != null) {
+				String encoding = attrs.getValue("encoding");
+				String compression = attrs.getValue("compression");
+				csv = "csv".equals(encoding);
+				base64 = "base64".equals(encoding);
+				if (!csv && !base64) {
+					throw new SAXException("Unsupported TMX encoding '"
+							+ encoding + "'!");
+				}
+				zlib = "zlib".equals(compression);
+				if (compression != null && !zlib) {
+					throw new SAXException("Unsupported TMX compression '"
+							+ compression + "'!");
+				}
+				inData = true;
+				startArea(0, 0, map.getWidth(), map.getHeight());
+			} else if (qName.equals("chunk") && inData) {
+				startArea(parseInt(attrs, "x"), parseInt(attrs, "y"),
+						parseInt(attrs, "width"), parseInt(attrs, "height"));
+			}
+		}
+
+		private int parseInt(final Attributes attrs, final String name)
+				throws SAXException {
+			String attr = attrs.getValue(name);
+			try {
+				return Integer.parseInt(attr);
+			} catch (NumberFormatException e) {
+				throw new SAXException("Invalid value '" + attr
+						+ "' of TMX attribute '" + name + "'!", e);
+			}
+		}
+
+		private void startArea(final int x, final int y, final int width,
+				final int height) {
+			areaX = x;
+			areaY = y;
+			areaWidth = width;
+			areaHeight = height;
+			tile = 0;
+			inNumber = false;
+			bits = 0;
+			bitCount = 0;
+			gid = 0;
+			gidBytes = 0;
+			compressedLength = 0;
+			if (zlib) {
+				if (inflater == null) {
+					inflater = new Inflater();
+				}
+				inflater.reset();
+			}
+		}
+
+		@Override
+		public void characters(final char[] cBuf, final int offset,
+				final int len) throws SAXException {
+			if (!inData) {
+				return;
+			}
+			int end = offset + len;
+			if (csv) {
+				for (int i = offset; i < end; i++) {
+					char c = cBuf[i];
+					if (c >= '0' && c <= '9') {
+						value = (inNumber ? value * 10 : 0) + (c - '0');
+						inNumber = true;
+					} else if (inNumber) {
+						putTile(value);
+						inNumber = false;
+					}
+				}
+				return;
+			}
+			for (int i = offset; i < end; i++) {
+				char c = cBuf[i];
+				int v = c < BASE64_VALUES.length ? BASE64_VALUES[c] : -1;
+				if (v < 0) {
+					// whitespace and padding
+					continue;
+				}
+				bits = (bits << 6) | v;
+				bitCount += 6;
+				if (bitCount >= 8) {
+					bitCount -= 8;
+					putByte((bits >> bitCount) & 0xff);
+				}
+			}
+		}
+
+		private void putByte(final int b) throws SAXException {
+			if (!zlib) {
+				putGidByte(b);
+				return;
+			}
+			compressed[compressedLength++] = (byte) b;
+			if (compressedLength == compressed.length) {
+				inflate();
+			}
+		}
+
+		private void inflate() throws SAXException {
+			inflater.setInput(compressed, 0, compressedLength);
+			compressedLength = 0;
+			try {
+				// the input array is reused, so it has to be consumed fully
+				while (!inflater.needsInput() && !inflater.finished()) {
+					int count = inflater.inflate(inflated);
+					for (int i = 0; i < count; i++) {
+						putGidByte(inflated[i] & 0xff);
+					}
+				}
+			} catch (DataFormatException e) {
+				throw new SAXException("Invalid compressed TMX layer data!", e);
+			}
+		}
+
+		// the tile IDs are 32 bit little endian values
+		private void putGidByte(final int b) {
+			gid |= b << (gidBytes * 8);
+			gidBytes++;
+			if (gidBytes == 4) {
+				putTile(gid);
+				gid = 0;
+				gidBytes = 0;
+			}
+		}
+
+		private void putTile(final int globalId) {
+			if (tile >= areaWidth * areaHeight) {
+				return;
+			}
+			int x = areaX + tile % areaWidth;
+			int y = areaY + tile / areaWidth;
+			tile++;
+			int id = globalId & GID_MASK;
+			int tileId = id == 0 ? 0 : id - firstGid + 1;
+			if (tileId > 0 && x >= 0 && y >= 0 && x < map.getWidth()
+					&& y < map.getHeight()) {
+				map.set(x, y, (short) Math.min(tileId, Short.MAX_VALUE));
+			}
+			// report the chunks of the completed chunk row
+			if (tile % areaWidth == 0) {
+				int row = tile / areaWidth;
+				if (row == areaHeight || (areaY + row) % TileChunk.SIZE == 0) {
+					reportChunks(areaX, areaX + areaWidth, areaY + row - 1);
+				}
+			}
+		}
+
+		private void reportChunks(final int x0, final int x1, final int y) {
+			// areas beside the map (e.g. chunks of an infinite map at negative
+			// positions) load no tiles
+			if (listener == null || y < 0 || y >= map.getHeight() || x1 <= 0
+					|| x0 >= map.getWidth()) {
+				return;
+			}
+			int column0 = Math.max(x0, 0) / TileChunk.SIZE;
+			int column1 = (Math.min(x1, map.getWidth()) - 1) / TileChunk.SIZE;
+			int row = y / TileChunk.SIZE;
+			for (int column = column0; column <= column1; column++) {
+				listener.chunkLoaded(map, column, row);
+			}
+		}
+
+		@Override
+		public void endElement(final String uri, final String localName,
+				final String qName) throws SAXException {
+			if (qName.equals("data")) {
+				finishArea();
+				inData = false;
+			} else if (qName.equals("chunk") && inData) {
+				finishArea();
+			} else if (qName.equals("layer")) {
+				map = null;
+			}
+		}
+
+		private void end() {
+			if (inflater != null) {
+				inflater.end();
+				inflater = null;
+			}
+		}
+
+		private void finishArea() throws SAXException {
+			if (csv && inNumber) {
+				putTile(value);
+				inNumber = false;
+			}
+			if (zlib && compressedLength > 0) {
+				inflate();
+			}
+			// the area of a chunk element is not touched again
+			tile = areaWidth * areaHeight;
+		}
+
+	}
+
+}
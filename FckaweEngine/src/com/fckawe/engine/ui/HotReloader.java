@@ -0,0 +1,134 @@
+package com.fckawe.engine.ui;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+
+import com.fckawe.engine.core.Configuration;
+import com.fckawe.engine.core.Session;
+import com.fckawe.engine.utils.ResourceWatcher;
+
+/**
+ * Reloads changed images, fonts and the configuration while the game is
+ * running (a development mode, see
+ * {@link Configuration.AssetsCategory#isHotReload()}). The watcher's thread
+ * decodes the changed resources in the background, only the bitmaps and
+ * fonts that use a changed image are decoded again. The user interface swaps
+ * them in before it renders the next frame (see {@link #apply()}), so a frame
+ * never shows a mix of old and new resources.
+ * 
+ * @author fckawe
+ */
+public class HotReloader implements ResourceWatcher.Listener {
+
+	private final UserInterface ui;
+
+	private final Logger logger;
+
+	private ResourceWatcher watcher;
+
+	// the configuration that was read again (null, if it didn't change)
+	private volatile Configuration reloadedConfiguration;
+
+	// true, if reloaded resources wait to be swapped in
+	private volatile boolean staged;
+
+	/**
+	 * Constructor to create a new hot reloader.
+	 * 
+	 * @param ui
+	 *            The user interface with the bitmaps and fonts to reload.
+	 */
+	public HotReloader(final UserInterface ui) {
+		this.ui = ui;
+		logger = Session.getSession().getMainLogger();
+	}
+
+	/**
+	 * Starts to watch the resource directory.
+	 * 
+	 * @return True, if the resources are watched, false, if they are not
+	 *         loaded from a directory (e.g. from a jar file).
+	 */
+	public boolean start() {
+		Configuration cfg = Session.getSession().getConfiguration();
+		File root = ResourceWatcher.getResourceRoot(cfg.getFilePath());
+		if (root == null) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("Hot reload is disabled, the resources are not loaded from a directory.");
+			}
+			return false;
+		}
+		watcher = new ResourceWatcher(root, this);
+		watcher.start();
+		return true;
+	}
+
+	/**
+	 * Stops to watch the resource directory.
+	 */
+	public void stop() {
+		if (watcher != null) {
+			watcher.stop();
+			watcher = null;
+		}
+	}
+
+	@Override
+	public void onResourcesChanged(final Set<String> paths) {
+		Session session = Session.getSession();
+		for (String path : paths) {
+			if (path.equals(session.getConfiguration().getFilePath())) {
+				try {
+					reloadedConfiguration = session.getFckaweFactory()
+							.newConfiguration();
+				} catch (RuntimeException e) {
+					// keep the current configuration
+					logger.error("Cannot reload the configuration!", e);
+				}
+				continue;
+			}
+			// bitmaps first, so the fonts don't take the image from a pack
+			int bitmaps = ui.getBitmaps().prepareReload(path);
+			boolean fonts = ui.getFonts().prepareReload(path);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Reloaded '" + path + "' (" + bitmaps
+						+ " bitmaps" + (fonts ? ", fonts" : "") + ").");
+			}
+		}
+		staged = true;
+	}
+
+	/**
+	 * Swaps the reloaded resources in. Has to be called by the user interface
+	 * between two frames.
+	 * 
+	 * @return True, if resources were swapped in (so the whole screen has to
+	 *         be redrawn).
+	 */
+	public boolean apply() {
+		if (!staged) {
+			return false;
+		}
+		staged = false;
+		List<String> ids = ui.getBitmaps().applyReloads();
+		boolean fonts = ui.getFonts().applyReload();
+		Configuration cfg = reloadedConfiguration;
+		if (cfg != null) {
+			reloadedConfiguration = null;
+			Session session = Session.getSession();
+			Configuration previous = session.getConfiguration();
+			session.setConfiguration(cfg);
+			ui.applyConfiguration(previous, cfg);
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("Swapped in " + ids.size() + " bitmaps"
+					+ (fonts ? ", the fonts" : "")
+					+ (cfg != null ? ", the configuration" : "") + ".");
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,355 @@
+package com.fckawe.engine.ui;
+
+import java.awt.event.KeyEvent;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import com.fckawe.engine.core.FrameProfiler;
+import com.fckawe.engine.core.Session;
+import com.fckawe.engine.game.Module;
+import com.fckawe.engine.grafix.Font;
+import com.fckawe.engine.grafix.Fonts;
+import com.fckawe.engine.input.InputHandler;
+import com.fckawe.engine.physics.Position;
+
+/**
+ * The performance overlay shows a graph of the latest frame times, the p95
+ * durations of the frame phases (see {@link FrameProfiler}), the number of
+ * entities and checked collision pairs as well as the heap usage and the
+ * garbage collections. It can be toggled with F3.
+ * <p>
+ * All texts are built within a reused StringBuilder and all positions are
+ * reused, so drawing the overlay does not create any objects. Heap and GC
+ * values are sampled once per second only.
+ * 
+ * @author fckawe
+ */
+public class PerfOverlay {
+
+	// number of nanoseconds per second
+	private static final long NANOS_PER_SECOND = 1000000000l;
+
+	private static final long BYTES_PER_MB = 1024l * 1024l;
+
+	private static final int DEFAULT_TARGET_FPS = 50;
+
+	// the number of frames shown by the graph (one pixel per frame)
+	private static final int GRAPH_WIDTH = 150;
+
+	// the graph shows frame times up to twice the frame budget
+	private static final int GRAPH_HEIGHT = 48;
+
+	// bars of the phases show durations up to the frame budget
+	private static final int BAR_WIDTH = 150;
+
+	private static final int BAR_HEIGHT = 10;
+
+	private static final int LABEL_LENGTH = 11;
+
+	private static final int PADDING = 3;
+
+	private static final int BACKGROUND_COLOR = 0xa0000000;
+
+	private static final int GOOD_COLOR = 0xff40c040;
+
+	private static final int WARN_COLOR = 0xffe0c020;
+
+	private static final int BAD_COLOR = 0xffe04040;
+
+	private static final int BUDGET_COLOR = 0xffc0c0c0;
+
+	private static final FrameProfiler.Phase[] PHASES = FrameProfiler.Phase
+			.values();
+
+	private final UserInterface ui;
+
+	private final FrameProfiler profiler;
+
+	private final List<GarbageCollectorMXBean> gcBeans;
+
+	// the frame budget (value in ns)
+	private final long framePeriod;
+
+	private final String[] phaseLabels;
+
+	private final StringBuilder text = new StringBuilder(64);
+
+	private final Position textPos = new Position();
+
+	// ring buffer of the latest frame times (values in ns)
+	private final long[] frameTimes = new long[GRAPH_WIDTH];
+
+	private int frameIndex;
+
+	private long lastFrameTime;
+
+	private long lastSampleTime;
+
+	private long heapUsed, heapMax, gcCount, gcTime;
+
+	private volatile boolean visible;
+
+	// true, if the toggle key was down within the previous tick
+	private boolean toggleKeyDown;
+
+	/**
+	 * Constructor to create a new performance overlay.
+	 * 
+	 * @param ui
+	 *            The user interface to draw the overlay on.
+	 * @param visible
+	 *            True, if the overlay should be visible right from the start.
+	 */
+	public PerfOverlay(final UserInterface ui, final boolean visible) {
+		this.ui = ui;
+		this.visible = visible;
+		Session session = Session.getSession();
+		profiler = session.getHeart().getProfiler();
+		gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+
+		int targetFps = session.getConfiguration().getHeartCat()
+				.getTargetFps();
+		framePeriod = NANOS_PER_SECOND
+				/ (targetFps > 0 ? targetFps : DEFAULT_TARGET_FPS);
+
+		phaseLabels = new String[PHASES.length];
+		for (int i = 0; i < PHASES.length; i++) {
+			StringBuilder label = new StringBuilder(PHASES[i].name().replace(
+					'_', ' '));
+			while (label.length() < LABEL_LENGTH) {
+				label.append(' ');
+			}
+			phaseLabels[i] = label.toString();
+		}
+	}
+
+	/**
+	 * Toggles the visibility of the overlay if F3 was pressed. Must be called
+	 * once per tick.
+	 * 
+	 * @param inputHandler
+	 *            The input handler.
+	 */
+	public void tick(final InputHandler inputHandler) {
+		boolean keyDown = inputHandler.isPressed(KeyEvent.VK_F3);
+		if (keyDown && !toggleKeyDown) {
+			visible = !visible;
+		}
+		toggleKeyDown = keyDown;
+	}
+
+	/**
+	 * Returns true, if the overlay is currently visible.
+	 * 
+	 * @return True, if the overlay is visible.
+	 */
+	public boolean isVisible() {
+		return visible;
+	}
+
+	/**
+	 * Sets the visibility of the overlay.
+	 * 
+	 * @param visible
+	 *            True, if the overlay should be visible.
+	 */
+	public void setVisible(final boolean visible) {
+		this.visible = visible;
+	}
+
+	/**
+	 * Records the time of the current frame and draws the overlay on the given
+	 * screen (if visible). Must be called once per rendered frame.
+	 * 
+	 * @param screen
+	 *            The screen to draw on.
+	 * @param module
+	 *            The currently running module (may be null).
+	 * @param x
+	 *            The left position of the overlay.
+	 * @param y
+	 *            The top position of the overlay.
+	 */
+	public void render(final Screen screen, final Module module, final int x,
+			final int y) {
+		recordFrame();
+		if (visible) {
+			draw(screen, module, x, y);
+		}
+	}
+
+	/**
+	 * Records the time of the current frame. Must be called once per rendered
+	 * frame, if the overlay is drawn by {@link #draw(Screen, Module, int, int)}
+	 * instead of {@link #render(Screen, Module, int, int)}.
+	 */
+	public void recordFrame() {
+		long now = System.nanoTime();
+		if (lastFrameTime != 0) {
+			frameTimes[frameIndex] = now - lastFrameTime;
+			frameIndex = (frameIndex + 1) % GRAPH_WIDTH;
+		}
+		lastFrameTime = now;
+	}
+
+	/**
+	 * Draws the overlay on the given screen (regardless of its visibility),
+	 * without recording the time of the current frame.
+	 * 
+	 * @param screen
+	 *            The screen to draw on.
+	 * @param module
+	 *            The currently running module (may be null).
+	 * @param x
+	 *            The left position of the overlay.
+	 * @param y
+	 *            The top position of the overlay.
+	 */
+	public void draw(final Screen screen, final Module module, final int x,
+			final int y) {
+		long now = System.nanoTime();
+		if (now - lastSampleTime >= NANOS_PER_SECOND) {
+			sampleMemory();
+			lastSampleTime = now;
+		}
+
+		Fonts fonts = ui.getFonts();
+		Font font = ui.getFont(null);
+		int lineHeight = font.getHeight() + font.getLineSpacing();
+		int barOffset = getBarOffset(font);
+		screen.transparencyFill(x, y, getWidth(), getHeight(),
+				BACKGROUND_COLOR);
+
+		int posX = x + PADDING;
+		int posY = y + PADDING;
+
+		text.setLength(0);
+		text.append("ENTITIES:");
+		text.append(module == null ? 0 : module.getEntityCount());
+		text.append(" PAIRS:");
+		text.append(module == null ? 0 : module.getCollisionPairCount());
+		drawText(fonts, screen, posX, posY);
+		posY += lineHeight;
+
+		text.setLength(0);
+		text.append("HEAP:").append(heapUsed).append('/').append(heapMax);
+		text.append("MB GC:").append(gcCount).append('/').append(gcTime);
+		text.append("MS");
+		drawText(fonts, screen, posX, posY);
+		posY += lineHeight;
+
+		text.setLength(0);
+		text.append("PHASE");
+		while (text.length() < LABEL_LENGTH) {
+			text.append(' ');
+		}
+		text.append("P95 MS");
+		drawText(fonts, screen, posX, posY);
+		posY += lineHeight;
+
+		int barX = posX + barOffset;
+		for (int i = 0; i < PHASES.length; i++) {
+			long p95 = profiler.getPercentile(PHASES[i], 95);
+			text.setLength(0);
+			text.append(phaseLabels[i]);
+			appendMillis(p95);
+			drawText(fonts, screen, posX, posY);
+
+			// a single phase turns yellow if it takes half of the budget
+			int barWidth = (int) Math.min(BAR_WIDTH, p95 * BAR_WIDTH
+					/ framePeriod);
+			screen.fill(barX, posY + (lineHeight - BAR_HEIGHT) / 2,
+					barWidth, BAR_HEIGHT, getColor(p95 * 2));
+			posY += lineHeight;
+		}
+
+		posY += PADDING;
+		renderGraph(screen, posX, posY);
+	}
+
+	/**
+	 * Returns the width of the overlay.
+	 * 
+	 * @return The width (in pixels).
+	 */
+	public int getWidth() {
+		return 2 * PADDING + getBarOffset(ui.getFont(null)) + BAR_WIDTH;
+	}
+
+	/**
+	 * Returns the height of the overlay.
+	 * 
+	 * @return The height (in pixels).
+	 */
+	public int getHeight() {
+		Font font = ui.getFont(null);
+		int lineHeight = font.getHeight() + font.getLineSpacing();
+		int lines = 3 + PHASES.length;
+		return 3 * PADDING + lines * lineHeight + GRAPH_HEIGHT;
+	}
+
+	private int getBarOffset(final Font font) {
+		int charWidth = font.getWidth() + font.getLetterSpacing();
+		// label, value (up to 5 characters) and a space before the bar
+		return (LABEL_LENGTH + 6) * charWidth;
+	}
+
+	private void renderGraph(final Screen screen, final int x, final int y) {
+		int bottom = y + GRAPH_HEIGHT;
+		for (int i = 0; i < GRAPH_WIDTH; i++) {
+			// oldest frame on the left
+			long frameTime = frameTimes[(frameIndex + i) % GRAPH_WIDTH];
+			int height = (int) Math.min(GRAPH_HEIGHT, frameTime
+					* GRAPH_HEIGHT / (2 * framePeriod));
+			screen.fill(x + i, bottom - height, 1, height, getColor(frameTime));
+		}
+		screen.fill(x, y + GRAPH_HEIGHT / 2, GRAPH_WIDTH, 1, BUDGET_COLOR);
+	}
+
+	private int getColor(final long frameTime) {
+		if (frameTime <= framePeriod) {
+			return GOOD_COLOR;
+		}
+		if (frameTime <= framePeriod + framePeriod / 2) {
+			return WARN_COLOR;
+		}
+		return BAD_COLOR;
+	}
+
+	private void drawText(final Fonts fonts, final Screen screen,
+			final int x, final int y) {
+		textPos.setX(x);
+		textPos.setY(y);
+		fonts.draw(screen, text, textPos);
+	}
+
+	/**
+	 * Appends the given duration in milliseconds with one decimal place to the
+	 * text (without creating any objects).
+	 * 
+	 * @param nanos
+	 *            The duration (value in ns).
+	 */
+	private void appendMillis(final long nanos) {
+		long tenths = nanos / 100000l;
+		text.append(tenths / 10).append('.').append(tenths % 10);
+	}
+
+	private void sampleMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		heapUsed = (runtime.totalMemory() - runtime.freeMemory())
+				/ BYTES_PER_MB;
+		heapMax = runtime.maxMemory() / BYTES_PER_MB;
+		long count = 0;
+		long time = 0;
+		for (int i = 0; i < gcBeans.size(); i++) {
+			GarbageCollectorMXBean gcBean = gcBeans.get(i);
+			count += Math.max(0, gcBean.getCollectionCount());
+			time += Math.max(0, gcBean.getCollectionTime());
+		}
+		gcCount = count;
+		gcTime = time;
+	}
+
+}
@@ -5,9 +5,16 @@ import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 
 import com.fckawe.engine.grafix.Bitmap;
+import com.fckawe.engine.grafix.BlendMode;
+import com.fckawe.engine.grafix.DrawCommandList;
+import com.fckawe.engine.grafix.ParallelRasterizer;
 
 /**
  * The screen is the main bitmap on which all the content gets pasted.
+ * <p>
+ * If a parallel rasterizer is set, all blits and fills are recorded instead
+ * of being drawn immediately. The recorded commands are rasterized in
+ * horizontal bands by several threads with {@link #flush()}.
  * 
  * @author fckawe
  */
@@ -15,6 +22,10 @@ public class Screen extends Bitmap {
 
 	private final BufferedImage image;
 
+	private final DrawCommandList commands = new DrawCommandList();
+
+	private ParallelRasterizer rasterizer;
+
 	/**
 	 * Constructor to create a new screen instance with the given dimension.
 	 * 
@@ -40,6 +51,94 @@ public class Screen extends Bitmap {
 		pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
 	}
 
+	/**
+	 * Sets the rasterizer with which the recorded draw commands are drawn.
+	 * Must not be called while drawing a frame.
+	 * 
+	 * @param rasterizer
+	 *            The parallel rasterizer or null, if all blits and fills
+	 *            should be drawn immediately.
+	 */
+	public void setRasterizer(final ParallelRasterizer rasterizer) {
+		flush();
+		this.rasterizer = rasterizer;
+	}
+
+	/**
+	 * Returns the rasterizer with which the recorded draw commands are drawn.
+	 * 
+	 * @return The parallel rasterizer or null, if all blits and fills are
+	 *         drawn immediately.
+	 */
+	public ParallelRasterizer getRasterizer() {
+		return rasterizer;
+	}
+
+	/**
+	 * Draws all recorded commands (if any). Must be called before the image of
+	 * the screen is used.
+	 */
+	public void flush() {
+		if (commands.getCount() > 0) {
+			rasterizer.rasterize(commands, this);
+			commands.clear();
+		}
+	}
+
+	@Override
+	public void clear(final int color) {
+		if (rasterizer == null) {
+			super.clear(color);
+		} else {
+			commands.addFill(0, 0, getWidth(), getHeight(), color, false, null);
+		}
+	}
+
+	@Override
+	protected void blitInternal(final Bitmap bitmap, final int srcX,
+			final int srcY, final int posX, final int posY,
+			final int insWidth, final int insHeight, final BlendMode mode) {
+		if (rasterizer == null) {
+			super.blitInternal(bitmap, srcX, srcY, posX, posY, insWidth,
+					insHeight, mode);
+		} else {
+			commands.addBlit(bitmap, srcX, srcY, posX, posY, insWidth,
+					insHeight, mode, this);
+		}
+	}
+
+	@Override
+	protected void scaledBlitInternal(final Bitmap bitmap, final int x,
+			final int y, final int dstWidth, final int dstHeight,
+			final BlendMode mode) {
+		if (rasterizer == null) {
+			super.scaledBlitInternal(bitmap, x, y, dstWidth, dstHeight, mode);
+		} else {
+			commands.addScaledBlit(bitmap, x, y, dstWidth, dstHeight, mode,
+					this);
+		}
+	}
+
+	@Override
+	protected void colorBlitInternal(final Bitmap bitmap, final int x,
+			final int y, final int color) {
+		if (rasterizer == null) {
+			super.colorBlitInternal(bitmap, x, y, color);
+		} else {
+			commands.addColorBlit(bitmap, x, y, color, this);
+		}
+	}
+
+	@Override
+	protected void fillInternal(final int x, final int y, final int bw,
+			final int bh, final int color, final boolean withTransparency) {
+		if (rasterizer == null) {
+			super.fillInternal(x, y, bw, bh, color, withTransparency);
+		} else {
+			commands.addFill(x, y, bw, bh, color, withTransparency, this);
+		}
+	}
+
 	/**
 	 * Returns the screen's current image.
 	 * 
@@ -5,19 +5,27 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Toolkit;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
 import java.awt.image.BufferStrategy;
-import java.util.Observable;
-import java.util.Observer;
 
 import com.fckawe.engine.core.Configuration;
+import com.fckawe.engine.core.FrameProfiler;
 import com.fckawe.engine.core.Heart;
+import com.fckawe.engine.core.HeartListener;
 import com.fckawe.engine.core.Session;
+import com.fckawe.engine.core.Watchdog;
 import com.fckawe.engine.game.Game;
+import com.fckawe.engine.game.RenderSnapshot;
+import com.fckawe.engine.grafix.Bitmap;
 import com.fckawe.engine.grafix.Bitmaps;
+import com.fckawe.engine.grafix.DirtyRegions;
 import com.fckawe.engine.grafix.Font;
 import com.fckawe.engine.grafix.Fonts;
+import com.fckawe.engine.grafix.ParallelRasterizer;
 import com.fckawe.engine.input.InputHandler;
 import com.fckawe.engine.physics.Position;
+import com.fckawe.engine.utils.TripleBuffer;
 
 /**
  * The main user interface of the game. The central point for all inputs and
@@ -25,12 +33,32 @@ import com.fckawe.engine.physics.Position;
  * 
  * @author fckawe
  */
-public class UserInterface extends Canvas implements Observer {
+public class UserInterface extends Canvas implements HeartListener {
 
 	private static final long serialVersionUID = -5961759679622983414L;
 
+	// the name the watchdog reports if the user interface stalls a frame
+	private static final String OFFENDER_NAME = "user interface";
+
+	// the maximum number of separate dirty rectangles per frame
+	private static final int MAX_DIRTY_RECTS = 32;
+
+	// the whole screen gets redrawn if more than this share of it is dirty
+	private static final double MAX_DIRTY_SHARE = 0.5;
+
+	// the maximum number of characters of the FPS text ("FPS:" and 4 digits)
+	private static final int FPS_TEXT_LENGTH = 8;
+
+	private static final int PERF_OVERLAY_X = 5;
+
+	private static final int PERF_OVERLAY_Y = 25;
+
 	protected Game game;
 
+	private final FrameProfiler profiler;
+
+	private final Watchdog watchdog;
+
 	private Frame frame;
 	private final Screen screen;
 	private int screenTranslatedX;
@@ -46,6 +74,31 @@ public class UserInterface extends Canvas implements Observer {
 
 	private boolean showFps;
 	private Position showFpsPosition;
+	private final StringBuilder fpsText = new StringBuilder(16);
+
+	private PerfOverlay perfOverlay;
+
+	// the regions to redraw with the current frame (null, if the whole
+	// screen is redrawn with every frame)
+	private DirtyRegions dirtyRegions;
+
+	// the regions redrawn with the previous frame and the regions to copy to
+	// the display with the current frame
+	private DirtyRegions shownRegions, blitRegions;
+
+	// true, if the next frame has to redraw the whole screen
+	private volatile boolean fullRedraw = true;
+
+	// the FPS value shown by the latest frame
+	private int renderedFps = -1;
+
+	private boolean perfOverlayWasVisible;
+
+	// snapshots passed from the tick to the render thread (decoupled mode)
+	private TripleBuffer<RenderSnapshot> snapshots;
+
+	// reloads changed resources (null, if hot reloading is disabled)
+	private HotReloader hotReloader;
 
 	/**
 	 * Constructor to create a new user interface.
@@ -62,9 +115,20 @@ public class UserInterface extends Canvas implements Observer {
 		screenTranslatedX = (int) (getWidth() - uiDimension.getWidth()) / 2;
 		screenTranslatedY = (int) (getHeight() - uiDimension.getHeight()) / 2;
 		screen = new Screen(screenDimension);
+		Bitmap.setBlender(Session.getSession().getFckaweFactory().newBlender());
+		int rasterThreads = Session.getSession().getConfiguration()
+				.getScreenCat().getRasterThreads();
+		if (rasterThreads == 0) {
+			rasterThreads = Runtime.getRuntime().availableProcessors();
+		}
+		if (rasterThreads > 1) {
+			screen.setRasterizer(createRasterizer(rasterThreads));
+		}
 
 		initGrafix();
 
+		profiler = Session.getSession().getHeart().getProfiler();
+		watchdog = Session.getSession().getHeart().getWatchdog();
 		game = Session.getSession().getFckaweFactory().newGame(this);
 	}
 
@@ -72,7 +136,13 @@ public class UserInterface extends Canvas implements Observer {
 	 * Initializes the grafix stuff.
 	 */
 	protected void initGrafix() {
+		Configuration cfg = Session.getSession().getConfiguration();
 		bitmaps = createBitmaps();
+		bitmaps.setPremultiplied(cfg.getScreenCat().isPremultipliedAlpha());
+		bitmaps.setDecodeThreads(cfg.getAssetsCat().getDecodeThreads());
+		bitmaps.getCache().setBudget(
+				cfg.getAssetsCat().getCacheBudget() * 1024L * 1024L);
+		bitmaps.addPack(cfg.getAssetsCat().getSpritePack());
 		fonts = createFonts();
 		fonts.loadFonts();
 	}
@@ -95,6 +165,37 @@ public class UserInterface extends Canvas implements Observer {
 		return new Bitmaps();
 	}
 
+	/**
+	 * Creates the performance overlay.
+	 * 
+	 * @param visible
+	 *            True, if the overlay should be visible right from the start.
+	 * @return The newly created performance overlay.
+	 */
+	protected PerfOverlay createPerfOverlay(final boolean visible) {
+		return new PerfOverlay(this, visible);
+	}
+
+	/**
+	 * Creates the hot reloader which reloads changed resources.
+	 * 
+	 * @return The newly created hot reloader.
+	 */
+	protected HotReloader createHotReloader() {
+		return new HotReloader(this);
+	}
+
+	/**
+	 * Creates the rasterizer which draws the screen in parallel.
+	 * 
+	 * @param threads
+	 *            The number of threads to rasterize with.
+	 * @return The newly created rasterizer.
+	 */
+	protected ParallelRasterizer createRasterizer(final int threads) {
+		return new ParallelRasterizer(threads);
+	}
+
 	/**
 	 * Creates the input handler.
 	 * 
@@ -113,10 +214,30 @@ public class UserInterface extends Canvas implements Observer {
 		Configuration cfg = session.getConfiguration();
 		showFps = cfg.getScreenCat().isShowFps();
 		showFpsPosition = new Position(5, 5);
+		perfOverlay = createPerfOverlay(cfg.getScreenCat().isShowPerfOverlay());
+		if (cfg.getHeartCat().isRenderThread()) {
+			snapshots = new TripleBuffer<RenderSnapshot>(new RenderSnapshot(),
+					new RenderSnapshot(), new RenderSnapshot());
+		} else if (cfg.getScreenCat().isDirtyRects()) {
+			// the render thread must not read the entities, so dirty
+			// rectangles are only supported without render thread
+			int width = screen.getWidth();
+			int height = screen.getHeight();
+			dirtyRegions = new DirtyRegions(width, height, MAX_DIRTY_RECTS);
+			shownRegions = new DirtyRegions(width, height, MAX_DIRTY_RECTS);
+			blitRegions = new DirtyRegions(width, height, MAX_DIRTY_RECTS);
+		}
 		frame.setTitle(cfg.getApplicationCat().getName() + " [powered by "
 				+ session.getEngineName() + "]");
 		inputHandler = createInputHandler();
 		addKeyListener(inputHandler);
+		addKeyListener(new TimeControlListener());
+		if (cfg.getAssetsCat().isHotReload()) {
+			hotReloader = createHotReloader();
+			if (!hotReloader.start()) {
+				hotReloader = null;
+			}
+		}
 		frame.setVisible(true);
 	}
 
@@ -125,8 +246,17 @@ public class UserInterface extends Canvas implements Observer {
 	 * close).
 	 */
 	public void stop() {
+		if (hotReloader != null) {
+			hotReloader.stop();
+		}
 		game.stop();
 		frame.close();
+		ParallelRasterizer rasterizer = screen.getRasterizer();
+		if (rasterizer != null) {
+			screen.setRasterizer(null);
+			rasterizer.shutdown();
+		}
+		bitmaps.shutdown();
 		Session.getSession().getMainLogger().info("User interface stopped.");
 	}
 
@@ -153,65 +283,169 @@ public class UserInterface extends Canvas implements Observer {
 	}
 
 	@Override
-	public void update(final Observable observable, final Object data) {
-		if (observable == Session.getSession().getHeart()) {
-			Heart.Event event = null;
-			Object eventData = null;
-			if (data instanceof Heart.Event) {
-				event = (Heart.Event) data;
-			} else if (data instanceof Heart.EventData) {
-				Heart.EventData o = (Heart.EventData) data;
-				event = o.getEvent();
-				eventData = o.getData();
-			} else {
-				throw new IllegalStateException("Unexpected data type: "
-						+ data.getClass().getName());
-			}
+	public void onHeartStart() {
+		setFocusTraversalKeysEnabled(false);
+		requestFocus();
+	}
 
-			switch (event) {
-			case HEART_START:
-				setFocusTraversalKeysEnabled(false);
-				requestFocus();
-				break;
-			case TICK:
-				long elapsedTime = (Long) eventData;
-				tick(elapsedTime);
-				break;
-			case RENDER:
-				render();
-				break;
-			case SHOW:
-				showRenderedImage();
-				break;
-			case FPS_UPDATED:
-				framesPerSecond = (Double) eventData;
-				break;
-			default:
-				// do nothing
-				break;
-			}
+	@Override
+	public void onTick(final long nanos) {
+		tick(nanos);
+		if (snapshots != null) {
+			RenderSnapshot snapshot = snapshots.getWriteBuffer();
+			snapshot.clear();
+			game.snapshot(snapshot);
+			snapshots.publish();
 		}
 	}
 
+	@Override
+	public void onRender(final double alpha) {
+		render(alpha);
+	}
+
+	@Override
+	public void onShow() {
+		showRenderedImage();
+	}
+
+	@Override
+	public void onFpsUpdated(final double fps) {
+		framesPerSecond = fps;
+	}
+
 	/**
-	 * Clears and newly renders the screen of the user interface.
+	 * Clears and newly renders the screen of the user interface. If dirty
+	 * rectangles are enabled, only the regions that changed since the
+	 * previous frame are cleared, redrawn and copied to the display.
+	 * 
+	 * @param alpha
+	 *            The interpolation factor (0.0 to 1.0) between the previous
+	 *            and the current state of the game logic.
 	 */
-	protected void render() {
-		screen.clear(0);
-
-		game.render(screen);
+	protected void render(final double alpha) {
+		if (hotReloader != null && hotReloader.apply()) {
+			fullRedraw = true;
+		}
+		long start = profiler.start();
+		watchdog.enter(FrameProfiler.Phase.RENDER, game.getCurrentModule());
+		boolean partial = collectDirtyRegions(alpha);
+		if (partial) {
+			game.render(screen, alpha, dirtyRegions);
+		} else {
+			screen.clear(0);
+			if (snapshots == null) {
+				game.render(screen, alpha);
+			} else {
+				game.render(screen, snapshots.acquire(), alpha);
+			}
+		}
+		profiler.stop(FrameProfiler.Phase.RENDER, start);
 
+		start = profiler.start();
+		watchdog.enter(FrameProfiler.Phase.FONTS, OFFENDER_NAME);
 		if (showFps) {
-			fonts.draw(screen, "FPS:" + (int) framesPerSecond, showFpsPosition);
+			fpsText.setLength(0);
+			fpsText.append("FPS:").append((int) framesPerSecond);
+		}
+		perfOverlay.recordFrame();
+		if (partial) {
+			for (int i = 0; i < dirtyRegions.getCount(); i++) {
+				screen.setClip(dirtyRegions.getX(i), dirtyRegions.getY(i),
+						dirtyRegions.getWidth(i), dirtyRegions.getHeight(i));
+				renderTexts();
+			}
+			screen.resetClip();
+		} else {
+			renderTexts();
+		}
+		profiler.stop(FrameProfiler.Phase.FONTS, start);
+
+		if (screen.getRasterizer() != null) {
+			start = profiler.start();
+			watchdog.enter(FrameProfiler.Phase.RASTER, OFFENDER_NAME);
+			screen.flush();
+			profiler.stop(FrameProfiler.Phase.RASTER, start);
 		}
 
 		BufferStrategy bs = getBufferStrategy();
 		if (bs == null) {
 			createBufferStrategy(2);
+			fullRedraw = true;
 		} else {
+			start = profiler.start();
+			watchdog.enter(FrameProfiler.Phase.BLIT, OFFENDER_NAME);
 			Graphics g = bs.getDrawGraphics();
-			render(g);
+			if (partial && !bs.contentsRestored()) {
+				// the back buffer may still contain the frame before the
+				// previous one, so the previous regions have to be copied too
+				blitRegions.clear();
+				blitRegions.addAll(dirtyRegions);
+				blitRegions.addAll(shownRegions);
+				render(g, blitRegions);
+			} else {
+				render(g);
+			}
 			g.dispose();
+			profiler.stop(FrameProfiler.Phase.BLIT, start);
+		}
+		if (dirtyRegions != null) {
+			shownRegions.clear();
+			shownRegions.addAll(dirtyRegions);
+		}
+	}
+
+	/**
+	 * Collects the regions of the screen that have to be redrawn with the
+	 * current frame.
+	 * 
+	 * @param alpha
+	 *            The interpolation factor (0.0 to 1.0) between the previous
+	 *            and the current state of the game logic.
+	 * @return True, if only the collected regions have to be redrawn, false
+	 *         if the whole screen has to be redrawn.
+	 */
+	private boolean collectDirtyRegions(final double alpha) {
+		if (dirtyRegions == null) {
+			return false;
+		}
+		dirtyRegions.clear();
+		boolean complete = game.collectDirtyRegions(screen, dirtyRegions,
+				alpha);
+
+		Font font = fonts.getFont(null);
+		if (showFps && (int) framesPerSecond != renderedFps) {
+			renderedFps = (int) framesPerSecond;
+			dirtyRegions.add(showFpsPosition.getX(), showFpsPosition.getY(),
+					FPS_TEXT_LENGTH
+							* (font.getWidth() + font.getLetterSpacing()),
+					font.getHeight());
+		}
+		boolean perfOverlayVisible = perfOverlay.isVisible();
+		if (perfOverlayVisible || perfOverlayWasVisible) {
+			// the overlay changes with every frame while it's visible
+			dirtyRegions.add(PERF_OVERLAY_X, PERF_OVERLAY_Y,
+					perfOverlay.getWidth(), perfOverlay.getHeight());
+		}
+		perfOverlayWasVisible = perfOverlayVisible;
+
+		int maxArea = (int) (screen.getWidth() * screen.getHeight()
+				* MAX_DIRTY_SHARE);
+		if (!complete || fullRedraw || dirtyRegions.getArea() > maxArea) {
+			fullRedraw = false;
+			dirtyRegions.addAll();
+			return false;
+		}
+		return true;
+	}
+
+	private void renderTexts() {
+		if (showFps) {
+			fonts.draw(screen, fpsText, showFpsPosition);
+		}
+		if (perfOverlay.isVisible()) {
+			perfOverlay.draw(screen, game.getCurrentModule(), PERF_OVERLAY_X,
+					PERF_OVERLAY_Y);
 		}
 	}
 
@@ -225,12 +459,38 @@ public class UserInterface extends Canvas implements Observer {
 		g.drawImage(screen.getImage(), 0, 0, width, height, null);
 	}
 
+	private synchronized void render(final Graphics g,
+			final DirtyRegions regions) {
+		int width = getWidth();
+		int height = getHeight();
+		int screenWidth = screen.getWidth();
+		int screenHeight = screen.getHeight();
+
+		g.translate(screenTranslatedX, screenTranslatedY);
+		g.clipRect(0, 0, width, height);
+
+		for (int i = 0; i < regions.getCount(); i++) {
+			int sx0 = regions.getX(i);
+			int sy0 = regions.getY(i);
+			int sx1 = sx0 + regions.getWidth(i);
+			int sy1 = sy0 + regions.getHeight(i);
+			g.drawImage(screen.getImage(), sx0 * width / screenWidth, sy0
+					* height / screenHeight, sx1 * width / screenWidth, sy1
+					* height / screenHeight, sx0, sy0, sx1, sy1, null);
+		}
+	}
+
 	private void showRenderedImage() {
+		long start = profiler.start();
+		watchdog.enter(FrameProfiler.Phase.SHOW, OFFENDER_NAME);
 		BufferStrategy bs = getBufferStrategy();
 		if (bs != null && !bs.contentsLost()) {
 			bs.show();
+		} else {
+			fullRedraw = true;
 		}
 		Toolkit.getDefaultToolkit().sync();
+		profiler.stop(FrameProfiler.Phase.SHOW, start);
 	}
 
 	/**
@@ -246,15 +506,47 @@ public class UserInterface extends Canvas implements Observer {
 	 * Performs a tick. Updates the game logic by one step.
 	 * 
 	 * @param elapsedTime
-	 *            The time with which the statistical FPS can be calculated.
+	 *            The time (in ns) with which the statistical FPS can be
+	 *            calculated.
 	 */
 	public void tick(final long elapsedTime) {
 		if (inputHandler != null) {
+			long start = profiler.start();
+			watchdog.enter(FrameProfiler.Phase.INPUT_TICK, OFFENDER_NAME);
 			inputHandler.tick();
+			perfOverlay.tick(inputHandler);
+			profiler.stop(FrameProfiler.Phase.INPUT_TICK, start);
 		}
 		game.tick(inputHandler, elapsedTime);
 	}
 
+	/**
+	 * Applies the values of a reloaded configuration that can change while
+	 * the game is running (see {@link HotReloader}). All other values are
+	 * applied with the next start.
+	 * 
+	 * @param previous
+	 *            The configuration used so far.
+	 * @param cfg
+	 *            The reloaded configuration.
+	 */
+	protected void applyConfiguration(final Configuration previous,
+			final Configuration cfg) {
+		showFps = cfg.getScreenCat().isShowFps();
+		if (cfg.getScreenCat().isShowPerfOverlay() != previous.getScreenCat()
+				.isShowPerfOverlay()) {
+			perfOverlay.setVisible(cfg.getScreenCat().isShowPerfOverlay());
+		}
+		// don't override the time controls if the value didn't change
+		if (cfg.getHeartCat().getTimeScale() != previous.getHeartCat()
+				.getTimeScale()) {
+			Session.getSession().getHeart()
+					.setTimeScale(cfg.getHeartCat().getTimeScale());
+		}
+		bitmaps.getCache().setBudget(
+				cfg.getAssetsCat().getCacheBudget() * 1024L * 1024L);
+	}
+
 	/**
 	 * Returns the fonts interface.
 	 * 
@@ -302,4 +594,48 @@ public class UserInterface extends Canvas implements Observer {
 		return framesPerSecond;
 	}
 
+	/**
+	 * Key listener for the time controls of the heart: F5 pauses and resumes,
+	 * F6 performs a single tick while paused, F7 halves and F8 doubles the
+	 * time scale. The keys are handled within the AWT event thread, so they
+	 * work while the ticks are paused as well.
+	 * 
+	 * @author fckawe
+	 */
+	private class TimeControlListener extends KeyAdapter {
+
+		private static final double MIN_TIME_SCALE = 1.0 / 16.0;
+
+		private static final double MAX_TIME_SCALE = 64.0;
+
+		@Override
+		public void keyPressed(final KeyEvent event) {
+			Heart heart = Session.getSession().getHeart();
+			switch (event.getKeyCode()) {
+			case KeyEvent.VK_F5:
+				if (heart.isPaused()) {
+					heart.resume();
+				} else {
+					heart.pause();
+				}
+				break;
+			case KeyEvent.VK_F6:
+				heart.step();
+				break;
+			case KeyEvent.VK_F7:
+				heart.setTimeScale(Math.max(MIN_TIME_SCALE,
+						heart.getTimeScale() / 2));
+				break;
+			case KeyEvent.VK_F8:
+				heart.setTimeScale(Math.min(MAX_TIME_SCALE,
+						heart.getTimeScale() * 2));
+				break;
+			default:
+				return;
+			}
+			event.consume();
+		}
+
+	}
+
 }
@@ -1,8 +1,21 @@
 package com.fckawe.engine.utils;
 
 import com.fckawe.engine.core.Configuration;
+import com.fckawe.engine.core.FramePacer;
+import com.fckawe.engine.core.FrameProfiler;
+import com.fckawe.engine.core.HeadlessHeart;
 import com.fckawe.engine.core.Heart;
+import com.fckawe.engine.core.HybridFramePacer;
+import com.fckawe.engine.core.Session;
+import com.fckawe.engine.core.SleepFramePacer;
+import com.fckawe.engine.core.Watchdog;
 import com.fckawe.engine.game.Game;
+import com.fckawe.engine.game.Scheduler;
+import com.fckawe.engine.grafix.Bitmaps;
+import com.fckawe.engine.grafix.Blender;
+import com.fckawe.engine.grafix.ScalarBlender;
+import com.fckawe.engine.grafix.SwarBlender;
+import com.fckawe.engine.physics.WorldBounds;
 import com.fckawe.engine.ui.UserInterface;
 
 /**
@@ -70,14 +83,116 @@ public class FckaweFactory {
 	}
 
 	/**
-	 * Creates and returns a new Heart instance.
+	 * Creates and returns a new Heart instance. If the configuration requests
+	 * a headless run, a headless heart is created instead.
 	 * 
 	 * @return A newly created Heart instance.
 	 */
 	public Heart newHeart(final Heart.StopListener exitListener) {
+		Configuration cfg = Session.getSession().getConfiguration();
+		if (cfg.getHeartCat().isHeadless()) {
+			return newHeadlessHeart(exitListener);
+		}
 		return new Heart(exitListener);
 	}
 
+	/**
+	 * Creates and returns a new HeadlessHeart instance.
+	 * 
+	 * @return A newly created HeadlessHeart instance.
+	 */
+	public HeadlessHeart newHeadlessHeart(final Heart.StopListener exitListener) {
+		return new HeadlessHeart(exitListener);
+	}
+
+	/**
+	 * Creates and returns a new FramePacer instance, as configured within the
+	 * "heart" category.
+	 * 
+	 * @return A newly created FramePacer instance.
+	 */
+	public FramePacer newFramePacer() {
+		Configuration cfg = Session.getSession().getConfiguration();
+		String name = cfg.getHeartCat().getFramePacer();
+		if (name == null || name.equalsIgnoreCase("hybrid")) {
+			return new HybridFramePacer();
+		}
+		if (name.equalsIgnoreCase("sleep")) {
+			return new SleepFramePacer();
+		}
+		throw new RuntimeException("Unknown frame pacer '" + name + "'!");
+	}
+
+	/**
+	 * Creates and returns a new Blender instance, as configured within the
+	 * "screen" category.
+	 * 
+	 * @return A newly created Blender instance.
+	 */
+	public Blender newBlender() {
+		Configuration cfg = Session.getSession().getConfiguration();
+		String name = cfg.getScreenCat().getBlender();
+		if (name == null || name.equalsIgnoreCase("swar")) {
+			return new SwarBlender();
+		}
+		if (name.equalsIgnoreCase("scalar")) {
+			return new ScalarBlender();
+		}
+		throw new RuntimeException("Unknown blender '" + name + "'!");
+	}
+
+	/**
+	 * Creates and returns a new FrameProfiler instance, as configured within
+	 * the "heart" category.
+	 * 
+	 * @return A newly created FrameProfiler instance.
+	 */
+	public FrameProfiler newFrameProfiler() {
+		Configuration cfg = Session.getSession().getConfiguration();
+		return new FrameProfiler(cfg.getHeartCat().isProfiling(), cfg
+				.getHeartCat().getProfilerWindow());
+	}
+
+	/**
+	 * Creates and returns a new Watchdog instance, as configured within the
+	 * "heart" category.
+	 * 
+	 * @return A newly created Watchdog instance.
+	 */
+	public Watchdog newWatchdog() {
+		Configuration cfg = Session.getSession().getConfiguration();
+		return new Watchdog(cfg.getHeartCat().isWatchdog(),
+				getFrameBudget(cfg));
+	}
+
+	/**
+	 * Creates and returns a new Scheduler instance with the frame budget
+	 * configured within the "heart" category.
+	 * 
+	 * @return A newly created Scheduler instance.
+	 */
+	public Scheduler newScheduler() {
+		Configuration cfg = Session.getSession().getConfiguration();
+		return new Scheduler(getFrameBudget(cfg));
+	}
+
+	/**
+	 * Returns the configured frame budget or, if none is configured, the
+	 * frame period given by the target FPS.
+	 * 
+	 * @param cfg
+	 *            The configuration.
+	 * @return The frame budget (value in ns).
+	 */
+	protected long getFrameBudget(final Configuration cfg) {
+		int frameBudget = cfg.getHeartCat().getFrameBudget();
+		if (frameBudget > 0) {
+			return frameBudget * 1000000l;
+		}
+		int targetFps = cfg.getHeartCat().getTargetFps();
+		return 1000000000l / (targetFps > 0 ? targetFps : 50);
+	}
+
 	/**
 	 * Creates and returns a new UserInterface instance.
 	 * 
@@ -99,4 +214,19 @@ public class FckaweFactory {
 		return new Game(ui);
 	}
 
+	/**
+	 * Creates and returns a new Game instance without user interface
+	 * (headless game).
+	 * 
+	 * @param worldBounds
+	 *            The bounds of the game's world.
+	 * @param bitmaps
+	 *            The bitmaps interface.
+	 * 
+	 * @return A newly created Game instance.
+	 */
+	public Game newGame(final WorldBounds worldBounds, final Bitmaps bitmaps) {
+		return new Game(worldBounds, bitmaps);
+	}
+
 }
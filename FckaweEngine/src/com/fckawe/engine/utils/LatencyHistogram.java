@@ -0,0 +1,175 @@
+package com.fckawe.engine.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations (or any other non-negative values) with a fixed
+ * memory footprint. Values are counted in log-linear buckets: every power of
+ * two is split into 16 sub-buckets, so percentiles are reported with a
+ * relative error of less than 6.25%. Recording a value never allocates and
+ * never locks, so values may be recorded from several threads while another
+ * thread reads the percentiles (which are not an atomic snapshot then).
+ * 
+ * @author fckawe
+ */
+public class LatencyHistogram {
+
+	// number of bits used for the sub-buckets of a power of two
+	private static final int SUB_BUCKET_BITS = 4;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	// enough buckets for all positive long values
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong sum = new AtomicLong();
+
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a value.
+	 * 
+	 * @param value
+	 *            The value to record (negative values are recorded as 0).
+	 */
+	public void record(final long value) {
+		long v = value < 0 ? 0 : value;
+		counts.incrementAndGet(bucketIndex(v));
+		count.incrementAndGet();
+		sum.addAndGet(v);
+		updateMax(v);
+	}
+
+	/**
+	 * Adds all values recorded by the given histogram to this histogram.
+	 * 
+	 * @param other
+	 *            The histogram whose values to add.
+	 */
+	public void add(final LatencyHistogram other) {
+		for (int i = 0; i < BUCKETS; i++) {
+			long c = other.counts.get(i);
+			if (c != 0) {
+				counts.addAndGet(i, c);
+			}
+		}
+		count.addAndGet(other.count.get());
+		sum.addAndGet(other.sum.get());
+		updateMax(other.max.get());
+	}
+
+	/**
+	 * Removes all recorded values.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+
+	private void updateMax(final long value) {
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 * 
+	 * @return The number of recorded values.
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Returns the maximum of all recorded values (exact value).
+	 * 
+	 * @return The maximum value or 0, if nothing was recorded.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns the mean of all recorded values (exact value).
+	 * 
+	 * @return The mean value or 0, if nothing was recorded.
+	 */
+	public double getMean() {
+		long c = count.get();
+		return c == 0 ? 0.0 : sum.get() / (double) c;
+	}
+
+	/**
+	 * Returns the (approximated) value below which the given percentage of
+	 * all recorded values lies.
+	 * 
+	 * @param percentile
+	 *            The percentile (0.0 to 100.0), e.g. 99.0 for the p99 value.
+	 * @return The approximated percentile value or 0, if nothing was
+	 *         recorded.
+	 */
+	public long getPercentile(final double percentile) {
+		long c = count.get();
+		if (c == 0) {
+			return 0;
+		}
+		long m = max.get();
+		long rank = (long) Math.ceil(percentile / 100.0 * c);
+		rank = Math.max(1, Math.min(rank, c));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(bucketValue(i), m);
+			}
+		}
+		return m;
+	}
+
+	/**
+	 * Returns the index of the bucket which counts the given value.
+	 * 
+	 * @param value
+	 *            The (non-negative) value.
+	 * @return The index of the bucket.
+	 */
+	protected static int bucketIndex(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exp = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exp - SUB_BUCKET_BITS;
+		int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+		return (shift + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * Returns the value that represents the given bucket (the middle of the
+	 * bucket's value range).
+	 * 
+	 * @param index
+	 *            The index of the bucket.
+	 * @return The representative value of the bucket.
+	 */
+	protected static long bucketValue(final int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long sub = index % SUB_BUCKETS;
+		long lower = (SUB_BUCKETS + sub) << shift;
+		return lower + ((1l << shift) >> 1);
+	}
+
+}
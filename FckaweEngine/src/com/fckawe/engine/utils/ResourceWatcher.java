@@ -0,0 +1,239 @@
+package com.fckawe.engine.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+
+import com.fckawe.engine.core.Session;
+
+/**
+ * Watches a resource directory (and all of its sub directories) for changed
+ * files with a {@link WatchService}. The changes are collected until no
+ * further change happened for a short while (editors often write a file in
+ * several steps), then the listener gets the resource paths of the changed
+ * files (like "/images/icon.png"). The listener is called from within the
+ * watcher's thread.
+ * 
+ * @author fckawe
+ */
+public class ResourceWatcher implements Runnable {
+
+	// the time (in ms) without changes before the listener is called
+	private static final long SETTLE_TIME = 100;
+
+	private final File root;
+
+	private final Listener listener;
+
+	private final Logger logger;
+
+	private WatchService watchService;
+
+	// the registered directories by their watch keys
+	private final Map<WatchKey, Path> directories = new HashMap<WatchKey, Path>();
+
+	private Thread watcherThread;
+
+	/**
+	 * Constructor to create a new resource watcher.
+	 * 
+	 * @param root
+	 *            The resource directory to watch.
+	 * @param listener
+	 *            The listener to inform about changed resources.
+	 */
+	public ResourceWatcher(final File root, final Listener listener) {
+		this.root = root;
+		this.listener = listener;
+		Session session = Session.getSession();
+		logger = session == null ? null : session.getMainLogger();
+	}
+
+	/**
+	 * Returns the directory the given resource is loaded from (the root of
+	 * all resource paths), e.g. to watch it.
+	 * 
+	 * @param resource
+	 *            The path of a resource (like "/config.xml").
+	 * @return The resource directory or null, if the resource is not loaded
+	 *         from a directory (but e.g. from a jar file).
+	 */
+	public static File getResourceRoot(final String resource) {
+		URL url = Session.class.getResource(resource);
+		if (url == null || !"file".equals(url.getProtocol())) {
+			return null;
+		}
+		File file;
+		try {
+			file = new File(url.toURI());
+		} catch (URISyntaxException e) {
+			return null;
+		}
+		// one level up per path element of the resource
+		String[] parts = resource.split("/");
+		for (int i = 0; i < parts.length && file != null; i++) {
+			if (!parts[i].isEmpty()) {
+				file = file.getParentFile();
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * Starts to watch the resource directory in a separate thread.
+	 */
+	public void start() {
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+			register(root.toPath());
+		} catch (IOException e) {
+			throw new RuntimeException("Cannot watch resource directory '"
+					+ root + "'!", e);
+		}
+		watcherThread = new Thread(this, "Resource watcher");
+		// must not keep the application alive
+		watcherThread.setDaemon(true);
+		watcherThread.start();
+		if (logger != null && logger.isInfoEnabled()) {
+			logger.info("Watching resource directory '" + root + "'.");
+		}
+	}
+
+	/**
+	 * Stops watching the resource directory.
+	 */
+	public void stop() {
+		if (watcherThread != null) {
+			watcherThread.interrupt();
+			watcherThread = null;
+		}
+		if (watchService != null) {
+			try {
+				watchService.close();
+			} catch (IOException e) {
+				// nothing to do, the service is gone anyway
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+		Set<String> changes = new LinkedHashSet<String>();
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				WatchKey key = changes.isEmpty() ? watchService.take()
+						: watchService.poll(SETTLE_TIME, TimeUnit.MILLISECONDS);
+				if (key == null) {
+					// settled: no further changes
+					notifyListener(changes);
+					changes = new LinkedHashSet<String>();
+					continue;
+				}
+				collect(key, changes);
+			}
+		} catch (InterruptedException e) {
+			// stopped
+		} catch (ClosedWatchServiceException e) {
+			// stopped
+		}
+	}
+
+	private void collect(final WatchKey key, final Set<String> changes) {
+		Path dir = directories.get(key);
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (dir == null
+					|| event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				continue;
+			}
+			Path path = dir.resolve((Path) event.context());
+			File file = path.toFile();
+			if (file.isDirectory()) {
+				if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+					try {
+						register(path);
+					} catch (IOException e) {
+						if (logger != null) {
+							logger.error("Cannot watch directory '" + path
+									+ "'!", e);
+						}
+					}
+				}
+			} else if (file.isFile()) {
+				changes.add(getResourcePath(path));
+			}
+		}
+		if (!key.reset()) {
+			directories.remove(key);
+		}
+	}
+
+	private void register(final Path dir) throws IOException {
+		WatchKey key = dir.register(watchService,
+				StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY);
+		directories.put(key, dir);
+		File[] files = dir.toFile().listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.isDirectory()) {
+					register(file.toPath());
+				}
+			}
+		}
+	}
+
+	private String getResourcePath(final Path path) {
+		StringBuilder resource = new StringBuilder();
+		for (Path part : root.toPath().relativize(path)) {
+			resource.append('/').append(part.toString());
+		}
+		return resource.toString();
+	}
+
+	private void notifyListener(final Set<String> changes) {
+		if (logger != null && logger.isInfoEnabled()) {
+			logger.info("Changed resources: " + changes);
+		}
+		try {
+			listener.onResourcesChanged(changes);
+		} catch (RuntimeException e) {
+			// keep watching, the next change may fix the resource
+			if (logger != null) {
+				logger.error("Error while reloading resources!", e);
+			}
+		}
+	}
+
+	/**
+	 * A listener that gets informed about changed resources.
+	 * 
+	 * @author fckawe
+	 */
+	public interface Listener {
+
+		/**
+		 * Called from within the watcher's thread when resources changed.
+		 * 
+		 * @param paths
+		 *            The resource paths of the changed files.
+		 */
+		public void onResourcesChanged(Set<String> paths);
+
+	}
+
+}
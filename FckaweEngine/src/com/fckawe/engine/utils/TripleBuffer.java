@@ -0,0 +1,98 @@
+package com.fckawe.engine.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A lock-free triple buffer to pass data from one producer thread to one
+ * consumer thread. The producer writes into the back buffer and publishes it,
+ * the consumer always reads the newest published buffer. Neither side ever
+ * waits for the other one, and the buffer objects are reused, so no objects
+ * get created while passing data.
+ * 
+ * @author fckawe
+ * 
+ * @param <T>
+ *            The type of the buffer objects.
+ */
+public class TripleBuffer<T> {
+
+	// marks the middle buffer as published but not yet consumed
+	private static final int DIRTY = 4;
+
+	private static final int INDEX_MASK = 3;
+
+	private final Object[] buffers;
+
+	// the index of the middle buffer (or'ed with DIRTY if newly published)
+	private final AtomicInteger middle;
+
+	// the index of the buffer owned by the producer
+	private int back;
+
+	// the index of the buffer owned by the consumer
+	private int front;
+
+	/**
+	 * Creates a new triple buffer with the given three buffer objects.
+	 * 
+	 * @param first
+	 *            The first buffer object (initially the consumer's buffer).
+	 * @param second
+	 *            The second buffer object.
+	 * @param third
+	 *            The third buffer object (initially the producer's buffer).
+	 */
+	public TripleBuffer(final T first, final T second, final T third) {
+		buffers = new Object[] { first, second, third };
+		front = 0;
+		middle = new AtomicInteger(1);
+		back = 2;
+	}
+
+	/**
+	 * Returns the buffer the producer may write into. Must only be called
+	 * from within the producer thread.
+	 * 
+	 * @return The producer's buffer.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getWriteBuffer() {
+		return (T) buffers[back];
+	}
+
+	/**
+	 * Publishes the producer's buffer, which means that it becomes the newest
+	 * buffer for the consumer. The producer gets a free buffer to write the
+	 * next data into. Must only be called from within the producer thread.
+	 */
+	public void publish() {
+		back = middle.getAndSet(back | DIRTY) & INDEX_MASK;
+	}
+
+	/**
+	 * Returns the newest published buffer. If nothing was published since
+	 * the previous call, the same buffer as before is returned. The returned
+	 * buffer is not touched by the producer until the next call of this
+	 * method. Must only be called from within the consumer thread.
+	 * 
+	 * @return The newest published buffer.
+	 */
+	@SuppressWarnings("unchecked")
+	public T acquire() {
+		if ((middle.get() & DIRTY) != 0) {
+			front = middle.getAndSet(front) & INDEX_MASK;
+		}
+		return (T) buffers[front];
+	}
+
+	/**
+	 * Returns true, if the producer published a buffer that was not acquired
+	 * by the consumer yet.
+	 * 
+	 * @return True, if there is a newly published buffer.
+	 */
+	public boolean hasNewData() {
+		return (middle.get() & DIRTY) != 0;
+	}
+
+}
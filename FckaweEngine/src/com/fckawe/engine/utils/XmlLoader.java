@@ -47,11 +47,31 @@ public class XmlLoader {
 	 * the object instantiation.
 	 */
 	public void load() {
+		parse(filePath, inStream, new Handler());
+	}
+
+	/**
+	 * Parses the given XML stream with the given SAX handler. Unlike
+	 * {@link #load()}, nothing is kept in memory, so handlers can stream the
+	 * content of big files (like maps) right into their own structures.
+	 * 
+	 * @param filePath
+	 *            The path of the XML file (for error messages).
+	 * @param inStream
+	 *            The stream to read the XML file from.
+	 * @param handler
+	 *            The handler that gets the parsed elements.
+	 */
+	public static void parse(final String filePath,
+			final InputStream inStream, final DefaultHandler handler) {
+		if (inStream == null) {
+			throw new RuntimeException("Cannot find XML file '" + filePath
+					+ "'!");
+		}
 		SAXParserFactory factory = SAXParserFactory.newInstance();
 
 		try {
 			SAXParser parser = factory.newSAXParser();
-			Handler handler = new Handler();
 			parser.parse(inStream, handler);
 		} catch (ParserConfigurationException e) {
 			throw new RuntimeException(
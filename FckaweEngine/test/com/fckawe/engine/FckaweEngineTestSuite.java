@@ -11,8 +11,22 @@ import org.junit.runners.Suite.SuiteClasses;
  */
 @RunWith(Suite.class)
 @SuiteClasses({ com.fckawe.engine.core.ConfigurationTest.class,
+		com.fckawe.engine.game.GameTest.class,
+		com.fckawe.engine.game.SchedulerTest.class,
+		com.fckawe.engine.grafix.BitmapCacheTest.class,
+		com.fckawe.engine.grafix.BitmapTest.class,
+		com.fckawe.engine.grafix.BitmapsTest.class,
+		com.fckawe.engine.grafix.BlenderTest.class,
+		com.fckawe.engine.grafix.CameraTest.class,
+		com.fckawe.engine.grafix.ParallelRasterizerTest.class,
+		com.fckawe.engine.grafix.RenderQueueTest.class,
+		com.fckawe.engine.grafix.SpritePackTest.class,
+		com.fckawe.engine.tilemap.TileMapTest.class,
+		com.fckawe.engine.tilemap.TmxLoaderTest.class,
 		com.fckawe.engine.utils.BreadcrumbTest.class,
-		com.fckawe.engine.utils.NLSTest.class })
+		com.fckawe.engine.utils.LatencyHistogramTest.class,
+		com.fckawe.engine.utils.NLSTest.class,
+		com.fckawe.engine.utils.TripleBufferTest.class })
 public class FckaweEngineTestSuite {
 
 }
@@ -26,6 +26,11 @@ public class ConfigurationTest {
 		int refreshRate = c.getScreenCat().getRefreshRate();
 		boolean fullScreen = c.getScreenCat().isFullScreen();
 		boolean showFps = c.getScreenCat().isShowFps();
+		boolean showPerfOverlay = c.getScreenCat().isShowPerfOverlay();
+		boolean dirtyRects = c.getScreenCat().isDirtyRects();
+		int rasterThreads = c.getScreenCat().getRasterThreads();
+		String blender = c.getScreenCat().getBlender();
+		boolean premultipliedAlpha = c.getScreenCat().isPremultipliedAlpha();
 		assertEquals(800, width);
 		assertEquals(600, height);
 		assertEquals(1.0, scale, 0.01);
@@ -33,6 +38,45 @@ public class ConfigurationTest {
 		assertEquals(0, refreshRate);
 		assertEquals(false, fullScreen);
 		assertEquals(true, showFps);
+		assertEquals(false, showPerfOverlay);
+		assertEquals(true, dirtyRects);
+		assertEquals(0, rasterThreads);
+		assertEquals("swar", blender);
+		assertEquals(false, premultipliedAlpha);
+
+		// "heart" category
+		int targetFps = c.getHeartCat().getTargetFps();
+		String framePacer = c.getHeartCat().getFramePacer();
+		assertEquals(50, targetFps);
+		assertEquals("hybrid", framePacer);
+		boolean fixedTimestep = c.getHeartCat().isFixedTimestep();
+		int tickRate = c.getHeartCat().getTickRate();
+		assertEquals(true, fixedTimestep);
+		boolean renderThread = c.getHeartCat().isRenderThread();
+		boolean headless = c.getHeartCat().isHeadless();
+		double speedFactor = c.getHeartCat().getSpeedFactor();
+		assertEquals(50, tickRate);
+		assertEquals(false, renderThread);
+		assertEquals(false, headless);
+		assertEquals(0.0, speedFactor, 0.01);
+		double timeScale = c.getHeartCat().getTimeScale();
+		assertEquals(1.0, timeScale, 0.01);
+		int frameBudget = c.getHeartCat().getFrameBudget();
+		boolean watchdog = c.getHeartCat().isWatchdog();
+		boolean profiling = c.getHeartCat().isProfiling();
+		int profilerWindow = c.getHeartCat().getProfilerWindow();
+		assertEquals(0, frameBudget);
+		assertEquals(true, watchdog);
+		assertEquals(true, profiling);
+		assertEquals(5, profilerWindow);
+
+		// "assets" category
+		int decodeThreads = c.getAssetsCat().getDecodeThreads();
+		int cacheBudget = c.getAssetsCat().getCacheBudget();
+		assertEquals(0, decodeThreads);
+		assertEquals(64, cacheBudget);
+		assertEquals("sprites.pack", c.getAssetsCat().getSpritePack());
+		assertEquals(false, c.getAssetsCat().isHotReload());
 		
 		// "session" category
 		Locale locale = c.getSessionCat().getLocale();
@@ -0,0 +1,189 @@
+package com.fckawe.engine.game;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fckawe.engine.grafix.Bitmap;
+import com.fckawe.engine.grafix.Bitmaps;
+import com.fckawe.engine.grafix.LoadProgress;
+import com.fckawe.engine.physics.WorldBounds;
+
+public class GameTest {
+
+	private static final String BALL = "/images/demo/bouncingball.png";
+
+	private static final String ICON = "/images/icon.png";
+
+	private static final String FONT = "/fonts/default.png";
+
+	private StubModule start, next, other;
+
+	/**
+	 * Test that switching to a prefetched successor takes over its loads and
+	 * that a bitmap shared with the running module survives the switch.
+	 */
+	@Test
+	public void testSwitchToPrefetched() {
+		Bitmaps bitmaps = new Bitmaps();
+		try {
+			Game game = createGame(bitmaps);
+			assertSame(start, game.getCurrentModule());
+			assertEquals(Arrays.asList(next, other),
+					game.getPrefetchedModules());
+			assertTrue(next.isPrepared());
+			assertTrue(other.isPrepared());
+			// the running module and the successor hold the shared bitmap
+			assertEquals(2, bitmaps.getCache().getReferences("shared"));
+
+			LoadProgress progress = next.getLoadProgress();
+			progress.await();
+			Bitmap shared = bitmaps.getBitmap("shared");
+			game.setModule(next);
+
+			assertSame(next, game.getCurrentModule());
+			assertEquals(1, next.prepares);
+			assertSame(progress, next.getLoadProgress());
+			assertFalse(next.isPrepared());
+			assertEquals(1, start.unloads);
+			assertEquals(0, next.unloads);
+			// neither released nor decoded again
+			assertEquals(1, bitmaps.getCache().getReferences("shared"));
+			assertSame(shared, bitmaps.getBitmap("shared"));
+			assertTrue(bitmaps.isLoaded("next"));
+		} finally {
+			bitmaps.shutdown();
+		}
+	}
+
+	/**
+	 * Test that a prefetched module that is no successor of the new module
+	 * gets unloaded.
+	 */
+	@Test
+	public void testStalePrefetch() {
+		Bitmaps bitmaps = new Bitmaps();
+		try {
+			Game game = createGame(bitmaps);
+			other.getLoadProgress().await();
+			assertEquals(1, bitmaps.getCache().getReferences("other"));
+
+			game.setModule(next);
+			assertTrue(game.getPrefetchedModules().isEmpty());
+			assertEquals(1, other.unloads);
+			assertFalse(other.isPrepared());
+			assertFalse(other.requiresBitmap("other"));
+			assertEquals(0, bitmaps.getCache().getReferences("other"));
+
+			// a successor of the new module is prefetched again
+			next.successors.add(other);
+			game.setModule(start);
+			game.setModule(next);
+			assertEquals(Arrays.asList(other), game.getPrefetchedModules());
+			assertEquals(2, other.prepares);
+			assertTrue(other.isPrepared());
+			assertEquals(1, bitmaps.getCache().getReferences("other"));
+		} finally {
+			bitmaps.shutdown();
+		}
+	}
+
+	/**
+	 * Test that preparing a prepared module again keeps its bitmaps
+	 * referenced, so they are neither evicted nor decoded again if the cache
+	 * has a budget.
+	 */
+	@Test
+	public void testPrepareAgain() {
+		Bitmaps bitmaps = new Bitmaps();
+		try {
+			createGame(bitmaps);
+			next.getLoadProgress().await();
+			Bitmap icon = bitmaps.getBitmap("next");
+			// every unreferenced bitmap exceeds the budget
+			bitmaps.getCache().setBudget(1);
+
+			next.prepareLoad();
+			next.getLoadProgress().await();
+			assertEquals(0, bitmaps.getCache().getEvictions());
+			assertEquals(1, bitmaps.getCache().getReferences("next"));
+			assertEquals(2, bitmaps.getCache().getReferences("shared"));
+			assertSame(icon, bitmaps.getBitmap("next"));
+		} finally {
+			bitmaps.shutdown();
+		}
+	}
+
+	private Game createGame(final Bitmaps bitmaps) {
+		return new Game(new WorldBounds(100, 100), bitmaps) {
+			@Override
+			protected Module getStartingModule() {
+				// called within the constructor, the game has its bitmaps
+				start = new StubModule(this, "shared", BALL);
+				next = new StubModule(this, "shared", BALL, "next", ICON);
+				other = new StubModule(this, "other", FONT);
+				start.successors.add(next);
+				start.successors.add(other);
+				return start;
+			}
+		};
+	}
+
+	// a module without entities that declares the given bitmaps (IDs and
+	// paths) and counts its preparations and unloads
+	private static class StubModule extends Module {
+
+		private final String[] assets;
+
+		private final List<Module> successors = new ArrayList<Module>();
+
+		private int prepares;
+
+		private int unloads;
+
+		StubModule(final Game game, final String... assets) {
+			super(game);
+			this.assets = assets;
+		}
+
+		@Override
+		protected String getModuleName() {
+			return "Stub";
+		}
+
+		@Override
+		protected void declareAssets(final AssetManifest manifest) {
+			for (int i = 0; i < assets.length; i += 2) {
+				manifest.addBitmap(assets[i], assets[i + 1]);
+			}
+		}
+
+		@Override
+		protected void loadEntities() {
+			// no entities
+		}
+
+		@Override
+		public List<Module> getSuccessors() {
+			return successors;
+		}
+
+		@Override
+		public void prepareLoad() {
+			prepares++;
+			super.prepareLoad();
+		}
+
+		@Override
+		public void unload() {
+			unloads++;
+			super.unload();
+		}
+
+	}
+
+}
@@ -0,0 +1,157 @@
+package com.fckawe.engine.game;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SchedulerTest {
+
+	// number of nanoseconds per millisecond
+	private static final long MS = 1000000l;
+
+	// the budget of the tests (long enough to never exceed it by accident)
+	private static final long BUDGET = 50 * MS;
+
+	/**
+	 * Test that each job runs at its own rate, with its period as elapsed
+	 * time, and catches up with ticks longer than its period.
+	 */
+	@Test
+	public void testRates() {
+		Scheduler scheduler = new Scheduler(BUDGET);
+		CountingTask fast = new CountingTask();
+		CountingTask medium = new CountingTask();
+		CountingTask slow = new CountingTask();
+		scheduler.schedule(this, "fast", 100, Scheduler.Priority.NORMAL, fast);
+		scheduler.schedule(this, "medium", 50, Scheduler.Priority.NORMAL,
+				medium);
+		scheduler.schedule(this, "slow", 10, Scheduler.Priority.NORMAL, slow);
+
+		// one second of ticks at 50 Hz
+		for (int i = 0; i < 50; i++) {
+			scheduler.tick(20 * MS, System.nanoTime());
+		}
+		assertEquals(100, fast.runs);
+		assertEquals(50, medium.runs);
+		assertEquals(10, slow.runs);
+		assertEquals(10 * MS, fast.elapsedTime);
+		assertEquals(100 * MS, slow.elapsedTime);
+
+		// a long tick is caught up, but at most MAX_CATCH_UP_STEPS periods
+		scheduler.tick(1000 * MS, System.nanoTime());
+		assertEquals(100 + Scheduler.MAX_CATCH_UP_STEPS, fast.runs);
+		assertEquals(10 + Scheduler.MAX_CATCH_UP_STEPS, slow.runs);
+	}
+
+	/**
+	 * Test that jobs of a higher priority run first, and jobs of the same
+	 * priority in the order they were scheduled.
+	 */
+	@Test
+	public void testPriorityOrder() {
+		Scheduler scheduler = new Scheduler(BUDGET);
+		final List<String> order = new ArrayList<String>();
+		String[] names = { "low", "normal", "high", "high2", "normal2" };
+		Scheduler.Priority[] priorities = { Scheduler.Priority.LOW,
+				Scheduler.Priority.NORMAL, Scheduler.Priority.HIGH,
+				Scheduler.Priority.HIGH, Scheduler.Priority.NORMAL };
+		for (int i = 0; i < names.length; i++) {
+			final String name = names[i];
+			scheduler.schedule(this, name, 100, priorities[i],
+					new Scheduler.Task() {
+						@Override
+						public void run(final long elapsedTime) {
+							order.add(name);
+						}
+					});
+		}
+		scheduler.tick(10 * MS, System.nanoTime());
+		assertEquals(Arrays.asList("high", "high2", "normal", "normal2",
+				"low"), order);
+	}
+
+	/**
+	 * Test that lower priority jobs are deferred (but not dropped) while the
+	 * frame budget is exceeded, and catch up afterwards.
+	 */
+	@Test
+	public void testDeferral() {
+		Scheduler scheduler = new Scheduler(BUDGET);
+		CountingTask high = new CountingTask();
+		CountingTask normal = new CountingTask();
+		CountingTask low = new CountingTask();
+		Scheduler.Job highJob = scheduler.schedule(this, "high", 100,
+				Scheduler.Priority.HIGH, high);
+		Scheduler.Job normalJob = scheduler.schedule(this, "normal", 100,
+				Scheduler.Priority.NORMAL, normal);
+		Scheduler.Job lowJob = scheduler.schedule(this, "low", 100,
+				Scheduler.Priority.LOW, low);
+
+		// the tick started a second ago: the budget is used up
+		scheduler.tick(30 * MS, System.nanoTime() - 1000 * MS);
+		assertEquals(3, high.runs);
+		assertEquals(1, normal.runs);
+		assertEquals(0, low.runs);
+		assertEquals(0, highJob.getDeferrals());
+		assertEquals(1, normalJob.getDeferrals());
+		assertEquals(1, lowJob.getDeferrals());
+
+		// within the budget, the deferred steps are caught up
+		scheduler.tick(0, System.nanoTime());
+		assertEquals(3, high.runs);
+		assertEquals(3, normal.runs);
+		assertEquals(3, low.runs);
+	}
+
+	/**
+	 * Test that cancelled jobs don't run anymore and that frame jobs run once
+	 * per frame only.
+	 */
+	@Test
+	public void testCancelAndFrameJobs() {
+		Scheduler scheduler = new Scheduler(BUDGET);
+		Object owner = new Object();
+		CountingTask ticked = new CountingTask();
+		CountingTask framed = new CountingTask();
+		Scheduler.Job job = scheduler.schedule(owner, "ticked", 100,
+				Scheduler.Priority.NORMAL, ticked);
+		Scheduler.Job frameJob = scheduler.schedule(owner, "framed", 0,
+				Scheduler.Priority.LOW, framed);
+		assertTrue(frameJob.isFrameJob());
+
+		scheduler.tick(10 * MS, System.nanoTime());
+		assertEquals(1, ticked.runs);
+		assertEquals(0, framed.runs);
+		scheduler.frame();
+		scheduler.frame();
+		assertEquals(2, framed.runs);
+
+		scheduler.cancelAll(owner);
+		assertTrue(job.isCancelled());
+		assertTrue(frameJob.isCancelled());
+		scheduler.tick(10 * MS, System.nanoTime());
+		scheduler.frame();
+		assertEquals(1, ticked.runs);
+		assertEquals(2, framed.runs);
+	}
+
+	// counts its runs and keeps the latest elapsed time
+	private static class CountingTask implements Scheduler.Task {
+
+		private int runs;
+
+		private long elapsedTime;
+
+		@Override
+		public void run(final long elapsedTime) {
+			runs++;
+			this.elapsedTime = elapsedTime;
+		}
+
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.fckawe.engine.grafix;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class BitmapCacheTest {
+
+	// bytes of a 10x10 bitmap
+	private static final int SIZE = 10 * 10 * 4;
+
+	/**
+	 * Test that only unreferenced entries are evicted, the least recently
+	 * released first, and that the statistics are counted.
+	 */
+	@Test
+	public void testEviction() {
+		BitmapCache cache = new BitmapCache();
+		cache.setBudget(3 * SIZE);
+		for (String id : new String[] { "a", "b", "c" }) {
+			cache.acquire(id, false);
+			cache.put(id, cells());
+		}
+		assertEquals(3 * SIZE, cache.getBytes());
+		cache.release("b");
+		cache.release("a");
+		assertEquals(2, cache.getUnreferencedCount());
+
+		// "b" was released first
+		cache.acquire("d", false);
+		cache.put("d", cells());
+		assertFalse(cache.contains("b"));
+		assertTrue(cache.contains("a"));
+		assertEquals(1, cache.getEvictions());
+
+		// shared: found again after the release
+		cache.acquire("a", true);
+		cache.acquire("a", true);
+		cache.release("a");
+		assertEquals(1, cache.getReferences("a"));
+		assertEquals(0, cache.getUnreferencedCount());
+
+		// referenced entries exceed the budget rather than being evicted
+		cache.acquire("e", false);
+		cache.put("e", cells());
+		assertEquals(4, cache.getCount());
+		assertEquals(4 * SIZE, cache.getBytes());
+		cache.release("c");
+		assertFalse(cache.contains("c"));
+		assertEquals(2, cache.getEvictions());
+
+		assertEquals(2, cache.getHits());
+		assertEquals(5, cache.getMisses());
+	}
+
+	/**
+	 * Test that the cells of a sprite, which share one atlas, are counted
+	 * once.
+	 */
+	@Test
+	public void testSpriteBytes() {
+		BitmapCache cache = new BitmapCache();
+		Bitmap atlas = new Bitmap(20, 10);
+		Bitmap[][] sprite = new Bitmap[][] { { new Bitmap(atlas, 0, 0, 10, 10) },
+				{ new Bitmap(atlas, 10, 0, 10, 10) } };
+		cache.put("sprite", sprite);
+		assertEquals(2 * SIZE, cache.getBytes());
+		// unreferenced, but the new entry is never evicted
+		cache.setBudget(SIZE);
+		assertFalse(cache.contains("sprite"));
+		cache.put("sprite", sprite);
+		assertTrue(cache.contains("sprite"));
+		cache.remove("sprite");
+		assertEquals(0, cache.getBytes());
+	}
+
+	private Bitmap[][] cells() {
+		return new Bitmap[][] { { new Bitmap(10, 10) } };
+	}
+
+}
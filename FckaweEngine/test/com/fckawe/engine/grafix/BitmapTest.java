@@ -0,0 +1,187 @@
+package com.fckawe.engine.grafix;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.fckawe.engine.physics.Position;
+
+public class BitmapTest {
+
+	private static final BlendMode[] MODES = { null, BlendMode.ALPHA,
+			BlendMode.ADDITIVE, BlendMode.MULTIPLY, BlendMode.SCREEN };
+
+	// inside, cut by the left, top, right and bottom edge, and outside
+	private static final int[][] POSITIONS = { { 10, 12 }, { -7, 3 },
+			{ 5, -9 }, { -13, -11 }, { 50, 20 }, { 30, 55 }, { -40, 0 } };
+
+	/**
+	 * Test that blitting a bitmap with computed spans draws the same pixels
+	 * as blitting it pixel by pixel, for all blend modes, negative positions
+	 * and clip rectangles.
+	 */
+	@Test
+	public void testSpansBlit() {
+		Random random = new Random(13);
+		Bitmap plain = ParallelRasterizerTest.createBitmap(random, 24, 20);
+		Bitmap withSpans = copyOf(plain);
+		withSpans.computeSpans();
+		assertFalse(plain.hasSpans());
+		assertTrue(withSpans.hasSpans());
+		assertSpansBlit(random, plain, withSpans);
+	}
+
+	/**
+	 * Test that the spans of a view (a cell of an atlas) are computed within
+	 * the view's bounds only.
+	 */
+	@Test
+	public void testSpansBlitView() {
+		Random random = new Random(17);
+		Bitmap atlas = ParallelRasterizerTest.createBitmap(random, 60, 30);
+		Bitmap plain = new Bitmap(atlas, 20, 5, 24, 20);
+		Bitmap withSpans = new Bitmap(atlas, 20, 5, 24, 20);
+		withSpans.computeSpans();
+		assertSpansBlit(random, plain, withSpans);
+	}
+
+	/**
+	 * Test that a blit without blend mode blends the partially transparent
+	 * pixels of a premultiplied bitmap (instead of copying their darkened
+	 * colors), with and without spans.
+	 */
+	@Test
+	public void testPremultipliedBlit() {
+		Random random = new Random(19);
+		Bitmap straight = ParallelRasterizerTest.createBitmap(random, 24, 20);
+		Bitmap premultiplied = copyOf(straight);
+		premultiplied.premultiply();
+		Bitmap withSpans = copyOf(premultiplied);
+		withSpans.computeSpans();
+
+		Bitmap background = ParallelRasterizerTest.createBitmap(random, 48,
+				40);
+		Bitmap expected = copyOf(background);
+		Bitmap actual = copyOf(background);
+		Bitmap actualSpans = copyOf(background);
+		Bitmap actualScaled = copyOf(background);
+		for (int[] pos : POSITIONS) {
+			Position p = new Position(pos[0], pos[1]);
+			expected.transparencyBlit(straight, p);
+			actual.blit(premultiplied, p);
+			actualSpans.blit(withSpans, p);
+			// scaled 1:1, the nearest neighbours are the pixels themselves
+			actualScaled.scaledBlit(premultiplied, pos[0], pos[1], 24, 20,
+					null);
+		}
+		assertArrayEquals(actual.getPixels(), actualSpans.getPixels());
+		assertArrayEquals(actual.getPixels(), actualScaled.getPixels());
+		int[] e = expected.getPixels();
+		int[] a = actual.getPixels();
+		for (int i = 0; i < e.length; i++) {
+			// both are blended, only the rounding differs
+			for (int shift = 0; shift < 24; shift += 8) {
+				int diff = ((e[i] >> shift) & 0xff) - ((a[i] >> shift) & 0xff);
+				assertTrue("pixel " + i, Math.abs(diff) <= 4);
+			}
+		}
+	}
+
+	/**
+	 * Test that a bitmap scaled to twice its size repeats each pixel in a
+	 * 2x2 block, also if it is cut by the clip rectangle.
+	 */
+	@Test
+	public void testScaledBlitZoomIn() {
+		Bitmap source = createNumbered(5, 4);
+		for (int pos = -3; pos <= 1; pos += 2) {
+			Bitmap target = new Bitmap(12, 10);
+			target.setClip(0, 0, 9, 7);
+			target.scaledBlit(source, pos, pos, 10, 8, null);
+			int[] pixels = target.getPixels();
+			for (int y = 0; y < 10; y++) {
+				for (int x = 0; x < 12; x++) {
+					int sx = (x - pos) / 2;
+					int sy = (y - pos) / 2;
+					boolean inside = x - pos >= 0 && x - pos < 10
+							&& y - pos >= 0 && y - pos < 8 && x < 9 && y < 7;
+					int expected = inside ? source.getPixels()[sy * 5 + sx]
+							: 0;
+					assertEquals(expected, pixels[y * 12 + x]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test that a bitmap scaled to half its size takes the pixel at the
+	 * center of each 2x2 block (the bottom right one).
+	 */
+	@Test
+	public void testScaledBlitZoomOut() {
+		Bitmap source = createNumbered(8, 6);
+		Bitmap target = new Bitmap(4, 3);
+		target.scaledBlit(source, 0, 0, 4, 3, BlendMode.ALPHA);
+		for (int y = 0; y < 3; y++) {
+			for (int x = 0; x < 4; x++) {
+				assertEquals(source.getPixels()[(y * 2 + 1) * 8 + x * 2 + 1],
+						target.getPixels()[y * 4 + x]);
+			}
+		}
+
+		// a view of the source: the offset and the stride are respected
+		Bitmap view = new Bitmap(source, 2, 2, 4, 4);
+		target.scaledBlit(view, 1, 1, 2, 2, null);
+		assertEquals(source.getPixels()[3 * 8 + 3], target.getPixels()[5]);
+		assertEquals(source.getPixels()[5 * 8 + 5], target.getPixels()[10]);
+	}
+
+	private void assertSpansBlit(final Random random, final Bitmap plain,
+			final Bitmap withSpans) {
+		Bitmap background = ParallelRasterizerTest.createBitmap(random, 48,
+				40);
+		for (BlendMode mode : MODES) {
+			for (int[] pos : POSITIONS) {
+				for (int clip = 0; clip < 2; clip++) {
+					Bitmap expected = copyOf(background);
+					Bitmap actual = copyOf(background);
+					if (clip == 1) {
+						expected.setClip(6, 4, 30, 25);
+						actual.setClip(6, 4, 30, 25);
+					}
+					Position p = new Position(pos[0], pos[1]);
+					expected.blendBlit(plain, p, mode);
+					actual.blendBlit(withSpans, p, mode);
+					assertArrayEquals("mode " + mode + " at " + pos[0] + ","
+							+ pos[1], expected.getPixels(), actual.getPixels());
+
+					// a part of the bitmap
+					expected.blendBlit(plain, 3, 2, 15, 14, p, mode);
+					actual.blendBlit(withSpans, 3, 2, 15, 14, p, mode);
+					assertArrayEquals("part, mode " + mode + " at " + pos[0]
+							+ "," + pos[1], expected.getPixels(),
+							actual.getPixels());
+				}
+			}
+		}
+	}
+
+	// opaque pixels with a different color each
+	private static Bitmap createNumbered(final int width, final int height) {
+		Bitmap bitmap = new Bitmap(width, height);
+		int[] pixels = bitmap.getPixels();
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = 0xff000000 | (i + 1) * 0x010203;
+		}
+		return bitmap;
+	}
+
+	private static Bitmap copyOf(final Bitmap bitmap) {
+		Bitmap copy = new Bitmap(bitmap.getWidth(), bitmap.getHeight());
+		copy.copy(bitmap, 0, 0);
+		return copy;
+	}
+
+}
@@ -0,0 +1,161 @@
+package com.fckawe.engine.grafix;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class BitmapsTest {
+
+	/**
+	 * Test that asynchronous loads are stored when they are done, are not
+	 * started twice and are counted by the progress.
+	 */
+	@Test
+	public void testLoadAsync() throws Exception {
+		Bitmaps bitmaps = new Bitmaps();
+		bitmaps.setDecodeThreads(2);
+		try {
+			final CountDownLatch latch = new CountDownLatch(1);
+			Callable<Bitmap[][]> decoder = new Callable<Bitmap[][]>() {
+				@Override
+				public Bitmap[][] call() throws Exception {
+					latch.await(10, TimeUnit.SECONDS);
+					return new Bitmap[][] { { new Bitmap(3, 2) } };
+				}
+			};
+			LoadProgress progress = new LoadProgress();
+			Future<Bitmap[][]> a = bitmaps.loadAsync("a", decoder, progress);
+			Future<Bitmap[][]> again = bitmaps.loadAsync("a", decoder,
+					progress);
+			assertSame(a, again);
+			assertTrue(bitmaps.isLoaded("a"));
+			assertEquals(2, progress.getTotal());
+			assertFalse(progress.isDone());
+			assertEquals(0.0, progress.getFraction(), 0.001);
+
+			latch.countDown();
+			progress.await();
+			assertTrue(progress.isDone());
+			assertEquals(1.0, progress.getFraction(), 0.001);
+			assertEquals(3, bitmaps.getBitmap("a").getWidth());
+			assertTrue(bitmaps.getPendingIds().isEmpty());
+
+			// already loaded: no new decoding
+			Future<Bitmap[][]> loaded = bitmaps.loadAsync("a", null, null);
+			assertSame(bitmaps.getSpriteBitmap("a"), loaded.get());
+		} finally {
+			bitmaps.shutdown();
+		}
+	}
+
+	/**
+	 * Test that the loads by ID run asynchronously within a batch and that a
+	 * removed load is not stored.
+	 */
+	@Test
+	public void testBatch() throws Exception {
+		Bitmaps bitmaps = new Bitmaps();
+		bitmaps.setDecodeThreads(1);
+		try {
+			final CountDownLatch latch = new CountDownLatch(1);
+			LoadProgress progress = new LoadProgress();
+			bitmaps.beginBatch(progress);
+			try {
+				bitmaps.loadAsync("blocked", new Callable<Bitmap[][]>() {
+					@Override
+					public Bitmap[][] call() throws Exception {
+						latch.await(10, TimeUnit.SECONDS);
+						return new Bitmap[][] { { new Bitmap(1, 1) } };
+					}
+				}, progress);
+				bitmaps.loadBitmap("ball", "/images/demo/bouncingball.png");
+			} finally {
+				bitmaps.endBatch();
+			}
+			assertEquals(2, progress.getTotal());
+			// the single decode thread is still blocked
+			assertEquals(2, bitmaps.getPendingIds().size());
+
+			bitmaps.remove("ball");
+			assertFalse(bitmaps.isLoaded("ball"));
+			latch.countDown();
+			progress.await();
+			assertFalse(bitmaps.isLoaded("ball"));
+			assertTrue(bitmaps.isLoaded("blocked"));
+
+			// outside of the batch, the load is synchronous
+			bitmaps.loadBitmap("ball", "/images/demo/bouncingball.png");
+			assertTrue(bitmaps.getPendingIds().isEmpty());
+			assertNotNull(bitmaps.getBitmap("ball"));
+		} finally {
+			bitmaps.shutdown();
+		}
+	}
+
+	/**
+	 * Test that a reloaded bitmap is swapped in not before applyReloads and
+	 * that the bitmap objects held by others get the new pixels.
+	 */
+	@Test
+	public void testReload() throws Exception {
+		Bitmaps bitmaps = new Bitmaps();
+		bitmaps.loadBitmap("ball", "/images/demo/bouncingball.png");
+		bitmaps.loadBitmap("other", "/images/icon.png");
+		Bitmap ball = bitmaps.getBitmap("ball");
+		int[] pixels = ball.getPixels();
+
+		assertEquals(1, bitmaps.prepareReload("/images/demo/bouncingball.png"));
+		assertSame(pixels, ball.getPixels());
+
+		assertEquals(1, bitmaps.applyReloads().size());
+		assertSame(ball, bitmaps.getBitmap("ball"));
+		assertNotSame(pixels, ball.getPixels());
+		assertArrayEquals(pixels, ball.getPixels());
+		assertTrue(bitmaps.applyReloads().isEmpty());
+
+		// removed bitmaps are not reloaded
+		bitmaps.remove("ball");
+		assertEquals(0, bitmaps.prepareReload("/images/demo/bouncingball.png"));
+	}
+
+	/**
+	 * Test that reloading a bitmap taken from a sprite pack doesn't change the
+	 * pack's cells (shared by all users of the pack), but caches new ones.
+	 */
+	@Test
+	public void testReloadBaked() throws Exception {
+		String path = "/images/demo/bouncingball.png";
+		File file = File.createTempFile("reload", ".pack");
+		file.deleteOnExit();
+		SpritePackWriter writer = new SpritePackWriter(new Bitmaps());
+		writer.addBitmap(path);
+		writer.write(file);
+		SpritePack pack = SpritePack.open(file);
+
+		Bitmaps bitmaps = new Bitmaps();
+		bitmaps.addPack(pack);
+		bitmaps.loadBitmap("ball", path);
+		Bitmap baked = bitmaps.getBitmap("ball");
+		assertSame(pack.get(Bitmaps.getBitmapKey(path))[0][0], baked);
+		int[] pixels = baked.getPixels();
+
+		assertEquals(1, bitmaps.prepareReload(path));
+		assertEquals(1, bitmaps.applyReloads().size());
+		assertSame(pixels, baked.getPixels());
+		Bitmap reloaded = bitmaps.getBitmap("ball");
+		assertNotSame(baked, reloaded);
+		assertArrayEquals(pixels, reloaded.getPixels());
+
+		// decoded now, so the next reload changes the bitmap in place
+		assertEquals(1, bitmaps.prepareReload(path));
+		bitmaps.applyReloads();
+		assertSame(reloaded, bitmaps.getBitmap("ball"));
+	}
+
+}
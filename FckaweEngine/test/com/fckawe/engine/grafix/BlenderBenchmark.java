@@ -0,0 +1,86 @@
+package com.fckawe.engine.grafix;
+
+import java.util.Random;
+
+import com.fckawe.engine.physics.Position;
+
+/**
+ * Compares the blenders on full-screen translucent fills and on sprite
+ * blits. Run as a plain Java application, the results are printed to
+ * standard out.
+ * 
+ * @author fckawe
+ */
+public class BlenderBenchmark {
+
+	private static final int SCREEN_WIDTH = 800;
+
+	private static final int SCREEN_HEIGHT = 600;
+
+	private static final int SPRITE_SIZE = 64;
+
+	private static final int SPRITES = 2000;
+
+	private static final int ROUNDS = 5;
+
+	private static final int ITERATIONS = 50;
+
+	public static void main(final String[] args) {
+		Blender[] blenders = { new ScalarBlender(), new SwarBlender() };
+		Bitmap screen = new Bitmap(SCREEN_WIDTH, SCREEN_HEIGHT);
+		Bitmap sprite = createSprite();
+		Random random = new Random(1);
+		Position[] positions = new Position[SPRITES];
+		for (int i = 0; i < SPRITES; i++) {
+			positions[i] = new Position(random.nextInt(SCREEN_WIDTH
+					- SPRITE_SIZE), random.nextInt(SCREEN_HEIGHT - SPRITE_SIZE));
+		}
+
+		// the first rounds warm up the JIT compiler
+		for (int round = 0; round < ROUNDS; round++) {
+			for (Blender blender : blenders) {
+				Bitmap.setBlender(blender);
+				String name = blender.getClass().getSimpleName();
+
+				long start = System.nanoTime();
+				for (int i = 0; i < ITERATIONS; i++) {
+					screen.transparencyFill(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT,
+							0x80000000 | i);
+				}
+				long fill = (System.nanoTime() - start) / ITERATIONS;
+
+				start = System.nanoTime();
+				for (int i = 0; i < ITERATIONS; i++) {
+					for (int j = 0; j < SPRITES; j++) {
+						screen.transparencyBlit(sprite, positions[j]);
+					}
+				}
+				long blit = (System.nanoTime() - start) / ITERATIONS;
+
+				System.out.println("Round " + round + ", " + name
+						+ ": full-screen fill " + fill / 1000 + " us, "
+						+ SPRITES + " sprite blits " + blit / 1000 + " us");
+			}
+		}
+	}
+
+	private static Bitmap createSprite() {
+		// a translucent disc with a soft edge (mostly partial pixels)
+		Bitmap sprite = new Bitmap(SPRITE_SIZE, SPRITE_SIZE);
+		int[] pixels = sprite.getPixels();
+		double radius = SPRITE_SIZE / 2.0;
+		for (int y = 0; y < SPRITE_SIZE; y++) {
+			for (int x = 0; x < SPRITE_SIZE; x++) {
+				double dx = x + 0.5 - radius;
+				double dy = y + 0.5 - radius;
+				double distance = Math.sqrt(dx * dx + dy * dy) / radius;
+				int a = (int) Math.max(0, Math.min(255, (1 - distance) * 400));
+				pixels[y * SPRITE_SIZE + x] = (a << 24) | (x * 4 << 16)
+						| (y * 4 << 8) | 0x80;
+			}
+		}
+		sprite.computeSpans();
+		return sprite;
+	}
+
+}
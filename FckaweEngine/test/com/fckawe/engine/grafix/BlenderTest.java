@@ -0,0 +1,133 @@
+package com.fckawe.engine.grafix;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.fckawe.engine.physics.Position;
+
+public class BlenderTest {
+
+	private static final int PIXELS = 4096;
+
+	/**
+	 * Test that the SWAR blender blends exactly like the scalar blender, for
+	 * all alpha values.
+	 */
+	@Test
+	public void testBlend() {
+		Random random = new Random(42);
+		int[] src = new int[PIXELS];
+		int[] dst = new int[PIXELS];
+		for (int i = 0; i < PIXELS; i++) {
+			src[i] = ((i & 0xff) << 24) | (random.nextInt() & 0xffffff);
+			dst[i] = random.nextInt();
+		}
+		int[] scalar = dst.clone();
+		int[] swar = dst.clone();
+		new ScalarBlender().blend(src, 0, scalar, 0, PIXELS);
+		new SwarBlender().blend(src, 0, swar, 0, PIXELS);
+		assertArrayEquals(scalar, swar);
+
+		// transparent pixels are skipped, opaque pixels are copied
+		assertEquals(dst[0], swar[0]);
+		assertEquals(src[255], swar[255]);
+	}
+
+	/**
+	 * Test that the SWAR blender fills and tints exactly like the scalar
+	 * blender, including runs that don't start at the beginning of the array.
+	 */
+	@Test
+	public void testFillAndTint() {
+		Random random = new Random(7);
+		int[] src = new int[PIXELS];
+		int[] dst = new int[PIXELS];
+		for (int i = 0; i < PIXELS; i++) {
+			src[i] = random.nextInt();
+			dst[i] = random.nextInt();
+		}
+		Blender scalarBlender = new ScalarBlender();
+		Blender swarBlender = new SwarBlender();
+		for (int a = 1; a < 0xff; a++) {
+			int color = (a << 24) | (random.nextInt() & 0xffffff);
+			int[] scalar = dst.clone();
+			int[] swar = dst.clone();
+			scalarBlender.fill(color, scalar, a, PIXELS - a);
+			swarBlender.fill(color, swar, a, PIXELS - a);
+			assertArrayEquals(scalar, swar);
+
+			scalarBlender.tint(src, 0, scalar, a, PIXELS - a, color);
+			swarBlender.tint(src, 0, swar, a, PIXELS - a, color);
+			assertArrayEquals(scalar, swar);
+		}
+	}
+
+	/**
+	 * Test that blending a premultiplied bitmap gives (almost) the same
+	 * result as blending the straight one, and that the SWAR blender blends
+	 * premultiplied pixels exactly like the scalar blender.
+	 */
+	@Test
+	public void testBlendPremultiplied() {
+		Random random = new Random(11);
+		Bitmap straight = new Bitmap(256, 16);
+		Bitmap target = new Bitmap(256, 16);
+		for (int i = 0; i < straight.pixels.length; i++) {
+			straight.pixels[i] = ((i & 0xff) << 24)
+					| (random.nextInt() & 0xffffff);
+			target.pixels[i] = 0xff000000 | random.nextInt();
+		}
+		Bitmap premultiplied = new Bitmap(256, 16);
+		premultiplied.setPixels(straight.pixels.clone());
+		premultiplied.premultiply();
+		assertTrue(premultiplied.isPremultiplied());
+
+		int[] scalar = target.pixels.clone();
+		int[] swar = target.pixels.clone();
+		new ScalarBlender().blendPremultiplied(premultiplied.pixels, 0, scalar,
+				0, scalar.length);
+		new SwarBlender().blendPremultiplied(premultiplied.pixels, 0, swar, 0,
+				swar.length);
+		assertArrayEquals(scalar, swar);
+
+		Bitmap expected = new Bitmap(256, 16);
+		expected.setPixels(target.pixels.clone());
+		expected.blendBlit(straight, new Position(0, 0), BlendMode.ALPHA);
+		target.blendBlit(premultiplied, new Position(0, 0), BlendMode.ALPHA);
+		for (int i = 0; i < target.pixels.length; i++) {
+			for (int shift = 0; shift < 24; shift += 8) {
+				int diff = ((target.pixels[i] >> shift) & 0xff)
+						- ((expected.pixels[i] >> shift) & 0xff);
+				assertTrue(Math.abs(diff) <= 2);
+			}
+		}
+	}
+
+	/**
+	 * Test the blend modes with sources whose result is known.
+	 */
+	@Test
+	public void testBlendModes() {
+		int[] dst = { 0xff204060, 0xff204060, 0xff204060 };
+		int[] src = { 0xff000000, 0xffffffff, 0x00ffffff };
+
+		int[] additive = dst.clone();
+		BlendMode.ADDITIVE.blend(src, 0, additive, 0, 3, false);
+		assertArrayEquals(new int[] { 0xff204060, 0xffffffff, 0xff204060 },
+				additive);
+
+		int[] multiply = dst.clone();
+		BlendMode.MULTIPLY.blend(src, 0, multiply, 0, 3, false);
+		assertArrayEquals(new int[] { 0xff000000, 0xff204060, 0xff204060 },
+				multiply);
+
+		int[] screen = dst.clone();
+		BlendMode.SCREEN.blend(src, 0, screen, 0, 3, false);
+		assertArrayEquals(new int[] { 0xff204060, 0xffffffff, 0xff204060 },
+				screen);
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.fckawe.engine.grafix;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.fckawe.engine.physics.WorldBounds;
+
+public class CameraTest {
+
+	/**
+	 * Test that screen positions transformed to the world and back hit the
+	 * same screen pixel, with and without zoom.
+	 */
+	@Test
+	public void testRoundTrip() {
+		double[] zooms = { 1.0, 2.0, 3.0, 0.5, 0.25 };
+		for (double zoom : zooms) {
+			Camera camera = new Camera(160, 120);
+			camera.setZoom(zoom);
+			camera.setPosition(37, 53);
+			for (int screen = 0; screen < 120; screen++) {
+				int worldX = camera.toWorldX(screen);
+				int worldY = camera.toWorldY(screen);
+				if (zoom <= 1.0) {
+					assertEquals(screen, camera.toScreenX(worldX));
+					assertEquals(screen, camera.toScreenY(worldY));
+					continue;
+				}
+				// zoomed in, several screen pixels show one world position
+				assertTrue(camera.toScreenX(worldX) <= screen);
+				assertTrue(camera.toScreenX(worldX + 1) > screen);
+				assertTrue(camera.toScreenY(worldY) <= screen);
+				assertTrue(camera.toScreenY(worldY + 1) > screen);
+			}
+		}
+
+		Camera camera = new Camera(160, 120);
+		camera.setPosition(10, 20);
+		camera.setZoom(2.0);
+		// the zoom keeps the center of the view
+		assertEquals(50.0, camera.getX(), 0.0);
+		assertEquals(50.0, camera.getY(), 0.0);
+		assertEquals(0, camera.toScreenX(50));
+		assertEquals(20, camera.toScreenX(60));
+		assertEquals(55, camera.toWorldY(10));
+	}
+
+	/**
+	 * Test that the view is kept within the bounds of the world.
+	 */
+	@Test
+	public void testBounds() {
+		Camera camera = new Camera(160, 120);
+		camera.setBounds(new WorldBounds(400, 300));
+		camera.setPosition(-20, -30);
+		assertEquals(0.0, camera.getX(), 0.0);
+		assertEquals(0.0, camera.getY(), 0.0);
+		camera.setPosition(1000, 1000);
+		assertEquals(240.0, camera.getX(), 0.0);
+		assertEquals(180.0, camera.getY(), 0.0);
+
+		// zoomed in, the view shows less of the world
+		camera.setZoom(2.0);
+		camera.centerOn(1000, 1000);
+		assertEquals(320.0, camera.getX(), 0.0);
+		assertEquals(240.0, camera.getY(), 0.0);
+
+		// a world smaller than the view: its top left corner is shown
+		camera.setZoom(0.25);
+		assertEquals(0.0, camera.getX(), 0.0);
+		assertEquals(0.0, camera.getY(), 0.0);
+
+		int changes = camera.getChanges();
+		camera.setPosition(0, 0);
+		assertEquals(changes, camera.getChanges());
+	}
+
+	/**
+	 * Test that only rectangles within the view are visible.
+	 */
+	@Test
+	public void testVisible() {
+		Camera camera = new Camera(160, 120);
+		camera.setPosition(100, 100);
+		assertTrue(camera.isVisible(150, 150, 10, 10));
+		// partly visible at the edges
+		assertTrue(camera.isVisible(91, 91, 10, 10));
+		assertTrue(camera.isVisible(259, 219, 10, 10));
+		// touching the edges from outside
+		assertFalse(camera.isVisible(90, 150, 10, 10));
+		assertFalse(camera.isVisible(150, 90, 10, 10));
+		assertFalse(camera.isVisible(260, 150, 10, 10));
+		assertFalse(camera.isVisible(150, 220, 10, 10));
+
+		// zoomed out, the view covers twice the world
+		camera.setZoom(0.5);
+		camera.setPosition(100, 100);
+		assertTrue(camera.isVisible(350, 150, 10, 10));
+		assertFalse(camera.isVisible(420, 150, 10, 10));
+	}
+
+	/**
+	 * Test that the render queue culls the entries outside of the camera's
+	 * view and scales the visible ones by the zoom.
+	 */
+	@Test
+	public void testCulling() {
+		Camera camera = new Camera(16, 12);
+		camera.setPosition(100, 100);
+		camera.setZoom(2.0);
+		// the view shows the world from 104,103 to 112,109
+		Bitmap red = new Bitmap(2, 2);
+		red.clear(0xffff0000);
+		RenderQueue queue = new RenderQueue();
+		queue.submit(red, 105, 104, 0, 0);
+		queue.submit(red, 111, 108, 0, 0);
+		queue.submit(red, 102, 104, 0, 0);
+		queue.submit(red, 112, 104, 0, 0);
+		queue.submit(red, 105, 101, 0, 0);
+		queue.submit(red, 105, 109, 0, 0);
+
+		Bitmap target = new Bitmap(16, 12);
+		queue.render(target, camera);
+		assertEquals(4, queue.getCulledCount());
+		// the first entry covers 4x4 screen pixels
+		int[] pixels = target.getPixels();
+		for (int y = 0; y < 12; y++) {
+			for (int x = 0; x < 16; x++) {
+				boolean first = x >= 2 && x < 6 && y >= 2 && y < 6;
+				boolean second = x >= 14 && y >= 10;
+				assertEquals(first || second ? 0xffff0000 : 0,
+						pixels[y * 16 + x]);
+			}
+		}
+	}
+
+}
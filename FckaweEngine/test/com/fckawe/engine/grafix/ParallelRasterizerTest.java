@@ -0,0 +1,112 @@
+package com.fckawe.engine.grafix;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.fckawe.engine.physics.Position;
+import com.fckawe.engine.ui.Screen;
+
+public class ParallelRasterizerTest {
+
+	private static final int WIDTH = 150;
+
+	private static final int HEIGHT = 130;
+
+	/**
+	 * Test that the commands replayed in parallel bands draw the same pixels
+	 * as drawing directly, also for sprites and clip rectangles that are cut
+	 * by the band boundaries.
+	 */
+	@Test
+	public void testRasterize() {
+		Random random = new Random(7);
+		Bitmap atlas = createBitmap(random, 96, 48);
+		// a view of the atlas (offset and stride differ from its size)
+		Bitmap sprite = new Bitmap(atlas, 48, 0, 48, 48);
+		Bitmap withSpans = createBitmap(random, 40, 40);
+		withSpans.computeSpans();
+
+		Screen direct = new Screen(WIDTH, HEIGHT);
+		draw(direct, atlas, sprite, withSpans);
+
+		for (int threads = 2; threads <= 4; threads++) {
+			ParallelRasterizer rasterizer = new ParallelRasterizer(threads);
+			try {
+				Screen parallel = new Screen(WIDTH, HEIGHT);
+				parallel.setRasterizer(rasterizer);
+				draw(parallel, atlas, sprite, withSpans);
+				// nothing is drawn before the commands are flushed
+				assertEquals(0, parallel.getPixels()[0]);
+				parallel.flush();
+				assertArrayEquals(direct.getPixels(), parallel.getPixels());
+			} finally {
+				rasterizer.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Test that the command list grows and can be reused after clearing.
+	 */
+	@Test
+	public void testCommandList() {
+		DrawCommandList commands = new DrawCommandList();
+		Bitmap bitmap = new Bitmap(2, 2);
+		for (int i = 0; i < 1000; i++) {
+			commands.addColorBlit(bitmap, i, i, 0xff00ff00, null);
+		}
+		assertEquals(1000, commands.getCount());
+		commands.clear();
+		assertEquals(0, commands.getCount());
+
+		commands.addFill(1, 1, 2, 2, 0xffff0000, false, null);
+		Bitmap target = new Bitmap(4, 4);
+		// only the second row is replayed
+		commands.replay(target, 1, 2);
+		assertEquals(0xffff0000, target.getPixels()[1 * 4 + 1]);
+		assertEquals(0, target.getPixels()[2 * 4 + 1]);
+	}
+
+	private void draw(final Screen screen, final Bitmap atlas,
+			final Bitmap sprite, final Bitmap withSpans) {
+		screen.clear(0xff102030);
+		screen.fill(-10, 5, 60, 40, 0xff0000ff);
+		screen.transparencyFill(30, 10, 70, 50, 0x80ff0000);
+		// the bitmaps cross the band boundaries
+		screen.blit(sprite, new Position(10, 20));
+		screen.transparencyBlit(atlas, new Position(-20, 50));
+		screen.blendBlit(withSpans, new Position(100, 90), BlendMode.ADDITIVE);
+		screen.blit(atlas, 10, 5, 30, 30, new Position(130, 110));
+		screen.colorBlit(sprite, 60, 60, 0x8000ff00);
+		screen.scaledBlit(withSpans, 5, 70, 80, 50, null);
+		screen.scaledBlit(sprite, 70, 20, 30, 70, BlendMode.MULTIPLY);
+		// the clip rectangle is recorded with the commands
+		screen.setClip(20, 25, 70, 30);
+		screen.transparencyBlit(withSpans, new Position(15, 15));
+		screen.transparencyFill(0, 0, WIDTH, HEIGHT, 0x4000ff00);
+		screen.resetClip();
+		screen.blit(withSpans, new Position(130, -10));
+	}
+
+	// runs of transparent, opaque and partially transparent pixels
+	static Bitmap createBitmap(final Random random, final int width,
+			final int height) {
+		Bitmap bitmap = new Bitmap(width, height);
+		int[] pixels = bitmap.getPixels();
+		int i = 0;
+		while (i < pixels.length) {
+			int run = 1 + random.nextInt(8);
+			int type = random.nextInt(3);
+			for (int j = 0; j < run && i < pixels.length; j++, i++) {
+				int alpha = type == 0 ? 0 : type == 1 ? 0xff : 1 + random
+						.nextInt(254);
+				pixels[i] = (alpha << 24) | random.nextInt(0x1000000);
+			}
+		}
+		return bitmap;
+	}
+
+}
@@ -0,0 +1,95 @@
+package com.fckawe.engine.grafix;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RenderQueueTest {
+
+	/**
+	 * Test that the entries are drawn sorted by layer and z, and in the order
+	 * of submission if both are equal.
+	 */
+	@Test
+	public void testOrder() {
+		Random random = new Random(3);
+		int entries = 1000;
+		int[] layers = new int[entries];
+		int[] z = new int[entries];
+		RenderQueue queue = new RenderQueue();
+		final List<Bitmap> drawn = new ArrayList<Bitmap>();
+		Bitmap target = new Bitmap(1, 1) {
+			@Override
+			protected void blitInternal(final Bitmap bitmap, final int srcX,
+					final int srcY, final int posX, final int posY,
+					final int insWidth, final int insHeight,
+					final BlendMode mode) {
+				drawn.add(bitmap);
+			}
+		};
+		List<Bitmap> submitted = new ArrayList<Bitmap>();
+		for (int i = 0; i < entries; i++) {
+			layers[i] = random.nextInt(5) - 2;
+			z[i] = random.nextInt(2000) - 1000;
+			Bitmap bitmap = new Bitmap(1, 1);
+			submitted.add(bitmap);
+			queue.submit(bitmap, 0, 0, layers[i], z[i]);
+		}
+		queue.render(target);
+
+		assertEquals(entries, drawn.size());
+		for (int i = 1; i < entries; i++) {
+			int a = submitted.indexOf(drawn.get(i - 1));
+			int b = submitted.indexOf(drawn.get(i));
+			assertTrue(isDrawnAfter(b, a, layers, z));
+		}
+	}
+
+	private boolean isDrawnAfter(final int a, final int b, final int[] layers,
+			final int[] z) {
+		if (layers[a] != layers[b]) {
+			return layers[a] > layers[b];
+		}
+		if (z[a] != z[b]) {
+			return z[a] > z[b];
+		}
+		return a > b;
+	}
+
+	/**
+	 * Test the drawing order of a few overlapping entries and that entries
+	 * outside of the viewport are culled.
+	 */
+	@Test
+	public void testSortAndCull() {
+		Bitmap target = new Bitmap(4, 1);
+		RenderQueue queue = new RenderQueue();
+		Bitmap red = new Bitmap(2, 1);
+		red.clear(0xffff0000);
+		Bitmap green = new Bitmap(2, 1);
+		green.clear(0xff00ff00);
+		Bitmap blue = new Bitmap(2, 1);
+		blue.clear(0xff0000ff);
+
+		queue.submit(blue, 1, 0, 1, -5);
+		queue.submit(red, 0, 0, 0, 100);
+		queue.submit(green, 2, 0, 0, 7);
+		queue.submit(red, 5, 0, 0, 0);
+		queue.submit(green, -2, 0, 0, 0);
+		queue.render(target);
+
+		assertEquals(5, queue.getCount());
+		assertEquals(2, queue.getCulledCount());
+		// layer 1 on top of layer 0, z 100 above z 7 within layer 0
+		assertArrayEquals(new int[] { 0xffff0000, 0xff0000ff, 0xff0000ff,
+				0xff00ff00 }, target.pixels);
+
+		queue.clear();
+		assertEquals(0, queue.getCount());
+	}
+
+}
@@ -0,0 +1,76 @@
+package com.fckawe.engine.grafix;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.Test;
+
+public class SpritePackTest {
+
+	private static final String BALL = "/images/demo/bouncingball.png";
+
+	/**
+	 * Test that baked bitmaps and sprites are read back with the same pixels,
+	 * cells and spans and that Bitmaps takes them from the pack.
+	 */
+	@Test
+	public void testBakeAndOpen() throws Exception {
+		Bitmaps bitmaps = new Bitmaps();
+		Bitmap ball = bitmaps.loadBitmap(BALL, 1.0, null, -1);
+		Bitmap[][] sprite = bitmaps.loadSprite(BALL, ball.getWidth() / 2,
+				ball.getHeight(), 0, 0, 1.0, null, -1);
+
+		File file = File.createTempFile("sprites", ".pack");
+		file.deleteOnExit();
+		SpritePackWriter writer = new SpritePackWriter(bitmaps);
+		writer.addBitmap(BALL);
+		writer.addSprite(BALL, ball.getWidth() / 2, ball.getHeight(), 0, 0,
+				1.0);
+		writer.write(file);
+
+		SpritePack pack = SpritePack.open(file);
+		assertSame(pack, SpritePack.open(file));
+		assertEquals(2, pack.getKeys().size());
+		assertFalse(pack.isPremultiplied(Bitmaps.getBitmapKey(BALL)));
+
+		Bitmap baked = pack.get(Bitmaps.getBitmapKey(BALL))[0][0];
+		assertEquals(ball.getWidth(), baked.getWidth());
+		assertEquals(ball.getHeight(), baked.getHeight());
+		assertArrayEquals(ball.pixels, baked.pixels);
+		assertEquals(ball.hasSpans(), baked.hasSpans());
+		if (ball.hasSpans()) {
+			assertArrayEquals(ball.getSpans(), baked.getSpans());
+			assertArrayEquals(ball.getSpanRowStarts(),
+					baked.getSpanRowStarts());
+		}
+
+		String spriteKey = Bitmaps.getSpriteKey(BALL, ball.getWidth() / 2,
+				ball.getHeight(), 0, 0, 1.0);
+		Bitmap[][] bakedSprite = pack.get(spriteKey);
+		assertEquals(sprite.length, bakedSprite.length);
+		for (int x = 0; x < sprite.length; x++) {
+			assertEquals(sprite[x][0].getOffset(),
+					bakedSprite[x][0].getOffset());
+			assertEquals(sprite[x][0].getWidth(), bakedSprite[x][0].getWidth());
+			// the cells share the pixels of one atlas
+			assertSame(bakedSprite[0][0].pixels, bakedSprite[x][0].pixels);
+		}
+
+		Bitmaps packed = new Bitmaps();
+		assertTrue(packed.addPack(file.getPath()));
+		assertSame(baked, packed.loadBitmap(BALL, 1.0, null, -1));
+		assertSame(bakedSprite, packed.loadSprite(BALL, ball.getWidth() / 2,
+				ball.getHeight(), 0, 0, 1.0, null, -1));
+
+		// premultiplied alpha doesn't match: the image is decoded
+		Bitmaps premultiplied = new Bitmaps();
+		premultiplied.setPremultiplied(true);
+		premultiplied.addPack(pack);
+		assertNotSame(baked, premultiplied.loadBitmap(BALL, 1.0, null, -1));
+
+		assertFalse(packed.addPack(new File(file.getParentFile(),
+				"missing.pack").getPath()));
+	}
+
+}
@@ -0,0 +1,188 @@
+package com.fckawe.engine.tilemap;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.fckawe.engine.grafix.Bitmap;
+import com.fckawe.engine.grafix.Camera;
+import com.fckawe.engine.grafix.DirtyRegions;
+import com.fckawe.engine.grafix.RenderQueue;
+
+public class TileMapTest {
+
+	private static final int RED = 0xffff0000;
+
+	private static final int GREEN = 0xff00ff00;
+
+	// the size of a chunk's bitmap (tiles of 2x2 pixels)
+	private static final int CHUNK_PIXELS = TileChunk.SIZE * 2;
+
+	/**
+	 * Test that chunks are only created when a tile is set within them.
+	 */
+	@Test
+	public void testLazyChunks() {
+		TileMap map = new TileMap(createTileSet(), 70, 40);
+		assertEquals(3, map.getChunkColumns());
+		assertEquals(2, map.getChunkRows());
+		for (int row = 0; row < 2; row++) {
+			for (int column = 0; column < 3; column++) {
+				assertNull(map.getChunk(column, row));
+			}
+		}
+
+		// removing a tile where there is none creates nothing
+		map.set(40, 5, TileSet.EMPTY);
+		assertNull(map.getChunk(1, 0));
+
+		map.set(69, 39, (short) 2);
+		assertNotNull(map.getChunk(2, 1));
+		assertNull(map.getChunk(0, 0));
+		assertEquals(2, map.get(69, 39));
+		assertEquals(TileSet.EMPTY, map.get(68, 39));
+		// outside of the map
+		assertEquals(TileSet.EMPTY, map.get(70, 39));
+		assertEquals(TileSet.EMPTY, map.get(-1, 0));
+		try {
+			map.set(70, 0, (short) 1);
+			fail("Tile outside of the map was set!");
+		} catch (RuntimeException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Test that the pre-rendered bitmap of a chunk is kept until one of its
+	 * tiles is changed.
+	 */
+	@Test
+	public void testBitmapInvalidation() {
+		TileSet tileSet = createTileSet();
+		TileChunk chunk = new TileChunk();
+		chunk.set(1, 2, (short) 1);
+		Bitmap bitmap = chunk.getBitmap(tileSet);
+		assertEquals(CHUNK_PIXELS, bitmap.getWidth());
+		assertEquals(RED, getPixel(bitmap, 1, 2));
+		assertEquals(0, getPixel(bitmap, 0, 0));
+		assertSame(bitmap, chunk.getBitmap(tileSet));
+
+		// the same ID again changes nothing
+		chunk.set(1, 2, (short) 1);
+		assertSame(bitmap, chunk.getBitmap(tileSet));
+
+		chunk.set(1, 2, (short) 2);
+		Bitmap changed = chunk.getBitmap(tileSet);
+		assertNotSame(bitmap, changed);
+		assertEquals(GREEN, getPixel(changed, 1, 2));
+
+		chunk.discardBitmap();
+		assertNotSame(changed, chunk.getBitmap(tileSet));
+	}
+
+	/**
+	 * Test that a bitmap rendered while a tile gets changed (e.g. by the
+	 * game logic while the render thread renders the chunk) is not kept.
+	 */
+	@Test
+	public void testChangeWhileRendering() {
+		final TileChunk chunk = new TileChunk();
+		chunk.set(0, 0, (short) 1);
+		TileSet tileSet = new TileSet(createTiles()) {
+			private boolean changed;
+
+			@Override
+			public Bitmap getTile(final int id) {
+				if (!changed) {
+					changed = true;
+					chunk.set(5, 5, (short) 2);
+				}
+				return super.getTile(id);
+			}
+		};
+		chunk.resetEdited();
+		Bitmap stale = chunk.getBitmap(tileSet);
+		assertEquals(0, getPixel(stale, 5, 5));
+		assertTrue(chunk.resetEdited());
+		Bitmap current = chunk.getBitmap(tileSet);
+		assertNotSame(stale, current);
+		assertEquals(GREEN, getPixel(current, 5, 5));
+		assertSame(current, chunk.getBitmap(tileSet));
+	}
+
+	/**
+	 * Test that only the non empty chunks within the camera's view are
+	 * submitted.
+	 */
+	@Test
+	public void testRender() {
+		TileMap map = new TileMap(createTileSet(), 70, 40);
+		map.set(0, 0, (short) 1);
+		map.set(69, 39, (short) 1);
+		// a chunk that became empty again
+		map.set(40, 5, (short) 2);
+		map.set(40, 5, TileSet.EMPTY);
+		assertTrue(map.getChunk(1, 0).isEmpty());
+
+		RenderQueue queue = new RenderQueue();
+		map.render(queue, null, 0);
+		assertEquals(2, queue.getCount());
+
+		queue.clear();
+		Camera camera = new Camera(CHUNK_PIXELS, CHUNK_PIXELS);
+		map.render(queue, camera, 0);
+		assertEquals(1, queue.getCount());
+		Bitmap target = new Bitmap(CHUNK_PIXELS, CHUNK_PIXELS);
+		queue.render(target, camera);
+		assertEquals(RED, target.getPixels()[0]);
+	}
+
+	/**
+	 * Test that the screen regions of the edited chunks are reported once.
+	 */
+	@Test
+	public void testDirtyRegions() {
+		TileMap map = new TileMap(createTileSet(), 70, 40);
+		map.set(3, 3, (short) 1);
+		map.set(69, 39, (short) 1);
+		DirtyRegions regions = new DirtyRegions(200, 100, 8);
+		map.collectDirtyRegions(regions, null);
+		assertEquals(2, regions.getCount());
+		assertEquals(CHUNK_PIXELS * CHUNK_PIXELS + CHUNK_PIXELS
+				* (100 - CHUNK_PIXELS), regions.getArea());
+
+		regions.clear();
+		map.collectDirtyRegions(regions, null);
+		assertTrue(regions.isEmpty());
+
+		// transformed by the camera
+		Camera camera = new Camera(200, 100);
+		camera.setPosition(10, 20);
+		map.set(4, 4, (short) 2);
+		map.collectDirtyRegions(regions, camera);
+		assertEquals(1, regions.getCount());
+		assertEquals(0, regions.getX(0));
+		assertEquals(0, regions.getY(0));
+		assertEquals(CHUNK_PIXELS - 10, regions.getWidth(0));
+		assertEquals(CHUNK_PIXELS - 20, regions.getHeight(0));
+	}
+
+	private static TileSet createTileSet() {
+		return new TileSet(createTiles());
+	}
+
+	// a red (ID 1) and a green tile (ID 2) of 2x2 pixels
+	private static Bitmap[][] createTiles() {
+		Bitmap red = new Bitmap(2, 2);
+		red.clear(RED);
+		Bitmap green = new Bitmap(2, 2);
+		green.clear(GREEN);
+		return new Bitmap[][] { { red }, { green } };
+	}
+
+	// the top left pixel of the tile at the given position
+	private static int getPixel(final Bitmap bitmap, final int x, final int y) {
+		return bitmap.getPixels()[y * 2 * bitmap.getWidth() + x * 2];
+	}
+
+}
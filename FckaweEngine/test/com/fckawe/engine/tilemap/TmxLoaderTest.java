@@ -0,0 +1,195 @@
+package com.fckawe.engine.tilemap;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+
+import com.fckawe.engine.grafix.Bitmap;
+
+public class TmxLoaderTest {
+
+	private static final int WIDTH = 40;
+
+	private static final int HEIGHT = 35;
+
+	// the first global tile ID of the tile set
+	private static final int FIRST_GID = 5;
+
+	/**
+	 * Test that CSV, base64 and zlib compressed base64 layers are loaded with
+	 * the same tiles, and that every chunk is reported.
+	 */
+	@Test
+	public void testLoad() throws UnsupportedEncodingException {
+		StringBuilder csv = new StringBuilder();
+		byte[] raw = new byte[WIDTH * HEIGHT * 4];
+		for (int y = 0; y < HEIGHT; y++) {
+			csv.append('\n');
+			for (int x = 0; x < WIDTH; x++) {
+				int gid = getGid(x, y);
+				// written unsigned, like the flip flags within the TMX files
+				csv.append(gid & 0xFFFFFFFFL);
+				if (x < WIDTH - 1 || y < HEIGHT - 1) {
+					csv.append(',');
+				}
+				int i = (y * WIDTH + x) * 4;
+				raw[i] = (byte) gid;
+				raw[i + 1] = (byte) (gid >> 8);
+				raw[i + 2] = (byte) (gid >> 16);
+				raw[i + 3] = (byte) (gid >>> 24);
+			}
+		}
+		Deflater deflater = new Deflater();
+		deflater.setInput(raw);
+		deflater.finish();
+		byte[] buffer = new byte[raw.length + 64];
+		int length = deflater.deflate(buffer);
+		deflater.end();
+		byte[] compressed = new byte[length];
+		System.arraycopy(buffer, 0, compressed, 0, length);
+
+		String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<map width=\"" + WIDTH + "\" height=\"" + HEIGHT + "\">\n"
+				+ "<tileset firstgid=\"" + FIRST_GID + "\" source=\"t.tsx\"/>\n"
+				+ layer("csv", "encoding=\"csv\"", csv.toString())
+				+ layer("base64", "encoding=\"base64\"",
+						toBase64(raw))
+				+ layer("zlib", "encoding=\"base64\" compression=\"zlib\"",
+						toBase64(compressed))
+				+ "</map>";
+
+		TmxLoader loader = new TmxLoader("test.tmx", new ByteArrayInputStream(
+				xml.getBytes("UTF-8")), createTileSet());
+		final List<String> reported = new ArrayList<String>();
+		loader.setListener(new TmxLoader.Listener() {
+			@Override
+			public void layerStarted(final String name, final TileMap map) {
+				reported.add(name);
+			}
+
+			@Override
+			public void chunkLoaded(final TileMap map, final int column,
+					final int row) {
+				reported.add(column + "," + row);
+			}
+		});
+		Map<String, TileMap> layers = loader.load();
+
+		assertEquals(3, layers.size());
+		for (String name : new String[] { "csv", "base64", "zlib" }) {
+			TileMap map = layers.get(name);
+			assertEquals(WIDTH, map.getWidth());
+			assertEquals(HEIGHT, map.getHeight());
+			for (int y = 0; y < HEIGHT; y++) {
+				for (int x = 0; x < WIDTH; x++) {
+					int gid = getGid(x, y) & 0x0FFFFFFF;
+					int expected = gid == 0 ? 0 : gid - FIRST_GID + 1;
+					assertEquals(expected, map.get(x, y));
+				}
+			}
+			// the layer and its 2x2 chunks, row by row
+			int index = reported.indexOf(name);
+			assertEquals("0,0", reported.get(index + 1));
+			assertEquals("1,0", reported.get(index + 2));
+			assertEquals("0,1", reported.get(index + 3));
+			assertEquals("1,1", reported.get(index + 4));
+		}
+		assertEquals(15, reported.size());
+	}
+
+	/**
+	 * Test that only the chunks of the map that got tiles are reported for
+	 * the chunks of an infinite map, also if they lie beside the map.
+	 */
+	@Test
+	public void testChunksBesideMap() throws UnsupportedEncodingException {
+		StringBuilder tiles = new StringBuilder();
+		for (int i = 0; i < 16 * 16; i++) {
+			tiles.append(i == 0 ? "" : ",").append(FIRST_GID);
+		}
+		String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<map width=\"" + WIDTH + "\" height=\"" + HEIGHT + "\">\n"
+				+ "<tileset firstgid=\"" + FIRST_GID + "\" source=\"t.tsx\"/>\n"
+				+ "<layer name=\"infinite\">\n<data encoding=\"csv\">\n"
+				+ chunk(-16, 0, tiles) + chunk(48, 0, tiles)
+				+ chunk(0, -16, tiles) + chunk(32, 16, tiles)
+				+ "</data>\n</layer>\n</map>";
+
+		TmxLoader loader = new TmxLoader("test.tmx", new ByteArrayInputStream(
+				xml.getBytes("UTF-8")), createTileSet());
+		final List<String> reported = new ArrayList<String>();
+		loader.setListener(new TmxLoader.Listener() {
+			@Override
+			public void layerStarted(final String name, final TileMap map) {
+				// not checked
+			}
+
+			@Override
+			public void chunkLoaded(final TileMap map, final int column,
+					final int row) {
+				reported.add(column + "," + row);
+			}
+		});
+		TileMap map = loader.load().get("infinite");
+
+		// only the last chunk overlaps the map (columns 32 to 39)
+		assertEquals(1, reported.size());
+		assertEquals("1,0", reported.get(0));
+		assertNull(map.getChunk(0, 0));
+		assertEquals(1, map.get(32, 16));
+		assertEquals(1, map.get(39, 31));
+	}
+
+	private String chunk(final int x, final int y, final CharSequence tiles) {
+		return "<chunk x=\"" + x + "\" y=\"" + y
+				+ "\" width=\"16\" height=\"16\">\n" + tiles + "\n</chunk>\n";
+	}
+
+	// some empty tiles and some flipped tiles
+	private int getGid(final int x, final int y) {
+		int id = (x * 7 + y * 3) % 6;
+		if (id == 0) {
+			return 0;
+		}
+		int gid = FIRST_GID + id - 1;
+		return x % 5 == 0 ? gid | 0x80000000 : gid;
+	}
+
+	private String toBase64(final byte[] bytes) {
+		String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < bytes.length; i += 3) {
+			int b = (bytes[i] & 0xff) << 16;
+			b |= i + 1 < bytes.length ? (bytes[i + 1] & 0xff) << 8 : 0;
+			b |= i + 2 < bytes.length ? bytes[i + 2] & 0xff : 0;
+			sb.append(chars.charAt(b >> 18));
+			sb.append(chars.charAt((b >> 12) & 63));
+			sb.append(i + 1 < bytes.length ? chars.charAt((b >> 6) & 63) : '=');
+			sb.append(i + 2 < bytes.length ? chars.charAt(b & 63) : '=');
+		}
+		return sb.toString();
+	}
+
+	private String layer(final String name, final String dataAttrs,
+			final String data) {
+		return "<layer name=\"" + name + "\" width=\"" + WIDTH
+				+ "\" height=\"" + HEIGHT + "\">\n<data " + dataAttrs + ">"
+				+ data + "\n</data>\n</layer>\n";
+	}
+
+	private TileSet createTileSet() {
+		Bitmap[][] sprite = new Bitmap[5][1];
+		for (int i = 0; i < sprite.length; i++) {
+			sprite[i][0] = new Bitmap(4, 4);
+		}
+		return new TileSet(sprite);
+	}
+
+}
@@ -0,0 +1,50 @@
+package com.fckawe.engine.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	/**
+	 * Test the percentiles of evenly distributed values. The histogram may be
+	 * off by the width of a sub-bucket (less than 6.25%), max is exact.
+	 */
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram h = new LatencyHistogram();
+		assertEquals(0, h.getPercentile(50.0));
+
+		for (int i = 1; i <= 10000; i++) {
+			h.record(i * 1000l);
+		}
+
+		assertEquals(10000, h.getCount());
+		assertEquals(10000000l, h.getMax());
+		assertEquals(5000500.0, h.getMean(), 0.1);
+		assertEquals(5000000.0, h.getPercentile(50.0), 5000000 * 0.0625);
+		assertEquals(9500000.0, h.getPercentile(95.0), 9500000 * 0.0625);
+		assertEquals(9900000.0, h.getPercentile(99.0), 9900000 * 0.0625);
+		assertEquals(10000000l, h.getPercentile(100.0));
+	}
+
+	/**
+	 * Test that small values are counted exactly and reset clears everything.
+	 */
+	@Test
+	public void testSmallValuesAndReset() {
+		LatencyHistogram h = new LatencyHistogram();
+		h.record(3);
+		h.record(3);
+		h.record(7);
+		h.record(-1);
+		assertEquals(3, h.getPercentile(50.0));
+		assertEquals(0, h.getPercentile(1.0));
+		assertEquals(7, h.getMax());
+
+		h.reset();
+		assertEquals(0, h.getCount());
+		assertEquals(0, h.getMax());
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.fckawe.engine.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TripleBufferTest {
+
+	/**
+	 * Test that the consumer always gets the newest published buffer and that
+	 * the producer never writes into the buffer held by the consumer.
+	 */
+	@Test
+	public void testPublishAndAcquire() {
+		StringBuilder a = new StringBuilder();
+		StringBuilder b = new StringBuilder();
+		StringBuilder c = new StringBuilder();
+		TripleBuffer<StringBuilder> buffer = new TripleBuffer<StringBuilder>(
+				a, b, c);
+
+		assertFalse(buffer.hasNewData());
+		StringBuilder initial = buffer.acquire();
+
+		StringBuilder write = buffer.getWriteBuffer();
+		assertNotSame(initial, write);
+		write.setLength(0);
+		write.append("first");
+		buffer.publish();
+		assertTrue(buffer.hasNewData());
+
+		StringBuilder read = buffer.acquire();
+		assertEquals("first", read.toString());
+		assertFalse(buffer.hasNewData());
+
+		// publish twice without acquiring: the consumer skips the older one
+		for (String str : new String[] { "second", "third" }) {
+			write = buffer.getWriteBuffer();
+			assertNotSame(read, write);
+			write.setLength(0);
+			write.append(str);
+			buffer.publish();
+		}
+
+		// nothing new acquired yet: the held buffer stays untouched
+		assertEquals("first", read.toString());
+
+		read = buffer.acquire();
+		assertEquals("third", read.toString());
+
+		// without a new publish the same buffer is returned again
+		assertSame(read, buffer.acquire());
+	}
+
+}